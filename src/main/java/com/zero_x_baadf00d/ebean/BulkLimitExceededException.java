@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * Thrown when a bulk operation matches more rows than allowed for the
+ * model. The statement has not been executed, or has been rolled back.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see ModelConfig#getMaxBulkRows()
+ * @since 26.10.18
+ */
+public class BulkLimitExceededException extends PersistenceException {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of rows allowed.
+     *
+     * @since 26.10.18
+     */
+    private final int maxRows;
+
+    /**
+     * Number of rows the operation matched or affected.
+     *
+     * @since 26.10.18
+     */
+    private final int rowCount;
+
+    /**
+     * Build a new instance.
+     *
+     * @param modelName The model name
+     * @param maxRows   The maximum number of rows allowed
+     * @param rowCount  The number of rows the operation matched or affected
+     * @since 26.10.18
+     */
+    public BulkLimitExceededException(final String modelName, final int maxRows, final int rowCount) {
+        super("Bulk operation on " + modelName + " affected " + rowCount + " rows, at most " + maxRows + " allowed");
+        this.maxRows = maxRows;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Get the maximum number of rows allowed.
+     *
+     * @return The maximum number of rows
+     * @since 26.10.18
+     */
+    public int getMaxRows() {
+        return this.maxRows;
+    }
+
+    /**
+     * Get the number of rows the operation affected.
+     *
+     * @return The number of rows
+     * @since 26.10.18
+     */
+    public int getRowCount() {
+        return this.rowCount;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import io.ebean.Query;
+import io.ebeaninternal.api.SpiQuery;
+
+/**
+ * Enforce the maximum number of rows of the bulk operations, before and
+ * after their statement is executed.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see ModelConfig#getMaxBulkRows()
+ * @since 26.10.18
+ */
+final class BulkRowLimits {
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    private BulkRowLimits() {
+    }
+
+    /**
+     * Checks the number of rows matched by a bulk operation before its
+     * statement is executed.
+     *
+     * @param c           The model class
+     * @param modelConfig The model settings
+     * @param query       The filtered query
+     * @throws BulkLimitExceededException If the operation matches too many rows
+     * @since 26.10.18
+     */
+    static void checkRowCount(final Class<?> c, final ModelConfig modelConfig, final Query<?> query) {
+        if (modelConfig.getMaxBulkRows() > 0) {
+            final Query<?> countQuery = query.copy();
+            ((SpiQuery<?>) query).setCancelableQuery(countQuery::cancel);
+            BulkRowLimits.checkRowCount(c, modelConfig, countQuery.findCount());
+        }
+    }
+
+    /**
+     * Checks the number of rows affected by a bulk operation.
+     *
+     * @param c           The model class
+     * @param modelConfig The model settings
+     * @param rowCount    The number of affected rows
+     * @throws BulkLimitExceededException If the operation affected too many rows
+     * @since 26.10.18
+     */
+    static void checkRowCount(final Class<?> c, final ModelConfig modelConfig, final int rowCount) {
+        if (modelConfig.getMaxBulkRows() > 0 && rowCount > modelConfig.getMaxBulkRows()) {
+            throw new BulkLimitExceededException(c.getSimpleName(), modelConfig.getMaxBulkRows(), rowCount);
+        }
+    }
+}
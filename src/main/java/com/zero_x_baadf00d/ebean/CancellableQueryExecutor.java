@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import io.ebean.Query;
+
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Execute queries that are cancelled with {@link Query#cancel()} when their
+ * deadline passes or when an abort signal completes (ie: the client closed
+ * the connection), so abandoned queries stop holding a connection. The
+ * statements prepared outside of Ebean must be registered on the query
+ * with {@code SpiQuery.setCancelableQuery} to be cancelled too.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class CancellableQueryExecutor {
+
+    /**
+     * Marker of the executions already completed.
+     *
+     * @since 26.10.18
+     */
+    private static final String COMPLETED = "completed";
+
+    /**
+     * Scheduler cancelling the queries when their deadline passes.
+     *
+     * @since 26.10.18
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Build a new instance.
+     *
+     * @param scheduler Scheduler cancelling the queries when their deadline passes
+     * @since 26.10.18
+     */
+    public CancellableQueryExecutor(final ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Execute the query, cancelling it when the deadline passes or when the
+     * abort signal completes, whichever comes first.
+     *
+     * @param query       The query to execute
+     * @param deadline    Time allowed to the execution, zero for no deadline
+     * @param abortSignal Stage completed when the execution must be aborted, can be {@code null}
+     * @param execution   The execution of the query (ie: {@code Query::findList})
+     * @param <T>         Type of the queried model
+     * @param <R>         Type of the result
+     * @return The result of the execution
+     * @throws QueryCancelledException If the query has been cancelled
+     * @since 26.10.18
+     */
+    public <T, R> R execute(final Query<T> query,
+                            final Duration deadline,
+                            final CompletionStage<?> abortSignal,
+                            final Function<Query<T>, R> execution) {
+        final AtomicReference<String> cancellation = new AtomicReference<>();
+        final ScheduledFuture<?> timer = deadline.isZero()
+            ? null
+            : this.scheduler.schedule(() -> this.cancel(query, cancellation, "deadline exceeded"), deadline.toNanos(), TimeUnit.NANOSECONDS);
+        if (abortSignal != null) {
+            abortSignal.whenComplete((result, throwable) -> this.cancel(query, cancellation, "request aborted"));
+        }
+        try {
+            return execution.apply(query);
+        } catch (final PersistenceException ex) {
+            final String reason = cancellation.get();
+            if (reason != null && !reason.equals(CancellableQueryExecutor.COMPLETED)) {
+                throw new QueryCancelledException(reason, ex);
+            }
+            throw ex;
+        } finally {
+            cancellation.compareAndSet(null, CancellableQueryExecutor.COMPLETED);
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Cancel the query, unless its execution is already completed or cancelled.
+     *
+     * @param query        The query to cancel
+     * @param cancellation The cancellation state of the execution
+     * @param reason       Why the query is cancelled
+     * @since 26.10.18
+     */
+    private void cancel(final Query<?> query, final AtomicReference<String> cancellation, final String reason) {
+        if (cancellation.compareAndSet(null, reason)) {
+            query.cancel();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows changed since a sync token: the rows still alive, the primary
+ * keys of the soft deleted rows (tombstones) and the token to use on
+ * the next synchronization.
+ *
+ * @param <T> Type of the rows
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class ChangeSet<T> {
+
+    /**
+     * The changed rows still alive.
+     *
+     * @since 26.10.18
+     */
+    private final List<T> rows;
+
+    /**
+     * The primary keys of the soft deleted rows.
+     *
+     * @since 26.10.18
+     */
+    private final List<Object> deletedIds;
+
+    /**
+     * The token to use on the next synchronization.
+     *
+     * @since 26.10.18
+     */
+    private final String token;
+
+    /**
+     * Build a new instance.
+     *
+     * @param rows       The changed rows still alive
+     * @param deletedIds The primary keys of the soft deleted rows
+     * @param token      The token to use on the next synchronization
+     * @since 26.10.18
+     */
+    public ChangeSet(final List<T> rows, final List<Object> deletedIds, final String token) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.deletedIds = Collections.unmodifiableList(deletedIds);
+        this.token = token;
+    }
+
+    /**
+     * Get the changed rows still alive.
+     *
+     * @return The changed rows
+     * @since 26.10.18
+     */
+    public List<T> getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Get the primary keys of the soft deleted rows.
+     *
+     * @return The primary keys, empty if no row was deleted
+     * @since 26.10.18
+     */
+    public List<Object> getDeletedIds() {
+        return this.deletedIds;
+    }
+
+    /**
+     * Get the token to use, as {@code since} argument, on the next
+     * synchronization. The token holds the modification and the primary
+     * key of the last returned row (ie: {@code 2018-10-18T00:00:00Z_42}).
+     *
+     * @return The token, otherwise, {@code null} if nothing was ever returned
+     * @since 26.10.18
+     */
+    public String getToken() {
+        return this.token;
+    }
+}
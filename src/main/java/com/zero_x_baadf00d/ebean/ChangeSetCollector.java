@@ -0,0 +1,236 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import com.zero_x_baadf00d.ebean.utils.TimestampUtils;
+import io.ebean.Expr;
+import io.ebean.Model;
+import io.ebean.Query;
+import io.ebean.UpdateQuery;
+import io.ebean.bean.EntityBean;
+import io.ebeaninternal.api.SpiQuery;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restrict the queries to the rows after a sync token and collect the
+ * resulting rows into change sets. Sync tokens hold the modification and
+ * the primary key of the last returned row; rows are ordered by both values.
+ * Bulk statements mark their rows as modified, so they are seen by the sync.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see PlayEbeanHttpQuery#SINCE_ARGUMENT
+ * @since 26.10.18
+ */
+final class ChangeSetCollector {
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    private ChangeSetCollector() {
+    }
+
+    /**
+     * Restrict the query to the rows after the sync token given by the
+     * {@code since} argument: modified later or, if the token holds the
+     * primary key of its last row, modified at the same time with a greater
+     * primary key. Rows are ordered by modification, then by primary key, and
+     * soft deleted rows are included: they are the tombstones telling the
+     * client which rows to remove. Nothing is done if the argument is absent
+     * or invalid, or if the model has no {@code @WhenModified} property.
+     *
+     * @param args  The arguments taken from request
+     * @param query The query to configure
+     * @param <T>   Something that extends Model
+     * @return The sync token, otherwise, {@code null} if the query is not restricted
+     * @since 26.10.18
+     */
+    static <T extends Model> Instant applySince(final Map<String, String[]> args, final Query<T> query) {
+        final String[] rawSince = args.get(PlayEbeanHttpQuery.SINCE_ARGUMENT);
+        final Instant since = rawSince == null || rawSince.length == 0 ? null : TimestampUtils.parseSyncToken(rawSince[0]);
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        final BeanProperty whenModifiedProperty = beanDescriptor.whenModifiedProperty();
+        if (since == null || whenModifiedProperty == null) {
+            return null;
+        }
+        final Object sinceValue = TimestampUtils.toPropertyValue(whenModifiedProperty.type(), since);
+        final String rawLastId = TimestampUtils.parseSyncTokenId(rawSince[0]);
+        Object lastId;
+        try {
+            lastId = rawLastId == null ? null : beanDescriptor.convertId(rawLastId);
+        } catch (final IllegalArgumentException ignore) {
+            lastId = null;
+        }
+        if (lastId == null) {
+            query.where().gt(whenModifiedProperty.name(), sinceValue);
+        } else {
+            query.where().or(
+                Expr.gt(whenModifiedProperty.name(), sinceValue),
+                Expr.and(Expr.eq(whenModifiedProperty.name(), sinceValue), Expr.gt(beanDescriptor.idProperty().name(), lastId))
+            );
+        }
+        if (beanDescriptor.isSoftDelete()) {
+            query.setIncludeSoftDeletes();
+        }
+        ChangeSetCollector.orderByModification(beanDescriptor, query);
+        return since;
+    }
+
+    /**
+     * Order the query by modification, then by primary key: the order of
+     * the sync tokens.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @param query          The query to configure
+     * @param <T>            Something that extends Model
+     * @since 26.10.18
+     */
+    static <T extends Model> void orderByModification(final BeanDescriptor<T> beanDescriptor, final Query<T> query) {
+        query.orderBy().clear().asc(beanDescriptor.whenModifiedProperty().name());
+        query.orderBy().asc(beanDescriptor.idProperty().name());
+    }
+
+    /**
+     * Mark the rows of a bulk update as modified, in the same statement: the
+     * {@code @WhenModified} property is set to now and the {@code @Version}
+     * property is incremented (or set to now if it is a timestamp). Otherwise,
+     * the rows would be missed by the {@code since} argument and by the
+     * conditional probes.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @param updateQuery    The update to complete
+     * @param <T>            Something that extends Model
+     * @since 26.10.18
+     */
+    static <T extends Model> void markModified(final BeanDescriptor<T> beanDescriptor, final UpdateQuery<T> updateQuery) {
+        final Instant now = Instant.now();
+        final BeanProperty whenModifiedProperty = beanDescriptor.whenModifiedProperty();
+        if (whenModifiedProperty != null) {
+            updateQuery.set(whenModifiedProperty.name(), TimestampUtils.toPropertyValue(whenModifiedProperty.type(), now));
+        }
+        final BeanProperty versionProperty = beanDescriptor.versionProperty();
+        if (versionProperty != null && versionProperty != whenModifiedProperty) {
+            if (versionProperty.type().isPrimitive() || Number.class.isAssignableFrom(versionProperty.type())) {
+                updateQuery.setRaw(versionProperty.name() + " = " + versionProperty.name() + " + 1");
+            } else {
+                updateQuery.set(versionProperty.name(), TimestampUtils.toPropertyValue(versionProperty.type(), now));
+            }
+        }
+    }
+
+    /**
+     * Set the {@code @SoftDelete} property of the rows of a bulk update to
+     * the deleted value of its type, turning the update into a soft delete.
+     *
+     * @param beanDescriptor The descriptor of the model, soft deleted
+     * @param updateQuery    The update to complete
+     * @param <T>            Something that extends Model
+     * @since 26.10.18
+     */
+    static <T extends Model> void markDeleted(final BeanDescriptor<T> beanDescriptor, final UpdateQuery<T> updateQuery) {
+        final BeanProperty softDeleteProperty = ChangeSetCollector.softDeleteProperty(beanDescriptor);
+        final EntityBean deletedBean = beanDescriptor.createEntityBean();
+        beanDescriptor.softDeleteValue(deletedBean);
+        updateQuery.set(softDeleteProperty.name(), softDeleteProperty.getValue(deletedBean));
+    }
+
+    /**
+     * Split the rows, ordered by modification then primary key, into changed
+     * rows and tombstones. The next token is built from the last row; the
+     * given token is kept if there is no row.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @param foundRows      The rows returned by the query
+     * @param sinceToken     The raw sync token of the request, can be {@code null}
+     * @param <T>            Something that extends Model
+     * @return The change set
+     * @since 26.10.18
+     */
+    static <T extends Model> ChangeSet<T> collect(final BeanDescriptor<T> beanDescriptor, final List<T> foundRows, final String sinceToken) {
+        final BeanProperty whenModifiedProperty = beanDescriptor.whenModifiedProperty();
+        final BeanProperty softDeleteProperty = ChangeSetCollector.softDeleteProperty(beanDescriptor);
+        final List<T> rows = new ArrayList<>();
+        final List<Object> deletedIds = new ArrayList<>();
+        Instant latest = null;
+        Object latestId = null;
+        for (final T row : foundRows) {
+            final EntityBean entityBean = (EntityBean) row;
+            final Object whenModified = whenModifiedProperty.getValue(entityBean);
+            if (whenModified != null) {
+                final Instant modifiedAt = TimestampUtils.toInstant(whenModified);
+                if (latest == null || !modifiedAt.isBefore(latest)) {
+                    latest = modifiedAt;
+                    latestId = beanDescriptor.getId(entityBean);
+                }
+            }
+            if (softDeleteProperty != null && ChangeSetCollector.isDeleted(softDeleteProperty.getValue(entityBean))) {
+                deletedIds.add(beanDescriptor.getId(entityBean));
+            } else {
+                rows.add(row);
+            }
+        }
+        return new ChangeSet<>(rows, deletedIds, latest == null ? sinceToken : TimestampUtils.toSyncToken(latest, latestId));
+    }
+
+    /**
+     * Get the {@code @SoftDelete} property of a model.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @return The soft delete property, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private static BeanProperty softDeleteProperty(final BeanDescriptor<?> beanDescriptor) {
+        for (final BeanProperty beanProperty : beanDescriptor.propertiesBaseScalar()) {
+            if (beanProperty.isSoftDelete()) {
+                return beanProperty;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the value of a {@code @SoftDelete} property flags the row as
+     * deleted: {@code true}, a non-zero number or a non-null timestamp.
+     *
+     * @param softDeleteValue The value of the soft delete property
+     * @return {@code true} if the row is deleted
+     * @since 26.10.18
+     */
+    private static boolean isDeleted(final Object softDeleteValue) {
+        if (softDeleteValue instanceof Boolean) {
+            return (Boolean) softDeleteValue;
+        } else if (softDeleteValue instanceof Number) {
+            return ((Number) softDeleteValue).longValue() != 0;
+        }
+        return softDeleteValue != null;
+    }
+}
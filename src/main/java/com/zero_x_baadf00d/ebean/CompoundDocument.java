@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows matching a query, along with the side-loaded associations: for
+ * each included association, the distinct entities referenced by the rows.
+ *
+ * @param <T> Type of the rows
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class CompoundDocument<T> {
+
+    /**
+     * The matching rows.
+     *
+     * @since 26.10.18
+     */
+    private final List<T> rows;
+
+    /**
+     * The referenced entities, indexed by association name.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, List<?>> included;
+
+    /**
+     * Build a new instance.
+     *
+     * @param rows     The matching rows
+     * @param included The referenced entities, indexed by association name
+     * @since 26.10.18
+     */
+    public CompoundDocument(final List<T> rows, final Map<String, List<?>> included) {
+        this.rows = rows;
+        this.included = Collections.unmodifiableMap(included);
+    }
+
+    /**
+     * Get the matching rows.
+     *
+     * @return The matching rows
+     * @since 26.10.18
+     */
+    public List<T> getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Get the side-loaded associations.
+     *
+     * @return The referenced entities, indexed by association name
+     * @since 26.10.18
+     */
+    public Map<String, List<?>> getIncluded() {
+        return this.included;
+    }
+
+    /**
+     * Get the entities of an included association.
+     *
+     * @param name The association name
+     * @return The referenced entities, empty if the association is not included
+     * @since 26.10.18
+     */
+    public List<?> getIncluded(final String name) {
+        return this.included.getOrDefault(name, Collections.emptyList());
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import io.ebean.DB;
+import io.ebean.Database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Route read queries to named Ebean databases (ie: read replicas). A
+ * database marked as unhealthy is never used: the primary database is
+ * returned instead until it is marked healthy again. Databases are
+ * resolved from the ones registered on the router, then from the Ebean
+ * registry ({@code DB.byName}).
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class DatabaseRouter {
+
+    /**
+     * Name of the primary database, {@code null} for the Ebean default one.
+     *
+     * @since 26.10.18
+     */
+    private final String primaryName;
+
+    /**
+     * Databases registered on the router, by name.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, Database> databases;
+
+    /**
+     * Names of the databases currently marked as unhealthy.
+     *
+     * @since 26.10.18
+     */
+    private final Set<String> unhealthyDatabases;
+
+    /**
+     * Build a router using the Ebean default database as primary.
+     *
+     * @since 26.10.18
+     */
+    public DatabaseRouter() {
+        this(null);
+    }
+
+    /**
+     * Build a router.
+     *
+     * @param primaryName Name of the primary database, {@code null} for the Ebean default one
+     * @since 26.10.18
+     */
+    public DatabaseRouter(final String primaryName) {
+        this.primaryName = primaryName;
+        this.databases = new ConcurrentHashMap<>();
+        this.unhealthyDatabases = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Register a database. It will be available under its name.
+     *
+     * @param database The database to register
+     * @return The current router
+     * @since 26.10.18
+     */
+    public DatabaseRouter register(final Database database) {
+        this.databases.put(database.name(), database);
+        return this;
+    }
+
+    /**
+     * Get the primary database.
+     *
+     * @return The primary database
+     * @since 26.10.18
+     */
+    public Database getPrimary() {
+        return this.primaryName == null ? DB.getDefault() : this.getDatabase(this.primaryName);
+    }
+
+    /**
+     * Get the database to use for the given name.
+     *
+     * @param name The database name, {@code null} for the primary database
+     * @return The named database, or the primary database if the named one is unhealthy
+     * @since 26.10.18
+     */
+    public Database route(final String name) {
+        if (name == null || name.isEmpty() || name.equals(this.primaryName) || this.unhealthyDatabases.contains(name)) {
+            return this.getPrimary();
+        }
+        return this.getDatabase(name);
+    }
+
+    /**
+     * Mark a database as unhealthy: queries routed to it will use the primary database.
+     *
+     * @param name The database name
+     * @since 26.10.18
+     */
+    public void markUnhealthy(final String name) {
+        this.unhealthyDatabases.add(name);
+    }
+
+    /**
+     * Mark a database as healthy again.
+     *
+     * @param name The database name
+     * @since 26.10.18
+     */
+    public void markHealthy(final String name) {
+        this.unhealthyDatabases.remove(name);
+    }
+
+    /**
+     * Checks if a database is healthy.
+     *
+     * @param name The database name
+     * @return {@code true} if the database is not marked as unhealthy
+     * @since 26.10.18
+     */
+    public boolean isHealthy(final String name) {
+        return !this.unhealthyDatabases.contains(name);
+    }
+
+    /**
+     * Get the names of the databases currently marked as unhealthy.
+     *
+     * @return The unhealthy database names
+     * @since 26.10.18
+     */
+    public Set<String> getUnhealthyDatabases() {
+        return Collections.unmodifiableSet(this.unhealthyDatabases);
+    }
+
+    /**
+     * Check the connectivity of all registered databases and update their
+     * health accordingly. This method is meant to be scheduled by the application.
+     *
+     * @param timeoutSeconds Time to wait for each database to answer
+     * @since 26.10.18
+     */
+    public void checkHealth(final int timeoutSeconds) {
+        this.databases.forEach((name, database) -> {
+            boolean healthy;
+            try (final Connection connection = database.dataSource().getConnection()) {
+                healthy = connection.isValid(timeoutSeconds);
+            } catch (final SQLException ignore) {
+                healthy = false;
+            }
+            if (healthy) {
+                this.markHealthy(name);
+            } else {
+                this.markUnhealthy(name);
+            }
+        });
+    }
+
+    /**
+     * Retrieve a database by its name, without health check.
+     *
+     * @param name The database name
+     * @return The database
+     * @since 26.10.18
+     */
+    public Database getDatabase(final String name) {
+        final Database database = this.databases.get(name);
+        return database != null ? database : DB.byName(name);
+    }
+}
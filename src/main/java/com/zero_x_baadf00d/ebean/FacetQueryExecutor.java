@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Run the facet queries concurrently and optionally cache their results
+ * for a short time in a bounded LRU cache. The number of distinct values
+ * returned per facet is capped: only the most frequent values are kept.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FacetQueryExecutor {
+
+    /**
+     * Maximum number of cached facets, the least recently used are evicted first.
+     *
+     * @since 26.10.18
+     */
+    private static final int MAX_CACHED_FACETS = 1024;
+
+    /**
+     * Executor running the facet queries.
+     *
+     * @since 26.10.18
+     */
+    private final Executor executor;
+
+    /**
+     * Maximum number of distinct values per facet.
+     *
+     * @since 26.10.18
+     */
+    private final int maxValues;
+
+    /**
+     * Time to live of the cached facets, in milliseconds. Zero disables the cache.
+     *
+     * @since 26.10.18
+     */
+    private final long cacheTtlMillis;
+
+    /**
+     * Cached facets, indexed by key, in access order.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, CachedFacet> cache;
+
+    /**
+     * Build a new instance without cache.
+     *
+     * @param executor  Executor running the facet queries
+     * @param maxValues Maximum number of distinct values per facet
+     * @since 26.10.18
+     */
+    public FacetQueryExecutor(final Executor executor, final int maxValues) {
+        this(executor, maxValues, Duration.ZERO);
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param executor  Executor running the facet queries
+     * @param maxValues Maximum number of distinct values per facet
+     * @param cacheTtl  Time to live of the cached facets, zero to disable the cache
+     * @since 26.10.18
+     */
+    public FacetQueryExecutor(final Executor executor, final int maxValues, final Duration cacheTtl) {
+        if (maxValues <= 0) {
+            throw new IllegalArgumentException("maxValues must be greater than zero");
+        }
+        this.executor = executor;
+        this.maxValues = maxValues;
+        this.cacheTtlMillis = cacheTtl.toMillis();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CachedFacet>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedFacet> eldest) {
+                return this.size() > FacetQueryExecutor.MAX_CACHED_FACETS;
+            }
+        });
+    }
+
+    /**
+     * Get the maximum number of distinct values per facet.
+     *
+     * @return The maximum number of distinct values
+     * @since 26.10.18
+     */
+    public int getMaxValues() {
+        return this.maxValues;
+    }
+
+    /**
+     * Count the values of a facet. If the cache is enabled and holds a fresh
+     * result for the key, it is returned without running the counter.
+     *
+     * @param key     Key identifying the facet (model, path and predicates)
+     * @param counter The facet query
+     * @return The counts per distinct value
+     * @since 26.10.18
+     */
+    public CompletableFuture<Map<Object, Long>> count(final String key, final Supplier<Map<Object, Long>> counter) {
+        if (this.cacheTtlMillis <= 0) {
+            return CompletableFuture.supplyAsync(counter, this.executor);
+        }
+        final long now = System.currentTimeMillis();
+        final CachedFacet cachedFacet = this.cache.get(key);
+        if (cachedFacet != null && cachedFacet.expiresAt > now) {
+            return CompletableFuture.completedFuture(cachedFacet.values);
+        }
+        return CompletableFuture.supplyAsync(counter, this.executor).thenApply(values -> {
+            this.cache.put(key, new CachedFacet(values, System.currentTimeMillis() + this.cacheTtlMillis));
+            return values;
+        });
+    }
+
+    /**
+     * Get the number of cached facets, expired ones included.
+     *
+     * @return The number of cached facets
+     * @since 26.10.18
+     */
+    public int getCacheSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Remove all cached facets.
+     *
+     * @since 26.10.18
+     */
+    public void invalidateAll() {
+        this.cache.clear();
+    }
+
+    /**
+     * A cached facet.
+     *
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    private static final class CachedFacet {
+
+        /**
+         * The counts per distinct value.
+         *
+         * @since 26.10.18
+         */
+        private final Map<Object, Long> values;
+
+        /**
+         * Expiration time, in milliseconds since epoch.
+         *
+         * @since 26.10.18
+         */
+        private final long expiresAt;
+
+        /**
+         * Build a new instance.
+         *
+         * @param values    The counts per distinct value
+         * @param expiresAt Expiration time, in milliseconds since epoch
+         * @since 26.10.18
+         */
+        private CachedFacet(final Map<Object, Long> values, final long expiresAt) {
+            this.values = values;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
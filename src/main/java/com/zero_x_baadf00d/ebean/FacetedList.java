@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows matching a query, along with the facets computed on the same
+ * predicates: for each facet path, the number of matching rows per
+ * distinct value.
+ *
+ * @param <T> Type of the rows
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FacetedList<T> {
+
+    /**
+     * The matching rows.
+     *
+     * @since 26.10.18
+     */
+    private final List<T> rows;
+
+    /**
+     * The counts per distinct value, indexed by facet path.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, Map<Object, Long>> facets;
+
+    /**
+     * Build a new instance.
+     *
+     * @param rows   The matching rows
+     * @param facets The counts per distinct value, indexed by facet path
+     * @since 26.10.18
+     */
+    public FacetedList(final List<T> rows, final Map<String, Map<Object, Long>> facets) {
+        this.rows = rows;
+        this.facets = Collections.unmodifiableMap(facets);
+    }
+
+    /**
+     * Get the matching rows.
+     *
+     * @return The matching rows
+     * @since 26.10.18
+     */
+    public List<T> getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Get the facets.
+     *
+     * @return The counts per distinct value, most frequent first, indexed by facet path
+     * @since 26.10.18
+     */
+    public Map<String, Map<Object, Long>> getFacets() {
+        return this.facets;
+    }
+
+    /**
+     * Get the counts of a facet.
+     *
+     * @param path The resolved facet path
+     * @return The counts per distinct value, most frequent first, empty if the facet is unknown
+     * @since 26.10.18
+     */
+    public Map<Object, Long> getFacet(final String path) {
+        return this.facets.getOrDefault(path, Collections.emptyMap());
+    }
+}
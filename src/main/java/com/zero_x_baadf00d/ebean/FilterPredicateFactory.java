@@ -0,0 +1,305 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import akka.japi.Pair;
+import com.zero_x_baadf00d.ebean.converter.EbeanTypeConverter;
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.FilterPredicate;
+import com.zero_x_baadf00d.ebean.filter.FilterValidationError;
+import org.joda.time.DateTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Build the predicates of the filters from their raw values. Values are
+ * checked and converted with the converters of the configuration.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+final class FilterPredicateFactory {
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    private FilterPredicateFactory() {
+    }
+
+    /**
+     * Checks if the raw value can be used with the operator. A non empty value
+     * the converter turns into {@code null} is invalid; lists are checked
+     * value by value.
+     *
+     * @param snapshot   The configuration snapshot in use
+     * @param key        The key
+     * @param operator   The operator
+     * @param valueClass The type of the targeted field
+     * @param rawValue   The raw value
+     * @param errors     The list receiving the validation errors
+     * @return {@code true} if the value is valid
+     * @since 26.10.18
+     */
+    static boolean validateValue(final PlayEbeanHttpQueryConfig snapshot,
+                                 final String key,
+                                 final FilterOperator operator,
+                                 final Class<?> valueClass,
+                                 final String rawValue,
+                                 final List<FilterValidationError> errors) {
+        final EbeanTypeConverter<?> converter = snapshot.getConverter(valueClass);
+        switch (operator) {
+            case EQ:
+            case NE:
+            case GT:
+            case GTE:
+            case LT:
+            case LTE:
+                if (!rawValue.isEmpty() && converter.convert(rawValue) == null) {
+                    errors.add(new FilterValidationError(key, "invalid " + valueClass.getSimpleName() + " value", 0));
+                    return false;
+                }
+                return true;
+            case IN:
+            case NOTIN:
+            case BETWEEN:
+                boolean valid = true;
+                int valueStart = 0;
+                while (valueStart < rawValue.length()) {
+                    final int commaIdx = rawValue.indexOf(',', valueStart);
+                    final int valueEnd = commaIdx < 0 ? rawValue.length() : commaIdx;
+                    if (valueEnd > valueStart && converter.convert(rawValue.substring(valueStart, valueEnd)) == null) {
+                        errors.add(new FilterValidationError(key, "invalid " + valueClass.getSimpleName() + " value", valueStart));
+                        valid = false;
+                    }
+                    valueStart = valueEnd + 1;
+                }
+                return valid;
+            case ORDERBY:
+                if (rawValue.compareToIgnoreCase("asc") != 0 && rawValue.compareToIgnoreCase("desc") != 0) {
+                    errors.add(new FilterValidationError(key, "expected 'asc' or 'desc'", 0));
+                    return false;
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Build the predicate for a resolved path. Values are converted to the
+     * type of the targeted field. Datetime values are transformed to a range
+     * depending on their precision (ie: {@code 1999} means the whole year).
+     *
+     * @param snapshot   The configuration snapshot in use
+     * @param path       The resolved path
+     * @param operator   The operator
+     * @param notFlag    Is the "not" flag present
+     * @param valueClass The type of the targeted field
+     * @param primaryKey Is the path the primary key of the queried model
+     * @param rawValue   The raw value
+     * @return The predicate, otherwise, {@code null} for "order by" and unknown operators
+     * @since 26.10.18
+     */
+    static FilterPredicate create(final PlayEbeanHttpQueryConfig snapshot,
+                                  final String path,
+                                  final FilterOperator operator,
+                                  final boolean notFlag,
+                                  final Class<?> valueClass,
+                                  final boolean primaryKey,
+                                  final String rawValue) {
+        if (operator == null) {
+            return null;
+        }
+        final EbeanTypeConverter converter = snapshot.getConverter(valueClass);
+        switch (operator) {
+            case EQ:
+            case NE:
+                final Object value = converter.convert(rawValue);
+                if (value instanceof DateTime) {
+                    final Pair<DateTime, DateTime> dtRange = FilterPredicateFactory.transformSpecificDateTimeToRange(
+                        rawValue,
+                        (DateTime) value
+                    );
+                    return new FilterPredicate(
+                        path,
+                        FilterOperator.BETWEEN,
+                        operator == FilterOperator.NE ^ notFlag,
+                        valueClass,
+                        primaryKey,
+                        dtRange.first(),
+                        dtRange.second()
+                    );
+                }
+                return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, value);
+            case GT:
+            case GTE:
+            case LT:
+                return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, converter.convert(rawValue));
+            case LTE:
+                final Object lteValue = converter.convert(rawValue);
+                if (lteValue instanceof DateTime) {
+                    DateTime upperDateTime = ((DateTime) lteValue).plusMillis(999);
+                    switch (rawValue.length()) {
+                        case 16: /* yyyy-MM-dd'T'HH:mm */
+                            upperDateTime = upperDateTime
+                                .plusSeconds(59);
+                            break;
+                        case 13: /* yyyy-MM-dd'T'HH */
+                            upperDateTime = upperDateTime
+                                .plusMinutes(59)
+                                .plusSeconds(59);
+                            break;
+                        case 10: /* yyyy-MM-dd */
+                            upperDateTime = upperDateTime
+                                .plusHours(23)
+                                .plusMinutes(59)
+                                .plusSeconds(59);
+                            break;
+                        default:
+                            break;
+                    }
+                    return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, upperDateTime);
+                }
+                return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, lteValue);
+            case LIKE:
+            case ILIKE:
+            case CONTAINS:
+            case ICONTAINS:
+            case STARTSWITH:
+            case ISTARTSWITH:
+            case ENDSWITH:
+            case IENDSWITH:
+                return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, rawValue);
+            case IN:
+            case NOTIN:
+                if (rawValue.isEmpty()) {
+                    return new FilterPredicate(path, FilterOperator.IN, notFlag, valueClass, primaryKey);
+                }
+                return new FilterPredicate(
+                    path,
+                    operator,
+                    notFlag,
+                    valueClass,
+                    primaryKey,
+                    Arrays.stream(rawValue.split(",")).map(converter::convert).toArray()
+                );
+            case BETWEEN:
+                if (rawValue.isEmpty()) {
+                    return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey, null, null);
+                }
+                final String[] betweenArgs = rawValue.split(",");
+                return new FilterPredicate(
+                    path,
+                    operator,
+                    notFlag,
+                    valueClass,
+                    primaryKey,
+                    betweenArgs.length >= 1 ? converter.convert(betweenArgs[0]) : null,
+                    betweenArgs.length >= 2 ? converter.convert(betweenArgs[1]) : null
+                );
+            case ISNULL:
+            case ISNOTNULL:
+            case ISEMPTY:
+            case ISNOTEMPTY:
+                return new FilterPredicate(path, operator, notFlag, valueClass, primaryKey);
+            case SEARCH:
+            case ISEARCH:
+                return new FilterPredicate(path, operator, notFlag, String.class, primaryKey, rawValue);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Try to transform given Datetime to a range of datetime. The transformation is specific to PostgreSQL.
+     *
+     * @param rawValue The raw value
+     * @param dateTime The converted datetime
+     * @return A range of Datetime
+     * @since 18.07.23
+     */
+    private static Pair<DateTime, DateTime> transformSpecificDateTimeToRange(final String rawValue, final DateTime dateTime) {
+        DateTime lowerDateTime = dateTime;
+        DateTime upperDateTime = lowerDateTime.plusMillis(999);
+        switch (rawValue.length()) {
+            case 16: /* yyyy-MM-dd'T'HH:mm */
+                lowerDateTime = lowerDateTime
+                    .minusSeconds(lowerDateTime.getSecondOfMinute());
+                upperDateTime = upperDateTime
+                    .plusSeconds(59);
+                break;
+            case 13: /* yyyy-MM-dd'T'HH */
+                lowerDateTime = lowerDateTime
+                    .minusMinutes(lowerDateTime.getMinuteOfHour())
+                    .minusSeconds(lowerDateTime.getSecondOfMinute());
+                upperDateTime = upperDateTime
+                    .plusMinutes(59)
+                    .plusSeconds(59);
+                break;
+            case 10: /* yyyy-MM-dd */
+                lowerDateTime = lowerDateTime
+                    .minusHours(lowerDateTime.getHourOfDay())
+                    .minusMinutes(lowerDateTime.getMinuteOfHour())
+                    .minusSeconds(lowerDateTime.getSecondOfMinute());
+                upperDateTime = upperDateTime
+                    .plusHours(23)
+                    .plusMinutes(59)
+                    .plusSeconds(59);
+                break;
+            case 7: /* yyyy-MM */
+                lowerDateTime = lowerDateTime
+                    .withDayOfMonth(1)
+                    .minusHours(lowerDateTime.getHourOfDay())
+                    .minusMinutes(lowerDateTime.getMinuteOfHour())
+                    .minusSeconds(lowerDateTime.getSecondOfMinute());
+                upperDateTime = upperDateTime
+                    .withDayOfMonth(lowerDateTime.dayOfMonth().withMaximumValue().getDayOfMonth())
+                    .plusHours(23)
+                    .plusMinutes(59)
+                    .plusSeconds(59);
+                break;
+            case 4: /* yyyy */
+                lowerDateTime = lowerDateTime
+                    .withMonthOfYear(1)
+                    .withDayOfMonth(1)
+                    .minusHours(lowerDateTime.getHourOfDay())
+                    .minusMinutes(lowerDateTime.getMinuteOfHour())
+                    .minusSeconds(lowerDateTime.getSecondOfMinute());
+                upperDateTime = upperDateTime
+                    .withMonthOfYear(12)
+                    .withDayOfMonth(lowerDateTime.dayOfMonth().withMaximumValue().getDayOfMonth())
+                    .plusHours(23)
+                    .plusMinutes(59)
+                    .plusSeconds(59);
+                break;
+            default:
+                break;
+        }
+        return Pair.create(lowerDateTime, upperDateTime);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import io.ebean.Query;
+import io.ebean.Transaction;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.api.SpiQuery;
+import io.ebeaninternal.server.query.CQuery;
+
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Execute the statements prepared outside of Ebean. Ebean only cancels the
+ * statements it prepares itself: the statements prepared here are registered
+ * on a query, so {@link Query#cancel()} reaches them too.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see CancellableQueryExecutor
+ * @since 26.10.18
+ */
+final class JdbcStatements {
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    private JdbcStatements() {
+    }
+
+    /**
+     * Register the statement on the query: cancelling the query cancels the
+     * statement. If the query is already cancelled, the statement must not
+     * be executed.
+     *
+     * @param query     The query cancelling the statement
+     * @param statement The statement about to be executed
+     * @throws PersistenceException If the query is already cancelled
+     * @since 26.10.18
+     */
+    static void registerCancel(final Query<?> query, final Statement statement) {
+        ((SpiQuery<?>) query).setCancelableQuery(() -> {
+            try {
+                statement.cancel();
+            } catch (final SQLException ignore) {
+                // The statement is already closed
+            }
+        });
+    }
+
+    /**
+     * Execute the grouped SQL query of an aggregation.
+     *
+     * @param server      The server to use
+     * @param cQuery      The compiled filtered query, holding the bind values
+     * @param sql         The grouped SQL query
+     * @param labels      The labels of the groups and aggregates
+     * @param maxRows     Maximum number of rows to return, zero for no limit
+     * @param timeout     Statement timeout in seconds, zero for no timeout
+     * @param cancelledBy The query cancelling the statement
+     * @return The aggregate rows
+     * @throws PersistenceException If the SQL query fails or has been cancelled
+     * @since 26.10.18
+     */
+    static List<Map<String, Object>> executeAggregate(final SpiEbeanServer server,
+                                                      final CQuery<?> cQuery,
+                                                      final String sql,
+                                                      final List<String> labels,
+                                                      final int maxRows,
+                                                      final int timeout,
+                                                      final Query<?> cancelledBy) {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        try (final Transaction transaction = server.createTransaction()) {
+            final Connection connection = transaction.connection();
+            try (final PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setMaxRows(maxRows);
+                statement.setQueryTimeout(timeout);
+                cQuery.getPredicates().bind(statement, connection);
+                JdbcStatements.registerCancel(cancelledBy, statement);
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final Map<String, Object> row = new LinkedHashMap<>();
+                        for (int idx = 0; idx < labels.size(); ++idx) {
+                            row.put(labels.get(idx), resultSet.getObject(idx + 1));
+                        }
+                        rows.add(row);
+                    }
+                }
+            }
+        } catch (final SQLException ex) {
+            throw new PersistenceException(ex);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,611 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable settings specific to a model, retrieved from the
+ * configuration snapshot with {@link PlayEbeanHttpQueryConfig#getModelConfig(Class)}.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class ModelConfig {
+
+    /**
+     * Default maximum number of rows a bulk operation can affect.
+     *
+     * @since 26.10.18
+     */
+    public static final int DEFAULT_MAX_BULK_ROWS = 1000;
+
+    /**
+     * Settings of a model without specific configuration.
+     *
+     * @since 26.10.18
+     */
+    private static final ModelConfig EMPTY = new ModelConfig(
+        Collections.emptySet(),
+        null,
+        Collections.emptyList(),
+        false,
+        false,
+        Duration.ZERO,
+        Collections.emptySet(),
+        false,
+        ModelConfig.DEFAULT_MAX_BULK_ROWS,
+        false
+    );
+
+    /**
+     * Paths allowed with the full-text search operators.
+     *
+     * @since 26.10.18
+     */
+    private final Set<String> searchableProperties;
+
+    /**
+     * Name of the database serving the read queries, {@code null} for the primary database.
+     *
+     * @since 26.10.18
+     */
+    private final String databaseName;
+
+    /**
+     * Names of the databases holding the shards of the model.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> shardNames;
+
+    /**
+     * Is the Ebean L2 query cache used by the queries of the model.
+     *
+     * @since 26.10.18
+     */
+    private final boolean queryCacheEnabled;
+
+    /**
+     * Is the Ebean L2 bean cache used by the queries of the model.
+     *
+     * @since 26.10.18
+     */
+    private final boolean beanCacheEnabled;
+
+    /**
+     * Statement timeout of the queries of the model, zero for no timeout.
+     *
+     * @since 26.10.18
+     */
+    private final Duration timeout;
+
+    /**
+     * Properties that bulk updates are allowed to set.
+     *
+     * @since 26.10.18
+     */
+    private final Set<String> updatableProperties;
+
+    /**
+     * Are bulk deletes allowed.
+     *
+     * @since 26.10.18
+     */
+    private final boolean deletable;
+
+    /**
+     * Maximum number of rows a bulk operation can affect, zero for no limit.
+     *
+     * @since 26.10.18
+     */
+    private final int maxBulkRows;
+
+    /**
+     * Are the queries of the model read-only.
+     *
+     * @since 26.10.18
+     */
+    private final boolean readOnly;
+
+    /**
+     * Build a new instance.
+     *
+     * @param searchableProperties Paths allowed with the full-text search operators
+     * @param databaseName         Name of the database serving the read queries
+     * @param shardNames           Names of the databases holding the shards of the model
+     * @param queryCacheEnabled    Is the L2 query cache used
+     * @param beanCacheEnabled     Is the L2 bean cache used
+     * @param timeout              Statement timeout of the queries, zero for no timeout
+     * @param updatableProperties  Properties that bulk updates are allowed to set
+     * @param deletable            Are bulk deletes allowed
+     * @param maxBulkRows          Maximum number of rows a bulk operation can affect, zero for no limit
+     * @param readOnly             Are the queries read-only
+     * @since 26.10.18
+     */
+    private ModelConfig(final Set<String> searchableProperties,
+                        final String databaseName,
+                        final List<String> shardNames,
+                        final boolean queryCacheEnabled,
+                        final boolean beanCacheEnabled,
+                        final Duration timeout,
+                        final Set<String> updatableProperties,
+                        final boolean deletable,
+                        final int maxBulkRows,
+                        final boolean readOnly) {
+        this.searchableProperties = searchableProperties;
+        this.databaseName = databaseName;
+        this.shardNames = shardNames;
+        this.queryCacheEnabled = queryCacheEnabled;
+        this.beanCacheEnabled = beanCacheEnabled;
+        this.timeout = timeout;
+        this.updatableProperties = updatableProperties;
+        this.deletable = deletable;
+        this.maxBulkRows = maxBulkRows;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Get the settings of a model without specific configuration.
+     *
+     * @return The empty settings
+     * @since 26.10.18
+     */
+    public static ModelConfig empty() {
+        return ModelConfig.EMPTY;
+    }
+
+    /**
+     * Create a builder starting from empty settings.
+     *
+     * @return A new builder
+     * @since 26.10.18
+     */
+    public static Builder builder() {
+        return ModelConfig.EMPTY.toBuilder();
+    }
+
+    /**
+     * Create a builder deriving new settings from these ones.
+     *
+     * @return A new builder
+     * @since 26.10.18
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Get the paths allowed with the full-text search operators.
+     *
+     * @return The searchable paths
+     * @since 26.10.18
+     */
+    public Set<String> getSearchableProperties() {
+        return this.searchableProperties;
+    }
+
+    /**
+     * Checks if the path can be used with the full-text search operators.
+     *
+     * @param path The resolved path
+     * @return {@code true} if the path is searchable
+     * @since 26.10.18
+     */
+    public boolean isSearchable(final String path) {
+        return this.searchableProperties.contains(path);
+    }
+
+    /**
+     * Get the name of the database serving the read queries.
+     *
+     * @return The database name, {@code null} for the primary database
+     * @see DatabaseRouter
+     * @since 26.10.18
+     */
+    public String getDatabaseName() {
+        return this.databaseName;
+    }
+
+    /**
+     * Get the names of the databases holding the shards of the model.
+     *
+     * @return The shard database names, empty if the model is not sharded
+     * @see ShardedQueryExecutor
+     * @since 26.10.18
+     */
+    public List<String> getShardNames() {
+        return this.shardNames;
+    }
+
+    /**
+     * Checks if the queries of the model use the Ebean L2 query cache. The
+     * model must be annotated with {@code @Cache(enableQueryCache = true)}.
+     *
+     * @return {@code true} if the query cache is used
+     * @since 26.10.18
+     */
+    public boolean isQueryCacheEnabled() {
+        return this.queryCacheEnabled;
+    }
+
+    /**
+     * Checks if the queries of the model use the Ebean L2 bean cache. The
+     * model must be annotated with {@code @Cache}.
+     *
+     * @return {@code true} if the bean cache is used
+     * @since 26.10.18
+     */
+    public boolean isBeanCacheEnabled() {
+        return this.beanCacheEnabled;
+    }
+
+    /**
+     * Get the statement timeout of the queries of the model.
+     *
+     * @return The timeout, zero for no timeout
+     * @since 26.10.18
+     */
+    public Duration getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Get the properties that bulk updates are allowed to set.
+     *
+     * @return The updatable properties, empty if bulk updates are not allowed
+     * @since 26.10.18
+     */
+    public Set<String> getUpdatableProperties() {
+        return this.updatableProperties;
+    }
+
+    /**
+     * Checks if a bulk update is allowed to set the property.
+     *
+     * @param name The property name
+     * @return {@code true} if the property is updatable
+     * @since 26.10.18
+     */
+    public boolean isUpdatable(final String name) {
+        return this.updatableProperties.contains(name);
+    }
+
+    /**
+     * Checks if bulk deletes are allowed on the model.
+     *
+     * @return {@code true} if bulk deletes are allowed
+     * @since 26.10.18
+     */
+    public boolean isDeletable() {
+        return this.deletable;
+    }
+
+    /**
+     * Get the maximum number of rows a bulk operation can affect. A bulk
+     * operation matching more rows is rejected before its statement runs.
+     *
+     * @return The maximum number of rows, {@link #DEFAULT_MAX_BULK_ROWS} by default, zero for no limit
+     * @since 26.10.18
+     */
+    public int getMaxBulkRows() {
+        return this.maxBulkRows;
+    }
+
+    /**
+     * Checks if the queries of the model are read-only: returned beans can't
+     * be modified, lazy loading is disabled (unloaded properties read as
+     * {@code null}, unloaded to-many associations as empty) and the
+     * persistence context is scoped to the query.
+     *
+     * @return {@code true} if the queries are read-only
+     * @since 26.10.18
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelConfig{searchableProperties=" + this.searchableProperties
+            + ", databaseName=" + this.databaseName
+            + ", shardNames=" + this.shardNames
+            + ", queryCacheEnabled=" + this.queryCacheEnabled
+            + ", beanCacheEnabled=" + this.beanCacheEnabled
+            + ", timeout=" + this.timeout
+            + ", updatableProperties=" + this.updatableProperties
+            + ", deletable=" + this.deletable
+            + ", maxBulkRows=" + this.maxBulkRows
+            + ", readOnly=" + this.readOnly + "}";
+    }
+
+    /**
+     * Builder deriving new settings from parent ones.
+     *
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    public static final class Builder {
+
+        /**
+         * Paths allowed with the full-text search operators.
+         *
+         * @since 26.10.18
+         */
+        private Set<String> searchableProperties;
+
+        /**
+         * Name of the database serving the read queries.
+         *
+         * @since 26.10.18
+         */
+        private String databaseName;
+
+        /**
+         * Names of the databases holding the shards of the model.
+         *
+         * @since 26.10.18
+         */
+        private List<String> shardNames;
+
+        /**
+         * Is the L2 query cache used.
+         *
+         * @since 26.10.18
+         */
+        private boolean queryCacheEnabled;
+
+        /**
+         * Is the L2 bean cache used.
+         *
+         * @since 26.10.18
+         */
+        private boolean beanCacheEnabled;
+
+        /**
+         * Statement timeout of the queries.
+         *
+         * @since 26.10.18
+         */
+        private Duration timeout;
+
+        /**
+         * Properties that bulk updates are allowed to set.
+         *
+         * @since 26.10.18
+         */
+        private Set<String> updatableProperties;
+
+        /**
+         * Are bulk deletes allowed.
+         *
+         * @since 26.10.18
+         */
+        private boolean deletable;
+
+        /**
+         * Maximum number of rows a bulk operation can affect.
+         *
+         * @since 26.10.18
+         */
+        private int maxBulkRows;
+
+        /**
+         * Are the queries read-only.
+         *
+         * @since 26.10.18
+         */
+        private boolean readOnly;
+
+        /**
+         * Build a new instance.
+         *
+         * @param parent The parent settings
+         * @since 26.10.18
+         */
+        private Builder(final ModelConfig parent) {
+            this.searchableProperties = parent.searchableProperties;
+            this.databaseName = parent.databaseName;
+            this.shardNames = parent.shardNames;
+            this.queryCacheEnabled = parent.queryCacheEnabled;
+            this.beanCacheEnabled = parent.beanCacheEnabled;
+            this.timeout = parent.timeout;
+            this.updatableProperties = parent.updatableProperties;
+            this.deletable = parent.deletable;
+            this.maxBulkRows = parent.maxBulkRows;
+            this.readOnly = parent.readOnly;
+        }
+
+        /**
+         * Set the paths allowed with the full-text search operators.
+         *
+         * @param paths The searchable paths (ie: "name", "artist.name")
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setSearchableProperties(final String... paths) {
+            return this.setSearchableProperties(Arrays.asList(paths));
+        }
+
+        /**
+         * Set the paths allowed with the full-text search operators.
+         *
+         * @param paths The searchable paths (ie: "name", "artist.name")
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setSearchableProperties(final List<String> paths) {
+            this.searchableProperties = Collections.unmodifiableSet(new LinkedHashSet<>(paths));
+            return this;
+        }
+
+        /**
+         * Set the name of the database serving the read queries.
+         *
+         * @param name The database name, {@code null} for the primary database
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setDatabaseName(final String name) {
+            this.databaseName = name;
+            return this;
+        }
+
+        /**
+         * Set the names of the databases holding the shards of the model.
+         *
+         * @param names The shard database names
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setShardNames(final List<String> names) {
+            this.shardNames = Collections.unmodifiableList(new ArrayList<>(names));
+            return this;
+        }
+
+        /**
+         * Set if the queries of the model use the Ebean L2 query cache.
+         *
+         * @param enabled {@code true} to use the query cache
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setQueryCacheEnabled(final boolean enabled) {
+            this.queryCacheEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Set if the queries of the model use the Ebean L2 bean cache.
+         *
+         * @param enabled {@code true} to use the bean cache
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setBeanCacheEnabled(final boolean enabled) {
+            this.beanCacheEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Set the statement timeout of the queries of the model.
+         *
+         * @param duration The timeout, zero for no timeout
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setTimeout(final Duration duration) {
+            this.timeout = duration;
+            return this;
+        }
+
+        /**
+         * Set the properties that bulk updates are allowed to set.
+         *
+         * @param names The updatable properties (ie: "available")
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setUpdatableProperties(final String... names) {
+            return this.setUpdatableProperties(Arrays.asList(names));
+        }
+
+        /**
+         * Set the properties that bulk updates are allowed to set.
+         *
+         * @param names The updatable properties (ie: "available")
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setUpdatableProperties(final List<String> names) {
+            this.updatableProperties = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+            return this;
+        }
+
+        /**
+         * Set if bulk deletes are allowed on the model.
+         *
+         * @param allowed {@code true} to allow bulk deletes
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setDeletable(final boolean allowed) {
+            this.deletable = allowed;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of rows a bulk operation can affect.
+         *
+         * @param maxRows The maximum number of rows, zero for no limit
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setMaxBulkRows(final int maxRows) {
+            this.maxBulkRows = maxRows;
+            return this;
+        }
+
+        /**
+         * Set if the queries of the model are read-only.
+         *
+         * @param enabled {@code true} to make the queries read-only
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setReadOnly(final boolean enabled) {
+            this.readOnly = enabled;
+            return this;
+        }
+
+        /**
+         * Build the settings.
+         *
+         * @return The settings
+         * @since 26.10.18
+         */
+        public ModelConfig build() {
+            return new ModelConfig(
+                this.searchableProperties,
+                this.databaseName,
+                this.shardNames,
+                this.queryCacheEnabled,
+                this.beanCacheEnabled,
+                this.timeout,
+                this.updatableProperties,
+                this.deletable,
+                this.maxBulkRows,
+                this.readOnly
+            );
+        }
+    }
+}
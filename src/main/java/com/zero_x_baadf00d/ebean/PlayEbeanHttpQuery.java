@@ -23,42 +23,123 @@
  */
 package com.zero_x_baadf00d.ebean;
 
-import akka.japi.Pair;
-import com.zero_x_baadf00d.ebean.converter.EbeanTypeConverter;
-import com.zero_x_baadf00d.ebean.utils.StringUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zero_x_baadf00d.ebean.aggregate.Aggregate;
+import com.zero_x_baadf00d.ebean.aggregate.AggregateFunction;
+import com.zero_x_baadf00d.ebean.aggregate.AggregateSqlBuilder;
+import com.zero_x_baadf00d.ebean.descriptor.EntityPathDescriptor;
+import com.zero_x_baadf00d.ebean.filter.*;
+import com.zero_x_baadf00d.ebean.utils.TimestampUtils;
 import io.ebean.*;
-import org.joda.time.DateTime;
+import io.ebean.bean.EntityBean;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.api.SpiQuery;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+import io.ebeaninternal.server.deploy.BeanPropertyAssoc;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocOne;
+import io.ebeaninternal.server.query.CQuery;
+import play.libs.typedmap.TypedKey;
 import play.mvc.Http;
 
-import javax.persistence.Id;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
+import javax.persistence.PersistenceException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
 
 /**
  * Helper to map flat query strings to Ebean filters.
  *
  * @author Thibault Meyer
- * @version 20.08.21
+ * @version 26.10.18
  * @since 16.04.22
  */
 public class PlayEbeanHttpQuery implements Cloneable {
 
     /**
-     * Keys to ignore.
+     * Request attribute naming the database to use for the read queries.
      *
-     * @since 16.04.28
+     * @since 26.10.18
      */
-    private final ConcurrentLinkedQueue<String> ignoredPattern;
+    public static final TypedKey<String> DATABASE_NAME = TypedKey.create("ebeanHttpQuery.databaseName");
 
     /**
-     * Keys aliasing.
+     * Query string argument listing the paths to group by.
      *
-     * @since 16.09.30
+     * @since 26.10.18
+     */
+    public static final String GROUP_BY_ARGUMENT = "groupby";
+
+    /**
+     * Query string argument listing the aggregates to compute.
+     *
+     * @since 26.10.18
+     */
+    public static final String AGGREGATES_ARGUMENT = "agg";
+
+    /**
+     * Query string argument listing the facet paths.
+     *
+     * @since 26.10.18
+     */
+    public static final String FACETS_ARGUMENT = "facets";
+
+    /**
+     * Query string argument holding the incremental sync token.
+     *
+     * @since 26.10.18
+     */
+    public static final String SINCE_ARGUMENT = "since";
+
+    /**
+     * Query string argument holding the comma separated properties to write.
+     *
+     * @since 26.10.18
+     */
+    public static final String FIELDS_ARGUMENT = "fields";
+
+    /**
+     * Query string argument holding the comma separated associations to side-load.
+     *
+     * @since 26.10.18
+     */
+    public static final String INCLUDE_ARGUMENT = "include";
+
+    /**
+     * Maximum number of JSON writers kept, one per generated SQL.
+     *
+     * @since 26.10.18
+     */
+    private static final int MAX_JSON_WRITERS = 256;
+
+    /**
+     * Factory of the JSON generators, the output stream is left open.
+     *
+     * @since 26.10.18
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * Current configuration snapshot (ignore patterns, aliases and converters).
+     *
+     * @since 26.10.18
      */
-    private final Map<String, String> aliasPattern;
+    private volatile PlayEbeanHttpQueryConfig configuration;
 
     /**
      * Handle to the class loader in use.
@@ -67,15 +148,48 @@ public class PlayEbeanHttpQuery implements Cloneable {
      */
     private final ClassLoader classLoader;
 
+    /**
+     * Handle to the filter optimizer.
+     *
+     * @since 26.10.18
+     */
+    private final FilterOptimizer filterOptimizer;
+
+    /**
+     * Handle to the in-memory filter compiler.
+     *
+     * @since 26.10.18
+     */
+    private final FilterCompiler filterCompiler;
+
+    /**
+     * Path descriptor of each model class, generated at compile time or built by reflection.
+     *
+     * @since 26.10.18
+     */
+    private final Map<Class<?>, EntityPathDescriptor> pathDescriptors;
+
+    /**
+     * Names of the properties exposed by setters, indexed by DTO class.
+     *
+     * @since 26.10.18
+     */
+    private final Map<Class<?>, List<String>> dtoProperties;
+
+    /**
+     * JSON writers, indexed by generated SQL.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, ResultSetJsonWriter> jsonWriters;
+
     /**
      * Build a default instance.
      *
      * @since 16.04.28
      */
     public PlayEbeanHttpQuery() {
-        this.classLoader = this.getClass().getClassLoader();
-        this.ignoredPattern = new ConcurrentLinkedQueue<>();
-        this.aliasPattern = new ConcurrentHashMap<>();
+        this(PlayEbeanHttpQuery.class.getClassLoader());
     }
 
     /**
@@ -85,185 +199,151 @@ public class PlayEbeanHttpQuery implements Cloneable {
      * @since 16.05.05
      */
     public PlayEbeanHttpQuery(final ClassLoader classLoader) {
+        this(classLoader, PlayEbeanHttpQueryConfig.empty());
+    }
+
+    /**
+     * Build an instance with specific class loader and configuration.
+     *
+     * @param classLoader   The class loader to use
+     * @param configuration The configuration snapshot to use
+     * @since 26.10.18
+     */
+    public PlayEbeanHttpQuery(final ClassLoader classLoader, final PlayEbeanHttpQueryConfig configuration) {
         this.classLoader = classLoader;
-        this.ignoredPattern = new ConcurrentLinkedQueue<>();
-        this.aliasPattern = new ConcurrentHashMap<>();
+        this.configuration = configuration;
+        this.filterOptimizer = new FilterOptimizer();
+        this.filterCompiler = new FilterCompiler();
+        this.pathDescriptors = new ConcurrentHashMap<>();
+        this.dtoProperties = new ConcurrentHashMap<>();
+        this.jsonWriters = new ConcurrentHashMap<>();
     }
 
     /**
-     * Try to resolve the primary key field. Primary key is the field annotated with @Id.
+     * Build an instance deriving from another one. The configuration snapshot
+     * and the caches, which do not depend on the configuration, are shared.
      *
-     * @param clazz The class to inspect
-     * @return The {@code Field} object
-     * @since 18.06.18
+     * @param parent        The instance to derive from
+     * @param configuration The configuration snapshot to use
+     * @since 26.10.18
      */
-    private Field resolvePrimaryKeyField(final Class<?> clazz) {
-        Class<?> currentClazz = clazz;
-        while (currentClazz.getSuperclass() != null && currentClazz.getSuperclass() != Object.class) {
-            for (final Field field : currentClazz.getDeclaredFields()) {
-                if (field.isAnnotationPresent(Id.class)) {
-                    return field;
-                }
-            }
-            currentClazz = currentClazz.getSuperclass();
-        }
-        return null;
+    private PlayEbeanHttpQuery(final PlayEbeanHttpQuery parent, final PlayEbeanHttpQueryConfig configuration) {
+        this.classLoader = parent.classLoader;
+        this.configuration = configuration;
+        this.filterOptimizer = parent.filterOptimizer;
+        this.filterCompiler = parent.filterCompiler;
+        this.pathDescriptors = parent.pathDescriptors;
+        this.dtoProperties = parent.dtoProperties;
+        this.jsonWriters = parent.jsonWriters;
     }
 
     /**
-     * Try to resolve the field object the class and the field name.
+     * Get the path descriptor of the class. The descriptor generated at
+     * compile time is used if present, otherwise, it is built by reflection.
      *
-     * @param clazz         The class to inspect
-     * @param newObjectName The field name to find
-     * @return The {@code Field} object
-     * @since 16.04.22
+     * @param clazz The class to describe
+     * @return The path descriptor
+     * @see EntityPathDescriptor
+     * @since 26.10.18
      */
-    private Field resolveField(final Class<?> clazz, final String newObjectName) {
-        Class<?> currentClazz = clazz;
-        while (currentClazz.getSuperclass() != null && currentClazz.getSuperclass() != Object.class) {
-            try {
-                return currentClazz.getDeclaredField(newObjectName);
-            } catch (NoSuchFieldException ignore) {
-            }
-            currentClazz = currentClazz.getSuperclass();
-        }
-        return null;
+    private EntityPathDescriptor describe(final Class<?> clazz) {
+        return this.pathDescriptors.computeIfAbsent(clazz, key -> {
+            final EntityPathDescriptor generated = EntityPathDescriptor.findGenerated(key, this.classLoader);
+            return generated == null ? EntityPathDescriptor.reflect(key, this.classLoader) : generated;
+        });
     }
 
     /**
-     * Try to resolve class from {@code Field}.
+     * Get the current configuration snapshot.
      *
-     * @param field The field to use
-     * @return The class
-     * @since 16.04.22
+     * @return The configuration snapshot
+     * @since 26.10.18
      */
-    private Class<?> resolveClazz(final Field field) {
-        if (field.getType() == List.class) {
-            final ParameterizedType aType = (ParameterizedType) field.getGenericType();
-            try {
-                return this.classLoader.loadClass(aType.getActualTypeArguments()[0].getTypeName());
-            } catch (ClassNotFoundException ex) {
-                ex.printStackTrace();
-                return null;
-            }
-        }
-        return field.getType();
-    }
-
-    /**
-     * Try to transform given Datetime to a range of datetime. The transformation is specific to PostgreSQL.
-     *
-     * @param rawValue The raw value
-     * @param dateTime The converted datetime
-     * @return A range of Datetime
-     * @since 18.07.23
-     */
-    private Pair<DateTime, DateTime> transformSpecificDateTimeToRange(final String rawValue, final DateTime dateTime) {
-        DateTime lowerDateTime = dateTime;
-        DateTime upperDateTime = lowerDateTime.plusMillis(999);
-        switch (rawValue.length()) {
-            case 16: /* yyyy-MM-dd'T'HH:mm */
-                lowerDateTime = lowerDateTime
-                    .minusSeconds(lowerDateTime.getSecondOfMinute());
-                upperDateTime = upperDateTime
-                    .plusSeconds(59);
-                break;
-            case 13: /* yyyy-MM-dd'T'HH */
-                lowerDateTime = lowerDateTime
-                    .minusMinutes(lowerDateTime.getMinuteOfHour())
-                    .minusSeconds(lowerDateTime.getSecondOfMinute());
-                upperDateTime = upperDateTime
-                    .plusMinutes(59)
-                    .plusSeconds(59);
-                break;
-            case 10: /* yyyy-MM-dd */
-                lowerDateTime = lowerDateTime
-                    .minusHours(lowerDateTime.getHourOfDay())
-                    .minusMinutes(lowerDateTime.getMinuteOfHour())
-                    .minusSeconds(lowerDateTime.getSecondOfMinute());
-                upperDateTime = upperDateTime
-                    .plusHours(23)
-                    .plusMinutes(59)
-                    .plusSeconds(59);
-                break;
-            case 7: /* yyyy-MM */
-                lowerDateTime = lowerDateTime
-                    .withDayOfMonth(1)
-                    .minusHours(lowerDateTime.getHourOfDay())
-                    .minusMinutes(lowerDateTime.getMinuteOfHour())
-                    .minusSeconds(lowerDateTime.getSecondOfMinute());
-                upperDateTime = upperDateTime
-                    .withDayOfMonth(lowerDateTime.dayOfMonth().withMaximumValue().getDayOfMonth())
-                    .plusHours(23)
-                    .plusMinutes(59)
-                    .plusSeconds(59);
-                break;
-            case 4: /* yyyy */
-                lowerDateTime = lowerDateTime
-                    .withMonthOfYear(1)
-                    .withDayOfMonth(1)
-                    .minusHours(lowerDateTime.getHourOfDay())
-                    .minusMinutes(lowerDateTime.getMinuteOfHour())
-                    .minusSeconds(lowerDateTime.getSecondOfMinute());
-                upperDateTime = upperDateTime
-                    .withMonthOfYear(12)
-                    .withDayOfMonth(lowerDateTime.dayOfMonth().withMaximumValue().getDayOfMonth())
-                    .plusHours(23)
-                    .plusMinutes(59)
-                    .plusSeconds(59);
-                break;
-            default:
-                break;
-        }
-        return Pair.create(lowerDateTime, upperDateTime);
-    }
-
-    /**
-     * Checks if the given instruction is ignored.
-     *
-     * @param instruction The instruction to test
-     * @return {@code true} if the instruction is ignored
-     */
-    private boolean isInstructionIgnored(final String instruction) {
-        final Iterator<String> it = this.ignoredPattern.iterator();
-        while (it.hasNext()) {
-            if (instruction.matches(it.next())) {
-                return true;
-            }
-        }
-        return false;
+    public PlayEbeanHttpQueryConfig getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Create a new instance using the given configuration snapshot. The new
+     * instance is isolated: changing its configuration does not affect this one.
+     *
+     * @param newConfiguration The configuration snapshot to use
+     * @return A new instance
+     * @since 26.10.18
+     */
+    public PlayEbeanHttpQuery withConfiguration(final PlayEbeanHttpQueryConfig newConfiguration) {
+        return new PlayEbeanHttpQuery(this, newConfiguration);
     }
 
     /**
-     * Add patterns to the ignore list.
+     * Add patterns to the ignore list. A new configuration snapshot is derived
+     * from the current one.
      *
      * @param patterns The patterns who need to be ignored
      * @since 16.04.28
      */
-    public void addIgnoredPatterns(final String... patterns) {
-        Collections.addAll(this.ignoredPattern, patterns);
+    public synchronized void addIgnoredPatterns(final String... patterns) {
+        this.configuration = this.configuration.toBuilder().addIgnoredPatterns(patterns).build();
     }
 
     /**
-     * Add patterns to the ignore list.
+     * Add patterns to the ignore list. A new configuration snapshot is derived
+     * from the current one.
      *
      * @param patterns The patterns who need to be ignored
      * @since 16.04.28
      */
-    public void addIgnoredPatterns(final List<String> patterns) {
-        this.ignoredPattern.addAll(patterns);
+    public synchronized void addIgnoredPatterns(final List<String> patterns) {
+        this.configuration = this.configuration.toBuilder().addIgnoredPatterns(patterns).build();
     }
 
     /**
      * Add new alias. <pre>addAlias("article.album.displayName", "firstName")</pre> will
-     * create a something like: <pre>article.album.firstName</pre>
+     * create a something like: <pre>article.album.firstName</pre>. A new configuration
+     * snapshot is derived from the current one.
      *
      * @param pattern The pattern to match
      * @param alias   The alias to use
      * @since 16.09.30
      */
-    public void addAlias(final String pattern, final String alias) {
-        this.aliasPattern.put(pattern, alias);
+    public synchronized void addAlias(final String pattern, final String alias) {
+        this.configuration = this.configuration.toBuilder().addAlias(pattern, alias).build();
+    }
+
+    /**
+     * Resolve the database serving the read queries of the given model. The
+     * database configured for the model is used, unless it is marked as unhealthy.
+     *
+     * @param c   The model class
+     * @param <T> Something that extends Model
+     * @return The database to use
+     * @see DatabaseRouter
+     * @since 26.10.18
+     */
+    public <T extends Model> Database resolveDatabase(final Class<T> c) {
+        final PlayEbeanHttpQueryConfig snapshot = this.configuration;
+        return snapshot.getDatabaseRouter().route(snapshot.getModelConfig(c).getDatabaseName());
+    }
+
+    /**
+     * Resolve the database serving the read queries of the given model. The
+     * database named by the request attribute {@link #DATABASE_NAME} takes
+     * precedence over the one configured for the model. If the selected
+     * database is marked as unhealthy, the primary database is used.
+     *
+     * @param c       The model class
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The database to use
+     * @see DatabaseRouter
+     * @since 26.10.18
+     */
+    public <T extends Model> Database resolveDatabase(final Class<T> c, final Http.Request request) {
+        final PlayEbeanHttpQueryConfig snapshot = this.configuration;
+        final String databaseName = request.attrs()
+            .getOptional(PlayEbeanHttpQuery.DATABASE_NAME)
+            .orElse(snapshot.getModelConfig(c).getDatabaseName());
+        return snapshot.getDatabaseRouter().route(databaseName);
     }
 
     /**
@@ -279,7 +359,7 @@ public class PlayEbeanHttpQuery implements Cloneable {
      * @since 16.04.22
      */
     public <T extends Model> Query<T> buildQuery(final Class<T> c, final Http.Request request) {
-        return this.buildQuery(c, request.queryString(), Ebean.createQuery(c));
+        return this.buildQuery(c, request.queryString(), this.resolveDatabase(c, request).createQuery(c));
     }
 
     /**
@@ -312,7 +392,7 @@ public class PlayEbeanHttpQuery implements Cloneable {
      * @since 16.04.22
      */
     public <T extends Model> Query<T> buildQuery(final Class<T> c, final Map<String, String[]> args) {
-        return this.buildQuery(c, args, Ebean.createQuery(c));
+        return this.buildQuery(c, args, this.resolveDatabase(c).createQuery(c));
     }
 
     /**
@@ -331,267 +411,1557 @@ public class PlayEbeanHttpQuery implements Cloneable {
     public <T extends Model> Query<T> buildQuery(final Class<T> c,
                                                  final Map<String, String[]> args,
                                                  final Query<T> query) {
-        final ExpressionList<T> predicates = query.where();
-        final List<String> orderByPredicates = new ArrayList<>();
+        return this.buildQuery(c, args, this.buildFilter(c, args), query);
+    }
 
-        // Iterates overs all instructions
-        for (final Map.Entry<String, String[]> queryString : args.entrySet()) {
+    /**
+     * Same as {@link #buildQuery(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The Query
+     * @since 26.10.18
+     */
+    public <T extends Model> Query<T> buildQuery(final Class<T> c,
+                                                 final Map<String, String[]> args,
+                                                 final FilterTree filterTree,
+                                                 final Query<T> query) {
+        this.applyFilter(c, args, filterTree, query);
+        return query;
+    }
 
-            // Check if current instruction is not allowed
-            if (this.isInstructionIgnored(queryString.getKey())) {
-                continue;
-            }
+    /**
+     * Apply the filter tree and the {@code since} argument on the query, along
+     * with the caches modes, the statement timeout and the read-only mode
+     * configured for the model.
+     *
+     * @param c          The model class
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree
+     * @param query      The query to configure
+     * @param <T>        Something that extends Model
+     * @return The sync token, otherwise, {@code null} if the query is not restricted by the {@code since} argument
+     * @see ChangeSetCollector#applySince(Map, Query)
+     * @since 26.10.18
+     */
+    private <T extends Model> Instant applyFilter(final Class<T> c,
+                                                  final Map<String, String[]> args,
+                                                  final FilterTree filterTree,
+                                                  final Query<T> query) {
+        filterTree.applyTo(query.where());
+        final Instant since = ChangeSetCollector.applySince(args, query);
+        this.applyCacheModes(c, query);
+        this.applyTimeout(c, filterTree, query);
+        if (this.configuration.getModelConfig(c).isReadOnly()) {
+            this.applyReadOnly(query);
+        }
+        return since;
+    }
 
-            Class<?> currentClazz = c;
-            final String[] keys = queryString.getKey().split("__");
-            String foreignKeys = "";
-
-            // Resolves existing aliases
-            final List<String> newQueryWithAliasResolved = new ArrayList<>();
-            for (final String word : keys[0].split("\\.")) {
-                if (!this.aliasPattern.isEmpty()) {
-                    final String aliasKeyToTry = c.getSimpleName()
-                        + ">"
-                        + (foreignKeys.isEmpty() ? "" : foreignKeys + ".")
-                        + word;
-                    String alias = null;
-                    for (final Map.Entry<String, String> entry : this.aliasPattern.entrySet()) {
-                        if (aliasKeyToTry.matches(entry.getKey())) {
-                            alias = entry.getValue();
-                            break;
-                        }
-                    }
-                    if (alias != null) {
-                        newQueryWithAliasResolved.addAll(Arrays.asList(alias.split("\\.")));
-                    } else {
-                        newQueryWithAliasResolved.add(word);
-                    }
-                } else {
-                    newQueryWithAliasResolved.add(word);
-                }
-            }
+    /**
+     * Build a query for the given model class and arguments, then make it
+     * read-only, whatever the model configuration is.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The read-only query
+     * @see #applyReadOnly(Query)
+     * @since 26.10.18
+     */
+    public <T extends Model> Query<T> buildReadOnlyQuery(final Class<T> c, final Map<String, String[]> args, final Query<T> query) {
+        return this.applyReadOnly(this.buildQuery(c, args, query));
+    }
 
-            // Resolves right field (path + class) on the Model class
-            for (final String word : newQueryWithAliasResolved) {
-                final Field field = this.resolveField(currentClazz, word);
-                if (field != null) {
-                    currentClazz = this.resolveClazz(field);
-                    if (currentClazz == null) {
-                        currentClazz = c;
-                        break;
-                    }
-                    foreignKeys += (foreignKeys.isEmpty() ? "" : ".") + word;
-                }
-            }
-            final String rawValue = queryString.getValue() == null ? "" : queryString.getValue()[0];
-            if (Model.class.isAssignableFrom(currentClazz) && !foreignKeys.isEmpty()) {
-                final Field field = this.resolvePrimaryKeyField(currentClazz);
-                if (field != null) {
-                    foreignKeys += "." + field.getName();
-                    currentClazz = field.getType();
-                }
+    /**
+     * Same as {@link #buildReadOnlyQuery(Class, Map, Query)}, with the filter
+     * tree already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The read-only query
+     * @since 26.10.18
+     */
+    public <T extends Model> Query<T> buildReadOnlyQuery(final Class<T> c,
+                                                         final Map<String, String[]> args,
+                                                         final FilterTree filterTree,
+                                                         final Query<T> query) {
+        return this.applyReadOnly(this.buildQuery(c, args, filterTree, query));
+    }
+
+    /**
+     * Make the query read-only: the returned beans throw if modified, lazy
+     * loading is disabled and the persistence context is scoped to the query,
+     * so beans are not kept by the transaction. Unloaded properties are not
+     * fetched, one more query per bean, but silently read as {@code null}: a
+     * to-one association is a reference holding its primary key only, and a
+     * to-many association is empty. Fetch the needed associations explicitly.
+     *
+     * @param query The query to configure
+     * @param <T>   Type of the rows
+     * @return The query
+     * @since 26.10.18
+     */
+    private <T> Query<T> applyReadOnly(final Query<T> query) {
+        return query.setReadOnly(true)
+            .setDisableLazyLoading(true)
+            .setPersistenceContextScope(PersistenceContextScope.QUERY);
+    }
+
+    /**
+     * Apply the statement timeout configured for the model and the operators
+     * of the filter tree on the query. The strictest timeout applies; a
+     * stricter timeout already set on the query is kept.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree applied on the query
+     * @param query      The query to configure
+     * @param <T>        Something that extends Model
+     * @see ModelConfig#getTimeout()
+     * @see PlayEbeanHttpQueryConfig#getOperatorTimeout(FilterOperator)
+     * @since 26.10.18
+     */
+    private <T extends Model> void applyTimeout(final Class<T> c, final FilterTree filterTree, final Query<T> query) {
+        final int timeout = this.resolveTimeout(c, filterTree);
+        final int currentTimeout = ((SpiQuery<T>) query).getTimeout();
+        if (timeout > 0 && (currentTimeout <= 0 || timeout < currentTimeout)) {
+            query.setTimeout(timeout);
+        }
+    }
+
+    /**
+     * Resolve the statement timeout of a query: the strictest of the timeouts
+     * configured for the model and for the operators of the filter tree.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree of the query
+     * @return The timeout in seconds, rounded up, zero for no timeout
+     * @since 26.10.18
+     */
+    private int resolveTimeout(final Class<?> c, final FilterTree filterTree) {
+        final PlayEbeanHttpQueryConfig snapshot = this.configuration;
+        Duration timeout = snapshot.getModelConfig(c).getTimeout();
+        for (final FilterPredicate predicate : filterTree.getPredicates()) {
+            final Duration operatorTimeout = snapshot.getOperatorTimeout(predicate.getOperator());
+            if (!operatorTimeout.isZero() && (timeout.isZero() || operatorTimeout.compareTo(timeout) < 0)) {
+                timeout = operatorTimeout;
             }
+        }
+        return (int) ((timeout.toMillis() + 999) / 1000);
+    }
 
-            // Continue operation only if a field has been identified
-            if (!foreignKeys.isEmpty()) {
-
-                // Check if "not" flag is present. In this case, the "context predicates"
-                // will be set to use the following statement as NOT statement
-                final boolean notFlag = keys.length >= 3 && keys[1].compareToIgnoreCase("not") == 0;
-                final ExpressionList<T> ctxPredicates = notFlag ? predicates.not() : predicates;
-
-                // Find the right operator and create the statement
-                switch (keys.length >= 3 ? keys[2] : keys.length >= 2 ? keys[1] : "eq") {
-                    case "eq":
-                        final Object eqValue = EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue);
-                        if (eqValue instanceof DateTime) {
-                            final Pair<DateTime, DateTime> dtRange = this.transformSpecificDateTimeToRange(
-                                rawValue,
-                                (DateTime) eqValue
-                            );
-                            ctxPredicates.ge(foreignKeys, dtRange.first());
-                            ctxPredicates.le(foreignKeys, dtRange.second());
-                        } else {
-                            ctxPredicates.eq(foreignKeys, eqValue);
-                        }
-                        break;
-                    case "ne":
-                        final Object neValue = EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue);
-                        if (neValue instanceof DateTime) {
-                            final Pair<DateTime, DateTime> dtRange = this.transformSpecificDateTimeToRange(
-                                rawValue,
-                                (DateTime) neValue
-                            );
-                            ctxPredicates.not(
-                                Expr.and(
-                                    Expr.ge(foreignKeys, dtRange.first()),
-                                    Expr.le(foreignKeys, dtRange.second())
-                                )
-                            );
-                            ctxPredicates.endNot();
-                        } else {
-                            ctxPredicates.ne(foreignKeys, neValue);
-                        }
-                        break;
-                    case "gt":
-                        ctxPredicates.gt(
-                            foreignKeys,
-                            EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue)
-                        );
-                        break;
-                    case "gte":
-                        ctxPredicates.ge(
-                            foreignKeys,
-                            EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue)
-                        );
-                        break;
-                    case "lt":
-                        ctxPredicates.lt(
-                            foreignKeys,
-                            EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue)
-                        );
-                        break;
-                    case "lte":
-                        final Object lteValue = EbeanTypeConverterManager.getInstance().convert(currentClazz, rawValue);
-                        if (lteValue instanceof DateTime) {
-                            final DateTime dateTime = (DateTime) lteValue;
-                            DateTime upperDateTime = dateTime.plusMillis(999);
-                            switch (rawValue.length()) {
-                                case 16: /* yyyy-MM-dd'T'HH:mm */
-                                    upperDateTime = upperDateTime
-                                        .plusSeconds(59);
-                                    break;
-                                case 13: /* yyyy-MM-dd'T'HH */
-                                    upperDateTime = upperDateTime
-                                        .plusMinutes(59)
-                                        .plusSeconds(59);
-                                    break;
-                                case 10: /* yyyy-MM-dd */
-                                    upperDateTime = upperDateTime
-                                        .plusHours(23)
-                                        .plusMinutes(59)
-                                        .plusSeconds(59);
-                                    break;
-                                default:
-                                    break;
-                            }
-                            ctxPredicates.le(foreignKeys, upperDateTime);
-                        } else {
-                            ctxPredicates.le(foreignKeys, lteValue);
-                        }
-                        break;
-                    case "like":
-                        ctxPredicates.like(foreignKeys, rawValue);
-                        break;
-                    case "ilike":
-                        ctxPredicates.ilike(foreignKeys, rawValue);
-                        break;
-                    case "contains":
-                        ctxPredicates.contains(foreignKeys, rawValue);
-                        break;
-                    case "icontains":
-                        ctxPredicates.icontains(foreignKeys, rawValue);
-                        break;
-                    case "startswith":
-                        ctxPredicates.startsWith(foreignKeys, rawValue);
-                        break;
-                    case "endswith":
-                        ctxPredicates.endsWith(foreignKeys, rawValue);
-                        break;
-                    case "istartswith":
-                        ctxPredicates.istartsWith(foreignKeys, rawValue);
-                        break;
-                    case "iendswith":
-                        ctxPredicates.iendsWith(foreignKeys, rawValue);
-                        break;
-                    case "in":
-                        if (rawValue.isEmpty()) {
-                            ctxPredicates.in(foreignKeys, Collections.EMPTY_LIST);
-                        } else {
-                            final EbeanTypeConverter convertIn = EbeanTypeConverterManager.getInstance()
-                                .getConverter(currentClazz);
-                            ctxPredicates.in(
-                                foreignKeys,
-                                Arrays.stream(rawValue.split(",")).map(convertIn::convert).toArray()
-                            );
-                        }
-                        break;
-                    case "notin":
-                        if (rawValue.isEmpty()) {
-                            ctxPredicates.in(foreignKeys, Collections.EMPTY_LIST);
-                        } else {
-                            final EbeanTypeConverter convertNotIn = EbeanTypeConverterManager.getInstance()
-                                .getConverter(currentClazz);
-                            ctxPredicates.not(
-                                Expr.in(
-                                    foreignKeys,
-                                    Arrays.stream(rawValue.split(",")).map(convertNotIn::convert).toArray()
-                                )
-                            );
-                        }
-                        break;
-                    case "between":
-                        if (rawValue.isEmpty()) {
-                            ctxPredicates.between(foreignKeys, null, null);
-                        } else {
-                            final EbeanTypeConverter convertNotIn = EbeanTypeConverterManager.getInstance()
-                                .getConverter(currentClazz);
-                            final String[] betweenArgs = rawValue.split(",");
-                            ctxPredicates.between(
-                                foreignKeys,
-                                betweenArgs.length >= 1 ? convertNotIn.convert(betweenArgs[0]) : null,
-                                betweenArgs.length >= 2 ? convertNotIn.convert(betweenArgs[1]) : null
-                            );
-                        }
-                        break;
-                    case "isnull":
-                        ctxPredicates.isNull(foreignKeys);
-                        break;
-                    case "isnotnull":
-                        ctxPredicates.isNotNull(foreignKeys);
-                        break;
-                    case "isempty":
-                        ctxPredicates.isEmpty(StringUtils.substringBeforeLast(foreignKeys, "."));
-                        break;
-                    case "isnotempty":
-                        ctxPredicates.isNotEmpty(StringUtils.substringBeforeLast(foreignKeys, "."));
-                        break;
-                    case "orderby":
-                        if ((rawValue.compareToIgnoreCase("asc") == 0 || rawValue.compareToIgnoreCase("desc") == 0)) {
-                            orderByPredicates.add(foreignKeys + " " + rawValue);
-                        }
-                        break;
-                    default:
-                        break;
-                }
+    /**
+     * Enable the Ebean L2 caches configured for the model on the query. A
+     * cache is only enabled if the model is annotated to support it: the query
+     * cache needs {@code @Cache(enableQueryCache = true)}, the bean cache
+     * needs {@code @Cache}. Lookups by primary key ({@code id__eq}, {@code id__in})
+     * are then served by the bean cache before any SQL is issued.
+     *
+     * @param c     The model class
+     * @param query The query to configure
+     * @param <T>   Type of the rows
+     * @see ModelConfig#isQueryCacheEnabled()
+     * @see ModelConfig#isBeanCacheEnabled()
+     * @since 26.10.18
+     */
+    private <T> void applyCacheModes(final Class<?> c, final Query<T> query) {
+        final ModelConfig modelConfig = this.configuration.getModelConfig(c);
+        if (!modelConfig.isQueryCacheEnabled() && !modelConfig.isBeanCacheEnabled()) {
+            return;
+        }
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        if (modelConfig.isQueryCacheEnabled() && beanDescriptor.isQueryCaching()) {
+            query.setUseQueryCache(CacheMode.ON);
+        }
+        if (modelConfig.isBeanCacheEnabled() && beanDescriptor.isBeanCaching()) {
+            query.setBeanCacheMode(CacheMode.ON);
+        }
+    }
 
-                // Close the NOT statement if needed
-                if (notFlag) {
-                    ctxPredicates.endJunction();
+    /**
+     * Build the query for the given model class and arguments, then execute it. If
+     * the arguments contain contradictory predicates (ie: {@code year__gt=2000&year__lt=1990}),
+     * an empty list is returned without executing the query.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The matching rows
+     * @since 26.10.18
+     */
+    public <T extends Model> List<T> findList(final Class<T> c,
+                                              final Map<String, String[]> args,
+                                              final Query<T> query) {
+        return this.findList(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #findList(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The matching rows
+     * @since 26.10.18
+     */
+    public <T extends Model> List<T> findList(final Class<T> c,
+                                              final Map<String, String[]> args,
+                                              final FilterTree filterTree,
+                                              final Query<T> query) {
+        if (filterTree.isContradiction()) {
+            return new ArrayList<>();
+        }
+        this.applyFilter(c, args, filterTree, query);
+        return query.findList();
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then execute it
+     * along with the associations listed by the {@code include} argument (ie:
+     * {@code include=artist,cover}). Each association is loaded by a single
+     * secondary query on the distinct primary keys referenced by the rows, so
+     * the number of queries does not depend on the number of rows. Only to-one
+     * associations of the model holding the foreign key can be included;
+     * aliases and ignore patterns apply on their names.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The matching rows and the side-loaded associations
+     * @since 26.10.18
+     */
+    public <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c,
+                                                                      final Map<String, String[]> args,
+                                                                      final Query<T> query) {
+        return this.findListWithIncludes(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #findListWithIncludes(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The matching rows and the side-loaded associations
+     * @since 26.10.18
+     */
+    public <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c,
+                                                                      final Map<String, String[]> args,
+                                                                      final FilterTree filterTree,
+                                                                      final Query<T> query) {
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        final List<T> rows = this.findList(c, args, filterTree, query);
+        final Map<String, List<?>> included = new LinkedHashMap<>();
+        for (final String rawPath : this.splitArgument(args, PlayEbeanHttpQuery.INCLUDE_ARGUMENT)) {
+            final BeanPropertyAssocOne<?> association = this.resolveIncludedAssociation(c, beanDescriptor, rawPath);
+            if (association == null || included.containsKey(association.name())) {
+                continue;
+            }
+            final BeanDescriptor<?> targetDescriptor = association.targetDescriptor();
+            final Set<Object> ids = new LinkedHashSet<>();
+            for (final T row : rows) {
+                final Object reference = association.getValue((EntityBean) row);
+                if (reference != null) {
+                    ids.add(targetDescriptor.getId((EntityBean) reference));
                 }
             }
+            if (ids.isEmpty()) {
+                included.put(association.name(), Collections.emptyList());
+                continue;
+            }
+            final Query<?> includedQuery = beanDescriptor.ebeanServer().createQuery(targetDescriptor.type());
+            this.applyCacheModes(targetDescriptor.type(), includedQuery);
+            ((SpiQuery<T>) query).setCancelableQuery(includedQuery::cancel);
+            included.put(association.name(), includedQuery.where().idIn(ids).findList());
         }
+        return new CompoundDocument<>(rows, included);
+    }
 
-        // Build "Order by" predicates
-        if (!orderByPredicates.isEmpty()) {
-            predicates.orderBy(String.join(", ", orderByPredicates));
+    /**
+     * Resolve the name of an association to include.
+     *
+     * @param c              The model class
+     * @param beanDescriptor The descriptor of the model
+     * @param rawPath        The association name as given on the query string
+     * @param <T>            Something that extends Model
+     * @return The association, otherwise, {@code null} if it can't be included
+     * @since 26.10.18
+     */
+    private <T extends Model> BeanPropertyAssocOne<?> resolveIncludedAssociation(final Class<T> c,
+                                                                                final BeanDescriptor<T> beanDescriptor,
+                                                                                final String rawPath) {
+        // A path ending on an association is resolved to its primary key (ie: "artist.id")
+        final String path = this.resolvePath(c, rawPath);
+        final int dotIdx = path == null ? -1 : path.indexOf('.');
+        if (dotIdx < 0 || path.indexOf('.', dotIdx + 1) >= 0) {
+            return null;
+        }
+        final BeanProperty beanProperty = beanDescriptor.findProperty(path.substring(0, dotIdx));
+        if (beanProperty instanceof BeanPropertyAssocOne && !((BeanPropertyAssocOne<?>) beanProperty).isOneToOneExported()) {
+            return (BeanPropertyAssocOne<?>) beanProperty;
         }
+        return null;
+    }
 
-        // Return the prepared query
-        return query;
+    /**
+     * Build the query for the given model class and arguments, then execute it
+     * as a DTO query: rows are mapped straight into instances of the DTO class,
+     * without entity beans, persistence context or lazy loading. Only the
+     * properties of the model having a setter on the DTO class are selected; if
+     * there is none (ie: constructor only DTO), the selection of the query is
+     * kept. Columns without matching property on the DTO class are skipped.
+     *
+     * @param c        The model class that this method will create request for
+     * @param dtoClass The DTO class
+     * @param args     The arguments taken from request
+     * @param query    The current query object
+     * @param <T>      Something that extends Model
+     * @param <D>      Type of the DTO
+     * @return The matching rows
+     * @since 26.10.18
+     */
+    public <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                                    final Class<D> dtoClass,
+                                                    final Map<String, String[]> args,
+                                                    final Query<T> query) {
+        return this.findDtoList(c, dtoClass, args, this.buildFilter(c, args), query);
     }
 
     /**
-     * Clone object.
+     * Same as {@link #findDtoList(Class, Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
      *
-     * @return A new instance
-     * @since 16.09.06
+     * @param c          The model class that this method will create request for
+     * @param dtoClass   The DTO class
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @param <D>        Type of the DTO
+     * @return The matching rows
+     * @since 26.10.18
      */
-    public Object clone() {
-        try {
-            return super.clone();
-        } catch (CloneNotSupportedException ignore) {
+    public <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                                    final Class<D> dtoClass,
+                                                    final Map<String, String[]> args,
+                                                    final FilterTree filterTree,
+                                                    final Query<T> query) {
+        if (filterTree.isContradiction()) {
+            return new ArrayList<>();
         }
-        return null;
+        this.applyFilter(c, args, filterTree, query);
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        final StringJoiner selectedProperties = new StringJoiner(",");
+        for (final String propertyName : this.resolveDtoProperties(dtoClass)) {
+            final BeanProperty beanProperty = beanDescriptor.findProperty(propertyName);
+            if (beanProperty != null && !beanProperty.isTransient() && !(beanProperty instanceof BeanPropertyAssoc)) {
+                selectedProperties.add(propertyName);
+            }
+        }
+        if (selectedProperties.length() > 0) {
+            query.select(selectedProperties.toString());
+        }
+        return query.asDto(dtoClass).setRelaxedMode().findList();
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then stream the
+     * matching rows as a JSON array, straight from the JDBC result set: no bean
+     * is created. The {@code fields} argument restricts the written properties
+     * (ie: {@code fields=id,name}), otherwise, all scalar properties of the
+     * model are written. Associations are not written.
+     *
+     * @param c            The model class that this method will create request for
+     * @param args         The arguments taken from request
+     * @param query        The current query object
+     * @param outputStream The stream receiving the JSON array, it is not closed
+     * @param <T>          Something that extends Model
+     * @return The number of written rows
+     * @throws IOException          If the JSON can't be written
+     * @throws PersistenceException If the query fails
+     * @since 26.10.18
+     */
+    public <T extends Model> int writeJson(final Class<T> c,
+                                           final Map<String, String[]> args,
+                                           final Query<T> query,
+                                           final OutputStream outputStream) throws IOException {
+        return this.writeJson(c, args, this.buildFilter(c, args), query, outputStream);
+    }
+
+    /**
+     * Same as {@link #writeJson(Class, Map, Query, OutputStream)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c            The model class that this method will create request for
+     * @param args         The arguments taken from request
+     * @param filterTree   The filter tree built from the arguments
+     * @param query        The current query object
+     * @param outputStream The stream receiving the JSON array, it is not closed
+     * @param <T>          Something that extends Model
+     * @return The number of written rows
+     * @throws IOException          If the JSON can't be written
+     * @throws PersistenceException If the query fails
+     * @since 26.10.18
+     */
+    public <T extends Model> int writeJson(final Class<T> c,
+                                           final Map<String, String[]> args,
+                                           final FilterTree filterTree,
+                                           final Query<T> query,
+                                           final OutputStream outputStream) throws IOException {
+        int rowCount = 0;
+        try (final JsonGenerator generator = PlayEbeanHttpQuery.JSON_FACTORY.createGenerator(outputStream)) {
+            generator.writeStartArray();
+            if (!filterTree.isContradiction()) {
+                this.applyFilter(c, args, filterTree, query);
+                final SpiQuery<T> spiQuery = (SpiQuery<T>) query;
+                final BeanDescriptor<T> beanDescriptor = spiQuery.getBeanDescriptor();
+                final StringJoiner selectedProperties = new StringJoiner(",");
+                for (final String propertyName : this.splitArgument(args, PlayEbeanHttpQuery.FIELDS_ARGUMENT)) {
+                    final BeanProperty beanProperty = beanDescriptor.findProperty(propertyName);
+                    if (beanProperty != null && !beanProperty.isTransient() && !(beanProperty instanceof BeanPropertyAssoc)) {
+                        selectedProperties.add(propertyName);
+                    }
+                }
+                if (selectedProperties.length() > 0) {
+                    query.select(selectedProperties.toString());
+                }
+                final SpiEbeanServer server = beanDescriptor.ebeanServer();
+                final CQuery<T> cQuery = server.compileQuery(SpiQuery.Type.LIST, spiQuery, null);
+                final String sql = cQuery.getGeneratedSql();
+                try (final Transaction transaction = server.createTransaction()) {
+                    final Connection connection = transaction.connection();
+                    try (final PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setQueryTimeout(spiQuery.getTimeout());
+                        cQuery.getPredicates().bind(statement, connection);
+                        JdbcStatements.registerCancel(query, statement);
+                        try (final ResultSet resultSet = statement.executeQuery()) {
+                            rowCount = this.resolveJsonWriter(beanDescriptor, sql, resultSet.getMetaData()).writeRows(resultSet, generator);
+                        }
+                    }
+                } catch (final SQLException ex) {
+                    throw new PersistenceException(ex);
+                }
+            }
+            generator.writeEndArray();
+        }
+        return rowCount;
+    }
+
+    /**
+     * Get the JSON writer of a generated SQL.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @param sql            The generated SQL
+     * @param metaData       The metadata of the result set
+     * @return The JSON writer
+     * @throws SQLException If the metadata can't be read
+     * @since 26.10.18
+     */
+    private ResultSetJsonWriter resolveJsonWriter(final BeanDescriptor<?> beanDescriptor,
+                                                  final String sql,
+                                                  final ResultSetMetaData metaData) throws SQLException {
+        final ResultSetJsonWriter cachedWriter = this.jsonWriters.get(sql);
+        if (cachedWriter != null && cachedWriter.getColumnCount() == metaData.getColumnCount()) {
+            return cachedWriter;
+        }
+        final ResultSetJsonWriter jsonWriter = ResultSetJsonWriter.create(beanDescriptor, metaData);
+        if (this.jsonWriters.size() < PlayEbeanHttpQuery.MAX_JSON_WRITERS) {
+            this.jsonWriters.put(sql, jsonWriter);
+        }
+        return jsonWriter;
+    }
+
+    /**
+     * Get the names of the properties exposed by setters on the DTO class.
+     *
+     * @param dtoClass The DTO class
+     * @return The names of the properties
+     * @since 26.10.18
+     */
+    private List<String> resolveDtoProperties(final Class<?> dtoClass) {
+        return this.dtoProperties.computeIfAbsent(dtoClass, key -> {
+            final List<String> propertyNames = new ArrayList<>();
+            for (final Method method : key.getMethods()) {
+                if (method.getName().length() > 3
+                    && method.getName().startsWith("set")
+                    && method.getParameterCount() == 1
+                    && !Modifier.isStatic(method.getModifiers())) {
+                    propertyNames.add(Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4));
+                }
+            }
+            return Collections.unmodifiableList(propertyNames);
+        });
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then execute it
+     * concurrently on each shard. The rows are merged following the "order by"
+     * run by the shards: the instructions of the arguments, after the orderings
+     * already set on the query. They are paginated according to the first row
+     * and maximum rows of the query.
+     *
+     * @param c        The model class that this method will create request for
+     * @param args     The arguments taken from request
+     * @param query    The current query object
+     * @param executor The executor holding the shards
+     * @param <T>      Something that extends Model
+     * @return The matching rows of all shards
+     * @throws IllegalArgumentException If an ordering can't be resolved on the model (ie: a raw SQL expression)
+     * @see ShardedQueryExecutor
+     * @since 26.10.18
+     */
+    public <T extends Model> List<T> findListSharded(final Class<T> c,
+                                                     final Map<String, String[]> args,
+                                                     final Query<T> query,
+                                                     final ShardedQueryExecutor executor) {
+        return this.findListSharded(c, args, this.buildFilter(c, args), query, executor);
+    }
+
+    /**
+     * Same as {@link #findListSharded(Class, Map, Query, ShardedQueryExecutor)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param executor   The executor holding the shards
+     * @param <T>        Something that extends Model
+     * @return The matching rows of all shards
+     * @throws IllegalArgumentException If an ordering can't be resolved on the model (ie: a raw SQL expression)
+     * @see ShardedQueryExecutor
+     * @since 26.10.18
+     */
+    public <T extends Model> List<T> findListSharded(final Class<T> c,
+                                                     final Map<String, String[]> args,
+                                                     final FilterTree filterTree,
+                                                     final Query<T> query,
+                                                     final ShardedQueryExecutor executor) {
+        if (filterTree.isContradiction()) {
+            return new ArrayList<>();
+        }
+        this.applyFilter(c, args, filterTree, query);
+        return executor.findList(query, this.filterCompiler.compileComparator(c, query.orderBy().getProperties()));
+    }
+
+    /**
+     * Build a query for the given model class and arguments, then explain it. The
+     * explanation contains the resolved predicates, the SQL generated by Ebean with
+     * its bind values and the execution plan returned by the database {@code EXPLAIN}
+     * statement. The query is built like {@link #buildQuery(Class, Map, Query)} does,
+     * with the model timeout and the {@code since} argument, and the statement
+     * timeout applies to the {@code EXPLAIN} statement. A contradiction is never
+     * sent to the database: no SQL is generated for it. The given query is not
+     * modified and no row is fetched.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The query explanation
+     * @see QueryExplanation
+     * @since 26.10.18
+     */
+    public <T extends Model> QueryExplanation explainQuery(final Class<T> c,
+                                                           final Map<String, String[]> args,
+                                                           final Query<T> query) {
+        final FilterTree filterTree = this.buildFilter(c, args);
+        final List<String> plan = new ArrayList<>();
+        if (filterTree.isContradiction()) {
+            plan.add("Contradiction: no query is sent to the database");
+            return new QueryExplanation(filterTree, "", new ArrayList<>(), plan);
+        }
+        final Query<T> explainedQuery = query.copy();
+        this.applyFilter(c, args, filterTree, explainedQuery);
+        final SpiEbeanServer server = ((SpiQuery<T>) explainedQuery).getBeanDescriptor().ebeanServer();
+        final CQuery<T> cQuery = server.compileQuery(SpiQuery.Type.LIST, explainedQuery, null);
+
+        try (final Transaction transaction = server.createTransaction()) {
+            final Connection connection = transaction.connection();
+            try (final PreparedStatement statement = connection.prepareStatement("EXPLAIN " + cQuery.getGeneratedSql())) {
+                if (((SpiQuery<T>) explainedQuery).getTimeout() > 0) {
+                    statement.setQueryTimeout(((SpiQuery<T>) explainedQuery).getTimeout());
+                }
+                cQuery.getPredicates().bind(statement, connection);
+                JdbcStatements.registerCancel(query, statement);
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.add(resultSet.getString(1));
+                    }
+                }
+            }
+        } catch (final SQLException ex) {
+            plan.add("EXPLAIN failed: " + ex.getMessage());
+        }
+
+        return new QueryExplanation(
+            filterTree,
+            cQuery.getGeneratedSql(),
+            cQuery.getPredicates().getWhereExprBindValues(),
+            plan
+        );
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then aggregate
+     * the matching rows with a single grouped SQL query. The paths to group by
+     * are listed by the {@code groupby} argument, the aggregates by the
+     * {@code agg} argument (ie: {@code groupby=artist.name&agg=count,sum:length,avg:year}).
+     * Paths are resolved like filters: aliases and ignore patterns apply. Paths
+     * crossing a to-many association are skipped. Without valid aggregates,
+     * rows are counted.
+     * <p>
+     * Each result row maps the group paths and the aggregate labels
+     * (ie: "count", "sum:length") to their values.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The aggregate rows, ordered by groups
+     * @throws PersistenceException If the SQL query fails
+     * @see AggregateFunction
+     * @since 26.10.18
+     */
+    public <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c,
+                                                                 final Map<String, String[]> args,
+                                                                 final Query<T> query) {
+        return this.aggregate(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #aggregate(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The aggregate rows, ordered by groups
+     * @throws PersistenceException If the SQL query fails
+     * @see AggregateFunction
+     * @since 26.10.18
+     */
+    public <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c,
+                                                                 final Map<String, String[]> args,
+                                                                 final FilterTree filterTree,
+                                                                 final Query<T> query) {
+        if (filterTree.isContradiction()) {
+            return new ArrayList<>();
+        }
+        final SpiQuery<T> filteredQuery = (SpiQuery<T>) query.copy();
+        final BeanDescriptor<T> beanDescriptor = filteredQuery.getBeanDescriptor();
+        final AggregateSqlBuilder sqlBuilder = new AggregateSqlBuilder(beanDescriptor);
+        final List<String> labels = new ArrayList<>();
+
+        for (final String rawPath : this.splitArgument(args, PlayEbeanHttpQuery.GROUP_BY_ARGUMENT)) {
+            final String path = this.resolvePath(c, rawPath);
+            if (path != null && sqlBuilder.addGroup(path)) {
+                labels.add(path);
+            }
+        }
+        final int groupCount = labels.size();
+        for (final String rawAggregate : this.splitArgument(args, PlayEbeanHttpQuery.AGGREGATES_ARGUMENT)) {
+            final int colonIdx = rawAggregate.indexOf(':');
+            final AggregateFunction function = AggregateFunction.fromKeyword(colonIdx < 0 ? rawAggregate : rawAggregate.substring(0, colonIdx));
+            final String path = colonIdx < 0 ? null : this.resolvePath(c, rawAggregate.substring(colonIdx + 1));
+            if (function != null && (path != null || (colonIdx < 0 && function == AggregateFunction.COUNT))) {
+                final Aggregate aggregate = new Aggregate(function, path);
+                if (!labels.contains(aggregate.getLabel()) && sqlBuilder.addAggregate(aggregate)) {
+                    labels.add(aggregate.getLabel());
+                }
+            }
+        }
+        if (labels.size() == groupCount) {
+            final Aggregate aggregate = new Aggregate(AggregateFunction.COUNT, null);
+            sqlBuilder.addAggregate(aggregate);
+            labels.add(aggregate.getLabel());
+        }
+
+        final CQuery<T> cQuery = this.compileFilteredIdQuery(args, filteredQuery, filterTree);
+        return JdbcStatements.executeAggregate(
+            beanDescriptor.ebeanServer(),
+            cQuery,
+            sqlBuilder.build(cQuery.getGeneratedSql()),
+            labels,
+            0,
+            this.resolveTimeout(c, filterTree),
+            query
+        );
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then execute it
+     * along with the facets listed by the {@code facets} argument (ie: {@code facets=year,artist.name}).
+     * For each facet path, the matching rows are counted per distinct value with a
+     * grouped SQL query. Facet queries run concurrently with the main query, they
+     * only return the most frequent values, up to the limit of the executor. They
+     * get the statement timeout of the main query, and their statements are
+     * cancelled when the main query fails or is cancelled.
+     *
+     * @param c        The model class that this method will create request for
+     * @param args     The arguments taken from request
+     * @param query    The current query object
+     * @param executor The executor running the facet queries
+     * @param <T>      Something that extends Model
+     * @return The matching rows and the facets
+     * @throws PersistenceException If a facet query fails
+     * @see FacetQueryExecutor
+     * @since 26.10.18
+     */
+    public <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c,
+                                                               final Map<String, String[]> args,
+                                                               final Query<T> query,
+                                                               final FacetQueryExecutor executor) {
+        return this.findListWithFacets(c, args, this.buildFilter(c, args), query, executor);
+    }
+
+    /**
+     * Same as {@link #findListWithFacets(Class, Map, Query, FacetQueryExecutor)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param executor   The executor running the facet queries
+     * @param <T>        Something that extends Model
+     * @return The matching rows and the facets
+     * @throws PersistenceException If a facet query fails
+     * @see FacetQueryExecutor
+     * @since 26.10.18
+     */
+    public <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c,
+                                                               final Map<String, String[]> args,
+                                                               final FilterTree filterTree,
+                                                               final Query<T> query,
+                                                               final FacetQueryExecutor executor) {
+        final Map<String, Map<Object, Long>> facets = new LinkedHashMap<>();
+        final Map<String, CompletableFuture<Map<Object, Long>>> futures = new LinkedHashMap<>();
+        final List<Query<T>> facetQueries = new ArrayList<>();
+
+        for (final String rawPath : this.splitArgument(args, PlayEbeanHttpQuery.FACETS_ARGUMENT)) {
+            final String path = this.resolvePath(c, rawPath);
+            if (path == null || facets.containsKey(path) || futures.containsKey(path)) {
+                continue;
+            }
+            if (filterTree.isContradiction()) {
+                facets.put(path, Collections.emptyMap());
+                continue;
+            }
+            final SpiQuery<T> facetQuery = (SpiQuery<T>) query.copy();
+            final AggregateSqlBuilder sqlBuilder = new AggregateSqlBuilder(facetQuery.getBeanDescriptor());
+            if (sqlBuilder.addGroup(path)) {
+                sqlBuilder.addAggregate(new Aggregate(AggregateFunction.COUNT, null));
+                sqlBuilder.setOrderByFirstAggregateDesc(true);
+                this.applyTimeout(c, filterTree, facetQuery);
+                final int timeout = facetQuery.getTimeout();
+                facetQueries.add(facetQuery);
+                final SpiEbeanServer server = facetQuery.getBeanDescriptor().ebeanServer();
+                final CQuery<T> cQuery = this.compileFilteredIdQuery(args, facetQuery, filterTree);
+                final String sql = sqlBuilder.build(cQuery.getGeneratedSql());
+                final String cacheKey = server.name() + '\n' + sql + '\n' + facetQuery.getId() + '\n' + cQuery.getPredicates().getWhereExprBindValues();
+                futures.put(path, executor.count(cacheKey, () -> {
+                    final Map<Object, Long> counts = new LinkedHashMap<>();
+                    JdbcStatements.executeAggregate(server, cQuery, sql, Arrays.asList(path, "count"), executor.getMaxValues(), timeout, facetQuery)
+                        .forEach(row -> counts.put(row.get(path), ((Number) row.get("count")).longValue()));
+                    return Collections.unmodifiableMap(counts);
+                }));
+            }
+        }
+
+        // Cancelling the main query cancels the facet statements, the main query
+        // registers its own statement while it runs, then the facets again
+        final SpiQuery<T> spiQuery = (SpiQuery<T>) query;
+        final CancelableQuery facetsCancellation = () -> facetQueries.forEach(Query::cancel);
+        boolean completed = false;
+        try {
+            spiQuery.setCancelableQuery(facetsCancellation);
+            final List<T> rows;
+            if (filterTree.isContradiction()) {
+                rows = new ArrayList<>();
+            } else {
+                this.applyFilter(c, args, filterTree, query);
+                rows = query.findList();
+            }
+            spiQuery.setCancelableQuery(facetsCancellation);
+            for (final Map.Entry<String, CompletableFuture<Map<Object, Long>>> future : futures.entrySet()) {
+                facets.put(future.getKey(), future.getValue().join());
+            }
+            completed = true;
+            return new FacetedList<>(rows, facets);
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        } finally {
+            if (!completed) {
+                facetsCancellation.cancel();
+            }
+        }
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then run a probe
+     * query computing the version of the matching rows: their number and their
+     * latest modification ({@code max} of the {@code @WhenModified} property) or,
+     * without it, the {@code sum} of their {@code @Version}, which changes
+     * whenever any of them is updated. The rows are not loaded.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object, it is not modified
+     * @param <T>   Something that extends Model
+     * @return The version of the matching rows
+     * @throws IllegalArgumentException If the model has neither a {@code @WhenModified} nor a {@code @Version} property
+     * @throws PersistenceException     If the probe query fails
+     * @see ResultVersion
+     * @since 26.10.18
+     */
+    public <T extends Model> ResultVersion probeVersion(final Class<T> c,
+                                                        final Map<String, String[]> args,
+                                                        final Query<T> query) {
+        return this.probeVersion(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #probeVersion(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object, it is not modified
+     * @param <T>        Something that extends Model
+     * @return The version of the matching rows
+     * @throws IllegalArgumentException If the model has neither a {@code @WhenModified} nor a {@code @Version} property
+     * @throws PersistenceException     If the probe query fails
+     * @see ResultVersion
+     * @since 26.10.18
+     */
+    public <T extends Model> ResultVersion probeVersion(final Class<T> c,
+                                                        final Map<String, String[]> args,
+                                                        final FilterTree filterTree,
+                                                        final Query<T> query) {
+        final SpiQuery<T> probeQuery = (SpiQuery<T>) query.copy();
+        final BeanDescriptor<T> beanDescriptor = probeQuery.getBeanDescriptor();
+        final BeanProperty versionProperty = beanDescriptor.whenModifiedProperty() == null
+            ? beanDescriptor.versionProperty()
+            : beanDescriptor.whenModifiedProperty();
+        if (versionProperty == null) {
+            throw new IllegalArgumentException(c.getSimpleName() + " has neither a @WhenModified nor a @Version property");
+        }
+        if (filterTree.isContradiction()) {
+            return new ResultVersion(0, null, null);
+        }
+
+        final AggregateSqlBuilder sqlBuilder = new AggregateSqlBuilder(beanDescriptor);
+        sqlBuilder.addAggregate(new Aggregate(AggregateFunction.COUNT, null));
+        final boolean whenModified = versionProperty == beanDescriptor.whenModifiedProperty();
+        sqlBuilder.addAggregate(new Aggregate(whenModified ? AggregateFunction.MAX : AggregateFunction.SUM, versionProperty.name()));
+        final CQuery<T> cQuery = this.compileFilteredIdQuery(args, probeQuery, filterTree);
+        final Map<String, Object> row = JdbcStatements.executeAggregate(
+            beanDescriptor.ebeanServer(),
+            cQuery,
+            sqlBuilder.build(cQuery.getGeneratedSql()),
+            Arrays.asList("count", "version"),
+            1,
+            this.resolveTimeout(c, filterTree),
+            query
+        ).get(0);
+
+        final long count = ((Number) row.get("count")).longValue();
+        final Object version = row.get("version");
+        if (whenModified) {
+            return new ResultVersion(count, version == null ? null : TimestampUtils.toInstant(version), null);
+        }
+        return new ResultVersion(count, null, version == null ? null : ((Number) version).longValue());
+    }
+
+    /**
+     * Find the rows changed since the sync token given by the {@code since}
+     * argument, or all the matching rows if there is no token. Soft deleted
+     * rows are returned as tombstones, their primary key only. Rows are ordered
+     * by modification then primary key, and the next token holds both values
+     * of the last returned row so a page restricted by {@code setMaxRows} can
+     * be resumed even if several rows share the same modification.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The changed rows, the tombstones and the next token
+     * @throws IllegalArgumentException If the model has no {@code @WhenModified} property
+     * @see #SINCE_ARGUMENT
+     * @since 26.10.18
+     */
+    public <T extends Model> ChangeSet<T> findChanges(final Class<T> c,
+                                                      final Map<String, String[]> args,
+                                                      final Query<T> query) {
+        return this.findChanges(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #findChanges(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The changed rows, the tombstones and the next token
+     * @throws IllegalArgumentException If the model has no {@code @WhenModified} property
+     * @see #SINCE_ARGUMENT
+     * @since 26.10.18
+     */
+    public <T extends Model> ChangeSet<T> findChanges(final Class<T> c,
+                                                      final Map<String, String[]> args,
+                                                      final FilterTree filterTree,
+                                                      final Query<T> query) {
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        final BeanProperty whenModifiedProperty = beanDescriptor.whenModifiedProperty();
+        if (whenModifiedProperty == null) {
+            throw new IllegalArgumentException(c.getSimpleName() + " has no @WhenModified property");
+        }
+        final String[] rawSince = args.get(PlayEbeanHttpQuery.SINCE_ARGUMENT);
+        final String sinceToken = rawSince == null || rawSince.length == 0 ? null : rawSince[0];
+        if (filterTree.isContradiction()) {
+            return new ChangeSet<>(Collections.emptyList(), Collections.emptyList(), sinceToken);
+        }
+        if (this.applyFilter(c, args, filterTree, query) == null) {
+            ChangeSetCollector.orderByModification(beanDescriptor, query);
+        }
+        return ChangeSetCollector.collect(beanDescriptor, query.findList(), sinceToken);
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then update all
+     * the matching rows with a single {@code UPDATE ... WHERE} statement. Only
+     * the properties allowed by the model configuration can be set; values are
+     * converted like filter values. The {@code @WhenModified} and {@code @Version}
+     * properties are updated by the same statement. The arguments are always
+     * validated in strict mode, must hold at least one filter and can't hold
+     * the {@code since} argument. The matching rows are
+     * counted first, the statement is not executed if they exceed the limit;
+     * if the statement still affects too many rows, it is rolled back.
+     *
+     * @param c      The model class that this method will create request for
+     * @param args   The arguments taken from request
+     * @param values The raw value to set, indexed by property name, {@code null} to set null
+     * @param query  The current query object
+     * @param <T>    Something that extends Model
+     * @return The number of updated rows
+     * @throws FilterValidationException  If some arguments are invalid
+     * @throws IllegalArgumentException    If there is no filter or a since argument, a property is not updatable or a value is invalid
+     * @throws BulkLimitExceededException If the operation matches too many rows
+     * @see ModelConfig#getUpdatableProperties()
+     * @since 26.10.18
+     */
+    public <T extends Model> int bulkUpdate(final Class<T> c,
+                                            final Map<String, String[]> args,
+                                            final Map<String, String> values,
+                                            final Query<T> query) {
+        return this.bulkUpdate(c, args, this.buildFilter(c, args), values, query);
+    }
+
+    /**
+     * Same as {@link #bulkUpdate(Class, Map, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param values     The raw value to set, indexed by property name, {@code null} to set null
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The number of updated rows
+     * @throws FilterValidationException  If some arguments are invalid
+     * @throws IllegalArgumentException    If there is no filter or a since argument, a property is not updatable or a value is invalid
+     * @throws BulkLimitExceededException If the operation matches too many rows
+     * @see ModelConfig#getUpdatableProperties()
+     * @since 26.10.18
+     */
+    public <T extends Model> int bulkUpdate(final Class<T> c,
+                                            final Map<String, String[]> args,
+                                            final FilterTree filterTree,
+                                            final Map<String, String> values,
+                                            final Query<T> query) {
+        final PlayEbeanHttpQueryConfig snapshot = this.configuration;
+        final ModelConfig modelConfig = snapshot.getModelConfig(c);
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("No value to set on " + c.getSimpleName());
+        }
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        final Map<String, Object> convertedValues = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> value : values.entrySet()) {
+            final BeanProperty beanProperty = beanDescriptor.findProperty(value.getKey());
+            if (!modelConfig.isUpdatable(value.getKey())
+                || beanProperty == null
+                || beanProperty.isTransient()
+                || beanProperty instanceof BeanPropertyAssoc) {
+                throw new IllegalArgumentException(c.getSimpleName() + "." + value.getKey() + " is not updatable");
+            }
+            final Object convertedValue = value.getValue() == null ? null : snapshot.getConverter(beanProperty.type()).convert(value.getValue());
+            if (value.getValue() != null && convertedValue == null) {
+                throw new IllegalArgumentException("Invalid value for " + c.getSimpleName() + "." + value.getKey() + ": " + value.getValue());
+            }
+            convertedValues.put(value.getKey(), convertedValue);
+        }
+        if (this.checkBulkFilter(c, args, filterTree)) {
+            return 0;
+        }
+        filterTree.applyTo(query.where());
+        this.applyTimeout(c, filterTree, query);
+
+        try (final Transaction transaction = beanDescriptor.ebeanServer().beginTransaction()) {
+            BulkRowLimits.checkRowCount(c, modelConfig, query);
+            final UpdateQuery<T> updateQuery = query.asUpdate();
+            convertedValues.forEach((name, convertedValue) -> {
+                if (convertedValue == null) {
+                    updateQuery.setNull(name);
+                } else {
+                    updateQuery.set(name, convertedValue);
+                }
+            });
+            ChangeSetCollector.markModified(beanDescriptor, updateQuery);
+            final int rowCount = updateQuery.update();
+            BulkRowLimits.checkRowCount(c, modelConfig, rowCount);
+            transaction.commit();
+            return rowCount;
+        }
+    }
+
+    /**
+     * Build the query for the given model class and arguments, then delete all
+     * the matching rows with a single {@code DELETE ... WHERE} statement (or
+     * {@code UPDATE} if the model is soft deleted, which also updates the
+     * {@code @WhenModified} and {@code @Version} properties). The model
+     * configuration must allow bulk deletes. The arguments are always validated
+     * in strict mode, must hold at least one filter and can't hold the
+     * {@code since} argument. The matching rows are counted first, the
+     * statement is not executed if they exceed the limit; if the statement still
+     * affects too many rows, it is rolled back.
+     *
+     * @param c     The model class that this method will create request for
+     * @param args  The arguments taken from request
+     * @param query The current query object
+     * @param <T>   Something that extends Model
+     * @return The number of deleted rows
+     * @throws FilterValidationException  If some arguments are invalid
+     * @throws IllegalArgumentException    If there is no filter or a since argument, or bulk deletes are not allowed on the model
+     * @throws BulkLimitExceededException If the operation matches too many rows
+     * @see ModelConfig#isDeletable()
+     * @since 26.10.18
+     */
+    public <T extends Model> int bulkDelete(final Class<T> c,
+                                            final Map<String, String[]> args,
+                                            final Query<T> query) {
+        return this.bulkDelete(c, args, this.buildFilter(c, args), query);
+    }
+
+    /**
+     * Same as {@link #bulkDelete(Class, Map, Query)}, with the filter tree
+     * already built from the arguments (ie: by the admission control).
+     *
+     * @param c          The model class that this method will create request for
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param query      The current query object
+     * @param <T>        Something that extends Model
+     * @return The number of deleted rows
+     * @throws FilterValidationException  If some arguments are invalid
+     * @throws IllegalArgumentException    If there is no filter or a since argument, or bulk deletes are not allowed on the model
+     * @throws BulkLimitExceededException If the operation matches too many rows
+     * @see ModelConfig#isDeletable()
+     * @since 26.10.18
+     */
+    public <T extends Model> int bulkDelete(final Class<T> c,
+                                            final Map<String, String[]> args,
+                                            final FilterTree filterTree,
+                                            final Query<T> query) {
+        final ModelConfig modelConfig = this.configuration.getModelConfig(c);
+        if (!modelConfig.isDeletable()) {
+            throw new IllegalArgumentException(c.getSimpleName() + " is not deletable");
+        }
+        if (this.checkBulkFilter(c, args, filterTree)) {
+            return 0;
+        }
+        filterTree.applyTo(query.where());
+        this.applyTimeout(c, filterTree, query);
+
+        final BeanDescriptor<T> beanDescriptor = ((SpiQuery<T>) query).getBeanDescriptor();
+        try (final Transaction transaction = beanDescriptor.ebeanServer().beginTransaction()) {
+            BulkRowLimits.checkRowCount(c, modelConfig, query);
+            final int rowCount;
+            if (beanDescriptor.isSoftDelete()) {
+                final UpdateQuery<T> updateQuery = query.asUpdate();
+                ChangeSetCollector.markDeleted(beanDescriptor, updateQuery);
+                ChangeSetCollector.markModified(beanDescriptor, updateQuery);
+                rowCount = updateQuery.update();
+            } else {
+                rowCount = query.delete();
+            }
+            BulkRowLimits.checkRowCount(c, modelConfig, rowCount);
+            transaction.commit();
+            return rowCount;
+        }
+    }
+
+    /**
+     * Checks the filter of a bulk operation: the arguments are validated in
+     * strict mode, whatever the validation mode is, so a misspelled key can't
+     * widen the operation to the whole table, and at least one filter is required.
+     * The {@code since} argument is rejected: it would include the soft deleted rows.
+     *
+     * @param c          The model class
+     * @param args       The arguments taken from request
+     * @param filterTree The filter tree built from the arguments
+     * @param <T>        Something that extends Model
+     * @return {@code true} if the filter is a contradiction, no row can match
+     * @throws FilterValidationException If some arguments are invalid
+     * @throws IllegalArgumentException  If there is no filter or a since argument
+     * @since 26.10.18
+     */
+    private <T extends Model> boolean checkBulkFilter(final Class<T> c, final Map<String, String[]> args, final FilterTree filterTree) {
+        final List<FilterValidationError> errors = this.validate(c, args);
+        if (!errors.isEmpty()) {
+            throw new FilterValidationException(errors);
+        }
+        if (args.containsKey(PlayEbeanHttpQuery.SINCE_ARGUMENT)) {
+            throw new IllegalArgumentException("The since argument is not supported by the bulk operation on " + c.getSimpleName());
+        }
+        if (filterTree.isContradiction()) {
+            return true;
+        }
+        if (filterTree.getPredicates().isEmpty()) {
+            throw new IllegalArgumentException("No filter on the bulk operation on " + c.getSimpleName());
+        }
+        return false;
+    }
+
+    /**
+     * Compile the filtered query selecting the primary key only. Its SQL
+     * restricts the rows of the aggregate queries.
+     *
+     * @param args          The arguments taken from request, the {@code since} argument restricts the rows
+     * @param filteredQuery A copy of the query, it will be modified
+     * @param filterTree    The filter tree restricting the rows
+     * @param <T>           Something that extends Model
+     * @return The compiled query
+     * @since 26.10.18
+     */
+    private <T extends Model> CQuery<T> compileFilteredIdQuery(final Map<String, String[]> args,
+                                                               final SpiQuery<T> filteredQuery,
+                                                               final FilterTree filterTree) {
+        final BeanDescriptor<T> beanDescriptor = filteredQuery.getBeanDescriptor();
+        filteredQuery.select(beanDescriptor.idProperty().name());
+        filterTree.applyTo(filteredQuery.where());
+        ChangeSetCollector.applySince(args, filteredQuery);
+        filteredQuery.setOrderBy(null);
+        filteredQuery.setFirstRow(0);
+        filteredQuery.setMaxRows(0);
+        return beanDescriptor.ebeanServer().compileQuery(SpiQuery.Type.LIST, filteredQuery, null);
+    }
+
+    /**
+     * Resolve a path given as argument value (ie: "groupby=artist.name") like
+     * the key of a filter. Aliases and ignore patterns apply.
+     *
+     * @param c       The model class
+     * @param rawPath The path as given on the query string
+     * @param <T>     Something that extends Model
+     * @return The resolved path, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private <T extends Model> String resolvePath(final Class<T> c, final String rawPath) {
+        final List<FilterOrder> orders = this.parseFilter(
+            c,
+            Collections.singletonMap(rawPath.trim() + "__" + FilterOperator.ORDERBY.getKeyword(), new String[]{"asc"})
+        ).getOrders();
+        return orders.isEmpty() ? null : orders.get(0).getPath();
+    }
+
+    /**
+     * Split a comma separated argument.
+     *
+     * @param args The arguments taken from request
+     * @param name The argument name
+     * @return The non-empty values
+     * @since 26.10.18
+     */
+    private List<String> splitArgument(final Map<String, String[]> args, final String name) {
+        final List<String> values = new ArrayList<>();
+        final String[] rawValues = args.get(name);
+        if (rawValues != null) {
+            for (final String rawValue : rawValues) {
+                for (final String value : rawValue.split(",")) {
+                    if (!value.trim().isEmpty()) {
+                        values.add(value.trim());
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Compile the given arguments into an in-memory predicate. The predicate
+     * follows the semantics of the SQL query built from the same arguments,
+     * but never reaches the database: it is meant to filter collections
+     * already in memory (ie: cached reference tables).
+     *
+     * @param c    The model class that this method will create predicate for
+     * @param args The arguments taken from request
+     * @param <T>  Something that extends Model
+     * @return The predicate
+     * @see FilterCompiler
+     * @since 26.10.18
+     */
+    public <T extends Model> Predicate<T> buildPredicate(final Class<T> c, final Map<String, String[]> args) {
+        return this.filterCompiler.compilePredicate(c, this.buildFilter(c, args));
+    }
+
+    /**
+     * Compile the "order by" instructions of the given arguments into an
+     * in-memory comparator.
+     *
+     * @param c    The model class that this method will create comparator for
+     * @param args The arguments taken from request
+     * @param <T>  Something that extends Model
+     * @return The comparator
+     * @see FilterCompiler
+     * @since 26.10.18
+     */
+    public <T extends Model> Comparator<T> buildComparator(final Class<T> c, final Map<String, String[]> args) {
+        return this.filterCompiler.compileComparator(c, this.buildFilter(c, args));
+    }
+
+    /**
+     * Parse and optimize the given arguments.
+     *
+     * @param c    The model class that this method will create filter for
+     * @param args The arguments taken from request
+     * @param <T>  Something that extends Model
+     * @return The optimized filter tree
+     * @see FilterOptimizer
+     * @since 26.10.18
+     */
+    public <T extends Model> FilterTree buildFilter(final Class<T> c, final Map<String, String[]> args) {
+        return this.filterOptimizer.optimize(this.parseFilter(c, args));
+    }
+
+    /**
+     * Parse the given arguments into a filter tree. Aliases, primary keys and
+     * values are resolved, but the tree is not optimized.
+     *
+     * @param c    The model class that this method will create filter for
+     * @param args The arguments taken from request
+     * @param <T>  Something that extends Model
+     * @return The filter tree
+     * @throws FilterValidationException If the validation mode is strict and some arguments are invalid
+     * @see ValidationMode
+     * @since 26.10.18
+     */
+    public <T extends Model> FilterTree parseFilter(final Class<T> c, final Map<String, String[]> args) {
+        final PlayEbeanHttpQueryConfig snapshot = this.configuration;
+        if (snapshot.getValidationMode() == ValidationMode.STRICT) {
+            final List<FilterValidationError> errors = new ArrayList<>();
+            final FilterTree filterTree = this.parseFilter(snapshot, c, args, errors);
+            if (!errors.isEmpty()) {
+                throw new FilterValidationException(errors);
+            }
+            return filterTree;
+        }
+        return this.parseFilter(snapshot, c, args, null);
+    }
+
+    /**
+     * Validate the given arguments, whatever the validation mode is. Ignored
+     * keys and the arguments reserved to aggregations and facets are not
+     * validated; the sync token must be valid.
+     *
+     * @param c    The model class that this method will validate arguments for
+     * @param args The arguments taken from request
+     * @param <T>  Something that extends Model
+     * @return The validation errors, empty if all arguments are valid
+     * @since 26.10.18
+     */
+    public <T extends Model> List<FilterValidationError> validate(final Class<T> c, final Map<String, String[]> args) {
+        final List<FilterValidationError> errors = new ArrayList<>();
+        this.parseFilter(this.configuration, c, args, errors);
+        return errors;
+    }
+
+    /**
+     * Parse the given arguments into a filter tree. Invalid arguments are
+     * ignored, and reported if a list of errors is given.
+     *
+     * @param snapshot The configuration snapshot in use
+     * @param c        The model class that this method will create filter for
+     * @param args     The arguments taken from request
+     * @param errors   The list receiving the validation errors, {@code null} to not validate
+     * @param <T>      Something that extends Model
+     * @return The filter tree
+     * @since 26.10.18
+     */
+    private <T extends Model> FilterTree parseFilter(final PlayEbeanHttpQueryConfig snapshot,
+                                                     final Class<T> c,
+                                                     final Map<String, String[]> args,
+                                                     final List<FilterValidationError> errors) {
+        final List<FilterPredicate> predicates = new ArrayList<>();
+        final List<FilterOrder> orders = new ArrayList<>();
+        final EntityPathDescriptor rootDescriptor = this.describe(c);
+        final String primaryKeyName = rootDescriptor.getIdPropertyIndex() < 0
+            ? null
+            : rootDescriptor.getPropertyName(rootDescriptor.getIdPropertyIndex());
+        final QueryKeyTokenizer tokenizer = new QueryKeyTokenizer();
+        final StringBuilder foreignKeys = new StringBuilder();
+        final ModelConfig modelConfig = snapshot.getModelConfig(c);
+
+        // Aliases are tried on "ModelName>word", matchers are reused for each word
+        final StringBuilder aliasKeyToTry = new StringBuilder(c.getSimpleName()).append('>');
+        final int aliasKeyPrefixLength = aliasKeyToTry.length();
+        final List<Map.Entry<Matcher, String>> aliasMatchers = new ArrayList<>();
+        for (int aliasIdx = 0; aliasIdx < snapshot.getAliasCount(); ++aliasIdx) {
+            aliasMatchers.add(new AbstractMap.SimpleImmutableEntry<>(
+                snapshot.getAliasPattern(aliasIdx).matcher(aliasKeyToTry),
+                snapshot.getAliasTarget(aliasIdx)
+            ));
+        }
+
+        // Iterates overs all instructions
+        for (final Map.Entry<String, String[]> queryString : args.entrySet()) {
+
+            // Check if current instruction is not allowed
+            if (snapshot.isIgnored(queryString.getKey())) {
+                continue;
+            }
+            if (errors != null && this.isReservedArgument(queryString.getKey())) {
+                if (queryString.getKey().equals(PlayEbeanHttpQuery.SINCE_ARGUMENT)
+                    && queryString.getValue() != null
+                    && queryString.getValue().length > 0
+                    && TimestampUtils.parseSyncToken(queryString.getValue()[0]) == null) {
+                    errors.add(new FilterValidationError(queryString.getKey(), "invalid sync token", 0));
+                }
+                continue;
+            }
+
+            // Splits the key into path segments, "not" flag and operator
+            try {
+                tokenizer.tokenize(queryString.getKey());
+            } catch (final MalformedQueryKeyException ex) {
+                if (errors != null) {
+                    errors.add(new FilterValidationError(ex.getKey(), ex.getReason(), ex.getPosition()));
+                }
+                continue;
+            }
+            if (errors != null && tokenizer.getUnknownFlagStart() >= 0) {
+                errors.add(new FilterValidationError(tokenizer.getKey(), "expected 'not'", tokenizer.getUnknownFlagStart()));
+                continue;
+            }
+            final String key = tokenizer.getKey();
+            Class<?> currentClazz = c;
+            foreignKeys.setLength(0);
+            boolean unknownSegment = false;
+
+            // Resolves existing aliases and the right field (path + class) on the Model class
+            for (int segmentIdx = 0; segmentIdx < tokenizer.getSegmentCount() && currentClazz != null && !unknownSegment; ++segmentIdx) {
+                final int segmentStart = tokenizer.getSegmentStart(segmentIdx);
+                final int segmentEnd = tokenizer.getSegmentEnd(segmentIdx);
+                aliasKeyToTry.setLength(aliasKeyPrefixLength);
+                aliasKeyToTry.append(key, segmentStart, segmentEnd);
+                String alias = null;
+                for (final Map.Entry<Matcher, String> aliasMatcher : aliasMatchers) {
+                    if (aliasMatcher.getKey().reset(aliasKeyToTry).matches()) {
+                        alias = aliasMatcher.getValue();
+                        break;
+                    }
+                }
+                if (alias == null) {
+                    final int resolvedLength = foreignKeys.length();
+                    currentClazz = this.resolvePathSegment(currentClazz, key, segmentStart, segmentEnd, foreignKeys);
+                    unknownSegment = errors != null && foreignKeys.length() == resolvedLength;
+                } else {
+                    int wordStart = 0;
+                    while (wordStart <= alias.length() && currentClazz != null && !unknownSegment) {
+                        final int dotIdx = alias.indexOf('.', wordStart);
+                        final int wordEnd = dotIdx < 0 ? alias.length() : dotIdx;
+                        final int resolvedLength = foreignKeys.length();
+                        currentClazz = this.resolvePathSegment(currentClazz, alias, wordStart, wordEnd, foreignKeys);
+                        unknownSegment = errors != null && foreignKeys.length() == resolvedLength;
+                        wordStart = wordEnd + 1;
+                    }
+                }
+                if (unknownSegment) {
+                    errors.add(new FilterValidationError(key, "unknown property", segmentStart));
+                }
+            }
+            if (unknownSegment) {
+                continue;
+            }
+            if (currentClazz == null) {
+                currentClazz = c;
+            }
+            final String rawValue = queryString.getValue() == null ? "" : queryString.getValue()[0];
+            if (Model.class.isAssignableFrom(currentClazz) && foreignKeys.length() > 0) {
+                final EntityPathDescriptor descriptor = this.describe(currentClazz);
+                final int idIdx = descriptor.getIdPropertyIndex();
+                if (idIdx >= 0) {
+                    foreignKeys.append('.').append(descriptor.getPropertyName(idIdx));
+                    currentClazz = descriptor.getPropertyType(idIdx);
+                }
+            }
+
+            // Continue operation only if a field has been identified
+            if (foreignKeys.length() > 0) {
+                final String path = foreignKeys.toString();
+                final FilterOperator operator = tokenizer.getOperator() == null
+                    ? FilterOperator.EQ
+                    : tokenizer.getOperator();
+                if ((operator == FilterOperator.SEARCH || operator == FilterOperator.ISEARCH) && !modelConfig.isSearchable(path)) {
+                    if (errors != null) {
+                        errors.add(new FilterValidationError(key, "property not searchable", tokenizer.getOperatorStart()));
+                    }
+                    continue;
+                }
+                if (errors != null && !FilterPredicateFactory.validateValue(snapshot, key, operator, currentClazz, rawValue, errors)) {
+                    continue;
+                }
+                final FilterPredicate predicate = FilterPredicateFactory.create(
+                    snapshot,
+                    path,
+                    operator,
+                    tokenizer.isNegated(),
+                    currentClazz,
+                    path.equals(primaryKeyName),
+                    rawValue
+                );
+                if (predicate != null) {
+                    predicates.add(path.indexOf('.') < 0 ? predicate : this.resolveJoins(c, path, predicate));
+                } else if (operator == FilterOperator.ORDERBY
+                    && (rawValue.compareToIgnoreCase("asc") == 0 || rawValue.compareToIgnoreCase("desc") == 0)) {
+                    orders.add(new FilterOrder(path, rawValue.compareToIgnoreCase("asc") == 0));
+                }
+            }
+        }
+
+        return new FilterTree(predicates, orders, false, snapshot.getFullTextSearchStrategy());
+    }
+
+    /**
+     * Checks if the key is an argument reserved to aggregations, facets,
+     * incremental sync, properties selection and side-loading.
+     *
+     * @param key The key to test
+     * @return {@code true} if the key is reserved
+     * @since 26.10.18
+     */
+    private boolean isReservedArgument(final String key) {
+        return key.equals(PlayEbeanHttpQuery.GROUP_BY_ARGUMENT)
+            || key.equals(PlayEbeanHttpQuery.AGGREGATES_ARGUMENT)
+            || key.equals(PlayEbeanHttpQuery.FACETS_ARGUMENT)
+            || key.equals(PlayEbeanHttpQuery.SINCE_ARGUMENT)
+            || key.equals(PlayEbeanHttpQuery.FIELDS_ARGUMENT)
+            || key.equals(PlayEbeanHttpQuery.INCLUDE_ARGUMENT);
+    }
+
+    /**
+     * Find the associations crossed by a resolved path: the first to-many
+     * one (ie: "albums" for "albums.name") and the number of joins. The id
+     * of a to-one association is its foreign key and needs no join.
+     *
+     * @param c         The model class
+     * @param path      The resolved path (ie: "albums.name")
+     * @param predicate The predicate on the path
+     * @return The predicate with its joins, otherwise, the unchanged predicate if the path can't be described
+     * @since 26.10.18
+     */
+    private FilterPredicate resolveJoins(final Class<?> c, final String path, final FilterPredicate predicate) {
+        Class<?> currentClazz = c;
+        String collectionPath = null;
+        int joinCount = 0;
+        int segmentStart = 0;
+        for (int dotIdx = path.indexOf('.'); dotIdx >= 0; dotIdx = path.indexOf('.', segmentStart)) {
+            final EntityPathDescriptor descriptor = currentClazz == null ? null : this.describe(currentClazz);
+            final int propertyIdx = descriptor == null ? -1 : descriptor.indexOf(path, segmentStart, dotIdx);
+            if (propertyIdx < 0) {
+                return predicate;
+            }
+            final boolean collection = descriptor.isCollection(propertyIdx);
+            if (collection && collectionPath == null) {
+                collectionPath = path.substring(0, dotIdx);
+            }
+            currentClazz = descriptor.getPropertyType(propertyIdx);
+            segmentStart = dotIdx + 1;
+            final EntityPathDescriptor target = collection || currentClazz == null ? null : this.describe(currentClazz);
+            final boolean foreignKey = target != null && path.indexOf('.', segmentStart) < 0
+                && target.getIdPropertyIndex() >= 0 && target.getIdPropertyIndex() == target.indexOf(path, segmentStart, path.length());
+            joinCount += foreignKey ? 0 : 1;
+        }
+        return predicate.withJoins(collectionPath, joinCount);
+    }
+
+    /**
+     * Resolve a single word of the path on the current class. If the word is a
+     * field of the class, it is appended to the path.
+     *
+     * @param clazz       The current class
+     * @param str         The string containing the word
+     * @param start       Start of the word
+     * @param end         End (exclusive) of the word
+     * @param foreignKeys The path resolved so far
+     * @return The class of the resolved field, the unchanged class if the word is not a field,
+     * otherwise, {@code null} if the class of the field can't be loaded
+     * @since 26.10.18
+     */
+    private Class<?> resolvePathSegment(final Class<?> clazz,
+                                        final String str,
+                                        final int start,
+                                        final int end,
+                                        final StringBuilder foreignKeys) {
+        final EntityPathDescriptor descriptor = this.describe(clazz);
+        final int propertyIdx = descriptor.indexOf(str, start, end);
+        if (propertyIdx < 0) {
+            return clazz;
+        }
+        final Class<?> resolvedClazz = descriptor.getPropertyType(propertyIdx);
+        if (resolvedClazz != null) {
+            if (foreignKeys.length() > 0) {
+                foreignKeys.append('.');
+            }
+            foreignKeys.append(str, start, end);
+        }
+        return resolvedClazz;
+    }
+
+    /**
+     * Clone object. The clone shares the current configuration snapshot but
+     * is isolated: adding patterns or aliases to it does not affect this instance.
+     *
+     * @return A new instance
+     * @since 16.09.06
+     */
+    @Override
+    public Object clone() {
+        return new PlayEbeanHttpQuery(this, this.configuration);
     }
 }
@@ -0,0 +1,595 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import com.zero_x_baadf00d.ebean.converter.EbeanTypeConverter;
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.ValidationMode;
+import com.zero_x_baadf00d.ebean.search.FullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.search.PlatformFullTextSearchStrategy;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable configuration of a {@code PlayEbeanHttpQuery}: the ignore
+ * patterns, the aliases, the instance specific converters, all of
+ * them precompiled, the settings specific to each model and the
+ * strategies (full-text search, database routing) to use. A snapshot is never modified, new snapshots are
+ * derived with {@link #toBuilder()}; the parts left untouched by the
+ * builder are shared with the parent snapshot.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class PlayEbeanHttpQueryConfig {
+
+    /**
+     * Template of the empty configurations. It has no database router: the
+     * router holds the health of the databases, each configuration built from
+     * the template gets its own one.
+     *
+     * @since 26.10.18
+     */
+    private static final PlayEbeanHttpQueryConfig EMPTY = new PlayEbeanHttpQueryConfig(
+        new Pattern[0],
+        new Pattern[0],
+        new String[0],
+        Collections.emptyMap(),
+        Collections.emptyMap(),
+        new PlatformFullTextSearchStrategy(),
+        null,
+        ValidationMode.LENIENT,
+        Collections.emptyMap()
+    );
+
+    /**
+     * Compiled patterns of the keys to ignore.
+     *
+     * @since 26.10.18
+     */
+    private final Pattern[] ignorePatterns;
+
+    /**
+     * Compiled alias patterns, in declaration order.
+     *
+     * @since 26.10.18
+     */
+    private final Pattern[] aliasPatterns;
+
+    /**
+     * Alias targets, at the same index than their pattern.
+     *
+     * @since 26.10.18
+     */
+    private final String[] aliasTargets;
+
+    /**
+     * Converters specific to this configuration, by managed class.
+     *
+     * @since 26.10.18
+     */
+    private final Map<Class<?>, EbeanTypeConverter<?>> converters;
+
+    /**
+     * Settings specific to each model, by model simple name.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, ModelConfig> models;
+
+    /**
+     * Strategy used by the full-text search operators.
+     *
+     * @since 26.10.18
+     */
+    private final FullTextSearchStrategy fullTextSearchStrategy;
+
+    /**
+     * Router of the read queries.
+     *
+     * @since 26.10.18
+     */
+    private final DatabaseRouter databaseRouter;
+
+    /**
+     * How invalid arguments are handled.
+     *
+     * @since 26.10.18
+     */
+    private final ValidationMode validationMode;
+
+    /**
+     * Statement timeouts of the queries using an operator.
+     *
+     * @since 26.10.18
+     */
+    private final Map<FilterOperator, Duration> operatorTimeouts;
+
+    /**
+     * Build a new instance.
+     *
+     * @param ignorePatterns         Compiled patterns of the keys to ignore
+     * @param aliasPatterns          Compiled alias patterns
+     * @param aliasTargets           Alias targets
+     * @param converters             Converters specific to this configuration
+     * @param models                 Settings specific to each model
+     * @param fullTextSearchStrategy Strategy used by the full-text search operators
+     * @param databaseRouter         Router of the read queries
+     * @param validationMode         How invalid arguments are handled
+     * @param operatorTimeouts       Statement timeouts of the queries using an operator
+     * @since 26.10.18
+     */
+    private PlayEbeanHttpQueryConfig(final Pattern[] ignorePatterns,
+                                     final Pattern[] aliasPatterns,
+                                     final String[] aliasTargets,
+                                     final Map<Class<?>, EbeanTypeConverter<?>> converters,
+                                     final Map<String, ModelConfig> models,
+                                     final FullTextSearchStrategy fullTextSearchStrategy,
+                                     final DatabaseRouter databaseRouter,
+                                     final ValidationMode validationMode,
+                                     final Map<FilterOperator, Duration> operatorTimeouts) {
+        this.ignorePatterns = ignorePatterns;
+        this.aliasPatterns = aliasPatterns;
+        this.aliasTargets = aliasTargets;
+        this.converters = converters;
+        this.models = models;
+        this.fullTextSearchStrategy = fullTextSearchStrategy;
+        this.databaseRouter = databaseRouter;
+        this.validationMode = validationMode;
+        this.operatorTimeouts = operatorTimeouts;
+    }
+
+    /**
+     * Get a new empty configuration, with its own database router.
+     *
+     * @return The empty configuration
+     * @since 26.10.18
+     */
+    public static PlayEbeanHttpQueryConfig empty() {
+        return PlayEbeanHttpQueryConfig.builder().build();
+    }
+
+    /**
+     * Create a builder starting from the empty configuration.
+     *
+     * @return A new builder
+     * @since 26.10.18
+     */
+    public static Builder builder() {
+        return PlayEbeanHttpQueryConfig.EMPTY.toBuilder();
+    }
+
+    /**
+     * Create a builder deriving a new configuration from this one.
+     *
+     * @return A new builder
+     * @since 26.10.18
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Checks if the given key is ignored.
+     *
+     * @param key The key to test
+     * @return {@code true} if the key matches one of the ignore patterns
+     * @since 26.10.18
+     */
+    public boolean isIgnored(final String key) {
+        for (final Pattern pattern : this.ignorePatterns) {
+            if (pattern.matcher(key).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of aliases.
+     *
+     * @return The number of aliases
+     * @since 26.10.18
+     */
+    public int getAliasCount() {
+        return this.aliasPatterns.length;
+    }
+
+    /**
+     * Get the compiled pattern of an alias.
+     *
+     * @param index The alias index
+     * @return The compiled pattern
+     * @since 26.10.18
+     */
+    public Pattern getAliasPattern(final int index) {
+        return this.aliasPatterns[index];
+    }
+
+    /**
+     * Get the target of an alias.
+     *
+     * @param index The alias index
+     * @return The target path
+     * @since 26.10.18
+     */
+    public String getAliasTarget(final int index) {
+        return this.aliasTargets[index];
+    }
+
+    /**
+     * Get the converter to use for the given class. Converters specific
+     * to this configuration take precedence over the global ones.
+     *
+     * @param clazz The class of the object to convert
+     * @return The converter
+     * @see EbeanTypeConverterManager
+     * @since 26.10.18
+     */
+    public EbeanTypeConverter<?> getConverter(final Class<?> clazz) {
+        final EbeanTypeConverter<?> converter = this.converters.get(clazz);
+        return converter != null ? converter : EbeanTypeConverterManager.getInstance().getConverter(clazz);
+    }
+
+    /**
+     * Get the settings specific to the given model.
+     *
+     * @param clazz The model class
+     * @return The model settings, empty settings if the model has no specific configuration
+     * @since 26.10.18
+     */
+    public ModelConfig getModelConfig(final Class<?> clazz) {
+        final ModelConfig modelConfig = this.models.get(clazz.getSimpleName());
+        return modelConfig != null ? modelConfig : ModelConfig.empty();
+    }
+
+    /**
+     * Get the strategy used by the full-text search operators.
+     *
+     * @return The full-text search strategy
+     * @since 26.10.18
+     */
+    public FullTextSearchStrategy getFullTextSearchStrategy() {
+        return this.fullTextSearchStrategy;
+    }
+
+    /**
+     * Get the router of the read queries.
+     *
+     * @return The database router
+     * @since 26.10.18
+     */
+    public DatabaseRouter getDatabaseRouter() {
+        return this.databaseRouter;
+    }
+
+    /**
+     * Get how invalid arguments are handled.
+     *
+     * @return The validation mode
+     * @since 26.10.18
+     */
+    public ValidationMode getValidationMode() {
+        return this.validationMode;
+    }
+
+    /**
+     * Get the statement timeout of the queries using the given operator.
+     *
+     * @param operator The operator
+     * @return The timeout, zero for no timeout
+     * @since 26.10.18
+     */
+    public Duration getOperatorTimeout(final FilterOperator operator) {
+        return this.operatorTimeouts.getOrDefault(operator, Duration.ZERO);
+    }
+
+    @Override
+    public String toString() {
+        final Map<String, String> aliases = new LinkedHashMap<>();
+        for (int i = 0; i < this.aliasPatterns.length; ++i) {
+            aliases.put(this.aliasPatterns[i].pattern(), this.aliasTargets[i]);
+        }
+        return "PlayEbeanHttpQueryConfig{ignorePatterns=" + Arrays.toString(this.ignorePatterns)
+            + ", aliases=" + aliases
+            + ", converters=" + this.converters.keySet()
+            + ", models=" + this.models
+            + ", fullTextSearchStrategy=" + this.fullTextSearchStrategy.getClass().getSimpleName()
+            + ", validationMode=" + this.validationMode
+            + ", operatorTimeouts=" + this.operatorTimeouts + "}";
+    }
+
+    /**
+     * Builder deriving a new configuration from a parent one.
+     *
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    public static final class Builder {
+
+        /**
+         * The parent configuration.
+         *
+         * @since 26.10.18
+         */
+        private final PlayEbeanHttpQueryConfig parent;
+
+        /**
+         * Ignore patterns, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private Pattern[] ignorePatterns;
+
+        /**
+         * Aliases, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private Map<String, String> aliases;
+
+        /**
+         * Converters, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private Map<Class<?>, EbeanTypeConverter<?>> converters;
+
+        /**
+         * Model settings, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private Map<String, ModelConfig> models;
+
+        /**
+         * Full-text search strategy, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private FullTextSearchStrategy fullTextSearchStrategy;
+
+        /**
+         * Database router, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private DatabaseRouter databaseRouter;
+
+        /**
+         * Validation mode, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private ValidationMode validationMode;
+
+        /**
+         * Operator timeouts, {@code null} while unchanged.
+         *
+         * @since 26.10.18
+         */
+        private Map<FilterOperator, Duration> operatorTimeouts;
+
+        /**
+         * Build a new instance.
+         *
+         * @param parent The parent configuration
+         * @since 26.10.18
+         */
+        private Builder(final PlayEbeanHttpQueryConfig parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Add patterns to the ignore list.
+         *
+         * @param patterns The patterns of the keys to ignore
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder addIgnoredPatterns(final String... patterns) {
+            return this.addIgnoredPatterns(Arrays.asList(patterns));
+        }
+
+        /**
+         * Add patterns to the ignore list.
+         *
+         * @param patterns The patterns of the keys to ignore
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder addIgnoredPatterns(final List<String> patterns) {
+            if (!patterns.isEmpty()) {
+                final Pattern[] current = this.ignorePatterns == null ? this.parent.ignorePatterns : this.ignorePatterns;
+                final Pattern[] updated = Arrays.copyOf(current, current.length + patterns.size());
+                for (int i = 0; i < patterns.size(); ++i) {
+                    updated[current.length + i] = Pattern.compile(patterns.get(i));
+                }
+                this.ignorePatterns = updated;
+            }
+            return this;
+        }
+
+        /**
+         * Add an alias. An existing alias with the same pattern is replaced.
+         *
+         * @param pattern The pattern to match
+         * @param alias   The alias to use
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder addAlias(final String pattern, final String alias) {
+            if (this.aliases == null) {
+                this.aliases = new LinkedHashMap<>();
+                for (int i = 0; i < this.parent.aliasPatterns.length; ++i) {
+                    this.aliases.put(this.parent.aliasPatterns[i].pattern(), this.parent.aliasTargets[i]);
+                }
+            }
+            this.aliases.put(pattern, alias);
+            return this;
+        }
+
+        /**
+         * Add a converter specific to the configuration. It takes precedence
+         * over the converter registered globally for the same class.
+         *
+         * @param converter The converter to add
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder addConverter(final EbeanTypeConverter<?> converter) {
+            if (this.converters == null) {
+                this.converters = new HashMap<>(this.parent.converters);
+            }
+            this.converters.put(converter.getManagedObjectClass(), converter);
+            return this;
+        }
+
+        /**
+         * Set the settings specific to a model.
+         *
+         * @param modelName   The model simple name (ie: "Album")
+         * @param modelConfig The model settings
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setModelConfig(final String modelName, final ModelConfig modelConfig) {
+            if (this.models == null) {
+                this.models = new HashMap<>(this.parent.models);
+            }
+            this.models.put(modelName, modelConfig);
+            return this;
+        }
+
+        /**
+         * Set the strategy used by the full-text search operators.
+         *
+         * @param strategy The full-text search strategy
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setFullTextSearchStrategy(final FullTextSearchStrategy strategy) {
+            this.fullTextSearchStrategy = strategy;
+            return this;
+        }
+
+        /**
+         * Set the router of the read queries.
+         *
+         * @param router The database router
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setDatabaseRouter(final DatabaseRouter router) {
+            this.databaseRouter = router;
+            return this;
+        }
+
+        /**
+         * Set how invalid arguments are handled.
+         *
+         * @param mode The validation mode
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setValidationMode(final ValidationMode mode) {
+            this.validationMode = mode;
+            return this;
+        }
+
+        /**
+         * Set the statement timeout of the queries using the given operator.
+         *
+         * @param operator The operator
+         * @param duration The timeout, zero for no timeout
+         * @return The current builder
+         * @since 26.10.18
+         */
+        public Builder setOperatorTimeout(final FilterOperator operator, final Duration duration) {
+            if (this.operatorTimeouts == null) {
+                this.operatorTimeouts = new EnumMap<>(FilterOperator.class);
+                this.operatorTimeouts.putAll(this.parent.operatorTimeouts);
+            }
+            this.operatorTimeouts.put(operator, duration);
+            return this;
+        }
+
+        /**
+         * Build the configuration. Untouched parts are shared with the parent
+         * configuration, the database router included; if nothing has been
+         * changed, the parent is returned. A configuration built from the empty
+         * one without an explicit router gets a new router.
+         *
+         * @return The configuration
+         * @since 26.10.18
+         */
+        public PlayEbeanHttpQueryConfig build() {
+            if (this.ignorePatterns == null && this.aliases == null && this.converters == null
+                && this.models == null && this.fullTextSearchStrategy == null && this.databaseRouter == null
+                && this.validationMode == null && this.operatorTimeouts == null && this.parent.databaseRouter != null) {
+                return this.parent;
+            }
+            Pattern[] aliasPatterns = this.parent.aliasPatterns;
+            String[] aliasTargets = this.parent.aliasTargets;
+            if (this.aliases != null) {
+                // Patterns already compiled by the parent are reused
+                final Map<String, Pattern> compiledPatterns = new HashMap<>();
+                for (final Pattern pattern : this.parent.aliasPatterns) {
+                    compiledPatterns.put(pattern.pattern(), pattern);
+                }
+                aliasPatterns = new Pattern[this.aliases.size()];
+                aliasTargets = new String[this.aliases.size()];
+                int idx = 0;
+                for (final Map.Entry<String, String> entry : this.aliases.entrySet()) {
+                    aliasPatterns[idx] = compiledPatterns.computeIfAbsent(entry.getKey(), Pattern::compile);
+                    aliasTargets[idx] = entry.getValue();
+                    idx += 1;
+                }
+            }
+            return new PlayEbeanHttpQueryConfig(
+                this.ignorePatterns == null ? this.parent.ignorePatterns : this.ignorePatterns.clone(),
+                aliasPatterns,
+                aliasTargets,
+                this.converters == null ? this.parent.converters : Collections.unmodifiableMap(new HashMap<>(this.converters)),
+                this.models == null ? this.parent.models : Collections.unmodifiableMap(new HashMap<>(this.models)),
+                this.fullTextSearchStrategy == null ? this.parent.fullTextSearchStrategy : this.fullTextSearchStrategy,
+                this.databaseRouter != null
+                    ? this.databaseRouter
+                    : this.parent.databaseRouter != null ? this.parent.databaseRouter : new DatabaseRouter(),
+                this.validationMode == null ? this.parent.validationMode : this.validationMode,
+                this.operatorTimeouts == null ? this.parent.operatorTimeouts : Collections.unmodifiableMap(new EnumMap<>(this.operatorTimeouts))
+            );
+        }
+    }
+}
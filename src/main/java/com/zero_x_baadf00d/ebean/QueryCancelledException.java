@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * Thrown when a query has been cancelled before its completion, because
+ * its deadline passed or because the client gave up.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see CancellableQueryExecutor
+ * @since 26.10.18
+ */
+public class QueryCancelledException extends PersistenceException {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Why the query has been cancelled.
+     *
+     * @since 26.10.18
+     */
+    private final String reason;
+
+    /**
+     * Build a new instance.
+     *
+     * @param reason Why the query has been cancelled
+     * @param cause  The exception raised by the cancelled query
+     * @since 26.10.18
+     */
+    public QueryCancelledException(final String reason, final Throwable cause) {
+        super("Query cancelled: " + reason, cause);
+        this.reason = reason;
+    }
+
+    /**
+     * Get why the query has been cancelled.
+     *
+     * @return The reason (ie: "deadline exceeded")
+     * @since 26.10.18
+     */
+    public String getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an explained query: the resolved predicates, the SQL
+ * generated by Ebean with its bind values and the execution plan
+ * returned by the database.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class QueryExplanation {
+
+    /**
+     * Resolved and optimized filter tree.
+     *
+     * @since 26.10.18
+     */
+    private final FilterTree filterTree;
+
+    /**
+     * Generated SQL.
+     *
+     * @since 26.10.18
+     */
+    private final String sql;
+
+    /**
+     * Bind values, in the order of the SQL placeholders.
+     *
+     * @since 26.10.18
+     */
+    private final List<Object> bindValues;
+
+    /**
+     * Execution plan, one entry per row returned by the database.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> plan;
+
+    /**
+     * Build a new instance.
+     *
+     * @param filterTree The resolved filter tree
+     * @param sql        The generated SQL
+     * @param bindValues The bind values
+     * @param plan       The execution plan
+     * @since 26.10.18
+     */
+    public QueryExplanation(final FilterTree filterTree,
+                            final String sql,
+                            final List<Object> bindValues,
+                            final List<String> plan) {
+        this.filterTree = filterTree;
+        this.sql = sql;
+        this.bindValues = Collections.unmodifiableList(bindValues);
+        this.plan = Collections.unmodifiableList(plan);
+    }
+
+    /**
+     * Get the resolved and optimized filter tree.
+     *
+     * @return The filter tree
+     * @since 26.10.18
+     */
+    public FilterTree getFilterTree() {
+        return this.filterTree;
+    }
+
+    /**
+     * Get the SQL generated by Ebean.
+     *
+     * @return The generated SQL
+     * @since 26.10.18
+     */
+    public String getSql() {
+        return this.sql;
+    }
+
+    /**
+     * Get the bind values.
+     *
+     * @return The bind values
+     * @since 26.10.18
+     */
+    public List<Object> getBindValues() {
+        return this.bindValues;
+    }
+
+    /**
+     * Get the execution plan returned by the database.
+     *
+     * @return The execution plan
+     * @since 26.10.18
+     */
+    public List<String> getPlan() {
+        return this.plan;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder().append(this.filterTree).append('\n');
+        sb.append(this.sql).append('\n').append(this.bindValues).append('\n');
+        this.plan.forEach(line -> sb.append(line).append('\n'));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zero_x_baadf00d.ebean.utils.TimestampUtils;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+import org.joda.time.ReadableInstant;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Write the rows of a JDBC result set as JSON objects, without intermediate
+ * beans. The writer of each column is resolved once, from the type of the
+ * property it is mapped to; columns not mapped to a property are skipped.
+ * Timestamps, Joda ones included, are written as ISO-8601 strings, like Play's
+ * default object mapper.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class ResultSetJsonWriter {
+
+    /**
+     * Field name of each column, {@code null} if the column is skipped.
+     *
+     * @since 26.10.18
+     */
+    private final String[] fieldNames;
+
+    /**
+     * Writer of each column, {@code null} if the column is skipped.
+     *
+     * @since 26.10.18
+     */
+    private final ColumnWriter[] columnWriters;
+
+    /**
+     * Build a new instance.
+     *
+     * @param fieldNames The field name of each column, {@code null} to skip the column
+     * @param fieldTypes The type of each column
+     * @since 26.10.18
+     */
+    public ResultSetJsonWriter(final String[] fieldNames, final Class<?>[] fieldTypes) {
+        this.fieldNames = fieldNames.clone();
+        this.columnWriters = new ColumnWriter[fieldNames.length];
+        for (int idx = 0; idx < fieldNames.length; ++idx) {
+            if (fieldNames[idx] != null) {
+                this.columnWriters[idx] = ResultSetJsonWriter.createColumnWriter(fieldTypes[idx]);
+            }
+        }
+    }
+
+    /**
+     * Create the writer of a result set. Columns are mapped to the identifier
+     * and scalar properties of the model by their name; the first column of
+     * each property wins, other columns are skipped.
+     *
+     * @param beanDescriptor The descriptor of the model
+     * @param metaData       The metadata of the result set
+     * @return The JSON writer
+     * @throws SQLException If the metadata can't be read
+     * @since 26.10.18
+     */
+    public static ResultSetJsonWriter create(final BeanDescriptor<?> beanDescriptor, final ResultSetMetaData metaData) throws SQLException {
+        final Map<String, BeanProperty> propertiesByColumn = new HashMap<>();
+        if (beanDescriptor.idProperty() != null && beanDescriptor.idProperty().dbColumn() != null) {
+            propertiesByColumn.put(beanDescriptor.idProperty().dbColumn().toUpperCase(Locale.ENGLISH), beanDescriptor.idProperty());
+        }
+        for (final BeanProperty beanProperty : beanDescriptor.propertiesBaseScalar()) {
+            if (beanProperty.dbColumn() != null && !beanProperty.isTransient()) {
+                propertiesByColumn.putIfAbsent(beanProperty.dbColumn().toUpperCase(Locale.ENGLISH), beanProperty);
+            }
+        }
+        final String[] fieldNames = new String[metaData.getColumnCount()];
+        final Class<?>[] fieldTypes = new Class<?>[metaData.getColumnCount()];
+        for (int idx = 0; idx < fieldNames.length; ++idx) {
+            final BeanProperty beanProperty = propertiesByColumn.remove(metaData.getColumnLabel(idx + 1).toUpperCase(Locale.ENGLISH));
+            if (beanProperty != null) {
+                fieldNames[idx] = beanProperty.name();
+                fieldTypes[idx] = beanProperty.type();
+            }
+        }
+        return new ResultSetJsonWriter(fieldNames, fieldTypes);
+    }
+
+    /**
+     * Get the number of columns this writer expects.
+     *
+     * @return The number of columns
+     * @since 26.10.18
+     */
+    public int getColumnCount() {
+        return this.fieldNames.length;
+    }
+
+    /**
+     * Write the remaining rows of the result set, one JSON object per row.
+     *
+     * @param resultSet The result set
+     * @param generator The JSON generator, positioned inside an array
+     * @return The number of written rows
+     * @throws SQLException If a value can't be read
+     * @throws IOException  If a value can't be written
+     * @since 26.10.18
+     */
+    public int writeRows(final ResultSet resultSet, final JsonGenerator generator) throws SQLException, IOException {
+        int rowCount = 0;
+        while (resultSet.next()) {
+            generator.writeStartObject();
+            for (int idx = 0; idx < this.fieldNames.length; ++idx) {
+                if (this.columnWriters[idx] != null) {
+                    generator.writeFieldName(this.fieldNames[idx]);
+                    this.columnWriters[idx].write(resultSet, idx + 1, generator);
+                }
+            }
+            generator.writeEndObject();
+            rowCount += 1;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Create the writer of a column.
+     *
+     * @param type The type of the property mapped to the column
+     * @return The column writer
+     * @since 26.10.18
+     */
+    private static ColumnWriter createColumnWriter(final Class<?> type) {
+        if (type == Integer.class || type == int.class || type == Short.class || type == short.class) {
+            return (resultSet, column, generator) -> {
+                final int value = resultSet.getInt(column);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            };
+        } else if (type == Long.class || type == long.class) {
+            return (resultSet, column, generator) -> {
+                final long value = resultSet.getLong(column);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            };
+        } else if (type == Double.class || type == double.class || type == Float.class || type == float.class) {
+            return (resultSet, column, generator) -> {
+                final double value = resultSet.getDouble(column);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            };
+        } else if (type == Boolean.class || type == boolean.class) {
+            return (resultSet, column, generator) -> {
+                final boolean value = resultSet.getBoolean(column);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeBoolean(value);
+                }
+            };
+        } else if (type == BigDecimal.class) {
+            return (resultSet, column, generator) -> {
+                final BigDecimal value = resultSet.getBigDecimal(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            };
+        } else if (type == Instant.class
+            || type == ZonedDateTime.class
+            || type == OffsetDateTime.class
+            || ReadableInstant.class.isAssignableFrom(type)
+            || (java.util.Date.class.isAssignableFrom(type) && type != Date.class && type != Time.class)) {
+            return (resultSet, column, generator) -> {
+                final Timestamp value = resultSet.getTimestamp(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(TimestampUtils.toInstant(value).toString());
+                }
+            };
+        } else if (type == LocalDateTime.class) {
+            return (resultSet, column, generator) -> {
+                final Timestamp value = resultSet.getTimestamp(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(value.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().toString());
+                }
+            };
+        } else if (type == LocalDate.class || type == Date.class) {
+            return (resultSet, column, generator) -> {
+                final Date value = resultSet.getDate(column);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(value.toLocalDate().toString());
+                }
+            };
+        }
+        return (resultSet, column, generator) -> {
+            final String value = resultSet.getString(column);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(value);
+            }
+        };
+    }
+
+    /**
+     * Write the value of a column.
+     *
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    @FunctionalInterface
+    private interface ColumnWriter {
+
+        /**
+         * Write the value of the column on the current row.
+         *
+         * @param resultSet The result set
+         * @param column    The column index, starting at 1
+         * @param generator The JSON generator
+         * @throws SQLException If the value can't be read
+         * @throws IOException  If the value can't be written
+         * @since 26.10.18
+         */
+        void write(final ResultSet resultSet, final int column, final JsonGenerator generator) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Version of the rows matching a query, computed by a probe query: the
+ * number of matching rows and their latest modification or the sum of
+ * their versions. It is used to answer conditional requests
+ * ({@code If-None-Match}, {@code If-Modified-Since}) without loading the rows.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class ResultVersion {
+
+    /**
+     * Number of matching rows.
+     *
+     * @since 26.10.18
+     */
+    private final long count;
+
+    /**
+     * Latest modification of the matching rows, {@code null} if unknown.
+     *
+     * @since 26.10.18
+     */
+    private final Instant lastModified;
+
+    /**
+     * Sum of the versions of the matching rows, {@code null} if unknown.
+     *
+     * @since 26.10.18
+     */
+    private final Long version;
+
+    /**
+     * The weak entity tag.
+     *
+     * @since 26.10.18
+     */
+    private final String eTag;
+
+    /**
+     * Build a new instance.
+     *
+     * @param count        Number of matching rows
+     * @param lastModified Latest modification of the matching rows, {@code null} if unknown
+     * @param version      Sum of the versions of the matching rows, {@code null} if unknown
+     * @since 26.10.18
+     */
+    public ResultVersion(final long count, final Instant lastModified, final Long version) {
+        this.count = count;
+        this.lastModified = lastModified;
+        this.version = version;
+        this.eTag = "W/\"" + Long.toHexString(count)
+            + '-' + (lastModified == null ? "" : Long.toHexString(lastModified.toEpochMilli()))
+            + '-' + (version == null ? "" : Long.toHexString(version)) + '"';
+    }
+
+    /**
+     * Get the number of matching rows.
+     *
+     * @return The number of matching rows
+     * @since 26.10.18
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the latest modification of the matching rows.
+     *
+     * @return The latest modification, {@code null} if unknown
+     * @since 26.10.18
+     */
+    public Instant getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * Get the sum of the versions of the matching rows. Unlike the highest
+     * version, it changes whenever any of the rows is updated.
+     *
+     * @return The sum of the versions, {@code null} if unknown
+     * @since 26.10.18
+     */
+    public Long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Get the weak entity tag, value of the {@code ETag} header.
+     *
+     * @return The entity tag (ie: {@code W/"6-18b4c2a3f00-"})
+     * @since 26.10.18
+     */
+    public String getETag() {
+        return this.eTag;
+    }
+
+    /**
+     * Get the value of the {@code Last-Modified} header.
+     *
+     * @return The HTTP date, {@code null} if the latest modification is unknown
+     * @since 26.10.18
+     */
+    public String getLastModifiedHeader() {
+        return this.lastModified == null
+            ? null
+            : DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(this.lastModified, ZoneOffset.UTC));
+    }
+
+    /**
+     * Checks if the client copy is still valid. {@code If-None-Match} takes
+     * precedence over {@code If-Modified-Since}, entity tags are compared
+     * with the weak comparison. Only the entity tag, holding the number of
+     * rows, detects deleted rows.
+     *
+     * @param ifNoneMatch     Value of the {@code If-None-Match} header, can be {@code null}
+     * @param ifModifiedSince Value of the {@code If-Modified-Since} header, can be {@code null}
+     * @return {@code true} if the rows have not been modified
+     * @since 26.10.18
+     */
+    public boolean isNotModified(final String ifNoneMatch, final String ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            final String opaqueTag = this.eTag.substring(2);
+            for (final String rawTag : ifNoneMatch.split(",")) {
+                final String tag = rawTag.trim();
+                if ("*".equals(tag) || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (ifModifiedSince != null && this.lastModified != null) {
+            try {
+                final Instant since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return !this.lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+            } catch (final DateTimeParseException ignore) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultVersion{count=" + this.count
+            + ", lastModified=" + this.lastModified
+            + ", version=" + this.version
+            + ", eTag=" + this.eTag + "}";
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean;
+
+import io.ebean.Database;
+import io.ebean.OrderBy;
+import io.ebean.Query;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.api.SpiQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Execute a query on several sharded databases concurrently, then merge
+ * the results. Each shard returns its rows already sorted, they are
+ * merged (k-way merge) with a comparator that must follow the same
+ * ordering. Pagination is pushed down: each shard returns at most
+ * {@code firstRow + maxRows} rows, the page is then cut on the merged
+ * result.
+ * <p>
+ * The null placement of the "order by" is made explicit on each shard
+ * query (nulls last when ascending, first when descending), to follow the
+ * comparator whatever the database default is. Strings are merged by the
+ * comparator in their natural Java ordering: with string sort keys, the
+ * shards must use a binary collation (ie: "C" on PostgreSQL), otherwise
+ * rows of a merged page may be out of order.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class ShardedQueryExecutor {
+
+    /**
+     * The shards.
+     *
+     * @since 26.10.18
+     */
+    private final List<Database> shards;
+
+    /**
+     * Executor running the query on each shard.
+     *
+     * @since 26.10.18
+     */
+    private final Executor executor;
+
+    /**
+     * Build a new instance.
+     *
+     * @param shards   The shards
+     * @param executor Executor running the query on each shard
+     * @since 26.10.18
+     */
+    public ShardedQueryExecutor(final List<Database> shards, final Executor executor) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.executor = executor;
+    }
+
+    /**
+     * Get the shards.
+     *
+     * @return The shards
+     * @since 26.10.18
+     */
+    public List<Database> getShards() {
+        return this.shards;
+    }
+
+    /**
+     * Execute the query on all shards and merge the results. The query
+     * itself is not executed, a copy is made for each shard; cancelling
+     * the query cancels the copies.
+     *
+     * @param query      The query to execute
+     * @param comparator The comparator following the "order by" of the query
+     * @param <T>        Something that extends Model
+     * @return The merged rows, paginated according to the query
+     * @since 26.10.18
+     */
+    public <T> List<T> findList(final Query<T> query, final Comparator<? super T> comparator) {
+        final SpiQuery<T> spiQuery = (SpiQuery<T>) query;
+        final int firstRow = Math.max(spiQuery.getFirstRow(), 0);
+        final int maxRows = spiQuery.getMaxRows();
+
+        final List<SpiQuery<T>> shardQueries = new ArrayList<>(this.shards.size());
+        for (final Database shard : this.shards) {
+            final SpiQuery<T> shardQuery = spiQuery.copy((SpiEbeanServer) shard);
+            shardQuery.setFirstRow(0);
+            ShardedQueryExecutor.placeNulls(shardQuery);
+            if (maxRows > 0) {
+                shardQuery.setMaxRows(firstRow + maxRows);
+            }
+            shardQueries.add(shardQuery);
+        }
+        spiQuery.setCancelableQuery(() -> shardQueries.forEach(Query::cancel));
+        final List<CompletableFuture<List<T>>> futures = new ArrayList<>(shardQueries.size());
+        for (final SpiQuery<T> shardQuery : shardQueries) {
+            futures.add(CompletableFuture.supplyAsync(shardQuery::findList, this.executor));
+        }
+
+        final List<List<T>> results = new ArrayList<>(futures.size());
+        try {
+            for (final CompletableFuture<List<T>> future : futures) {
+                results.add(future.join());
+            }
+        } catch (final CompletionException ex) {
+            shardQueries.forEach(Query::cancel);
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+        return ShardedQueryExecutor.merge(results, comparator, firstRow, maxRows);
+    }
+
+    /**
+     * Make the null placement of the "order by" explicit: nulls last when
+     * ascending, nulls first when descending, as the merge comparator does.
+     *
+     * @param query The query to modify
+     * @param <T>   Type of the rows
+     * @since 26.10.18
+     */
+    static <T> void placeNulls(final Query<T> query) {
+        final OrderBy<T> orderBy = new OrderBy<>();
+        for (final OrderBy.Property property : query.orderBy().getProperties()) {
+            orderBy.add(new OrderBy.Property(
+                property.getProperty(),
+                property.isAscending(),
+                "nulls",
+                property.isAscending() ? "last" : "first"
+            ));
+        }
+        query.setOrderBy(orderBy);
+    }
+
+    /**
+     * Merge sorted lists. On equality, rows of the first lists come first.
+     *
+     * @param sortedLists The sorted lists
+     * @param comparator  The comparator used to sort each list
+     * @param firstRow    Number of merged rows to skip
+     * @param maxRows     Maximum number of rows to return, zero or less for no limit
+     * @param <T>         Type of the rows
+     * @return The merged rows
+     * @since 26.10.18
+     */
+    static <T> List<T> merge(final List<List<T>> sortedLists,
+                             final Comparator<? super T> comparator,
+                             final int firstRow,
+                             final int maxRows) {
+        final PriorityQueue<MergeCursor<T>> heap = new PriorityQueue<>(Math.max(sortedLists.size(), 1), (a, b) -> {
+            final int cmp = comparator.compare(a.current, b.current);
+            return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+        });
+        for (int i = 0; i < sortedLists.size(); ++i) {
+            final Iterator<T> iterator = sortedLists.get(i).iterator();
+            if (iterator.hasNext()) {
+                heap.add(new MergeCursor<>(i, iterator));
+            }
+        }
+
+        final List<T> merged = new ArrayList<>();
+        int skipped = 0;
+        while (!heap.isEmpty() && (maxRows <= 0 || merged.size() < maxRows)) {
+            final MergeCursor<T> cursor = heap.poll();
+            if (skipped < firstRow) {
+                skipped += 1;
+            } else {
+                merged.add(cursor.current);
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Position in one of the merged lists.
+     *
+     * @param <T> Type of the rows
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    private static final class MergeCursor<T> {
+
+        /**
+         * Index of the list, used to keep the merge stable.
+         *
+         * @since 26.10.18
+         */
+        private final int index;
+
+        /**
+         * Remaining rows of the list.
+         *
+         * @since 26.10.18
+         */
+        private final Iterator<T> iterator;
+
+        /**
+         * The current row.
+         *
+         * @since 26.10.18
+         */
+        private T current;
+
+        /**
+         * Build a new instance positioned on the first row.
+         *
+         * @param index    Index of the list
+         * @param iterator Rows of the list, must not be empty
+         * @since 26.10.18
+         */
+        private MergeCursor(final int index, final Iterator<T> iterator) {
+            this.index = index;
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        /**
+         * Move to the next row.
+         *
+         * @return {@code true} if there is a next row
+         * @since 26.10.18
+         */
+        private boolean advance() {
+            if (this.iterator.hasNext()) {
+                this.current = this.iterator.next();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.admission;
+
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of the queries. Each query is classified by its shape
+ * key (model, paths and operators) into the first matching bulkhead, which
+ * limits the number of queries of this class running concurrently. Cheap
+ * shapes, matching no bulkhead, are never limited.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class AdmissionController {
+
+    /**
+     * Maximum number of distinct shapes tracked by the rejection metrics.
+     *
+     * @since 26.10.18
+     */
+    private static final int MAX_TRACKED_SHAPES = 1024;
+
+    /**
+     * The bulkheads, in classification order.
+     *
+     * @since 26.10.18
+     */
+    private final List<Bulkhead> bulkheads;
+
+    /**
+     * Number of rejections per shape key.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, LongAdder> rejectedShapes;
+
+    /**
+     * Build a new instance.
+     *
+     * @param bulkheads The bulkheads, in classification order
+     * @since 26.10.18
+     */
+    public AdmissionController(final List<Bulkhead> bulkheads) {
+        this.bulkheads = Collections.unmodifiableList(new ArrayList<>(bulkheads));
+        this.rejectedShapes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Build the shape key of a query.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree of the query
+     * @return The shape key (ie: "Album|name:icontains;year:desc")
+     * @since 26.10.18
+     */
+    public static String shapeKey(final Class<?> c, final FilterTree filterTree) {
+        return c.getSimpleName() + '|' + filterTree.getShape();
+    }
+
+    /**
+     * Find the bulkhead limiting the given filter tree.
+     *
+     * @param filterTree The filter tree
+     * @return The bulkhead, otherwise, {@code null} if the shape is not limited
+     * @since 26.10.18
+     */
+    public Bulkhead classify(final FilterTree filterTree) {
+        for (final Bulkhead bulkhead : this.bulkheads) {
+            if (bulkhead.matches(filterTree)) {
+                return bulkhead;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Admit a query. The returned permit must be released once the query
+     * is done, ideally with a try-with-resources statement.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree of the query
+     * @return The permit
+     * @throws QueryRejectedException If the bulkhead of the shape is full
+     * @since 26.10.18
+     */
+    public AdmissionPermit admit(final Class<?> c, final FilterTree filterTree) {
+        final Bulkhead bulkhead = this.classify(filterTree);
+        if (bulkhead == null) {
+            return AdmissionPermit.UNLIMITED;
+        }
+        final String shapeKey = AdmissionController.shapeKey(c, filterTree);
+        try {
+            return bulkhead.acquire(shapeKey);
+        } catch (final QueryRejectedException ex) {
+            final LongAdder counter = this.rejectedShapes.size() < AdmissionController.MAX_TRACKED_SHAPES
+                ? this.rejectedShapes.computeIfAbsent(shapeKey, key -> new LongAdder())
+                : this.rejectedShapes.get(shapeKey);
+            if (counter != null) {
+                counter.increment();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the bulkheads, in classification order.
+     *
+     * @return The bulkheads
+     * @since 26.10.18
+     */
+    public List<Bulkhead> getBulkheads() {
+        return this.bulkheads;
+    }
+
+    /**
+     * Get the number of rejections per shape key. Only the first distinct
+     * shapes rejected are tracked.
+     *
+     * @return A snapshot of the number of rejections per shape key
+     * @since 26.10.18
+     */
+    public Map<String, Long> getRejectedShapes() {
+        final Map<String, Long> snapshot = new HashMap<>();
+        this.rejectedShapes.forEach((shapeKey, counter) -> snapshot.put(shapeKey, counter.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Permit to execute a query, to release once the query is done. Releasing
+ * the permit more than once has no effect.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class AdmissionPermit implements AutoCloseable {
+
+    /**
+     * Permit of the queries not limited by any bulkhead.
+     *
+     * @since 26.10.18
+     */
+    static final AdmissionPermit UNLIMITED = new AdmissionPermit(null);
+
+    /**
+     * The semaphore to release, {@code null} if unlimited.
+     *
+     * @since 26.10.18
+     */
+    private final Semaphore semaphore;
+
+    /**
+     * Has the permit been released.
+     *
+     * @since 26.10.18
+     */
+    private final AtomicBoolean released;
+
+    /**
+     * Build a new instance.
+     *
+     * @param semaphore The semaphore to release, {@code null} if unlimited
+     * @since 26.10.18
+     */
+    AdmissionPermit(final Semaphore semaphore) {
+        this.semaphore = semaphore;
+        this.released = new AtomicBoolean(false);
+    }
+
+    /**
+     * Release the permit.
+     *
+     * @since 26.10.18
+     */
+    @Override
+    public void close() {
+        if (this.semaphore != null && this.released.compareAndSet(false, true)) {
+            this.semaphore.release();
+        }
+    }
+}
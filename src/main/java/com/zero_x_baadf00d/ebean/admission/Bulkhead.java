@@ -0,0 +1,238 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.admission;
+
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.FilterPredicate;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit of concurrency shared by a class of query shapes. A shape belongs
+ * to the class if one of its predicates uses one of the given operators,
+ * or crosses at least the given number of associations. Queries over the
+ * limit are rejected immediately, without blocking the calling thread.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class Bulkhead {
+
+    /**
+     * Name of the class of shapes.
+     *
+     * @since 26.10.18
+     */
+    private final String name;
+
+    /**
+     * Maximum number of concurrent queries.
+     *
+     * @since 26.10.18
+     */
+    private final int maxConcurrent;
+
+    /**
+     * Operators classifying a shape, empty to not classify on operators.
+     *
+     * @since 26.10.18
+     */
+    private final Set<FilterOperator> operators;
+
+    /**
+     * Number of crossed associations classifying a shape, 0 to not classify on joins.
+     *
+     * @since 26.10.18
+     */
+    private final int minJoins;
+
+    /**
+     * Permits of the running queries.
+     *
+     * @since 26.10.18
+     */
+    private final Semaphore semaphore;
+
+    /**
+     * Number of admitted queries.
+     *
+     * @since 26.10.18
+     */
+    private final LongAdder admittedCount;
+
+    /**
+     * Number of rejected queries.
+     *
+     * @since 26.10.18
+     */
+    private final LongAdder rejectedCount;
+
+    /**
+     * Build a new instance.
+     *
+     * @param name          Name of the class of shapes
+     * @param maxConcurrent Maximum number of concurrent queries
+     * @param operators     Operators classifying a shape
+     * @param minJoins      Number of crossed associations classifying a shape, 0 to ignore
+     * @since 26.10.18
+     */
+    public Bulkhead(final String name,
+                    final int maxConcurrent,
+                    final Set<FilterOperator> operators,
+                    final int minJoins) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Bulkhead '" + name + "' must admit at least one query");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.operators = operators.isEmpty()
+            ? Collections.emptySet()
+            : Collections.unmodifiableSet(EnumSet.copyOf(operators));
+        this.minJoins = minJoins;
+        this.semaphore = new Semaphore(maxConcurrent);
+        this.admittedCount = new LongAdder();
+        this.rejectedCount = new LongAdder();
+    }
+
+    /**
+     * Checks if the filter tree belongs to this class of shapes.
+     *
+     * @param filterTree The filter tree
+     * @return {@code true} if the shape belongs to this class
+     * @since 26.10.18
+     */
+    public boolean matches(final FilterTree filterTree) {
+        for (final FilterPredicate predicate : filterTree.getPredicates()) {
+            if (this.operators.contains(predicate.getOperator())) {
+                return true;
+            }
+            if (this.minJoins > 0 && this.countJoins(predicate) >= this.minJoins) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the associations joined by a predicate. If the predicate does
+     * not know it, each association crossed by its path is counted.
+     *
+     * @param predicate The predicate
+     * @return The number of joined associations
+     * @since 26.10.18
+     */
+    private int countJoins(final FilterPredicate predicate) {
+        if (predicate.getJoinCount() >= 0) {
+            return predicate.getJoinCount();
+        }
+        final String path = predicate.getPath();
+        int joins = 0;
+        for (int idx = path.indexOf('.'); idx >= 0; idx = path.indexOf('.', idx + 1)) {
+            joins += 1;
+        }
+        return joins;
+    }
+
+    /**
+     * Acquire a permit. The calling thread never waits: a query over the
+     * limit is rejected at once, leaving the retry policy to the caller.
+     *
+     * @param shapeKey The shape of the query
+     * @return The permit, to release once the query is done
+     * @throws QueryRejectedException If no permit is available
+     * @since 26.10.18
+     */
+    public AdmissionPermit acquire(final String shapeKey) {
+        if (!this.semaphore.tryAcquire()) {
+            this.rejectedCount.increment();
+            throw new QueryRejectedException(this.name, shapeKey);
+        }
+        this.admittedCount.increment();
+        return new AdmissionPermit(this.semaphore);
+    }
+
+    /**
+     * Get the name of the class of shapes.
+     *
+     * @return The name
+     * @since 26.10.18
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the maximum number of concurrent queries.
+     *
+     * @return The maximum number of concurrent queries
+     * @since 26.10.18
+     */
+    public int getMaxConcurrent() {
+        return this.maxConcurrent;
+    }
+
+    /**
+     * Get the number of running queries.
+     *
+     * @return The number of running queries
+     * @since 26.10.18
+     */
+    public int getActiveCount() {
+        return this.maxConcurrent - this.semaphore.availablePermits();
+    }
+
+    /**
+     * Get the number of admitted queries.
+     *
+     * @return The number of admitted queries
+     * @since 26.10.18
+     */
+    public long getAdmittedCount() {
+        return this.admittedCount.sum();
+    }
+
+    /**
+     * Get the number of rejected queries.
+     *
+     * @return The number of rejected queries
+     * @since 26.10.18
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead{name=" + this.name
+            + ", maxConcurrent=" + this.maxConcurrent
+            + ", operators=" + this.operators
+            + ", minJoins=" + this.minJoins + "}";
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.admission;
+
+/**
+ * Thrown when a query is not admitted: the bulkhead of its shape is full
+ * and no permit has been released before the deadline.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public class QueryRejectedException extends RuntimeException {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name of the bulkhead rejecting the query.
+     *
+     * @since 26.10.18
+     */
+    private final String bulkheadName;
+
+    /**
+     * Shape of the rejected query.
+     *
+     * @since 26.10.18
+     */
+    private final String shapeKey;
+
+    /**
+     * Build a new instance.
+     *
+     * @param bulkheadName Name of the bulkhead rejecting the query
+     * @param shapeKey     Shape of the rejected query
+     * @since 26.10.18
+     */
+    public QueryRejectedException(final String bulkheadName, final String shapeKey) {
+        super("Query rejected by bulkhead '" + bulkheadName + "': " + shapeKey);
+        this.bulkheadName = bulkheadName;
+        this.shapeKey = shapeKey;
+    }
+
+    /**
+     * Get the name of the bulkhead rejecting the query.
+     *
+     * @return The bulkhead name
+     * @since 26.10.18
+     */
+    public String getBulkheadName() {
+        return this.bulkheadName;
+    }
+
+    /**
+     * Get the shape of the rejected query.
+     *
+     * @return The shape key (ie: "Album|name:icontains")
+     * @since 26.10.18
+     */
+    public String getShapeKey() {
+        return this.shapeKey;
+    }
+}
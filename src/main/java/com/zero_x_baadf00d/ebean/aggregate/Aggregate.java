@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.aggregate;
+
+import java.util.Objects;
+
+/**
+ * An aggregate function applied to a resolved path. A {@code null}
+ * path is only allowed with {@link AggregateFunction#COUNT} and counts
+ * the rows of each group.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class Aggregate {
+
+    /**
+     * The aggregate function.
+     *
+     * @since 26.10.18
+     */
+    private final AggregateFunction function;
+
+    /**
+     * The resolved path, {@code null} to count the rows.
+     *
+     * @since 26.10.18
+     */
+    private final String path;
+
+    /**
+     * Build a new instance.
+     *
+     * @param function The aggregate function
+     * @param path     The resolved path, {@code null} to count the rows
+     * @since 26.10.18
+     */
+    public Aggregate(final AggregateFunction function, final String path) {
+        if (path == null && function != AggregateFunction.COUNT) {
+            throw new IllegalArgumentException("Aggregate function '" + function.getKeyword() + "' requires a path");
+        }
+        this.function = function;
+        this.path = path;
+    }
+
+    /**
+     * Get the aggregate function.
+     *
+     * @return The aggregate function
+     * @since 26.10.18
+     */
+    public AggregateFunction getFunction() {
+        return this.function;
+    }
+
+    /**
+     * Get the resolved path.
+     *
+     * @return The resolved path, {@code null} to count the rows
+     * @since 26.10.18
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Get the label of the aggregate in the result rows (ie: "count", "sum:length").
+     *
+     * @return The label
+     * @since 26.10.18
+     */
+    public String getLabel() {
+        return this.path == null ? this.function.getKeyword() : this.function.getKeyword() + ':' + this.path;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || this.getClass() != o.getClass()) {
+            return false;
+        }
+        final Aggregate that = (Aggregate) o;
+        return this.function == that.function && Objects.equals(this.path, that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.function, this.path);
+    }
+
+    @Override
+    public String toString() {
+        return this.getLabel();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.aggregate;
+
+/**
+ * Aggregate functions available on the "agg" query string argument.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public enum AggregateFunction {
+
+    COUNT("count"),
+    SUM("sum"),
+    AVG("avg"),
+    MIN("min"),
+    MAX("max");
+
+    /**
+     * The keyword used on the query string, also the SQL function name.
+     *
+     * @since 26.10.18
+     */
+    private final String keyword;
+
+    /**
+     * Build a new instance.
+     *
+     * @param keyword The keyword used on the query string
+     * @since 26.10.18
+     */
+    AggregateFunction(final String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * Retrieve the function from its keyword.
+     *
+     * @param keyword The keyword (ie: "sum")
+     * @return The function, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public static AggregateFunction fromKeyword(final String keyword) {
+        for (final AggregateFunction function : AggregateFunction.values()) {
+            if (function.keyword.equalsIgnoreCase(keyword)) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the keyword used on the query string.
+     *
+     * @return The keyword
+     * @since 26.10.18
+     */
+    public String getKeyword() {
+        return this.keyword;
+    }
+}
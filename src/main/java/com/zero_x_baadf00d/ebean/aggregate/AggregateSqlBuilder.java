@@ -0,0 +1,250 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.aggregate;
+
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocOne;
+import io.ebeaninternal.server.deploy.TableJoinColumn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build the grouped SQL query of an aggregation. Paths are mapped to
+ * columns with the Ebean deployment descriptors: each to-one association
+ * crossed by a path adds a left join, shared by all paths going through
+ * it. Paths crossing a to-many association can't be aggregated.
+ * <p>
+ * The rows are restricted with the SQL of the filtered query, selecting
+ * the matching primary keys: {@code where t0.id in (select t0.id from ...)}.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class AggregateSqlBuilder {
+
+    /**
+     * Alias of the root table.
+     *
+     * @since 26.10.18
+     */
+    private static final String ROOT_ALIAS = "t0";
+
+    /**
+     * Descriptor of the queried model.
+     *
+     * @since 26.10.18
+     */
+    private final BeanDescriptor<?> descriptor;
+
+    /**
+     * Alias of the joined tables, indexed by association path.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, String> joinAliases;
+
+    /**
+     * The left joins.
+     *
+     * @since 26.10.18
+     */
+    private final StringBuilder joins;
+
+    /**
+     * Columns of the groups.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> groupColumns;
+
+    /**
+     * SQL expressions of the aggregates.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> aggregateExpressions;
+
+    /**
+     * Are the groups ordered by their first aggregate, descending.
+     *
+     * @since 26.10.18
+     */
+    private boolean orderByFirstAggregateDesc;
+
+    /**
+     * Build a new instance.
+     *
+     * @param descriptor Descriptor of the queried model
+     * @since 26.10.18
+     */
+    public AggregateSqlBuilder(final BeanDescriptor<?> descriptor) {
+        this.descriptor = descriptor;
+        this.joinAliases = new HashMap<>();
+        this.joins = new StringBuilder();
+        this.groupColumns = new ArrayList<>();
+        this.aggregateExpressions = new ArrayList<>();
+    }
+
+    /**
+     * Add a group.
+     *
+     * @param path The resolved path (ie: "artist.name")
+     * @return {@code true} if the group has been added, {@code false} if the path can't be mapped to a column
+     * @since 26.10.18
+     */
+    public boolean addGroup(final String path) {
+        final String column = this.resolveColumn(path);
+        if (column == null) {
+            return false;
+        }
+        this.groupColumns.add(column);
+        return true;
+    }
+
+    /**
+     * Add an aggregate.
+     *
+     * @param aggregate The aggregate
+     * @return {@code true} if the aggregate has been added, {@code false} if the path can't be mapped to a column
+     * @since 26.10.18
+     */
+    public boolean addAggregate(final Aggregate aggregate) {
+        final String column = aggregate.getPath() == null ? "*" : this.resolveColumn(aggregate.getPath());
+        if (column == null) {
+            return false;
+        }
+        this.aggregateExpressions.add(aggregate.getFunction().getKeyword() + '(' + column + ')');
+        return true;
+    }
+
+    /**
+     * Order the groups by their first aggregate, descending, then by groups.
+     * Used to retrieve the most frequent values first (ie: facets).
+     *
+     * @param enabled {@code true} to order by the first aggregate
+     * @since 26.10.18
+     */
+    public void setOrderByFirstAggregateDesc(final boolean enabled) {
+        this.orderByFirstAggregateDesc = enabled;
+    }
+
+    /**
+     * Build the SQL query. The groups come first on each row, followed by
+     * the aggregates, in the order they have been added. Rows are ordered
+     * by groups, unless the order by the first aggregate is enabled.
+     *
+     * @param filteredIdSql SQL of the filtered query, selecting the primary key only
+     * @return The SQL query
+     * @since 26.10.18
+     */
+    public String build(final String filteredIdSql) {
+        final StringBuilder sb = new StringBuilder("select ");
+        final List<String> selected = new ArrayList<>(this.groupColumns);
+        selected.addAll(this.aggregateExpressions);
+        sb.append(String.join(", ", selected));
+        sb.append(" from ").append(this.descriptor.baseTable()).append(' ').append(AggregateSqlBuilder.ROOT_ALIAS);
+        sb.append(this.joins);
+        sb.append(" where ").append(AggregateSqlBuilder.ROOT_ALIAS).append('.').append(this.descriptor.idProperty().dbColumn());
+        sb.append(" in (").append(filteredIdSql).append(')');
+        if (!this.groupColumns.isEmpty()) {
+            final String groups = String.join(", ", this.groupColumns);
+            sb.append(" group by ").append(groups).append(" order by ");
+            if (this.orderByFirstAggregateDesc && !this.aggregateExpressions.isEmpty()) {
+                sb.append(this.aggregateExpressions.get(0)).append(" desc, ");
+            }
+            sb.append(groups);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Map a path to its column, adding the needed joins.
+     *
+     * @param path The resolved path
+     * @return The qualified column, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private String resolveColumn(final String path) {
+        BeanDescriptor<?> currentDescriptor = this.descriptor;
+        String alias = AggregateSqlBuilder.ROOT_ALIAS;
+        int segmentStart = 0;
+        int dotIdx = path.indexOf('.');
+        while (dotIdx > 0) {
+            final BeanProperty property = currentDescriptor.findProperty(path.substring(segmentStart, dotIdx));
+            if (!(property instanceof BeanPropertyAssocOne)) {
+                return null;
+            }
+            final BeanPropertyAssocOne<?> association = (BeanPropertyAssocOne<?>) property;
+            alias = this.resolveJoinAlias(path.substring(0, dotIdx), alias, association);
+            currentDescriptor = association.targetDescriptor();
+            segmentStart = dotIdx + 1;
+            dotIdx = path.indexOf('.', segmentStart);
+        }
+        final BeanProperty property = currentDescriptor.findProperty(path.substring(segmentStart));
+        if (property == null
+            || property instanceof BeanPropertyAssocOne
+            || property.isTransient()
+            || property.isFormula()
+            || property.isEmbedded()
+            || property.dbColumn() == null) {
+            return null;
+        }
+        return alias + '.' + property.dbColumn();
+    }
+
+    /**
+     * Get the alias of the table joined by the association, adding the join if needed.
+     *
+     * @param associationPath Path of the association
+     * @param parentAlias     Alias of the table owning the association
+     * @param association     The association
+     * @return The alias of the joined table
+     * @since 26.10.18
+     */
+    private String resolveJoinAlias(final String associationPath,
+                                    final String parentAlias,
+                                    final BeanPropertyAssocOne<?> association) {
+        String alias = this.joinAliases.get(associationPath);
+        if (alias == null) {
+            alias = "j" + (this.joinAliases.size() + 1);
+            this.joinAliases.put(associationPath, alias);
+            this.joins.append(" left join ").append(association.tableJoin().getTable()).append(' ').append(alias).append(" on ");
+            boolean first = true;
+            for (final TableJoinColumn joinColumn : association.tableJoin().columns()) {
+                if (!first) {
+                    this.joins.append(" and ");
+                }
+                this.joins.append(alias).append('.').append(joinColumn.getForeignDbColumn())
+                    .append(" = ").append(parentAlias).append('.').append(joinColumn.getLocalDbColumn());
+                first = false;
+            }
+        }
+        return alias;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.descriptor;
+
+import javax.persistence.Id;
+import javax.persistence.Transient;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Properties of a model usable in a path: their names, their types and
+ * which ones are collections. Descriptors are generated at compile time
+ * by the {@code EntityPathDescriptorProcessor} annotation processor, as a
+ * static {@code DESCRIPTOR} field on a class named after the model (ie:
+ * {@code models.Album_PathDescriptor}). Without generated descriptor, it
+ * is built by reflection.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class EntityPathDescriptor {
+
+    /**
+     * Suffix of the generated descriptor class names.
+     *
+     * @since 26.10.18
+     */
+    public static final String GENERATED_CLASS_SUFFIX = "_PathDescriptor";
+
+    /**
+     * Name of the static field holding the generated descriptor.
+     *
+     * @since 26.10.18
+     */
+    public static final String GENERATED_FIELD_NAME = "DESCRIPTOR";
+
+    /**
+     * The described class.
+     *
+     * @since 26.10.18
+     */
+    private final Class<?> entityClass;
+
+    /**
+     * Index of the primary key property, -1 if none.
+     *
+     * @since 26.10.18
+     */
+    private final int idPropertyIndex;
+
+    /**
+     * Names of the properties.
+     *
+     * @since 26.10.18
+     */
+    private final String[] propertyNames;
+
+    /**
+     * Types of the properties, the element type for collections. A
+     * {@code null} type means the type can't be loaded.
+     *
+     * @since 26.10.18
+     */
+    private final Class<?>[] propertyTypes;
+
+    /**
+     * Is the property a collection.
+     *
+     * @since 26.10.18
+     */
+    private final boolean[] collections;
+
+    /**
+     * Build a new instance.
+     *
+     * @param entityClass   The described class
+     * @param idProperty    Name of the primary key property, {@code null} if none
+     * @param propertyNames Names of the properties, in lookup order
+     * @param propertyTypes Types of the properties, the element type for collections
+     * @param collections   Is the property a collection
+     * @since 26.10.18
+     */
+    public EntityPathDescriptor(final Class<?> entityClass,
+                                final String idProperty,
+                                final String[] propertyNames,
+                                final Class<?>[] propertyTypes,
+                                final boolean[] collections) {
+        if (propertyNames.length != propertyTypes.length || propertyNames.length != collections.length) {
+            throw new IllegalArgumentException("Property names, types and collection flags must have the same length");
+        }
+        this.entityClass = entityClass;
+        this.propertyNames = propertyNames.clone();
+        this.propertyTypes = propertyTypes.clone();
+        this.collections = collections.clone();
+        int idIdx = -1;
+        for (int idx = 0; idx < propertyNames.length && idProperty != null; ++idx) {
+            if (propertyNames[idx].equals(idProperty)) {
+                idIdx = idx;
+                break;
+            }
+        }
+        this.idPropertyIndex = idIdx;
+    }
+
+    /**
+     * Get the generated descriptor of the class.
+     *
+     * @param clazz       The class to describe
+     * @param classLoader The class loader to use
+     * @return The generated descriptor, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public static EntityPathDescriptor findGenerated(final Class<?> clazz, final ClassLoader classLoader) {
+        try {
+            final Class<?> generatedClass = Class.forName(
+                clazz.getName().replace('$', '_') + EntityPathDescriptor.GENERATED_CLASS_SUFFIX,
+                true,
+                classLoader
+            );
+            final Object descriptor = generatedClass.getField(EntityPathDescriptor.GENERATED_FIELD_NAME).get(null);
+            return descriptor instanceof EntityPathDescriptor ? (EntityPathDescriptor) descriptor : null;
+        } catch (final ClassNotFoundException | NoSuchFieldException | IllegalAccessException | LinkageError ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the descriptor of the class by reflection. Fields of the class
+     * and its super classes are described, the ones declared by the class
+     * itself first. The root class of the hierarchy (ie: {@code Model}) is
+     * not described, nor are static, transient and {@code @Transient} fields.
+     *
+     * @param clazz       The class to describe
+     * @param classLoader The class loader used to load the collection element types
+     * @return The descriptor
+     * @since 26.10.18
+     */
+    public static EntityPathDescriptor reflect(final Class<?> clazz, final ClassLoader classLoader) {
+        final List<Field> fields = new ArrayList<>();
+        Class<?> currentClazz = clazz;
+        while (currentClazz.getSuperclass() != null && currentClazz.getSuperclass() != Object.class) {
+            for (final Field field : currentClazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())
+                    && !Modifier.isTransient(field.getModifiers())
+                    && !field.isAnnotationPresent(Transient.class)) {
+                    fields.add(field);
+                }
+            }
+            currentClazz = currentClazz.getSuperclass();
+        }
+
+        final String[] names = new String[fields.size()];
+        final Class<?>[] types = new Class<?>[fields.size()];
+        final boolean[] collections = new boolean[fields.size()];
+        String idProperty = null;
+        for (int idx = 0; idx < names.length; ++idx) {
+            final Field field = fields.get(idx);
+            names[idx] = field.getName();
+            collections[idx] = field.getType() == List.class;
+            types[idx] = collections[idx] ? EntityPathDescriptor.loadElementType(field, classLoader) : field.getType();
+            if (idProperty == null && field.isAnnotationPresent(Id.class)) {
+                idProperty = field.getName();
+            }
+        }
+        return new EntityPathDescriptor(clazz, idProperty, names, types, collections);
+    }
+
+    /**
+     * Load the element type of a collection field.
+     *
+     * @param field       The collection field
+     * @param classLoader The class loader to use
+     * @return The element type, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private static Class<?> loadElementType(final Field field, final ClassLoader classLoader) {
+        if (!(field.getGenericType() instanceof ParameterizedType)) {
+            return null;
+        }
+        final ParameterizedType aType = (ParameterizedType) field.getGenericType();
+        try {
+            return classLoader.loadClass(aType.getActualTypeArguments()[0].getTypeName());
+        } catch (final ClassNotFoundException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get the described class.
+     *
+     * @return The described class
+     * @since 26.10.18
+     */
+    public Class<?> getEntityClass() {
+        return this.entityClass;
+    }
+
+    /**
+     * Get the number of properties.
+     *
+     * @return The number of properties
+     * @since 26.10.18
+     */
+    public int getPropertyCount() {
+        return this.propertyNames.length;
+    }
+
+    /**
+     * Find a property from a region of the given string containing its
+     * name. No intermediate string is created.
+     *
+     * @param str   The string containing the property name
+     * @param start Start of the property name
+     * @param end   End (exclusive) of the property name
+     * @return The index of the property, otherwise, -1
+     * @since 26.10.18
+     */
+    public int indexOf(final String str, final int start, final int end) {
+        final int length = end - start;
+        for (int idx = 0; idx < this.propertyNames.length; ++idx) {
+            final String name = this.propertyNames[idx];
+            if (name.length() == length && str.regionMatches(start, name, 0, length)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the name of a property.
+     *
+     * @param idx Index of the property
+     * @return The property name
+     * @since 26.10.18
+     */
+    public String getPropertyName(final int idx) {
+        return this.propertyNames[idx];
+    }
+
+    /**
+     * Get the type of a property. For collections, the type of the elements.
+     *
+     * @param idx Index of the property
+     * @return The property type, otherwise, {@code null} if it can't be loaded
+     * @since 26.10.18
+     */
+    public Class<?> getPropertyType(final int idx) {
+        return this.propertyTypes[idx];
+    }
+
+    /**
+     * Checks if a property is a collection.
+     *
+     * @param idx Index of the property
+     * @return {@code true} if the property is a collection
+     * @since 26.10.18
+     */
+    public boolean isCollection(final int idx) {
+        return this.collections[idx];
+    }
+
+    /**
+     * Get the index of the primary key property.
+     *
+     * @return The index of the primary key property, otherwise, -1
+     * @since 26.10.18
+     */
+    public int getIdPropertyIndex() {
+        return this.idPropertyIndex;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.entityClass.getName()).append('{');
+        for (int idx = 0; idx < this.propertyNames.length; ++idx) {
+            if (idx > 0) {
+                sb.append(", ");
+            }
+            sb.append(this.propertyNames[idx]).append(':');
+            sb.append(this.propertyTypes[idx] == null ? "?" : this.propertyTypes[idx].getSimpleName());
+            if (this.collections[idx]) {
+                sb.append("[]");
+            }
+            if (idx == this.idPropertyIndex) {
+                sb.append(" (id)");
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
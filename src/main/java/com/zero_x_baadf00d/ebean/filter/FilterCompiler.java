@@ -0,0 +1,339 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import io.ebean.OrderBy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compile a {@link FilterTree} into an in-memory {@code Predicate} and
+ * {@code Comparator}. The semantics follow the SQL emitted by
+ * {@link FilterTree#applyTo(io.ebean.ExpressionList)}: comparisons with
+ * {@code null} are unknown (thus never match, even negated), "like"
+ * patterns use {@code %} and {@code _} wildcards, full-text searches
+ * behave like the {@code like} fallback strategy and a path going
+ * through a collection matches if at least one element matches.
+ * Ordering puts {@code null} last in ascending order and uses the
+ * natural ordering of the values, not the database collation.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterCompiler {
+
+    /**
+     * Accessors already resolved, by class and path.
+     *
+     * @since 26.10.18
+     */
+    private final Map<Class<?>, Map<String, PropertyAccessor>> accessors;
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    public FilterCompiler() {
+        this.accessors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the accessor of a path, resolving it on first use.
+     *
+     * @param clazz The root class
+     * @param path  The resolved path
+     * @return The accessor
+     * @since 26.10.18
+     */
+    public PropertyAccessor getAccessor(final Class<?> clazz, final String path) {
+        return this.accessors
+            .computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(path, k -> PropertyAccessor.of(clazz, k));
+    }
+
+    /**
+     * Compile the predicates of the tree.
+     *
+     * @param clazz The root class
+     * @param tree  The filter tree
+     * @param <T>   The type of the beans to test
+     * @return The predicate, matching if all the predicates of the tree match
+     * @since 26.10.18
+     */
+    public <T> Predicate<T> compilePredicate(final Class<T> clazz, final FilterTree tree) {
+        if (tree.isContradiction()) {
+            return bean -> false;
+        }
+        final List<Predicate<Object>> compiled = new ArrayList<>(tree.getPredicates().size());
+        for (final FilterPredicate predicate : tree.getPredicates()) {
+            compiled.add(this.compilePredicate(clazz, predicate));
+        }
+        return bean -> {
+            for (final Predicate<Object> predicate : compiled) {
+                if (!predicate.test(bean)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Compile the "order by" instructions of the tree.
+     *
+     * @param clazz The root class
+     * @param tree  The filter tree
+     * @param <T>   The type of the beans to compare
+     * @return The comparator, all beans are equal if there is no instruction
+     * @since 26.10.18
+     */
+    public <T> Comparator<T> compileComparator(final Class<T> clazz, final FilterTree tree) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (final FilterOrder order : tree.getOrders()) {
+            comparator = comparator.thenComparing(this.compileComparator(clazz, order.getPath(), order.isAscending()));
+        }
+        return comparator;
+    }
+
+    /**
+     * Compile the "order by" properties of a query, the ordering actually run
+     * by the database: orderings set on the query by the caller are included.
+     *
+     * @param clazz      The root class
+     * @param properties The "order by" properties of the query
+     * @param <T>        The type of the beans to compare
+     * @return The comparator, all beans are equal if there is no property
+     * @throws IllegalArgumentException If a property can't be resolved on the class (ie: a raw SQL expression)
+     * @since 26.10.18
+     */
+    public <T> Comparator<T> compileComparator(final Class<T> clazz, final List<OrderBy.Property> properties) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (final OrderBy.Property property : properties) {
+            comparator = comparator.thenComparing(this.compileComparator(clazz, property.getProperty(), property.isAscending()));
+        }
+        return comparator;
+    }
+
+    /**
+     * Compile the ordering on a single path.
+     *
+     * @param clazz     The root class
+     * @param path      The resolved path
+     * @param ascending Is the ordering ascending
+     * @param <T>       The type of the beans to compare
+     * @return The comparator, {@code null} last in ascending order
+     * @since 26.10.18
+     */
+    private <T> Comparator<T> compileComparator(final Class<T> clazz, final String path, final boolean ascending) {
+        final PropertyAccessor accessor = this.getAccessor(clazz, path);
+        final Comparator<Object> values = Comparator.nullsLast(FilterCompiler::compareValues);
+        return Comparator.comparing(accessor::get, ascending ? values : values.reversed());
+    }
+
+    /**
+     * Compile a single predicate.
+     *
+     * @param clazz     The root class
+     * @param predicate The predicate
+     * @return The compiled predicate, working on the root bean
+     * @since 26.10.18
+     */
+    private Predicate<Object> compilePredicate(final Class<?> clazz, final FilterPredicate predicate) {
+        final PropertyAccessor accessor = this.getAccessor(clazz, predicate.getPath());
+        switch (predicate.getOperator()) {
+            case ISEMPTY:
+            case ISNOTEMPTY:
+                final boolean empty = predicate.getOperator() == FilterOperator.ISEMPTY;
+                return bean -> {
+                    final Collection<?> collection = accessor.getCollection(bean);
+                    return ((collection == null || collection.isEmpty()) == empty) != predicate.isNegated();
+                };
+            default:
+                final Function<Object, Boolean> test = FilterCompiler.compileValueTest(predicate);
+                final boolean negated = predicate.isNegated();
+                return bean -> accessor.anyMatch(bean, value -> {
+                    final Boolean result = test.apply(value);
+                    return result != null && result != negated;
+                });
+        }
+    }
+
+    /**
+     * Compile the test of a value, using the three-valued logic of SQL.
+     *
+     * @param predicate The predicate
+     * @return A function returning {@code true}, {@code false} or {@code null} (unknown)
+     * @since 26.10.18
+     */
+    private static Function<Object, Boolean> compileValueTest(final FilterPredicate predicate) {
+        final Object expected = predicate.getValue();
+        switch (predicate.getOperator()) {
+            case EQ:
+                return expected == null ? value -> value == null : value -> value == null ? null : FilterCompiler.compareValues(value, expected) == 0;
+            case NE:
+                return expected == null ? value -> value != null : value -> value == null ? null : FilterCompiler.compareValues(value, expected) != 0;
+            case GT:
+                return value -> value == null || expected == null ? null : FilterCompiler.compareValues(value, expected) > 0;
+            case GTE:
+                return value -> value == null || expected == null ? null : FilterCompiler.compareValues(value, expected) >= 0;
+            case LT:
+                return value -> value == null || expected == null ? null : FilterCompiler.compareValues(value, expected) < 0;
+            case LTE:
+                return value -> value == null || expected == null ? null : FilterCompiler.compareValues(value, expected) <= 0;
+            case BETWEEN:
+                final Object lower = predicate.getValues().get(0);
+                final Object upper = predicate.getValues().get(1);
+                return value -> value == null || lower == null || upper == null
+                    ? null
+                    : FilterCompiler.compareValues(value, lower) >= 0 && FilterCompiler.compareValues(value, upper) <= 0;
+            case IN:
+            case NOTIN:
+                final Set<Object> candidates = new HashSet<>(predicate.getValues());
+                final boolean in = predicate.getOperator() == FilterOperator.IN;
+                return value -> value == null ? null : candidates.contains(value) == in;
+            case ISNULL:
+                return value -> value == null;
+            case ISNOTNULL:
+                return value -> value != null;
+            case LIKE:
+            case ILIKE:
+                return FilterCompiler.compileLike(FilterCompiler.likeToRegex((String) expected), predicate.getOperator() == FilterOperator.ILIKE);
+            case CONTAINS:
+            case ICONTAINS:
+                return FilterCompiler.compileLike(".*" + Pattern.quote(String.valueOf(expected)) + ".*", predicate.getOperator() == FilterOperator.ICONTAINS);
+            case STARTSWITH:
+            case ISTARTSWITH:
+                return FilterCompiler.compileLike(Pattern.quote(String.valueOf(expected)) + ".*", predicate.getOperator() == FilterOperator.ISTARTSWITH);
+            case ENDSWITH:
+            case IENDSWITH:
+                return FilterCompiler.compileLike(".*" + Pattern.quote(String.valueOf(expected)), predicate.getOperator() == FilterOperator.IENDSWITH);
+            case SEARCH:
+            case ISEARCH:
+                return FilterCompiler.compileSearch((String) expected, predicate.getOperator() == FilterOperator.ISEARCH);
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + predicate.getOperator());
+        }
+    }
+
+    /**
+     * Compile a "like" test from a regular expression.
+     *
+     * @param regex           The regular expression
+     * @param caseInsensitive Is the test case insensitive
+     * @return The compiled test
+     * @since 26.10.18
+     */
+    private static Function<Object, Boolean> compileLike(final String regex, final boolean caseInsensitive) {
+        final Pattern pattern = Pattern.compile(regex, Pattern.DOTALL | (caseInsensitive ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0));
+        return value -> value == null ? null : pattern.matcher(value.toString()).matches();
+    }
+
+    /**
+     * Compile a full-text search test: each whitespace separated term must
+     * be contained in the value, like the {@code like} fallback strategy.
+     *
+     * @param terms           The searched terms
+     * @param caseInsensitive Is the test case insensitive
+     * @return The compiled test
+     * @since 26.10.18
+     */
+    private static Function<Object, Boolean> compileSearch(final String terms, final boolean caseInsensitive) {
+        final List<Function<Object, Boolean>> tests = new ArrayList<>();
+        for (final String term : terms.trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                tests.add(FilterCompiler.compileLike(".*" + Pattern.quote(term) + ".*", caseInsensitive));
+            }
+        }
+        if (tests.isEmpty()) {
+            return value -> false;
+        }
+        return value -> {
+            for (final Function<Object, Boolean> test : tests) {
+                final Boolean result = test.apply(value);
+                if (result == null || !result) {
+                    return result;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Translate a SQL "like" pattern into a regular expression.
+     *
+     * @param like The SQL "like" pattern
+     * @return The regular expression
+     * @since 26.10.18
+     */
+    static String likeToRegex(final String like) {
+        final StringBuilder sb = new StringBuilder(like.length() + 8);
+        int literalStart = 0;
+        for (int i = 0; i < like.length(); ++i) {
+            final char c = like.charAt(i);
+            if (c == '%' || c == '_') {
+                if (i > literalStart) {
+                    sb.append(Pattern.quote(like.substring(literalStart, i)));
+                }
+                sb.append(c == '%' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < like.length()) {
+            sb.append(Pattern.quote(like.substring(literalStart)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compare two non null values. Numbers of different types are
+     * compared by their value, other values of different types by
+     * their string representation.
+     *
+     * @param a The first value
+     * @param b The second value
+     * @return A negative integer, zero, or a positive integer
+     * @since 26.10.18
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(final Object a, final Object b) {
+        if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        } else if (a instanceof Comparable && a.getClass().isInstance(b)) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return a.equals(b) ? 0 : a.toString().compareTo(b.toString());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Operators available on a query string key.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public enum FilterOperator {
+
+    EQ("eq"),
+    NE("ne"),
+    GT("gt"),
+    GTE("gte"),
+    LT("lt"),
+    LTE("lte"),
+    LIKE("like"),
+    ILIKE("ilike"),
+    CONTAINS("contains"),
+    ICONTAINS("icontains"),
+    STARTSWITH("startswith"),
+    ISTARTSWITH("istartswith"),
+    ENDSWITH("endswith"),
+    IENDSWITH("iendswith"),
+    IN("in"),
+    NOTIN("notin"),
+    BETWEEN("between"),
+    ISNULL("isnull"),
+    ISNOTNULL("isnotnull"),
+    ISEMPTY("isempty"),
+    ISNOTEMPTY("isnotempty"),
+    SEARCH("search"),
+    ISEARCH("isearch"),
+    ORDERBY("orderby");
+
+    /**
+     * Operators indexed by keyword.
+     *
+     * @since 26.10.18
+     */
+    private static final Map<String, FilterOperator> BY_KEYWORD = new HashMap<>();
+
+    /**
+     * All operators, cached to avoid the copy made by {@code values()}.
+     *
+     * @since 26.10.18
+     */
+    private static final FilterOperator[] VALUES = FilterOperator.values();
+
+    static {
+        for (final FilterOperator operator : FilterOperator.values()) {
+            FilterOperator.BY_KEYWORD.put(operator.keyword, operator);
+        }
+    }
+
+    /**
+     * The keyword used on the query string.
+     *
+     * @since 26.10.18
+     */
+    private final String keyword;
+
+    /**
+     * Build a new operator.
+     *
+     * @param keyword The keyword used on the query string
+     * @since 26.10.18
+     */
+    FilterOperator(final String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * Retrieve the operator matching the given keyword.
+     *
+     * @param keyword The keyword used on the query string
+     * @return The operator, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public static FilterOperator fromKeyword(final String keyword) {
+        return FilterOperator.BY_KEYWORD.get(keyword);
+    }
+
+    /**
+     * Retrieve the operator matching a region of the given string, without
+     * creating any intermediate string.
+     *
+     * @param str   The string containing the keyword
+     * @param start Start of the keyword
+     * @param end   End (exclusive) of the keyword
+     * @return The operator, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public static FilterOperator fromKeyword(final String str, final int start, final int end) {
+        final int length = end - start;
+        for (final FilterOperator operator : FilterOperator.VALUES) {
+            if (operator.keyword.length() == length && str.regionMatches(start, operator.keyword, 0, length)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the keyword used on the query string.
+     *
+     * @return The keyword
+     * @since 26.10.18
+     */
+    public String getKeyword() {
+        return this.keyword;
+    }
+
+    /**
+     * Checks if this operator compares the value against a bound.
+     *
+     * @return {@code true} for eq, gt, gte, lt, lte and between
+     * @since 26.10.18
+     */
+    public boolean isRange() {
+        return this == EQ || this == GT || this == GTE || this == LT || this == LTE || this == BETWEEN;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import org.joda.time.ReadableInstant;
+
+import java.util.*;
+
+/**
+ * Rewrites a {@code FilterTree} before Ebean expressions are emitted.
+ * Bounds on the same path are merged (gte + lte become between, repeated
+ * eq are collapsed), predicates that are always true are dropped and
+ * contradictions are detected, in which case the whole tree is flagged
+ * to never match.
+ *
+ * <p>Only numbers and dates are reasoned about: strings, booleans and
+ * UUID depend on the database collation and are left untouched, just
+ * like predicates with a {@code null} value.</p>
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterOptimizer {
+
+    /**
+     * Optimize the given tree.
+     *
+     * @param tree The tree to optimize
+     * @return The optimized tree
+     * @since 26.10.18
+     */
+    public FilterTree optimize(final FilterTree tree) {
+        if (tree.isContradiction()) {
+            return tree;
+        }
+
+        // Collects the bounds of each path
+        final Map<String, Bounds> boundsByPath = new HashMap<>();
+        for (final FilterPredicate predicate : tree.getPredicates()) {
+            if (this.isAlwaysFalse(predicate)) {
+                return new FilterTree(Collections.emptyList(), tree.getOrders(), true, tree.getSearchStrategy());
+            }
+            if (this.isOrderable(predicate)) {
+                if (!boundsByPath.computeIfAbsent(predicate.getPath(), k -> new Bounds()).add(predicate)) {
+                    return new FilterTree(Collections.emptyList(), tree.getOrders(), true, tree.getSearchStrategy());
+                }
+            }
+        }
+
+        // Rebuilds the predicates list, bounds are emitted where the path appears first
+        final List<FilterPredicate> optimized = new ArrayList<>();
+        final Set<String> emittedPaths = new HashSet<>();
+        for (final FilterPredicate predicate : tree.getPredicates()) {
+            if (this.isAlwaysTrue(predicate) || optimized.contains(predicate)) {
+                continue;
+            }
+            final Bounds bounds = boundsByPath.get(predicate.getPath());
+            if (this.isOrderable(predicate) && !bounds.mixed) {
+                if (emittedPaths.add(predicate.getPath())) {
+                    optimized.addAll(bounds.toPredicates(predicate));
+                }
+                continue;
+            }
+            if (bounds != null && !bounds.mixed && !predicate.isNegated()) {
+                switch (predicate.getOperator()) {
+                    case ISNULL:
+                        return new FilterTree(Collections.emptyList(), tree.getOrders(), true, tree.getSearchStrategy());
+                    case ISNOTNULL:
+                        continue;
+                    case NE:
+                        if (bounds.equal != null && predicate.getValue() != null) {
+                            if (this.compare(bounds.equal, predicate.getValue()) == 0) {
+                                return new FilterTree(Collections.emptyList(), tree.getOrders(), true, tree.getSearchStrategy());
+                            }
+                            continue;
+                        }
+                        break;
+                    case IN:
+                        if (bounds.equal != null) {
+                            if (predicate.getValues().stream().noneMatch(v -> v != null && this.compare(bounds.equal, v) == 0)) {
+                                return new FilterTree(Collections.emptyList(), tree.getOrders(), true, tree.getSearchStrategy());
+                            }
+                            continue;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            optimized.add(predicate);
+        }
+
+        return new FilterTree(optimized, tree.getOrders(), false, tree.getSearchStrategy());
+    }
+
+    /**
+     * Checks if the predicate can never match.
+     *
+     * @param predicate The predicate to check
+     * @return {@code true} if the predicate can never match
+     * @since 26.10.18
+     */
+    private boolean isAlwaysFalse(final FilterPredicate predicate) {
+        if (predicate.isNegated()) {
+            return false;
+        }
+        switch (predicate.getOperator()) {
+            case IN:
+                return predicate.getValues().isEmpty();
+            case ISNULL:
+                return predicate.isPrimaryKey();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the predicate always matches.
+     *
+     * @param predicate The predicate to check
+     * @return {@code true} if the predicate always matches
+     * @since 26.10.18
+     */
+    private boolean isAlwaysTrue(final FilterPredicate predicate) {
+        switch (predicate.getOperator()) {
+            case IN:
+                return predicate.isNegated() && predicate.getValues().isEmpty();
+            case ISNOTNULL:
+                return !predicate.isNegated() && predicate.isPrimaryKey();
+            case ISNULL:
+                return predicate.isNegated() && predicate.isPrimaryKey();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the predicate is a bound on a number or a date.
+     *
+     * @param predicate The predicate to check
+     * @return {@code true} if the predicate can be merged with other bounds
+     * @since 26.10.18
+     */
+    private boolean isOrderable(final FilterPredicate predicate) {
+        if (predicate.isNegated() || !predicate.getOperator().isRange() || predicate.getValues().isEmpty()) {
+            return false;
+        }
+        for (final Object value : predicate.getValues()) {
+            if (!(value instanceof Number || value instanceof ReadableInstant)) {
+                return false;
+            }
+        }
+        return predicate.getValues().stream().map(Object::getClass).distinct().count() == 1;
+    }
+
+    /**
+     * Compare two values of the same type.
+     *
+     * @param a The first value
+     * @param b The second value
+     * @return A negative integer, zero, or a positive integer
+     * @since 26.10.18
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(final Object a, final Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /**
+     * Tightest bounds found for a single path.
+     *
+     * @author Thibault Meyer
+     * @version 26.10.18
+     * @since 26.10.18
+     */
+    private final class Bounds {
+
+        /**
+         * Are values of different types used on this path.
+         *
+         * @since 26.10.18
+         */
+        private boolean mixed;
+
+        /**
+         * Value of the "eq" predicate.
+         *
+         * @since 26.10.18
+         */
+        private Object equal;
+
+        /**
+         * Lower bound.
+         *
+         * @since 26.10.18
+         */
+        private Object lower;
+
+        /**
+         * Is the lower bound inclusive.
+         *
+         * @since 26.10.18
+         */
+        private boolean lowerInclusive;
+
+        /**
+         * Upper bound.
+         *
+         * @since 26.10.18
+         */
+        private Object upper;
+
+        /**
+         * Is the upper bound inclusive.
+         *
+         * @since 26.10.18
+         */
+        private boolean upperInclusive;
+
+        /**
+         * Merge a predicate into these bounds.
+         *
+         * @param predicate The predicate to merge
+         * @return {@code false} if the bounds became contradictory
+         * @since 26.10.18
+         */
+        private boolean add(final FilterPredicate predicate) {
+            final Object value = predicate.getValue();
+            if (this.equal != null && this.equal.getClass() != value.getClass()
+                || this.lower != null && this.lower.getClass() != value.getClass()
+                || this.upper != null && this.upper.getClass() != value.getClass()) {
+                this.mixed = true;
+            }
+            if (this.mixed) {
+                return true;
+            }
+            switch (predicate.getOperator()) {
+                case EQ:
+                    if (this.equal != null && FilterOptimizer.this.compare(this.equal, value) != 0) {
+                        return false;
+                    }
+                    this.equal = value;
+                    break;
+                case GT:
+                    this.addLower(value, false);
+                    break;
+                case GTE:
+                    this.addLower(value, true);
+                    break;
+                case LT:
+                    this.addUpper(value, false);
+                    break;
+                case LTE:
+                    this.addUpper(value, true);
+                    break;
+                case BETWEEN:
+                    this.addLower(value, true);
+                    this.addUpper(predicate.getValues().get(1), true);
+                    break;
+                default:
+                    break;
+            }
+            return this.isSatisfiable();
+        }
+
+        /**
+         * Tighten the lower bound.
+         *
+         * @param value     The bound
+         * @param inclusive Is the bound inclusive
+         * @since 26.10.18
+         */
+        private void addLower(final Object value, final boolean inclusive) {
+            final int cmp = this.lower == null ? 1 : FilterOptimizer.this.compare(value, this.lower);
+            if (cmp > 0 || cmp == 0 && !inclusive) {
+                this.lower = value;
+                this.lowerInclusive = inclusive;
+            }
+        }
+
+        /**
+         * Tighten the upper bound.
+         *
+         * @param value     The bound
+         * @param inclusive Is the bound inclusive
+         * @since 26.10.18
+         */
+        private void addUpper(final Object value, final boolean inclusive) {
+            final int cmp = this.upper == null ? -1 : FilterOptimizer.this.compare(value, this.upper);
+            if (cmp < 0 || cmp == 0 && !inclusive) {
+                this.upper = value;
+                this.upperInclusive = inclusive;
+            }
+        }
+
+        /**
+         * Checks if at least one value satisfies these bounds.
+         *
+         * @return {@code true} if the bounds are satisfiable
+         * @since 26.10.18
+         */
+        private boolean isSatisfiable() {
+            if (this.equal != null) {
+                if (this.lower != null) {
+                    final int cmp = FilterOptimizer.this.compare(this.equal, this.lower);
+                    if (cmp < 0 || cmp == 0 && !this.lowerInclusive) {
+                        return false;
+                    }
+                }
+                if (this.upper != null) {
+                    final int cmp = FilterOptimizer.this.compare(this.equal, this.upper);
+                    if (cmp > 0 || cmp == 0 && !this.upperInclusive) {
+                        return false;
+                    }
+                }
+            }
+            if (this.lower != null && this.upper != null) {
+                final int cmp = FilterOptimizer.this.compare(this.lower, this.upper);
+                return cmp < 0 || cmp == 0 && this.lowerInclusive && this.upperInclusive;
+            }
+            return true;
+        }
+
+        /**
+         * Build the predicates equivalent to these bounds.
+         *
+         * @param template A predicate on the same path
+         * @return The predicates
+         * @since 26.10.18
+         */
+        private List<FilterPredicate> toPredicates(final FilterPredicate template) {
+            if (this.equal != null) {
+                return Collections.singletonList(template.with(FilterOperator.EQ, this.equal));
+            }
+            if (this.lower != null && this.upper != null && this.lowerInclusive && this.upperInclusive) {
+                if (FilterOptimizer.this.compare(this.lower, this.upper) == 0) {
+                    return Collections.singletonList(template.with(FilterOperator.EQ, this.lower));
+                }
+                return Collections.singletonList(template.with(FilterOperator.BETWEEN, this.lower, this.upper));
+            }
+            final List<FilterPredicate> predicates = new ArrayList<>();
+            if (this.lower != null) {
+                predicates.add(template.with(this.lowerInclusive ? FilterOperator.GTE : FilterOperator.GT, this.lower));
+            }
+            if (this.upper != null) {
+                predicates.add(template.with(this.upperInclusive ? FilterOperator.LTE : FilterOperator.LT, this.upper));
+            }
+            return predicates;
+        }
+    }
+}
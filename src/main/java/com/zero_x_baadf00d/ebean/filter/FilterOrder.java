@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+/**
+ * A single "order by" instruction.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterOrder {
+
+    /**
+     * The resolved path.
+     *
+     * @since 26.10.18
+     */
+    private final String path;
+
+    /**
+     * Is the ordering ascending.
+     *
+     * @since 26.10.18
+     */
+    private final boolean ascending;
+
+    /**
+     * Build a new instance.
+     *
+     * @param path      The resolved path
+     * @param ascending Is the ordering ascending
+     * @since 26.10.18
+     */
+    public FilterOrder(final String path, final boolean ascending) {
+        this.path = path;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Get the resolved path.
+     *
+     * @return The resolved path
+     * @since 26.10.18
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Checks if the ordering is ascending.
+     *
+     * @return {@code true} if ascending
+     * @since 26.10.18
+     */
+    public boolean isAscending() {
+        return this.ascending;
+    }
+
+    @Override
+    public String toString() {
+        return this.path + (this.ascending ? " asc" : " desc");
+    }
+}
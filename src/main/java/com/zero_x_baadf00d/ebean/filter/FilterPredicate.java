@@ -0,0 +1,322 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A single resolved predicate: a path on the model, an operator and
+ * the values already converted to the type of the targeted field.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterPredicate {
+
+    /**
+     * The resolved path (aliases and primary keys resolved).
+     *
+     * @since 26.10.18
+     */
+    private final String path;
+
+    /**
+     * The operator.
+     *
+     * @since 26.10.18
+     */
+    private final FilterOperator operator;
+
+    /**
+     * Is the predicate negated.
+     *
+     * @since 26.10.18
+     */
+    private final boolean negated;
+
+    /**
+     * The converted values.
+     *
+     * @since 26.10.18
+     */
+    private final List<Object> values;
+
+    /**
+     * The type of the targeted field.
+     *
+     * @since 26.10.18
+     */
+    private final Class<?> valueClass;
+
+    /**
+     * Is the path the primary key of the queried model.
+     *
+     * @since 26.10.18
+     */
+    private final boolean primaryKey;
+
+    /**
+     * Prefix of the path ending on its first to-many association, {@code null} if none.
+     *
+     * @since 26.10.18
+     */
+    private final String collectionPath;
+
+    /**
+     * Number of associations joined to evaluate the path, -1 if unknown.
+     *
+     * @since 26.10.18
+     */
+    private final int joinCount;
+
+    /**
+     * Build a new instance.
+     *
+     * @param path       The resolved path
+     * @param operator   The operator
+     * @param negated    Is the predicate negated
+     * @param values     The converted values
+     * @param valueClass The type of the targeted field
+     * @param primaryKey Is the path the primary key of the queried model
+     * @since 26.10.18
+     */
+    public FilterPredicate(final String path,
+                           final FilterOperator operator,
+                           final boolean negated,
+                           final List<Object> values,
+                           final Class<?> valueClass,
+                           final boolean primaryKey) {
+        this(path, operator, negated, values, valueClass, primaryKey, null, -1);
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param path           The resolved path
+     * @param operator       The operator
+     * @param negated        Is the predicate negated
+     * @param values         The converted values
+     * @param valueClass     The type of the targeted field
+     * @param primaryKey     Is the path the primary key of the queried model
+     * @param collectionPath Prefix of the path ending on its first to-many association, {@code null} if none
+     * @param joinCount      Number of associations joined to evaluate the path, -1 if unknown
+     * @since 26.10.18
+     */
+    public FilterPredicate(final String path,
+                           final FilterOperator operator,
+                           final boolean negated,
+                           final List<Object> values,
+                           final Class<?> valueClass,
+                           final boolean primaryKey,
+                           final String collectionPath,
+                           final int joinCount) {
+        this.path = path;
+        this.operator = operator;
+        this.negated = negated;
+        this.values = Collections.unmodifiableList(values);
+        this.valueClass = valueClass;
+        this.primaryKey = primaryKey;
+        this.collectionPath = collectionPath;
+        this.joinCount = joinCount;
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param path       The resolved path
+     * @param operator   The operator
+     * @param negated    Is the predicate negated
+     * @param valueClass The type of the targeted field
+     * @param primaryKey Is the path the primary key of the queried model
+     * @param values     The converted values
+     * @since 26.10.18
+     */
+    public FilterPredicate(final String path,
+                           final FilterOperator operator,
+                           final boolean negated,
+                           final Class<?> valueClass,
+                           final boolean primaryKey,
+                           final Object... values) {
+        this(path, operator, negated, Arrays.asList(values), valueClass, primaryKey);
+    }
+
+    /**
+     * Get the resolved path.
+     *
+     * @return The resolved path
+     * @since 26.10.18
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Get the operator.
+     *
+     * @return The operator
+     * @since 26.10.18
+     */
+    public FilterOperator getOperator() {
+        return this.operator;
+    }
+
+    /**
+     * Checks if the predicate is negated.
+     *
+     * @return {@code true} if negated
+     * @since 26.10.18
+     */
+    public boolean isNegated() {
+        return this.negated;
+    }
+
+    /**
+     * Get the converted values.
+     *
+     * @return The converted values
+     * @since 26.10.18
+     */
+    public List<Object> getValues() {
+        return this.values;
+    }
+
+    /**
+     * Get the first converted value.
+     *
+     * @return The first value, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public Object getValue() {
+        return this.values.isEmpty() ? null : this.values.get(0);
+    }
+
+    /**
+     * Get the type of the targeted field.
+     *
+     * @return The type of the targeted field
+     * @since 26.10.18
+     */
+    public Class<?> getValueClass() {
+        return this.valueClass;
+    }
+
+    /**
+     * Checks if the path is the primary key of the queried model.
+     *
+     * @return {@code true} if the path is the primary key
+     * @since 26.10.18
+     */
+    public boolean isPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    /**
+     * Get the prefix of the path ending on its first to-many association
+     * (ie: "albums" for "albums.name" on an artist).
+     *
+     * @return The collection path, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    public String getCollectionPath() {
+        return this.collectionPath;
+    }
+
+    /**
+     * Get the number of associations joined to evaluate the path. The
+     * foreign key of a to-one association (ie: "artist.id" on an album) is
+     * read without joining.
+     *
+     * @return The number of joined associations, otherwise, -1 if unknown
+     * @since 26.10.18
+     */
+    public int getJoinCount() {
+        return this.joinCount;
+    }
+
+    /**
+     * Build a copy of this predicate with the associations crossed by its path.
+     *
+     * @param newCollectionPath Prefix of the path ending on its first to-many association, {@code null} if none
+     * @param newJoinCount      Number of associations joined to evaluate the path
+     * @return A new predicate
+     * @since 26.10.18
+     */
+    public FilterPredicate withJoins(final String newCollectionPath, final int newJoinCount) {
+        return new FilterPredicate(this.path, this.operator, this.negated, this.values, this.valueClass, this.primaryKey, newCollectionPath, newJoinCount);
+    }
+
+    /**
+     * Build a copy of this predicate with another operator and values.
+     *
+     * @param newOperator The operator
+     * @param newValues   The values
+     * @return A new predicate
+     * @since 26.10.18
+     */
+    public FilterPredicate with(final FilterOperator newOperator, final Object... newValues) {
+        return new FilterPredicate(
+            this.path,
+            newOperator,
+            this.negated,
+            Arrays.asList(newValues),
+            this.valueClass,
+            this.primaryKey,
+            this.collectionPath,
+            this.joinCount
+        );
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || this.getClass() != o.getClass()) {
+            return false;
+        }
+        final FilterPredicate that = (FilterPredicate) o;
+        return this.negated == that.negated
+            && this.operator == that.operator
+            && this.path.equals(that.path)
+            && this.values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.path, this.operator, this.negated, this.values);
+    }
+
+    @Override
+    public String toString() {
+        return this.path
+            + (this.negated ? " not " : " ")
+            + this.operator.getKeyword()
+            + (this.values.isEmpty() ? "" : " " + this.values)
+            + " (" + this.valueClass.getSimpleName() + ")";
+    }
+}
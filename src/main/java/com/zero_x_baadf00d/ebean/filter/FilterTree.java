@@ -0,0 +1,405 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import com.zero_x_baadf00d.ebean.search.FullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.search.PlatformFullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.utils.StringUtils;
+import io.ebean.ExpressionList;
+import io.ebean.Query;
+import io.ebeaninternal.api.SpiQuery;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocMany;
+import io.ebeaninternal.server.deploy.TableJoinColumn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Typed representation of a query string: a conjunction of resolved
+ * predicates followed by "order by" instructions.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterTree {
+
+    /**
+     * Full-text search strategy used when none is given.
+     *
+     * @since 26.10.18
+     */
+    private static final FullTextSearchStrategy DEFAULT_SEARCH_STRATEGY = new PlatformFullTextSearchStrategy();
+
+    /**
+     * The predicates, all of them must match.
+     *
+     * @since 26.10.18
+     */
+    private final List<FilterPredicate> predicates;
+
+    /**
+     * The "order by" instructions.
+     *
+     * @since 26.10.18
+     */
+    private final List<FilterOrder> orders;
+
+    /**
+     * Is the conjunction known to never match.
+     *
+     * @since 26.10.18
+     */
+    private final boolean contradiction;
+
+    /**
+     * Strategy emitting the full-text search predicates.
+     *
+     * @since 26.10.18
+     */
+    private final FullTextSearchStrategy searchStrategy;
+
+    /**
+     * Build a new instance.
+     *
+     * @param predicates    The predicates
+     * @param orders        The "order by" instructions
+     * @param contradiction Is the conjunction known to never match
+     * @since 26.10.18
+     */
+    public FilterTree(final List<FilterPredicate> predicates,
+                      final List<FilterOrder> orders,
+                      final boolean contradiction) {
+        this(predicates, orders, contradiction, FilterTree.DEFAULT_SEARCH_STRATEGY);
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param predicates     The predicates
+     * @param orders         The "order by" instructions
+     * @param contradiction  Is the conjunction known to never match
+     * @param searchStrategy Strategy emitting the full-text search predicates
+     * @since 26.10.18
+     */
+    public FilterTree(final List<FilterPredicate> predicates,
+                      final List<FilterOrder> orders,
+                      final boolean contradiction,
+                      final FullTextSearchStrategy searchStrategy) {
+        this.predicates = Collections.unmodifiableList(predicates);
+        this.orders = Collections.unmodifiableList(orders);
+        this.contradiction = contradiction;
+        this.searchStrategy = searchStrategy;
+    }
+
+    /**
+     * Get the predicates.
+     *
+     * @return The predicates
+     * @since 26.10.18
+     */
+    public List<FilterPredicate> getPredicates() {
+        return this.predicates;
+    }
+
+    /**
+     * Get the "order by" instructions.
+     *
+     * @return The "order by" instructions
+     * @since 26.10.18
+     */
+    public List<FilterOrder> getOrders() {
+        return this.orders;
+    }
+
+    /**
+     * Checks if the predicates can never match. In this case, there is
+     * no need to execute the query: the result is always empty.
+     *
+     * @return {@code true} if the predicates can never match
+     * @since 26.10.18
+     */
+    public boolean isContradiction() {
+        return this.contradiction;
+    }
+
+    /**
+     * Get the shape of this tree: the paths and operators of the predicates,
+     * sorted, followed by the "order by" instructions, without any value.
+     * Trees of the same shape produce the same SQL.
+     *
+     * @return The shape (ie: "artist.name:eq,year:between;name:asc")
+     * @since 26.10.18
+     */
+    public String getShape() {
+        final String[] predicateShapes = new String[this.predicates.size()];
+        for (int idx = 0; idx < predicateShapes.length; ++idx) {
+            final FilterPredicate predicate = this.predicates.get(idx);
+            predicateShapes[idx] = (predicate.isNegated() ? "!" : "") + predicate.getPath() + ':' + predicate.getOperator().getKeyword();
+        }
+        Arrays.sort(predicateShapes);
+        final StringBuilder sb = new StringBuilder(String.join(",", predicateShapes));
+        for (int idx = 0; idx < this.orders.size(); ++idx) {
+            final FilterOrder order = this.orders.get(idx);
+            sb.append(idx == 0 ? ';' : ',').append(order.getPath()).append(order.isAscending() ? ":asc" : ":desc");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the strategy emitting the full-text search predicates.
+     *
+     * @return The full-text search strategy
+     * @since 26.10.18
+     */
+    public FullTextSearchStrategy getSearchStrategy() {
+        return this.searchStrategy;
+    }
+
+    /**
+     * Emit the Ebean expressions of this tree. Predicates on a to-many
+     * association of the root model are grouped per association into a
+     * correlated {@code EXISTS} subquery: they must all match the same
+     * element, and the rows of the root model are not multiplied by a join.
+     *
+     * @param expressions The expression list to fill
+     * @param <T>         Something that extends Model
+     * @since 26.10.18
+     */
+    public <T> void applyTo(final ExpressionList<T> expressions) {
+        if (this.contradiction) {
+            expressions.raw("1=0");
+        } else {
+            final Map<String, List<FilterPredicate>> collectionPredicates = new LinkedHashMap<>();
+            for (final FilterPredicate predicate : this.predicates) {
+                if (this.isExistsCandidate(predicate)) {
+                    collectionPredicates.computeIfAbsent(predicate.getCollectionPath(), key -> new ArrayList<>()).add(predicate);
+                } else {
+                    this.applyTo(expressions, predicate.getPath(), predicate);
+                }
+            }
+            collectionPredicates.forEach((collectionPath, elementPredicates) -> this.applyExists(expressions, collectionPath, elementPredicates));
+        }
+        if (!this.orders.isEmpty()) {
+            expressions.orderBy(this.orders.stream().map(FilterOrder::toString).collect(Collectors.joining(", ")));
+        }
+    }
+
+    /**
+     * Checks if the predicate can be moved into an {@code EXISTS} subquery.
+     *
+     * @param predicate The predicate
+     * @return {@code true} if the predicate targets an element of a to-many association of the root model
+     * @since 26.10.18
+     */
+    private boolean isExistsCandidate(final FilterPredicate predicate) {
+        if (predicate.getCollectionPath() == null || predicate.getCollectionPath().indexOf('.') >= 0) {
+            return false;
+        }
+        switch (predicate.getOperator()) {
+            case ISEMPTY:
+            case ISNOTEMPTY:
+            case SEARCH:
+            case ISEARCH:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Emit a correlated {@code EXISTS} subquery holding the predicates of a
+     * to-many association. If the association can't be correlated (ie: many
+     * to many), the predicates are emitted on the root query, with a join.
+     *
+     * @param expressions       The expression list to fill
+     * @param collectionPath    Name of the to-many association on the root model
+     * @param elementPredicates The predicates targeting the association elements
+     * @param <T>               Something that extends Model
+     * @since 26.10.18
+     */
+    private <T> void applyExists(final ExpressionList<T> expressions,
+                                 final String collectionPath,
+                                 final List<FilterPredicate> elementPredicates) {
+        final SpiQuery<?> rootQuery = (SpiQuery<?>) expressions.query();
+        final BeanDescriptor<?> rootDescriptor = rootQuery == null ? null : rootQuery.getBeanDescriptor();
+        final BeanProperty property = rootDescriptor == null ? null : rootDescriptor.findProperty(collectionPath);
+        if (!(property instanceof BeanPropertyAssocMany) || ((BeanPropertyAssocMany<?>) property).isManyToMany()) {
+            elementPredicates.forEach(predicate -> this.applyTo(expressions, predicate.getPath(), predicate));
+            return;
+        }
+        final BeanPropertyAssocMany<?> association = (BeanPropertyAssocMany<?>) property;
+        final String alias = "ex_" + collectionPath;
+        final Query<?> subQuery = rootDescriptor.ebeanServer()
+            .createQuery(association.targetType())
+            .alias(alias)
+            .select(association.targetDescriptor().idProperty().name());
+        final ExpressionList<?> subExpressions = subQuery.where();
+        for (final TableJoinColumn joinColumn : association.tableJoin().columns()) {
+            subExpressions.raw(alias + '.' + joinColumn.getForeignDbColumn() + " = " + rootDescriptor.baseTableAlias() + '.' + joinColumn.getLocalDbColumn());
+        }
+        final int prefixLength = collectionPath.length() + 1;
+        elementPredicates.forEach(predicate -> this.applyTo(subExpressions, predicate.getPath().substring(prefixLength), predicate));
+        expressions.exists(subQuery);
+    }
+
+    /**
+     * Emit the Ebean expression of a single predicate, negated if needed.
+     *
+     * @param expressions The expression list to fill
+     * @param path        The path of the predicate, relative to the queried model
+     * @param predicate   The predicate to emit
+     * @param <T>         Something that extends Model
+     * @since 26.10.18
+     */
+    private <T> void applyTo(final ExpressionList<T> expressions, final String path, final FilterPredicate predicate) {
+        final ExpressionList<T> ctxExpressions = predicate.isNegated() ? expressions.not() : expressions;
+        this.applyOperator(ctxExpressions, path, predicate);
+        if (predicate.isNegated()) {
+            ctxExpressions.endJunction();
+        }
+    }
+
+    /**
+     * Emit the Ebean expression of the operator of a single predicate.
+     *
+     * @param expressions The expression list to fill
+     * @param path        The path of the predicate, relative to the queried model
+     * @param predicate   The predicate to emit
+     * @param <T>         Something that extends Model
+     * @since 26.10.18
+     */
+    private <T> void applyOperator(final ExpressionList<T> expressions, final String path, final FilterPredicate predicate) {
+        switch (predicate.getOperator()) {
+            case EQ:
+                if (predicate.isPrimaryKey() && predicate.getValue() != null) {
+                    // Lookups by primary key can be served by the L2 bean cache
+                    expressions.idEq(predicate.getValue());
+                } else {
+                    expressions.eq(path, predicate.getValue());
+                }
+                break;
+            case NE:
+                expressions.ne(path, predicate.getValue());
+                break;
+            case GT:
+                expressions.gt(path, predicate.getValue());
+                break;
+            case GTE:
+                expressions.ge(path, predicate.getValue());
+                break;
+            case LT:
+                expressions.lt(path, predicate.getValue());
+                break;
+            case LTE:
+                expressions.le(path, predicate.getValue());
+                break;
+            case LIKE:
+                expressions.like(path, (String) predicate.getValue());
+                break;
+            case ILIKE:
+                expressions.ilike(path, (String) predicate.getValue());
+                break;
+            case CONTAINS:
+                expressions.contains(path, (String) predicate.getValue());
+                break;
+            case ICONTAINS:
+                expressions.icontains(path, (String) predicate.getValue());
+                break;
+            case STARTSWITH:
+                expressions.startsWith(path, (String) predicate.getValue());
+                break;
+            case ISTARTSWITH:
+                expressions.istartsWith(path, (String) predicate.getValue());
+                break;
+            case ENDSWITH:
+                expressions.endsWith(path, (String) predicate.getValue());
+                break;
+            case IENDSWITH:
+                expressions.iendsWith(path, (String) predicate.getValue());
+                break;
+            case IN:
+                if (predicate.isPrimaryKey() && !predicate.getValues().isEmpty() && !predicate.getValues().contains(null)) {
+                    expressions.idIn(predicate.getValues());
+                } else {
+                    expressions.in(path, predicate.getValues());
+                }
+                break;
+            case NOTIN:
+                expressions.notIn(path, predicate.getValues());
+                break;
+            case BETWEEN:
+                expressions.between(path, predicate.getValues().get(0), predicate.getValues().get(1));
+                break;
+            case ISNULL:
+                expressions.isNull(path);
+                break;
+            case ISNOTNULL:
+                expressions.isNotNull(path);
+                break;
+            case ISEMPTY:
+                expressions.isEmpty(this.resolveCollectionPath(path, predicate));
+                break;
+            case ISNOTEMPTY:
+                expressions.isNotEmpty(this.resolveCollectionPath(path, predicate));
+                break;
+            case SEARCH:
+            case ISEARCH:
+                this.searchStrategy.apply(expressions, path, (String) predicate.getValue(), predicate.getOperator() == FilterOperator.ISEARCH);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Get the collection targeted by an emptiness predicate. Ebean emits
+     * it as a {@code NOT EXISTS} / {@code EXISTS} subquery.
+     *
+     * @param path      The path of the predicate
+     * @param predicate The predicate
+     * @return The path of the collection
+     * @since 26.10.18
+     */
+    private String resolveCollectionPath(final String path, final FilterPredicate predicate) {
+        return predicate.getCollectionPath() == null
+            ? StringUtils.substringBeforeLast(path, ".")
+            : predicate.getCollectionPath();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.contradiction ? "FALSE" : "AND");
+        this.predicates.forEach(predicate -> sb.append("\n  ").append(predicate));
+        this.orders.forEach(order -> sb.append("\nORDER BY ").append(order));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.io.Serializable;
+
+/**
+ * An argument that can't be turned into a filter.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class FilterValidationError implements Serializable {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The invalid key.
+     *
+     * @since 26.10.18
+     */
+    private final String key;
+
+    /**
+     * Why the argument is invalid.
+     *
+     * @since 26.10.18
+     */
+    private final String reason;
+
+    /**
+     * Position of the error in the key, or in the value if the value is invalid.
+     *
+     * @since 26.10.18
+     */
+    private final int position;
+
+    /**
+     * Build a new instance.
+     *
+     * @param key      The invalid key
+     * @param reason   Why the argument is invalid
+     * @param position Position of the error in the key, or in the value if the value is invalid
+     * @since 26.10.18
+     */
+    public FilterValidationError(final String key, final String reason, final int position) {
+        this.key = key;
+        this.reason = reason;
+        this.position = position;
+    }
+
+    /**
+     * Get the invalid key.
+     *
+     * @return The invalid key
+     * @since 26.10.18
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get why the argument is invalid.
+     *
+     * @return The reason
+     * @since 26.10.18
+     */
+    public String getReason() {
+        return this.reason;
+    }
+
+    /**
+     * Get the position of the error in the key, or in the value if the
+     * value is invalid.
+     *
+     * @return The position of the error
+     * @since 26.10.18
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    @Override
+    public String toString() {
+        return "'" + this.key + "' at position " + this.position + ": " + this.reason;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown in strict mode when some arguments can't be turned into a
+ * filter. No query has been built nor executed.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see ValidationMode#STRICT
+ * @since 26.10.18
+ */
+public class FilterValidationException extends IllegalArgumentException {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The validation errors.
+     *
+     * @since 26.10.18
+     */
+    private final List<FilterValidationError> errors;
+
+    /**
+     * Build a new instance.
+     *
+     * @param errors The validation errors
+     * @since 26.10.18
+     */
+    public FilterValidationException(final List<FilterValidationError> errors) {
+        super("Invalid filter: " + errors);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Get the validation errors.
+     *
+     * @return The validation errors
+     * @since 26.10.18
+     */
+    public List<FilterValidationError> getErrors() {
+        return this.errors;
+    }
+}
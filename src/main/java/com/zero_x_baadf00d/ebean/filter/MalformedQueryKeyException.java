@@ -0,0 +1,108 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+/**
+ * Thrown when a query string key does not follow the
+ * {@code path[__not]__operator} syntax.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public class MalformedQueryKeyException extends IllegalArgumentException {
+
+    /**
+     * Serialization version.
+     *
+     * @since 26.10.18
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The malformed key.
+     *
+     * @since 26.10.18
+     */
+    private final String key;
+
+    /**
+     * Position of the error in the key.
+     *
+     * @since 26.10.18
+     */
+    private final int position;
+
+    /**
+     * Why the key is malformed.
+     *
+     * @since 26.10.18
+     */
+    private final String reason;
+
+    /**
+     * Build a new instance.
+     *
+     * @param key      The malformed key
+     * @param position Position of the error in the key
+     * @param reason   Why the key is malformed
+     * @since 26.10.18
+     */
+    public MalformedQueryKeyException(final String key, final int position, final String reason) {
+        super("Malformed key '" + key + "' at position " + position + ": " + reason);
+        this.key = key;
+        this.position = position;
+        this.reason = reason;
+    }
+
+    /**
+     * Get the malformed key.
+     *
+     * @return The malformed key
+     * @since 26.10.18
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the position of the error in the key.
+     *
+     * @return The position of the error
+     * @since 26.10.18
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Get why the key is malformed.
+     *
+     * @return The reason
+     * @since 26.10.18
+     */
+    public String getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Precomputed read access to a dotted path of a bean. Each segment is
+ * resolved once to a getter (or to the field when no public getter
+ * exists) and kept as a {@code MethodHandle}. Segments going through a
+ * collection are flagged: evaluating the path then iterates over the
+ * elements, like the SQL join would.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class PropertyAccessor {
+
+    /**
+     * Generic signature of all the handles: {@code Object (Object)}.
+     *
+     * @since 26.10.18
+     */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The resolved path.
+     *
+     * @since 26.10.18
+     */
+    private final String path;
+
+    /**
+     * One handle per path segment.
+     *
+     * @since 26.10.18
+     */
+    private final MethodHandle[] getters;
+
+    /**
+     * For each segment, does the handle return a collection.
+     *
+     * @since 26.10.18
+     */
+    private final boolean[] collections;
+
+    /**
+     * Build a new instance.
+     *
+     * @param path        The resolved path
+     * @param getters     One handle per path segment
+     * @param collections For each segment, does the handle return a collection
+     * @since 26.10.18
+     */
+    private PropertyAccessor(final String path, final MethodHandle[] getters, final boolean[] collections) {
+        this.path = path;
+        this.getters = getters;
+        this.collections = collections;
+    }
+
+    /**
+     * Resolve a dotted path on the given class.
+     *
+     * @param clazz The root class
+     * @param path  The dotted path (ie: "artist.name")
+     * @return The accessor
+     * @throws IllegalArgumentException If a segment can't be resolved
+     * @since 26.10.18
+     */
+    public static PropertyAccessor of(final Class<?> clazz, final String path) {
+        final String[] segments = path.split("\\.");
+        final MethodHandle[] getters = new MethodHandle[segments.length];
+        final boolean[] collections = new boolean[segments.length];
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?> currentClazz = clazz;
+        for (int i = 0; i < segments.length; ++i) {
+            final Type type;
+            try {
+                final Method method = PropertyAccessor.findGetter(currentClazz, segments[i]);
+                if (method != null) {
+                    getters[i] = lookup.unreflect(method).asType(PropertyAccessor.GETTER_TYPE);
+                    type = method.getGenericReturnType();
+                } else {
+                    final Field field = PropertyAccessor.findField(currentClazz, segments[i]);
+                    if (field == null) {
+                        throw new IllegalArgumentException(String.format("Can't resolve '%s' on %s (path '%s')", segments[i], currentClazz.getName(), path));
+                    }
+                    field.setAccessible(true);
+                    getters[i] = lookup.unreflectGetter(field).asType(PropertyAccessor.GETTER_TYPE);
+                    type = field.getGenericType();
+                }
+            } catch (final IllegalAccessException ex) {
+                throw new IllegalArgumentException(String.format("Can't access '%s' on %s", segments[i], currentClazz.getName()), ex);
+            }
+            currentClazz = PropertyAccessor.rawClass(type);
+            if (Collection.class.isAssignableFrom(currentClazz)) {
+                collections[i] = true;
+                currentClazz = type instanceof ParameterizedType
+                    ? PropertyAccessor.rawClass(((ParameterizedType) type).getActualTypeArguments()[0])
+                    : Object.class;
+            }
+        }
+        return new PropertyAccessor(path, getters, collections);
+    }
+
+    /**
+     * Find a public no-arg getter ("getXxx" or "isXxx").
+     *
+     * @param clazz The class
+     * @param name  The property name
+     * @return The getter, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private static Method findGetter(final Class<?> clazz, final String name) {
+        final String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (final String prefix : new String[]{"get", "is"}) {
+            try {
+                final Method method = clazz.getMethod(prefix + suffix);
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (final NoSuchMethodException ignore) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a field in the class hierarchy.
+     *
+     * @param clazz The class
+     * @param name  The field name
+     * @return The field, otherwise, {@code null}
+     * @since 26.10.18
+     */
+    private static Field findField(final Class<?> clazz, final String name) {
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (final NoSuchFieldException ignore) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the raw class of a type.
+     *
+     * @param type The type
+     * @return The raw class, {@code Object} if unknown
+     * @since 26.10.18
+     */
+    private static Class<?> rawClass(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return PropertyAccessor.rawClass(((ParameterizedType) type).getRawType());
+        }
+        return Object.class;
+    }
+
+    /**
+     * Get the resolved path.
+     *
+     * @return The resolved path
+     * @since 26.10.18
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Checks if the path goes through a collection.
+     *
+     * @return {@code true} if at least one segment is a collection
+     * @since 26.10.18
+     */
+    public boolean isMany() {
+        for (final boolean collection : this.collections) {
+            if (collection) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the value of the path. A {@code null} value on an intermediate
+     * segment gives {@code null}. When the path goes through a collection,
+     * the first element is used.
+     *
+     * @param bean The root bean
+     * @return The value, can be {@code null}
+     * @since 26.10.18
+     */
+    public Object get(final Object bean) {
+        Object current = bean;
+        for (int i = 0; i < this.getters.length && current != null; ++i) {
+            current = this.invoke(i, current);
+            if (this.collections[i] && current != null) {
+                final Iterator<?> iterator = ((Collection<?>) current).iterator();
+                current = iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Checks if at least one value reachable through the path matches.
+     * Without collection on the path, this is the same as testing
+     * {@link #get(Object)}. An empty collection never matches.
+     *
+     * @param bean      The root bean
+     * @param predicate The predicate to test on each reachable value
+     * @return {@code true} if at least one value matches
+     * @since 26.10.18
+     */
+    public boolean anyMatch(final Object bean, final Predicate<Object> predicate) {
+        return this.anyMatch(0, bean, predicate);
+    }
+
+    /**
+     * Checks if the path, starting at the given segment, reaches a
+     * value matching the predicate.
+     *
+     * @param segment   The segment to start from
+     * @param current   The current bean
+     * @param predicate The predicate to test on each reachable value
+     * @return {@code true} if at least one value matches
+     * @since 26.10.18
+     */
+    private boolean anyMatch(final int segment, final Object current, final Predicate<Object> predicate) {
+        if (segment == this.getters.length || current == null) {
+            return predicate.test(current);
+        }
+        final Object value = this.invoke(segment, current);
+        if (this.collections[segment] && value != null) {
+            for (final Object element : (Collection<?>) value) {
+                if (this.anyMatch(segment + 1, element, predicate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return this.anyMatch(segment + 1, value, predicate);
+    }
+
+    /**
+     * Get the collection reached by the path, ignoring the last segment
+     * when it is not a collection itself (ie: "albums.id" gives the
+     * "albums" collection).
+     *
+     * @param bean The root bean
+     * @return The collection, can be {@code null}
+     * @since 26.10.18
+     */
+    public Collection<?> getCollection(final Object bean) {
+        Object current = bean;
+        for (int i = 0; i < this.getters.length && current != null; ++i) {
+            current = this.invoke(i, current);
+            if (this.collections[i]) {
+                return (Collection<?>) current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invoke the handle of a segment.
+     *
+     * @param segment The segment
+     * @param bean    The bean to read from
+     * @return The value
+     * @since 26.10.18
+     */
+    private Object invoke(final int segment, final Object bean) {
+        try {
+            return this.getters[segment].invokeExact(bean);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(String.format("Can't read '%s' on %s", this.path, bean.getClass().getName()), ex);
+        }
+    }
+}
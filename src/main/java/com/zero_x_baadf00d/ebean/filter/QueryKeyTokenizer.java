@@ -0,0 +1,302 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.filter;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer for query string keys. A key is scanned once and
+ * split into path segments, an optional "not" flag and an optional operator,
+ * all of them exposed as offsets in the original key: no regular expression
+ * is used and no intermediate string is created.
+ *
+ * <pre>
+ * artist.name__not__ilike
+ * |    | |  |  |     |   |
+ * segments    not    operator
+ * </pre>
+ *
+ * <p>A flag other than "not" (ie: {@code name__foo__eq}) does not make the
+ * key malformed: it is ignored, as the historical parser did, and its offset
+ * is exposed so strict validation can reject it.</p>
+ *
+ * <p>An instance is reusable but not thread-safe: a new key can be tokenized
+ * once the previous one has been consumed.</p>
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class QueryKeyTokenizer {
+
+    /**
+     * Bounds of each path segment: start at {@code 2n}, end (exclusive) at {@code 2n + 1}.
+     *
+     * @since 26.10.18
+     */
+    private int[] segmentBounds;
+
+    /**
+     * The current key.
+     *
+     * @since 26.10.18
+     */
+    private String key;
+
+    /**
+     * Number of path segments.
+     *
+     * @since 26.10.18
+     */
+    private int segmentCount;
+
+    /**
+     * Is the "not" flag present.
+     *
+     * @since 26.10.18
+     */
+    private boolean negated;
+
+    /**
+     * Start of the flag which is not "not", {@code -1} if absent.
+     *
+     * @since 26.10.18
+     */
+    private int unknownFlagStart;
+
+    /**
+     * The operator, {@code null} if absent.
+     *
+     * @since 26.10.18
+     */
+    private FilterOperator operator;
+
+    /**
+     * Start of the operator, {@code -1} if absent.
+     *
+     * @since 26.10.18
+     */
+    private int operatorStart;
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    public QueryKeyTokenizer() {
+        this.segmentBounds = new int[16];
+    }
+
+    /**
+     * Tokenize the given key.
+     *
+     * @param newKey The key to tokenize
+     * @return This tokenizer
+     * @throws MalformedQueryKeyException If the key is malformed
+     * @since 26.10.18
+     */
+    public QueryKeyTokenizer tokenize(final String newKey) {
+        this.key = newKey;
+        this.segmentCount = 0;
+        this.negated = false;
+        this.unknownFlagStart = -1;
+        this.operator = null;
+        this.operatorStart = -1;
+
+        final int length = newKey.length();
+        int partIdx = 0;
+        int partStart = 0;
+        int segmentStart = 0;
+        int idx = 0;
+        while (idx <= length) {
+            final boolean endOfKey = idx == length;
+            final char ch = endOfKey ? 0 : newKey.charAt(idx);
+            final boolean separator = !endOfKey && ch == '_' && idx + 1 < length && newKey.charAt(idx + 1) == '_';
+
+            if (endOfKey || separator) {
+                if (partIdx == 0) {
+                    this.addSegment(segmentStart, idx);
+                } else {
+                    this.endPart(partIdx, partStart, idx, endOfKey);
+                }
+                if (separator) {
+                    partIdx += 1;
+                    if (partIdx > 2) {
+                        throw new MalformedQueryKeyException(newKey, idx, "too many '__' separators");
+                    }
+                    idx += 2;
+                    partStart = idx;
+                    continue;
+                }
+            } else if (ch == '.') {
+                if (partIdx != 0) {
+                    throw new MalformedQueryKeyException(newKey, idx, "unexpected '.' after the path");
+                }
+                this.addSegment(segmentStart, idx);
+                segmentStart = idx + 1;
+            }
+            idx += 1;
+        }
+        return this;
+    }
+
+    /**
+     * Record a path segment.
+     *
+     * @param start Start of the segment
+     * @param end   End (exclusive) of the segment
+     * @since 26.10.18
+     */
+    private void addSegment(final int start, final int end) {
+        if (start == end) {
+            throw new MalformedQueryKeyException(this.key, start, "empty path segment");
+        }
+        if (this.segmentCount * 2 == this.segmentBounds.length) {
+            this.segmentBounds = Arrays.copyOf(this.segmentBounds, this.segmentBounds.length * 2);
+        }
+        this.segmentBounds[this.segmentCount * 2] = start;
+        this.segmentBounds[this.segmentCount * 2 + 1] = end;
+        this.segmentCount += 1;
+    }
+
+    /**
+     * Handle the end of the "not" flag or the operator.
+     *
+     * @param partIdx  Index of the part (1 or 2)
+     * @param start    Start of the part
+     * @param end      End (exclusive) of the part
+     * @param endOfKey Is the part the last one of the key
+     * @since 26.10.18
+     */
+    private void endPart(final int partIdx, final int start, final int end, final boolean endOfKey) {
+        if (start == end) {
+            throw new MalformedQueryKeyException(this.key, start, "empty operator");
+        }
+        if (partIdx == 1 && !endOfKey) {
+            if (end - start == 3 && this.key.regionMatches(true, start, "not", 0, 3)) {
+                this.negated = true;
+            } else {
+                this.unknownFlagStart = start;
+            }
+            return;
+        }
+        this.operator = FilterOperator.fromKeyword(this.key, start, end);
+        if (this.operator == null) {
+            throw new MalformedQueryKeyException(this.key, start, "unknown operator");
+        }
+        this.operatorStart = start;
+    }
+
+    /**
+     * Get the tokenized key.
+     *
+     * @return The key
+     * @since 26.10.18
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get the number of path segments.
+     *
+     * @return The number of path segments
+     * @since 26.10.18
+     */
+    public int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    /**
+     * Get the start of a path segment.
+     *
+     * @param index Index of the segment
+     * @return The start offset in the key
+     * @since 26.10.18
+     */
+    public int getSegmentStart(final int index) {
+        return this.segmentBounds[index * 2];
+    }
+
+    /**
+     * Get the end (exclusive) of a path segment.
+     *
+     * @param index Index of the segment
+     * @return The end offset in the key
+     * @since 26.10.18
+     */
+    public int getSegmentEnd(final int index) {
+        return this.segmentBounds[index * 2 + 1];
+    }
+
+    /**
+     * Get the end (exclusive) of the whole path.
+     *
+     * @return The end offset in the key
+     * @since 26.10.18
+     */
+    public int getPathEnd() {
+        return this.segmentBounds[this.segmentCount * 2 - 1];
+    }
+
+    /**
+     * Checks if the "not" flag is present.
+     *
+     * @return {@code true} if the "not" flag is present
+     * @since 26.10.18
+     */
+    public boolean isNegated() {
+        return this.negated;
+    }
+
+    /**
+     * Get the start of the flag which is not "not". Such a flag is ignored.
+     *
+     * @return The start offset in the key, otherwise, {@code -1} if absent
+     * @since 26.10.18
+     */
+    public int getUnknownFlagStart() {
+        return this.unknownFlagStart;
+    }
+
+    /**
+     * Get the operator.
+     *
+     * @return The operator, otherwise, {@code null} if absent
+     * @since 26.10.18
+     */
+    public FilterOperator getOperator() {
+        return this.operator;
+    }
+
+    /**
+     * Get the start of the operator.
+     *
+     * @return The start offset in the key, otherwise, {@code -1} if absent
+     * @since 26.10.18
+     */
+    public int getOperatorStart() {
+        return this.operatorStart;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.index;
+
+import com.zero_x_baadf00d.ebean.filter.FilterOrder;
+import com.zero_x_baadf00d.ebean.filter.FilterPredicate;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+import io.ebean.Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An access pattern observed by the {@code IndexAdvisor}: the resolved paths
+ * of a model compared for equality, compared against a range and used to sort
+ * the rows, along with the number of queries seen.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see IndexAdvisor
+ * @since 26.10.18
+ */
+public final class AccessPattern {
+
+    /**
+     * The model class.
+     *
+     * @since 26.10.18
+     */
+    private final Class<? extends Model> modelClass;
+
+    /**
+     * The shape of the filter tree (ie: "artist.id:eq,year:between;name:asc").
+     *
+     * @since 26.10.18
+     */
+    private final String shape;
+
+    /**
+     * Paths compared for equality.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> equalityPaths;
+
+    /**
+     * Paths compared against a range.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> rangePaths;
+
+    /**
+     * Paths used to sort the rows, in order.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> orderPaths;
+
+    /**
+     * Number of queries seen.
+     *
+     * @since 26.10.18
+     */
+    private final LongAdder count;
+
+    /**
+     * Build a new instance from a filter tree. Negated predicates and operators
+     * a B-tree index can't serve (ie: "icontains") are not retained.
+     *
+     * @param modelClass The model class
+     * @param filterTree The filter tree
+     * @since 26.10.18
+     */
+    AccessPattern(final Class<? extends Model> modelClass, final FilterTree filterTree) {
+        this.modelClass = modelClass;
+        this.shape = filterTree.getShape();
+        final List<String> equalities = new ArrayList<>();
+        final List<String> ranges = new ArrayList<>();
+        for (final FilterPredicate predicate : filterTree.getPredicates()) {
+            if (predicate.isNegated()) {
+                continue;
+            }
+            switch (predicate.getOperator()) {
+                case EQ:
+                case IN:
+                case ISNULL:
+                    equalities.add(predicate.getPath());
+                    break;
+                case GT:
+                case GTE:
+                case LT:
+                case LTE:
+                case BETWEEN:
+                case STARTSWITH:
+                    ranges.add(predicate.getPath());
+                    break;
+                default:
+                    break;
+            }
+        }
+        final List<String> orders = new ArrayList<>();
+        for (final FilterOrder order : filterTree.getOrders()) {
+            orders.add(order.getPath());
+        }
+        this.equalityPaths = Collections.unmodifiableList(equalities);
+        this.rangePaths = Collections.unmodifiableList(ranges);
+        this.orderPaths = Collections.unmodifiableList(orders);
+        this.count = new LongAdder();
+    }
+
+    /**
+     * Count a query.
+     *
+     * @since 26.10.18
+     */
+    void increment() {
+        this.count.increment();
+    }
+
+    /**
+     * Get the model class.
+     *
+     * @return The model class
+     * @since 26.10.18
+     */
+    public Class<? extends Model> getModelClass() {
+        return this.modelClass;
+    }
+
+    /**
+     * Get the shape of the filter tree.
+     *
+     * @return The shape (ie: "artist.id:eq,year:between;name:asc")
+     * @since 26.10.18
+     */
+    public String getShape() {
+        return this.shape;
+    }
+
+    /**
+     * Get the paths compared for equality.
+     *
+     * @return The paths compared for equality
+     * @since 26.10.18
+     */
+    public List<String> getEqualityPaths() {
+        return this.equalityPaths;
+    }
+
+    /**
+     * Get the paths compared against a range.
+     *
+     * @return The paths compared against a range
+     * @since 26.10.18
+     */
+    public List<String> getRangePaths() {
+        return this.rangePaths;
+    }
+
+    /**
+     * Get the paths used to sort the rows, in order.
+     *
+     * @return The paths used to sort the rows
+     * @since 26.10.18
+     */
+    public List<String> getOrderPaths() {
+        return this.orderPaths;
+    }
+
+    /**
+     * Get the number of queries seen.
+     *
+     * @return The number of queries
+     * @since 26.10.18
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return this.modelClass.getSimpleName() + '|' + this.shape + " (" + this.getCount() + ')';
+    }
+}
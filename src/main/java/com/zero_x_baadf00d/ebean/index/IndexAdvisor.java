@@ -0,0 +1,466 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.index;
+
+import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+import io.ebean.Model;
+import io.ebean.config.dbplatform.DatabasePlatform;
+import io.ebeaninternal.api.SpiEbeanServer;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+import io.ebeaninternal.server.deploy.BeanPropertyAssocOne;
+import io.ebeaninternal.server.deploy.IndexDefinition;
+import io.ebeaninternal.server.deploy.id.ImportedId;
+import io.ebeaninternal.server.el.ElPropertyValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Index advisor. The filter trees of the queries are aggregated per model
+ * and shape into access patterns; from them, candidate composite indexes are
+ * built and ranked by traffic, with the DDL to create them on the database
+ * platform. Candidates already served by an existing index are flagged.
+ *
+ * <p>The columns of a candidate follow the usual equality, sort, range
+ * rule: the columns compared for equality first, then the sort columns and
+ * finally the first column compared against a range.</p>
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see AccessPattern
+ * @see IndexRecommendation
+ * @since 26.10.18
+ */
+public final class IndexAdvisor {
+
+    /**
+     * Maximum number of distinct access patterns tracked.
+     *
+     * @since 26.10.18
+     */
+    private final int maxPatterns;
+
+    /**
+     * Access patterns, by model class name and shape.
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, AccessPattern> patterns;
+
+    /**
+     * Build a new instance.
+     *
+     * @param maxPatterns The maximum number of distinct access patterns tracked
+     * @since 26.10.18
+     */
+    public IndexAdvisor(final int maxPatterns) {
+        this.maxPatterns = maxPatterns;
+        this.patterns = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Record a query. Contradictions, never sent to the database, are ignored.
+     * Once the maximum number of distinct patterns is reached, only the already
+     * known patterns are counted.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree of the query
+     * @since 26.10.18
+     */
+    public void record(final Class<? extends Model> c, final FilterTree filterTree) {
+        if (filterTree.isContradiction()) {
+            return;
+        }
+        final String key = c.getName() + '|' + filterTree.getShape();
+        AccessPattern pattern = this.patterns.get(key);
+        if (pattern == null) {
+            if (this.patterns.size() >= this.maxPatterns) {
+                return;
+            }
+            pattern = this.patterns.computeIfAbsent(key, ignore -> new AccessPattern(c, filterTree));
+        }
+        pattern.increment();
+    }
+
+    /**
+     * Get the access patterns recorded, most frequent first.
+     *
+     * @return The access patterns
+     * @since 26.10.18
+     */
+    public List<AccessPattern> getAccessPatterns() {
+        return this.patterns.values()
+            .stream()
+            .sorted(Comparator.comparingLong(AccessPattern::getCount).reversed().thenComparing(AccessPattern::toString))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Build the index recommendations from the recorded access patterns. The
+     * models are resolved on the database serving their read queries.
+     *
+     * @param playEbeanHttpQuery The Ebean HTTP Query parser, to resolve the databases
+     * @return The recommendations, ranked by traffic
+     * @since 26.10.18
+     */
+    public List<IndexRecommendation> recommend(final PlayEbeanHttpQuery playEbeanHttpQuery) {
+        final Map<String, Candidate> candidates = new LinkedHashMap<>();
+        for (final AccessPattern pattern : this.getAccessPatterns()) {
+            final SpiEbeanServer server = (SpiEbeanServer) playEbeanHttpQuery.resolveDatabase(pattern.getModelClass());
+            final BeanDescriptor<?> rootDescriptor = server.descriptor(pattern.getModelClass());
+            if (rootDescriptor == null) {
+                continue;
+            }
+            final Map<String, TableAccess> accesses = new LinkedHashMap<>();
+            for (final String path : pattern.getEqualityPaths()) {
+                final ColumnRef column = IndexAdvisor.resolveColumn(rootDescriptor, path);
+                if (column != null) {
+                    IndexAdvisor.tableAccess(accesses, column).equalityColumns.add(column.name);
+                }
+            }
+            for (final String path : pattern.getOrderPaths()) {
+                final ColumnRef column = IndexAdvisor.resolveColumn(rootDescriptor, path);
+                if (column != null && column.descriptor.baseTable().equals(rootDescriptor.baseTable())) {
+                    IndexAdvisor.tableAccess(accesses, column).orderColumns.add(column.name);
+                }
+            }
+            for (final String path : pattern.getRangePaths()) {
+                final ColumnRef column = IndexAdvisor.resolveColumn(rootDescriptor, path);
+                if (column != null && IndexAdvisor.tableAccess(accesses, column).rangeColumn == null) {
+                    IndexAdvisor.tableAccess(accesses, column).rangeColumn = column.name;
+                }
+            }
+            for (final TableAccess access : accesses.values()) {
+                final List<String> columns = access.getColumns();
+                final Candidate candidate = candidates.computeIfAbsent(
+                    access.descriptor.baseTable() + '(' + String.join(",", columns) + ')',
+                    ignore -> new Candidate(server, access.descriptor, columns)
+                );
+                candidate.traffic += pattern.getCount();
+                candidate.shapes.add(pattern.getModelClass().getSimpleName() + '|' + pattern.getShape());
+            }
+        }
+        return candidates.values()
+            .stream()
+            .map(Candidate::toRecommendation)
+            .sorted(Comparator.comparingLong(IndexRecommendation::getTraffic).reversed().thenComparing(IndexRecommendation::getDdl))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the access to the table holding the given column, creating it if needed.
+     *
+     * @param accesses The accesses of the current pattern, by table
+     * @param column   The column
+     * @return The table access
+     * @since 26.10.18
+     */
+    private static TableAccess tableAccess(final Map<String, TableAccess> accesses, final ColumnRef column) {
+        return accesses.computeIfAbsent(column.descriptor.baseTable(), ignore -> new TableAccess(column.descriptor));
+    }
+
+    /**
+     * Resolve the column read by a path. A path ending by the identifier of a
+     * "to one" association (ie: "artist.id") resolves to the foreign key column
+     * of the owning table, as Ebean does not join the associated table.
+     *
+     * @param rootDescriptor The root bean descriptor
+     * @param path           The resolved path
+     * @return The column, otherwise, {@code null} if the path does not read an indexable column
+     * @since 26.10.18
+     */
+    private static ColumnRef resolveColumn(final BeanDescriptor<?> rootDescriptor, final String path) {
+        final ElPropertyValue elPropertyValue = rootDescriptor.elGetValue(path);
+        final BeanProperty beanProperty = elPropertyValue == null ? null : elPropertyValue.beanProperty();
+        if (beanProperty == null || beanProperty.isTransient() || beanProperty.isFormula() || beanProperty.isAssocMany()) {
+            return null;
+        }
+        final int idx = path.lastIndexOf('.');
+        if (beanProperty.isId() && idx > 0) {
+            final ColumnRef foreignKey = IndexAdvisor.foreignKeyColumn(rootDescriptor.findPropertyFromPath(path.substring(0, idx)));
+            if (foreignKey != null) {
+                return foreignKey;
+            }
+        }
+        if (beanProperty instanceof BeanPropertyAssocOne) {
+            return IndexAdvisor.foreignKeyColumn(beanProperty);
+        }
+        return beanProperty.dbColumn() == null ? null : new ColumnRef(beanProperty.descriptor(), beanProperty.dbColumn());
+    }
+
+    /**
+     * Get the foreign key column of a "to one" association.
+     *
+     * @param beanProperty The property
+     * @return The foreign key column, otherwise, {@code null} if the property is not an imported association
+     * @since 26.10.18
+     */
+    private static ColumnRef foreignKeyColumn(final BeanProperty beanProperty) {
+        if (beanProperty instanceof BeanPropertyAssocOne && !((BeanPropertyAssocOne<?>) beanProperty).isOneToOneExported()) {
+            final ImportedId importedId = ((BeanPropertyAssocOne<?>) beanProperty).importedId();
+            if (importedId != null && importedId.isScalar()) {
+                return new ColumnRef(beanProperty.descriptor(), importedId.getDbColumn());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the columns of the existing indexes of a table: primary key, unique
+     * columns, foreign keys (indexed by the Ebean DDL) and {@code @Index}.
+     *
+     * @param descriptor The bean descriptor of the table
+     * @return The columns of each existing index
+     * @since 26.10.18
+     */
+    private static List<List<String>> existingIndexes(final BeanDescriptor<?> descriptor) {
+        final List<List<String>> indexes = new ArrayList<>();
+        if (descriptor.idProperty() != null && descriptor.idProperty().dbColumn() != null) {
+            indexes.add(Collections.singletonList(descriptor.idProperty().dbColumn()));
+        }
+        for (final BeanProperty beanProperty : descriptor.propertiesBaseScalar()) {
+            if (beanProperty.isUnique() && beanProperty.dbColumn() != null) {
+                indexes.add(Collections.singletonList(beanProperty.dbColumn()));
+            }
+        }
+        for (final BeanPropertyAssocOne<?> beanProperty : descriptor.propertiesOneImported()) {
+            final ColumnRef foreignKey = IndexAdvisor.foreignKeyColumn(beanProperty);
+            if (foreignKey != null) {
+                indexes.add(Collections.singletonList(foreignKey.name));
+            }
+        }
+        if (descriptor.indexDefinitions() != null) {
+            for (final IndexDefinition indexDefinition : descriptor.indexDefinitions()) {
+                indexes.add(Arrays.asList(indexDefinition.getColumns()));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * A column and the descriptor of the table holding it.
+     *
+     * @since 26.10.18
+     */
+    private static final class ColumnRef {
+
+        /**
+         * The descriptor of the table holding the column.
+         *
+         * @since 26.10.18
+         */
+        private final BeanDescriptor<?> descriptor;
+
+        /**
+         * The column name.
+         *
+         * @since 26.10.18
+         */
+        private final String name;
+
+        /**
+         * Build a new instance.
+         *
+         * @param descriptor The descriptor of the table holding the column
+         * @param name       The column name
+         * @since 26.10.18
+         */
+        private ColumnRef(final BeanDescriptor<?> descriptor, final String name) {
+            this.descriptor = descriptor;
+            this.name = name;
+        }
+    }
+
+    /**
+     * The columns of a table read by an access pattern.
+     *
+     * @since 26.10.18
+     */
+    private static final class TableAccess {
+
+        /**
+         * The descriptor of the table.
+         *
+         * @since 26.10.18
+         */
+        private final BeanDescriptor<?> descriptor;
+
+        /**
+         * Columns compared for equality, sorted.
+         *
+         * @since 26.10.18
+         */
+        private final Set<String> equalityColumns;
+
+        /**
+         * Columns used to sort the rows, in order.
+         *
+         * @since 26.10.18
+         */
+        private final List<String> orderColumns;
+
+        /**
+         * First column compared against a range.
+         *
+         * @since 26.10.18
+         */
+        private String rangeColumn;
+
+        /**
+         * Build a new instance.
+         *
+         * @param descriptor The descriptor of the table
+         * @since 26.10.18
+         */
+        private TableAccess(final BeanDescriptor<?> descriptor) {
+            this.descriptor = descriptor;
+            this.equalityColumns = new TreeSet<>();
+            this.orderColumns = new ArrayList<>();
+        }
+
+        /**
+         * Get the columns of the candidate index: equality, sort, then range.
+         *
+         * @return The columns of the candidate index
+         * @since 26.10.18
+         */
+        private List<String> getColumns() {
+            final Set<String> columns = new LinkedHashSet<>(this.equalityColumns);
+            columns.addAll(this.orderColumns);
+            if (this.rangeColumn != null) {
+                columns.add(this.rangeColumn);
+            }
+            return new ArrayList<>(columns);
+        }
+    }
+
+    /**
+     * A candidate index, aggregated over the access patterns.
+     *
+     * @since 26.10.18
+     */
+    private static final class Candidate {
+
+        /**
+         * The server holding the table.
+         *
+         * @since 26.10.18
+         */
+        private final SpiEbeanServer server;
+
+        /**
+         * The descriptor of the table.
+         *
+         * @since 26.10.18
+         */
+        private final BeanDescriptor<?> descriptor;
+
+        /**
+         * The columns to index, in order.
+         *
+         * @since 26.10.18
+         */
+        private final List<String> columns;
+
+        /**
+         * The access patterns served.
+         *
+         * @since 26.10.18
+         */
+        private final List<String> shapes;
+
+        /**
+         * Number of queries served.
+         *
+         * @since 26.10.18
+         */
+        private long traffic;
+
+        /**
+         * Build a new instance.
+         *
+         * @param server     The server holding the table
+         * @param descriptor The descriptor of the table
+         * @param columns    The columns to index, in order
+         * @since 26.10.18
+         */
+        private Candidate(final SpiEbeanServer server, final BeanDescriptor<?> descriptor, final List<String> columns) {
+            this.server = server;
+            this.descriptor = descriptor;
+            this.columns = columns;
+            this.shapes = new ArrayList<>();
+        }
+
+        /**
+         * Build the recommendation. The index is named after the Ebean naming
+         * convention and the DDL uses the identifier quoting of the platform.
+         *
+         * @return The recommendation
+         * @since 26.10.18
+         */
+        private IndexRecommendation toRecommendation() {
+            final DatabasePlatform platform = this.server.databasePlatform();
+            final String table = this.descriptor.baseTable();
+            String indexName = this.server.config().getConstraintNaming().indexName(table, this.columns.toArray(new String[0]));
+            if (platform.getMaxConstraintNameLength() > 0 && indexName.length() > platform.getMaxConstraintNameLength()) {
+                indexName = indexName.substring(0, platform.getMaxConstraintNameLength());
+            }
+            final String ddl = platform.convertQuotedIdentifiers(
+                "create index " + indexName + " on " + table + " (" + String.join(",", this.columns) + ");"
+            );
+            final boolean indexed = IndexAdvisor.existingIndexes(this.descriptor)
+                .stream()
+                .anyMatch(index -> index.size() >= this.columns.size() && this.isPrefixOf(index));
+            return new IndexRecommendation(table, this.columns, ddl, this.traffic, this.shapes, indexed);
+        }
+
+        /**
+         * Check if the columns of this candidate are a prefix of the given index.
+         *
+         * @param index The columns of an existing index
+         * @return {@code true} if the index serves this candidate
+         * @since 26.10.18
+         */
+        private boolean isPrefixOf(final List<String> index) {
+            for (int idx = 0; idx < this.columns.size(); ++idx) {
+                if (!this.columns.get(idx).equalsIgnoreCase(index.get(idx))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
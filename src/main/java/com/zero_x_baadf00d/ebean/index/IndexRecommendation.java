@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.index;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A candidate index produced by the {@code IndexAdvisor}: the table and the
+ * columns to index, the DDL creating the index on the database platform and
+ * the traffic of the access patterns it would serve.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see IndexAdvisor
+ * @since 26.10.18
+ */
+public final class IndexRecommendation {
+
+    /**
+     * The table to index.
+     *
+     * @since 26.10.18
+     */
+    private final String table;
+
+    /**
+     * The columns to index, in order.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> columns;
+
+    /**
+     * The DDL creating the index.
+     *
+     * @since 26.10.18
+     */
+    private final String ddl;
+
+    /**
+     * Number of queries served by the index.
+     *
+     * @since 26.10.18
+     */
+    private final long traffic;
+
+    /**
+     * Access patterns served by the index (ie: "Album|artist.id:eq;name:asc").
+     *
+     * @since 26.10.18
+     */
+    private final List<String> shapes;
+
+    /**
+     * Whether an existing index already starts with these columns.
+     *
+     * @since 26.10.18
+     */
+    private final boolean indexed;
+
+    /**
+     * Build a new instance.
+     *
+     * @param table   The table to index
+     * @param columns The columns to index, in order
+     * @param ddl     The DDL creating the index
+     * @param traffic The number of queries served by the index
+     * @param shapes  The access patterns served by the index
+     * @param indexed {@code true} if an existing index already starts with these columns
+     * @since 26.10.18
+     */
+    public IndexRecommendation(final String table,
+                               final List<String> columns,
+                               final String ddl,
+                               final long traffic,
+                               final List<String> shapes,
+                               final boolean indexed) {
+        this.table = table;
+        this.columns = Collections.unmodifiableList(columns);
+        this.ddl = ddl;
+        this.traffic = traffic;
+        this.shapes = Collections.unmodifiableList(shapes);
+        this.indexed = indexed;
+    }
+
+    /**
+     * Get the table to index.
+     *
+     * @return The table name
+     * @since 26.10.18
+     */
+    public String getTable() {
+        return this.table;
+    }
+
+    /**
+     * Get the columns to index, in order.
+     *
+     * @return The columns
+     * @since 26.10.18
+     */
+    public List<String> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Get the DDL creating the index on the database platform.
+     *
+     * @return The DDL statement
+     * @since 26.10.18
+     */
+    public String getDdl() {
+        return this.ddl;
+    }
+
+    /**
+     * Get the number of queries served by the index.
+     *
+     * @return The number of queries
+     * @since 26.10.18
+     */
+    public long getTraffic() {
+        return this.traffic;
+    }
+
+    /**
+     * Get the access patterns served by the index.
+     *
+     * @return The access patterns
+     * @since 26.10.18
+     */
+    public List<String> getShapes() {
+        return this.shapes;
+    }
+
+    /**
+     * Check if an existing index (primary key, unique constraint, foreign
+     * key or {@code @Index}) already starts with these columns.
+     *
+     * @return {@code true} if the columns are already indexed
+     * @since 26.10.18
+     */
+    public boolean isIndexed() {
+        return this.indexed;
+    }
+
+    @Override
+    public String toString() {
+        return "-- " + this.traffic + " queries" + (this.indexed ? ", already indexed" : ", missing index")
+            + ": " + String.join(" ", this.shapes) + '\n' + this.ddl;
+    }
+}
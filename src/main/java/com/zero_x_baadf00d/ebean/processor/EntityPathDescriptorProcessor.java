@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.processor;
+
+import com.zero_x_baadf00d.ebean.descriptor.EntityPathDescriptor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a {@link EntityPathDescriptor} for each
+ * class annotated with {@code @Entity}. The descriptor is generated in the
+ * package of the model, as the static field {@code DESCRIPTOR} of the class
+ * {@code <Model>_PathDescriptor}. It describes the same fields as the
+ * reflection fallback: the ones of the model and its super classes, except
+ * the root class of the hierarchy (ie: {@code Model}). Static, transient
+ * and {@code @Transient} fields are not described.
+ * <p>
+ * The processor is not registered as a service: enable it explicitly
+ * (ie: {@code -processor com.zero_x_baadf00d.ebean.processor.EntityPathDescriptorProcessor}).
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+@SupportedAnnotationTypes("javax.persistence.Entity")
+public class EntityPathDescriptorProcessor extends AbstractProcessor {
+
+    /**
+     * Name of the annotation marking the primary key.
+     *
+     * @since 26.10.18
+     */
+    private static final String ID_ANNOTATION = "javax.persistence.Id";
+
+    /**
+     * Name of the annotation marking a field not persisted.
+     *
+     * @since 26.10.18
+     */
+    private static final String TRANSIENT_ANNOTATION = "javax.persistence.Transient";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final TypeElement annotation : annotations) {
+            for (final TypeElement entity : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                try {
+                    this.generate(entity);
+                } catch (final IOException ex) {
+                    this.processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "Can't generate the path descriptor: " + ex.getMessage(),
+                        entity
+                    );
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate the path descriptor of an entity.
+     *
+     * @param entity The entity
+     * @throws IOException If the source file can't be written
+     * @since 26.10.18
+     */
+    private void generate(final TypeElement entity) throws IOException {
+        final PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(entity);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = this.processingEnv.getElementUtils().getBinaryName(entity).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_')
+            + EntityPathDescriptor.GENERATED_CLASS_SUFFIX;
+
+        final List<String> names = new ArrayList<>();
+        final List<String> types = new ArrayList<>();
+        final List<Boolean> collections = new ArrayList<>();
+        String idProperty = null;
+        TypeElement currentType = entity;
+        while (currentType != null && this.hasDescribedSuperclass(currentType)) {
+            for (final VariableElement field : ElementFilter.fieldsIn(currentType.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)
+                    || field.getModifiers().contains(Modifier.TRANSIENT)
+                    || this.isAnnotatedWith(field, EntityPathDescriptorProcessor.TRANSIENT_ANNOTATION)) {
+                    continue;
+                }
+                final TypeMirror fieldType = field.asType();
+                final boolean collection = this.isList(fieldType);
+                names.add(field.getSimpleName().toString());
+                if (collection) {
+                    final List<? extends TypeMirror> typeArguments = ((DeclaredType) fieldType).getTypeArguments();
+                    types.add(typeArguments.size() == 1 ? this.toClassLiteral(typeArguments.get(0)) : "null");
+                } else {
+                    types.add(this.toClassLiteral(fieldType));
+                }
+                collections.add(collection);
+                if (idProperty == null && this.isAnnotatedWith(field, EntityPathDescriptorProcessor.ID_ANNOTATION)) {
+                    idProperty = field.getSimpleName().toString();
+                }
+            }
+            final TypeMirror superclass = currentType.getSuperclass();
+            currentType = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+
+        final JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(
+            packageName.isEmpty() ? simpleName : packageName + '.' + simpleName,
+            entity
+        );
+        try (final Writer writer = sourceFile.openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("/**\n * Path descriptor of {@link " + entity.getQualifiedName() + "}, generated by "
+                + EntityPathDescriptorProcessor.class.getSimpleName() + ".\n */\n");
+            writer.write("public final class " + simpleName + " {\n\n");
+            writer.write("    public static final " + EntityPathDescriptor.class.getName() + " "
+                + EntityPathDescriptor.GENERATED_FIELD_NAME + " = new " + EntityPathDescriptor.class.getName() + "(\n");
+            writer.write("        " + entity.getQualifiedName() + ".class,\n");
+            writer.write("        " + (idProperty == null ? "null" : '"' + idProperty + '"') + ",\n");
+            writer.write("        new String[]{" + this.join(names, true) + "},\n");
+            writer.write("        new Class<?>[]{" + this.join(types, false) + "},\n");
+            writer.write("        new boolean[]{" + this.join(collections, false) + "}\n");
+            writer.write("    );\n\n");
+            writer.write("    private " + simpleName + "() {\n    }\n}\n");
+        }
+    }
+
+    /**
+     * Checks if the fields of the type are described: the root class of the
+     * hierarchy, directly extending {@code Object}, is not.
+     *
+     * @param type The type
+     * @return {@code true} if the fields are described
+     * @since 26.10.18
+     */
+    private boolean hasDescribedSuperclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        return !((TypeElement) ((DeclaredType) superclass).asElement()).getQualifiedName().contentEquals(Object.class.getName());
+    }
+
+    /**
+     * Checks if the type is a {@code java.util.List}.
+     *
+     * @param type The type
+     * @return {@code true} if the type is a list
+     * @since 26.10.18
+     */
+    private boolean isList(final TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        final Element element = ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.INTERFACE
+            && ((TypeElement) element).getQualifiedName().contentEquals(List.class.getName());
+    }
+
+    /**
+     * Checks if the field is annotated with the given annotation.
+     *
+     * @param field          The field
+     * @param annotationName The qualified name of the annotation
+     * @return {@code true} if the field is annotated with it
+     * @since 26.10.18
+     */
+    private boolean isAnnotatedWith(final VariableElement field, final String annotationName) {
+        for (final AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the class literal of the type erasure.
+     *
+     * @param type The type
+     * @return The class literal (ie: "java.lang.String.class")
+     * @since 26.10.18
+     */
+    private String toClassLiteral(final TypeMirror type) {
+        final TypeMirror erasure = this.processingEnv.getTypeUtils().erasure(type);
+        if (erasure.getKind() == TypeKind.WILDCARD || erasure.getKind() == TypeKind.TYPEVAR) {
+            return "null";
+        }
+        return erasure + ".class";
+    }
+
+    /**
+     * Join values with commas.
+     *
+     * @param values The values
+     * @param quoted Are the values quoted
+     * @return The joined values
+     * @since 26.10.18
+     */
+    private String join(final List<?> values, final boolean quoted) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Object value : values) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(quoted ? "\"" + value + "\"" : value);
+        }
+        return sb.toString();
+    }
+}
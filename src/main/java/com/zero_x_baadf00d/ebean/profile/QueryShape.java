@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.profile;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A query shape recorded by the {@code ShapeProfile}: the model class and the
+ * query string keys (paths and operators) used, without their values.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see ShapeProfile
+ * @since 26.10.18
+ */
+public final class QueryShape {
+
+    /**
+     * Fully qualified name of the model class.
+     *
+     * @since 26.10.18
+     */
+    private final String modelClassName;
+
+    /**
+     * Query string keys, sorted.
+     *
+     * @since 26.10.18
+     */
+    private final List<String> keys;
+
+    /**
+     * Number of times the shape has been seen.
+     *
+     * @since 26.10.18
+     */
+    private final long count;
+
+    /**
+     * Build a new instance.
+     *
+     * @param modelClassName The fully qualified name of the model class
+     * @param keys           The query string keys, sorted
+     * @param count          The number of times the shape has been seen
+     * @since 26.10.18
+     */
+    public QueryShape(final String modelClassName, final List<String> keys, final long count) {
+        this.modelClassName = modelClassName;
+        this.keys = Collections.unmodifiableList(keys);
+        this.count = count;
+    }
+
+    /**
+     * Get the fully qualified name of the model class.
+     *
+     * @return The model class name
+     * @since 26.10.18
+     */
+    public String getModelClassName() {
+        return this.modelClassName;
+    }
+
+    /**
+     * Get the query string keys, sorted.
+     *
+     * @return The query string keys
+     * @since 26.10.18
+     */
+    public List<String> getKeys() {
+        return this.keys;
+    }
+
+    /**
+     * Get the number of times the shape has been seen.
+     *
+     * @return The number of times the shape has been seen
+     * @since 26.10.18
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    @Override
+    public String toString() {
+        return this.count + "\t" + this.modelClassName + "\t" + String.join(",", this.keys);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.profile;
+
+import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+import io.ebean.Model;
+import io.ebean.Query;
+import io.ebeaninternal.api.SpiQuery;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Profile of the most frequent query shapes. The shapes are recorded while
+ * the application runs, saved to a compact local file and replayed on the
+ * next boot to pre-populate the property path and query plan caches before
+ * the first request is served.
+ *
+ * <p>The file holds one shape per line: the number of times the shape has
+ * been seen, the fully qualified model class name and the sorted query
+ * string keys, resolved from the filter tree, separated by tabulations.
+ * Values are never recorded.</p>
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see QueryShape
+ * @since 26.10.18
+ */
+public final class ShapeProfile {
+
+    /**
+     * Maximum number of distinct shapes tracked.
+     *
+     * @since 26.10.18
+     */
+    private final int maxShapes;
+
+    /**
+     * Number of occurrences per shape entry ("class name\tkey1,key2").
+     *
+     * @since 26.10.18
+     */
+    private final Map<String, LongAdder> shapes;
+
+    /**
+     * Build a new instance.
+     *
+     * @param maxShapes The maximum number of distinct shapes tracked
+     * @since 26.10.18
+     */
+    public ShapeProfile(final int maxShapes) {
+        this.maxShapes = maxShapes;
+        this.shapes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Record a query shape. The shape is taken from the resolved filter tree:
+     * unknown or ignored keys are not recorded and aliases are resolved, so
+     * they can't crowd out the real shapes. Once the maximum number of distinct
+     * shapes is reached, only the already known shapes are counted.
+     *
+     * @param c          The model class
+     * @param filterTree The filter tree built from the request
+     * @since 26.10.18
+     */
+    public void record(final Class<?> c, final FilterTree filterTree) {
+        final List<String> keys = Stream.concat(
+            filterTree.getPredicates().stream().map(predicate -> predicate.getPath()
+                + (predicate.isNegated() ? "__not" : "")
+                + "__" + predicate.getOperator().getKeyword()),
+            filterTree.getOrders().stream().map(order -> order.getPath() + "__" + FilterOperator.ORDERBY.getKeyword())
+        ).distinct().sorted().collect(Collectors.toList());
+        if (keys.isEmpty() || keys.stream().anyMatch(key -> key.matches(".*[,\\t\\r\\n].*"))) {
+            return;
+        }
+        this.increment(c.getName() + '\t' + String.join(",", keys), 1);
+    }
+
+    /**
+     * Add occurrences to a shape entry, if the profile is not full.
+     *
+     * @param entry The shape entry
+     * @param count The number of occurrences to add
+     * @since 26.10.18
+     */
+    private void increment(final String entry, final long count) {
+        final LongAdder counter = this.shapes.size() < this.maxShapes
+            ? this.shapes.computeIfAbsent(entry, key -> new LongAdder())
+            : this.shapes.get(entry);
+        if (counter != null) {
+            counter.add(count);
+        }
+    }
+
+    /**
+     * Get the most frequent shapes, most frequent first.
+     *
+     * @param limit The maximum number of shapes to return
+     * @return The most frequent shapes
+     * @since 26.10.18
+     */
+    public List<QueryShape> getHotShapes(final int limit) {
+        final Map<String, Long> snapshot = new HashMap<>();
+        this.shapes.forEach((entry, counter) -> snapshot.put(entry, counter.sum()));
+        return snapshot.entrySet()
+            .stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+            .limit(limit)
+            .map(entry -> {
+                final String[] parts = entry.getKey().split("\t", 2);
+                return new QueryShape(parts[0], Arrays.asList(parts[1].split(",")), entry.getValue());
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Save the profile to the given file. The file is written next to its
+     * final location then moved, a crash never leaves a truncated profile.
+     *
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     * @since 26.10.18
+     */
+    public void save(final Path file) throws IOException {
+        final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for (final QueryShape shape : this.getHotShapes(this.maxShapes)) {
+                writer.write(shape.toString());
+                writer.newLine();
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load a profile previously saved. The loaded occurrences are added to
+     * the current ones; malformed lines are ignored.
+     *
+     * @param file The file to read
+     * @throws IOException If the file can't be read
+     * @since 26.10.18
+     */
+    public void load(final Path file) throws IOException {
+        for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            final String[] parts = line.split("\t");
+            if (parts.length == 3 && !parts[1].isEmpty() && !parts[2].isEmpty()) {
+                try {
+                    this.increment(parts[1] + '\t' + parts[2], Long.parseLong(parts[0]));
+                } catch (final NumberFormatException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the most frequent shapes: each one is turned into a query with
+     * placeholder values, then compiled by Ebean. No query is executed. The
+     * shapes whose model no longer exists or can't be compiled are skipped.
+     *
+     * @param playEbeanHttpQuery The Ebean HTTP Query parser to warm up
+     * @param classLoader        The class loader to use to resolve the models
+     * @param limit              The maximum number of shapes to replay
+     * @return The number of shapes replayed
+     * @since 26.10.18
+     */
+    public int replay(final PlayEbeanHttpQuery playEbeanHttpQuery, final ClassLoader classLoader, final int limit) {
+        int replayed = 0;
+        for (final QueryShape shape : this.getHotShapes(limit)) {
+            try {
+                final Class<?> c = Class.forName(shape.getModelClassName(), true, classLoader);
+                if (Model.class.isAssignableFrom(c)) {
+                    this.replay(playEbeanHttpQuery, c.asSubclass(Model.class), shape.getKeys());
+                    replayed += 1;
+                }
+            } catch (final ClassNotFoundException | RuntimeException ignore) {
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Replay a shape.
+     *
+     * @param playEbeanHttpQuery The Ebean HTTP Query parser to warm up
+     * @param c                  The model class
+     * @param keys               The query string keys
+     * @param <T>                Something that extends Model
+     * @since 26.10.18
+     */
+    private <T extends Model> void replay(final PlayEbeanHttpQuery playEbeanHttpQuery, final Class<T> c, final List<String> keys) {
+        final Map<String, String[]> args = new HashMap<>();
+        keys.forEach(key -> args.put(key, new String[]{ShapeProfile.placeholder(key)}));
+        final Query<T> query = playEbeanHttpQuery.buildQuery(c, args);
+        final SpiQuery<T> spiQuery = (SpiQuery<T>) query;
+        spiQuery.getBeanDescriptor().ebeanServer().compileQuery(SpiQuery.Type.LIST, query, null);
+    }
+
+    /**
+     * Get a placeholder value suitable for the operator of the given key.
+     *
+     * @param key The query string key
+     * @return The placeholder value
+     * @since 26.10.18
+     */
+    private static String placeholder(final String key) {
+        final int idx = key.lastIndexOf("__");
+        final FilterOperator operator = idx < 0 ? null : FilterOperator.fromKeyword(key.substring(idx + 2));
+        if (operator == FilterOperator.ORDERBY) {
+            return "asc";
+        } else if (operator == FilterOperator.BETWEEN) {
+            return "0,1";
+        }
+        return "1";
+    }
+
+    /**
+     * Get the number of distinct shapes tracked.
+     *
+     * @return The number of distinct shapes
+     * @since 26.10.18
+     */
+    public int size() {
+        return this.shapes.size();
+    }
+}
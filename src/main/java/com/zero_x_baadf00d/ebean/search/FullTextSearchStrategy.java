@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.search;
+
+import io.ebean.ExpressionList;
+
+/**
+ * Strategy emitting the expression of the full-text search operators
+ * ({@code __search} and {@code __isearch}). Implementations are specific
+ * to a database platform and should rely on the text indexes it provides.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public interface FullTextSearchStrategy {
+
+    /**
+     * Add the full-text search expression to the given expression list.
+     *
+     * @param expressions     The expression list to fill
+     * @param path            The resolved path of the searched property
+     * @param terms           The searched terms, as given on the query string
+     * @param caseInsensitive Is the search case insensitive ({@code __isearch})
+     * @param <T>             Something that extends Model
+     * @since 26.10.18
+     */
+    <T> void apply(final ExpressionList<T> expressions, final String path, final String terms, final boolean caseInsensitive);
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.search;
+
+import com.zero_x_baadf00d.ebean.utils.StringUtils;
+import io.ebean.ExpressionList;
+import io.ebeaninternal.api.SpiQuery;
+import io.ebeaninternal.server.deploy.BeanDescriptor;
+import io.ebeaninternal.server.deploy.BeanProperty;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search on H2 using its native full-text index ({@code FT_SEARCH_DATA}).
+ * The index must be initialized on the table holding the searched property:
+ * <pre>
+ * CREATE ALIAS IF NOT EXISTS FT_INIT FOR "org.h2.fulltext.FullText.init";
+ * CALL FT_INIT();
+ * CALL FT_CREATE_INDEX('PUBLIC', 'ALBUM', 'NAME');
+ * </pre>
+ * H2 matches the words against all the indexed columns of the table and
+ * always ignores the case: the index only preselects the rows of the table,
+ * in the schema of the model, then each word must be contained in the
+ * searched property, ignoring the case for {@code __isearch} only. The
+ * full-text index is not available in the PostgreSQL compatibility mode of H2.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class H2FullTextSearchStrategy implements FullTextSearchStrategy {
+
+    /**
+     * Characters separating the words, as defined by the H2 native full-text search.
+     *
+     * @since 26.10.18
+     */
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[\\s+\"*%&/()=?'!,.;:\\-_#@|^~`{}\\[\\]<>]+");
+
+    @Override
+    public <T> void apply(final ExpressionList<T> expressions, final String path, final String terms, final boolean caseInsensitive) {
+        final BeanDescriptor<?> rootDescriptor = ((SpiQuery<?>) expressions.query()).getBeanDescriptor();
+        final BeanDescriptor<?> descriptor = rootDescriptor.elGetValue(path).beanProperty().descriptor();
+        final BeanProperty idProperty = descriptor.idProperty();
+        final String parentPath = path.contains(".") ? StringUtils.substringBeforeLast(path, ".") + "." : "";
+        final String baseTable = descriptor.baseTable().toUpperCase(Locale.ENGLISH);
+        final String table = StringUtils.substringAfterLast(baseTable, ".");
+        final String schema = baseTable.contains(".") ? "'" + StringUtils.substringBeforeLast(baseTable, ".") + "'" : "schema()";
+
+        // Keys are returned as strings: integral keys are cast to keep the primary key index usable
+        final Class<?> idType = idProperty.type();
+        final boolean integralKey = idType == Long.class || idType == long.class || idType == Integer.class || idType == int.class
+            || idType == Short.class || idType == short.class;
+
+        // Identifiers are quoted to work whatever the value of DATABASE_TO_UPPER is
+        expressions.raw(
+            String.format(
+                "%s in (select %s from FT_SEARCH_DATA(?, 0, 0) ft where upper(ft.\"SCHEMA\") = %s and upper(ft.\"TABLE\") = '%s'"
+                    + " and upper(array_get(ft.\"COLUMNS\", 1)) = '%s')",
+                integralKey ? parentPath + idProperty.name() : "cast(" + parentPath + idProperty.name() + " as varchar)",
+                integralKey ? "cast(array_get(ft.\"KEYS\", 1) as bigint)" : "array_get(ft.\"KEYS\", 1)",
+                schema,
+                table,
+                idProperty.dbColumn().toUpperCase(Locale.ENGLISH)
+            ),
+            terms
+        );
+
+        // FT_SEARCH_DATA reports the key columns only, not the matching one
+        for (final String word : H2FullTextSearchStrategy.WORD_SEPARATORS.split(terms)) {
+            if (!word.isEmpty()) {
+                if (caseInsensitive) {
+                    expressions.icontains(path, word);
+                } else {
+                    expressions.contains(path, word);
+                }
+            }
+        }
+    }
+}
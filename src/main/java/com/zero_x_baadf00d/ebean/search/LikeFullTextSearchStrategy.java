@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.search;
+
+import io.ebean.ExpressionList;
+
+/**
+ * Full-text search fallback for platforms without text index support.
+ * Each whitespace separated term must be contained in the property:
+ * {@code __search} uses a case sensitive {@code like}, {@code __isearch}
+ * a case insensitive one. This strategy can't use any index.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class LikeFullTextSearchStrategy implements FullTextSearchStrategy {
+
+    @Override
+    public <T> void apply(final ExpressionList<T> expressions, final String path, final String terms, final boolean caseInsensitive) {
+        boolean hasTerm = false;
+        for (final String term : terms.trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                hasTerm = true;
+                if (caseInsensitive) {
+                    expressions.icontains(path, term);
+                } else {
+                    expressions.contains(path, term);
+                }
+            }
+        }
+        if (!hasTerm) {
+            expressions.raw("1=0");
+        }
+    }
+}
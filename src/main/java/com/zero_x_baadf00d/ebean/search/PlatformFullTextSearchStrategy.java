@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.search;
+
+import io.ebean.ExpressionList;
+import io.ebean.annotation.Platform;
+import io.ebeaninternal.api.SpiQuery;
+
+/**
+ * Full-text search strategy selected from the database platform of the
+ * queried model: PostgreSQL text search when available, otherwise the
+ * {@code like} fallback. The H2 native full-text index needs a specific
+ * setup and must be selected explicitly.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @see PostgresFullTextSearchStrategy
+ * @see LikeFullTextSearchStrategy
+ * @since 26.10.18
+ */
+public final class PlatformFullTextSearchStrategy implements FullTextSearchStrategy {
+
+    /**
+     * Strategy used on PostgreSQL.
+     *
+     * @since 26.10.18
+     */
+    private final FullTextSearchStrategy postgresStrategy;
+
+    /**
+     * Strategy used on other platforms.
+     *
+     * @since 26.10.18
+     */
+    private final FullTextSearchStrategy fallbackStrategy;
+
+    /**
+     * Build a new instance.
+     *
+     * @since 26.10.18
+     */
+    public PlatformFullTextSearchStrategy() {
+        this("simple");
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param textSearchConfiguration The PostgreSQL text search configuration to use (ie: "simple", "english")
+     * @since 26.10.18
+     */
+    public PlatformFullTextSearchStrategy(final String textSearchConfiguration) {
+        this.postgresStrategy = new PostgresFullTextSearchStrategy(textSearchConfiguration);
+        this.fallbackStrategy = new LikeFullTextSearchStrategy();
+    }
+
+    @Override
+    public <T> void apply(final ExpressionList<T> expressions, final String path, final String terms, final boolean caseInsensitive) {
+        final Platform platform = ((SpiQuery<?>) expressions.query())
+            .getBeanDescriptor()
+            .ebeanServer()
+            .databasePlatform()
+            .getPlatform()
+            .base();
+        if (platform == Platform.POSTGRES) {
+            this.postgresStrategy.apply(expressions, path, terms, caseInsensitive);
+        } else {
+            this.fallbackStrategy.apply(expressions, path, terms, caseInsensitive);
+        }
+    }
+}
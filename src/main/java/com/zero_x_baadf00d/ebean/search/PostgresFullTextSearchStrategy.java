@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.search;
+
+import io.ebean.ExpressionList;
+
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search on PostgreSQL using {@code to_tsvector(...) @@ plainto_tsquery(...)}.
+ * To be served by an index, the searched property needs an expression index
+ * using the same text search configuration, ie:
+ * <pre>CREATE INDEX album_name_fts ON album USING gin (to_tsvector('simple', name));</pre>
+ * The text search configurations fold the case of the words, so the search
+ * is always case insensitive: {@code __search} and {@code __isearch} emit the
+ * same expression.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class PostgresFullTextSearchStrategy implements FullTextSearchStrategy {
+
+    /**
+     * Valid text search configuration name.
+     *
+     * @since 26.10.18
+     */
+    private static final Pattern CONFIGURATION_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_.]*");
+
+    /**
+     * The text search configuration to use (ie: "simple", "english").
+     *
+     * @since 26.10.18
+     */
+    private final String textSearchConfiguration;
+
+    /**
+     * Build a new instance using the "simple" text search configuration.
+     *
+     * @since 26.10.18
+     */
+    public PostgresFullTextSearchStrategy() {
+        this("simple");
+    }
+
+    /**
+     * Build a new instance.
+     *
+     * @param textSearchConfiguration The text search configuration to use (ie: "simple", "english")
+     * @throws IllegalArgumentException If the configuration name is not valid
+     * @since 26.10.18
+     */
+    public PostgresFullTextSearchStrategy(final String textSearchConfiguration) {
+        if (!PostgresFullTextSearchStrategy.CONFIGURATION_NAME.matcher(textSearchConfiguration).matches()) {
+            throw new IllegalArgumentException("Invalid text search configuration: " + textSearchConfiguration);
+        }
+        this.textSearchConfiguration = textSearchConfiguration;
+    }
+
+    @Override
+    public <T> void apply(final ExpressionList<T> expressions, final String path, final String terms, final boolean caseInsensitive) {
+        expressions.raw(
+            String.format(
+                "to_tsvector('%s', %s) @@ plainto_tsquery('%s', ?)",
+                this.textSearchConfiguration,
+                path,
+                this.textSearchConfiguration
+            ),
+            terms
+        );
+    }
+}
@@ -4,7 +4,7 @@ package com.zero_x_baadf00d.ebean.utils;
  * Utils class to handle String related operations.
  *
  * @author Thibault Meyer
- * @version 20.08.21
+ * @version 26.10.18
  * @since 20.08.21
  */
 public final class StringUtils {
@@ -34,4 +34,21 @@ public final class StringUtils {
         final int idx = str.lastIndexOf(separator);
         return idx == -1 ? str : str.substring(0, idx);
     }
+
+    /**
+     * Gets the substring after the last occurrence of a separator.
+     *
+     * @param str       The string to use
+     * @param separator The operator to use
+     * @return The substring after the last occurrence of the separator
+     * @since 26.10.18
+     */
+    public static String substringAfterLast(final String str, final String separator) {
+        if (StringUtils.isEmpty(str) || StringUtils.isEmpty(separator)) {
+            return str;
+        }
+
+        final int idx = str.lastIndexOf(separator);
+        return idx == -1 ? str : str.substring(idx + separator.length());
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.zero_x_baadf00d.ebean.utils;
+
+import com.zero_x_baadf00d.ebean.ChangeSet;
+import org.joda.time.DateTime;
+import org.joda.time.ReadableInstant;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Utils class to convert timestamps between JDBC values, model
+ * properties and sync tokens.
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+public final class TimestampUtils {
+
+    /**
+     * Separator between the timestamp and the primary key of a sync token.
+     *
+     * @since 26.10.18
+     */
+    private static final char SYNC_TOKEN_SEPARATOR = '_';
+
+    /**
+     * Build a sync token from the modification and the primary key of the
+     * last returned row (ie: {@code 2018-10-18T00:00:00.123456Z_42}).
+     *
+     * @param instant The modification of the last returned row
+     * @param id      The primary key of the last returned row, can be {@code null}
+     * @return The sync token
+     * @since 26.10.18
+     */
+    public static String toSyncToken(final Instant instant, final Object id) {
+        return id == null ? instant.toString() : instant.toString() + TimestampUtils.SYNC_TOKEN_SEPARATOR + id;
+    }
+
+    /**
+     * Parse the timestamp of a sync token: as returned by
+     * {@link ChangeSet#getToken()}, epoch milliseconds or an ISO-8601
+     * timestamp. The primary key following the timestamp is ignored.
+     *
+     * @param rawToken The raw token
+     * @return The instant, otherwise, {@code null} if the token is invalid
+     * @since 26.10.18
+     */
+    public static Instant parseSyncToken(final String rawToken) {
+        final int separatorIdx = rawToken.indexOf(TimestampUtils.SYNC_TOKEN_SEPARATOR);
+        final String token = (separatorIdx < 0 ? rawToken : rawToken.substring(0, separatorIdx)).trim();
+        if (token.isEmpty()) {
+            return null;
+        }
+        try {
+            if (token.chars().allMatch(Character::isDigit)) {
+                return Instant.ofEpochMilli(Long.parseLong(token));
+            }
+            return OffsetDateTime.parse(token).toInstant();
+        } catch (final NumberFormatException | DateTimeParseException ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the primary key of a sync token: the primary key of the last row
+     * returned at the timestamp of the token.
+     *
+     * @param rawToken The raw token
+     * @return The raw primary key, otherwise, {@code null} if the token has none
+     * @since 26.10.18
+     */
+    public static String parseSyncTokenId(final String rawToken) {
+        final int separatorIdx = rawToken.indexOf(TimestampUtils.SYNC_TOKEN_SEPARATOR);
+        return separatorIdx < 0 || separatorIdx == rawToken.length() - 1 ? null : rawToken.substring(separatorIdx + 1);
+    }
+
+    /**
+     * Convert an instant to the type of a timestamp property.
+     *
+     * @param type    The property type
+     * @param instant The instant
+     * @return The value to bind
+     * @since 26.10.18
+     */
+    public static Object toPropertyValue(final Class<?> type, final Instant instant) {
+        if (type == Instant.class) {
+            return instant;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        } else if (type == OffsetDateTime.class) {
+            return OffsetDateTime.ofInstant(instant, ZoneId.systemDefault());
+        } else if (type == ZonedDateTime.class) {
+            return ZonedDateTime.ofInstant(instant, ZoneId.systemDefault());
+        } else if (type == DateTime.class) {
+            return new DateTime(instant.toEpochMilli());
+        } else if (type == Long.class || type == long.class) {
+            return instant.toEpochMilli();
+        }
+        return Timestamp.from(instant);
+    }
+
+    /**
+     * Convert a timestamp read from JDBC.
+     *
+     * @param timestamp The timestamp
+     * @return The instant
+     * @throws IllegalArgumentException If the timestamp type is not supported
+     * @since 26.10.18
+     */
+    public static Instant toInstant(final Object timestamp) {
+        if (timestamp instanceof Instant) {
+            return (Instant) timestamp;
+        } else if (timestamp instanceof Date) {
+            return timestamp instanceof java.sql.Date
+                ? Instant.ofEpochMilli(((Date) timestamp).getTime())
+                : ((Date) timestamp).toInstant();
+        } else if (timestamp instanceof OffsetDateTime) {
+            return ((OffsetDateTime) timestamp).toInstant();
+        } else if (timestamp instanceof ZonedDateTime) {
+            return ((ZonedDateTime) timestamp).toInstant();
+        } else if (timestamp instanceof LocalDateTime) {
+            return ((LocalDateTime) timestamp).atZone(ZoneId.systemDefault()).toInstant();
+        } else if (timestamp instanceof ReadableInstant) {
+            return Instant.ofEpochMilli(((ReadableInstant) timestamp).getMillis());
+        } else if (timestamp instanceof Number) {
+            return Instant.ofEpochMilli(((Number) timestamp).longValue());
+        }
+        throw new IllegalArgumentException("Unsupported timestamp type: " + timestamp.getClass().getName());
+    }
+}
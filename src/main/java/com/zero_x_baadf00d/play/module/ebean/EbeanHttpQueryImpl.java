@@ -23,26 +23,88 @@
  */
 package com.zero_x_baadf00d.play.module.ebean;
 
+import akka.NotUsed;
+import akka.japi.Pair;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.StreamConverters;
+import akka.util.ByteString;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigValue;
+import com.zero_x_baadf00d.ebean.CancellableQueryExecutor;
+import com.zero_x_baadf00d.ebean.ChangeSet;
+import com.zero_x_baadf00d.ebean.CompoundDocument;
+import com.zero_x_baadf00d.ebean.FacetQueryExecutor;
+import com.zero_x_baadf00d.ebean.FacetedList;
+import com.zero_x_baadf00d.ebean.DatabaseRouter;
+import com.zero_x_baadf00d.ebean.ModelConfig;
 import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.PlayEbeanHttpQueryConfig;
+import com.zero_x_baadf00d.ebean.QueryExplanation;
+import com.zero_x_baadf00d.ebean.ResultVersion;
+import com.zero_x_baadf00d.ebean.ShardedQueryExecutor;
+import com.zero_x_baadf00d.ebean.admission.AdmissionController;
+import com.zero_x_baadf00d.ebean.admission.AdmissionPermit;
+import com.zero_x_baadf00d.ebean.admission.Bulkhead;
+import com.zero_x_baadf00d.ebean.admission.QueryRejectedException;
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+import com.zero_x_baadf00d.ebean.filter.FilterValidationError;
+import com.zero_x_baadf00d.ebean.filter.ValidationMode;
+import com.zero_x_baadf00d.ebean.index.IndexAdvisor;
+import com.zero_x_baadf00d.ebean.index.IndexRecommendation;
+import com.zero_x_baadf00d.ebean.profile.ShapeProfile;
+import com.zero_x_baadf00d.ebean.search.*;
+import io.ebean.Database;
 import io.ebean.ExpressionList;
 import io.ebean.Model;
 import io.ebean.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import play.api.Environment;
+import play.inject.ApplicationLifecycle;
 import play.mvc.Http;
+import play.mvc.Result;
+import play.mvc.Results;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.persistence.PersistenceException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Implementation of {@code EbeanHttpQueryModule}.
  *
  * @author Thibault Meyer
- * @version 18.01.15
+ * @version 26.10.18
  * @see com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery
  * @since 16.04.28
  */
@@ -59,6 +121,114 @@ public class EbeanHttpQueryImpl implements EbeanHttpQueryModule {
      */
     private static final String EBEAN_HTTP_FIELD_ALIASES = "ebeanHttpQuery.fieldAliases";
 
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_EXPLAIN_ENABLED = "ebeanHttpQuery.explain.enabled";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_EXPLAIN_TOKEN = "ebeanHttpQuery.explain.token";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_SEARCH_STRATEGY = "ebeanHttpQuery.search.strategy";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_SEARCH_TEXT_CONFIGURATION = "ebeanHttpQuery.search.textSearchConfiguration";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_ROUTING_PRIMARY = "ebeanHttpQuery.routing.primary";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_MODELS = "ebeanHttpQuery.models";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_FACETS_MAX_VALUES = "ebeanHttpQuery.facets.maxValues";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_FACETS_CACHE_TTL = "ebeanHttpQuery.facets.cacheTtl";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_VALIDATION_MODE = "ebeanHttpQuery.validationMode";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_ADMISSION = "ebeanHttpQuery.admission";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_TIMEOUTS_DEADLINE = "ebeanHttpQuery.timeouts.deadline";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_TIMEOUTS_OPERATORS = "ebeanHttpQuery.timeouts.operators";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_PROFILE_FILE = "ebeanHttpQuery.profile.file";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_PROFILE_MAX_SHAPES = "ebeanHttpQuery.profile.maxShapes";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_PROFILE_WARM_UP_SHAPES = "ebeanHttpQuery.profile.warmUpShapes";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_PROFILE_SAVE_INTERVAL = "ebeanHttpQuery.profile.saveInterval";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_INDEX_ADVISOR_ENABLED = "ebeanHttpQuery.indexAdvisor.enabled";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EBEAN_HTTP_INDEX_ADVISOR_MAX_PATTERNS = "ebeanHttpQuery.indexAdvisor.maxPatterns";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final String EXPLAIN_HEADER = "X-Ebean-HttpQuery-Explain";
+
+    /**
+     * @since 26.10.18
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(EbeanHttpQueryImpl.class);
+
+    /**
+     * Time after which the permit of a streamed response never materialized
+     * is reclaimed, when no deadline is configured.
+     *
+     * @since 26.10.18
+     */
+    private static final Duration STREAM_MATERIALIZATION_TIMEOUT = Duration.ofMinutes(1);
+
     /**
      * Handle to the Ebean HTTP Query parser.
      *
@@ -67,47 +237,809 @@ public class EbeanHttpQueryImpl implements EbeanHttpQueryModule {
     private final PlayEbeanHttpQuery playEbeanHttpQuery;
 
     /**
-     * Build a basic instance with injected dependency.
+     * Executor running the sharded and facet queries.
+     *
+     * @since 26.10.18
+     */
+    private final ExecutorService queryExecutor;
+
+    /**
+     * Executor of the facet queries.
+     *
+     * @since 26.10.18
+     */
+    private final FacetQueryExecutor facetQueryExecutor;
+
+    /**
+     * Admission control of the executed queries.
+     *
+     * @since 26.10.18
+     */
+    private final AdmissionController admissionController;
+
+    /**
+     * Executor cancelling the queries on deadline or client abort.
+     *
+     * @since 26.10.18
+     */
+    private final CancellableQueryExecutor cancellableQueryExecutor;
+
+    /**
+     * Scheduler of the deadlines and of the periodic tasks.
+     *
+     * @since 26.10.18
+     */
+    private final ScheduledExecutorService deadlineScheduler;
+
+    /**
+     * Time allowed to the queries executed by this module, zero for no deadline.
+     *
+     * @since 26.10.18
+     */
+    private final Duration deadline;
+
+    /**
+     * Profile of the query shapes seen by this module.
+     *
+     * @since 26.10.18
+     */
+    private final ShapeProfile shapeProfile;
+
+    /**
+     * Index advisor fed with the filter trees of the queries. If {@code null}, the advisor is disabled.
+     *
+     * @since 26.10.18
+     */
+    private final IndexAdvisor indexAdvisor;
+
+    /**
+     * Requests already recorded in the shape profile and the index advisor,
+     * weakly referenced: a request admitted then built is only recorded once.
+     *
+     * @since 26.10.18
+     */
+    private final Set<Http.Request> recordedRequests;
+
+    /**
+     * Token required to use the explain mode. If {@code null}, the explain mode is disabled.
+     *
+     * @since 26.10.18
+     */
+    private final byte[] explainToken;
+
+    /**
+     * Build a basic instance. Without application lifecycle, the executors
+     * of this instance are never shut down and the shape profile is only
+     * saved periodically.
      *
      * @param configuration The current application configuration
      * @param environment   The current environment
      * @since 16.05.05
      */
-    @Inject
     public EbeanHttpQueryImpl(final Config configuration, final Environment environment) {
-        final List<String> patterns;
+        this(configuration, environment, null);
+    }
+
+    /**
+     * Build a basic instance with injected dependency. On application stop,
+     * the shape profile is saved one last time, then the executors of this
+     * instance are shut down.
+     *
+     * @param configuration The current application configuration
+     * @param environment   The current environment
+     * @param lifecycle     The application lifecycle, {@code null} if not managed
+     * @since 26.10.18
+     */
+    @Inject
+    public EbeanHttpQueryImpl(final Config configuration, final Environment environment, final ApplicationLifecycle lifecycle) {
+        final PlayEbeanHttpQueryConfig.Builder builder = PlayEbeanHttpQueryConfig.builder();
         if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_PARSER_IGNORE)) {
-            patterns = configuration.getStringList(
-                EbeanHttpQueryImpl.EBEAN_HTTP_PARSER_IGNORE
-            );
-        } else {
-            patterns = new ArrayList<>();
+            builder.addIgnoredPatterns(configuration.getStringList(EbeanHttpQueryImpl.EBEAN_HTTP_PARSER_IGNORE));
         }
-        this.playEbeanHttpQuery = new PlayEbeanHttpQuery(environment.classLoader());
-        this.playEbeanHttpQuery.addIgnoredPatterns(patterns);
         if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_FIELD_ALIASES)) {
             final Map<String, ConfigValue> map = configuration.getObject(EbeanHttpQueryImpl.EBEAN_HTTP_FIELD_ALIASES);
-            map.forEach((key, value) -> playEbeanHttpQuery.addAlias(key, value.unwrapped().toString()));
+            map.forEach((key, value) -> builder.addAlias(key, value.unwrapped().toString()));
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_SEARCH_STRATEGY)) {
+            final String textSearchConfiguration = configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_SEARCH_TEXT_CONFIGURATION)
+                ? configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_SEARCH_TEXT_CONFIGURATION)
+                : "simple";
+            builder.setFullTextSearchStrategy(this.createFullTextSearchStrategy(
+                configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_SEARCH_STRATEGY),
+                textSearchConfiguration
+            ));
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_ROUTING_PRIMARY)) {
+            builder.setDatabaseRouter(new DatabaseRouter(configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_ROUTING_PRIMARY)));
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_VALIDATION_MODE)) {
+            builder.setValidationMode(ValidationMode.valueOf(
+                configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_VALIDATION_MODE).toUpperCase(Locale.ENGLISH)
+            ));
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_TIMEOUTS_OPERATORS)) {
+            final Config operatorTimeouts = configuration.getConfig(EbeanHttpQueryImpl.EBEAN_HTTP_TIMEOUTS_OPERATORS);
+            operatorTimeouts.root().keySet().forEach(keyword -> {
+                final FilterOperator operator = FilterOperator.fromKeyword(keyword.toLowerCase(Locale.ENGLISH));
+                if (operator == null) {
+                    throw new IllegalArgumentException("Unknown operator: " + keyword);
+                }
+                builder.setOperatorTimeout(operator, operatorTimeouts.getDuration(keyword));
+            });
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_MODELS)) {
+            final Config models = configuration.getConfig(EbeanHttpQueryImpl.EBEAN_HTTP_MODELS);
+            models.root().keySet().forEach(modelName -> builder.setModelConfig(
+                modelName,
+                this.createModelConfig(models.getConfig(modelName))
+            ));
+        }
+        this.playEbeanHttpQuery = new PlayEbeanHttpQuery(environment.classLoader(), builder.build());
+        this.queryExecutor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "ebean-httpquery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.facetQueryExecutor = new FacetQueryExecutor(
+            this.queryExecutor,
+            configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_FACETS_MAX_VALUES)
+                ? configuration.getInt(EbeanHttpQueryImpl.EBEAN_HTTP_FACETS_MAX_VALUES)
+                : 20,
+            configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_FACETS_CACHE_TTL)
+                ? configuration.getDuration(EbeanHttpQueryImpl.EBEAN_HTTP_FACETS_CACHE_TTL)
+                : Duration.ZERO
+        );
+        final List<Bulkhead> bulkheads = new ArrayList<>();
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_ADMISSION)) {
+            configuration.getConfigList(EbeanHttpQueryImpl.EBEAN_HTTP_ADMISSION).forEach(
+                bulkheadConfiguration -> bulkheads.add(this.createBulkhead(bulkheadConfiguration))
+            );
+        }
+        this.admissionController = new AdmissionController(bulkheads);
+        this.deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ebean-httpquery-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cancellableQueryExecutor = new CancellableQueryExecutor(this.deadlineScheduler);
+        this.deadline = configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_TIMEOUTS_DEADLINE)
+            ? configuration.getDuration(EbeanHttpQueryImpl.EBEAN_HTTP_TIMEOUTS_DEADLINE)
+            : Duration.ZERO;
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_EXPLAIN_ENABLED)
+            && configuration.getBoolean(EbeanHttpQueryImpl.EBEAN_HTTP_EXPLAIN_ENABLED)
+            && configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_EXPLAIN_TOKEN)
+            && !configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_EXPLAIN_TOKEN).isEmpty()) {
+            this.explainToken = configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_EXPLAIN_TOKEN)
+                .getBytes(StandardCharsets.UTF_8);
+        } else {
+            this.explainToken = null;
+        }
+        this.shapeProfile = new ShapeProfile(
+            configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_MAX_SHAPES)
+                ? configuration.getInt(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_MAX_SHAPES)
+                : 1024
+        );
+        final Runnable saveProfile = configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_FILE)
+            ? this.setUpShapeProfile(configuration, environment, this.deadlineScheduler)
+            : null;
+        if (lifecycle != null) {
+            lifecycle.addStopHook(() -> {
+                if (saveProfile != null) {
+                    saveProfile.run();
+                }
+                this.deadlineScheduler.shutdownNow();
+                this.queryExecutor.shutdown();
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+        if (configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_INDEX_ADVISOR_ENABLED)
+            && configuration.getBoolean(EbeanHttpQueryImpl.EBEAN_HTTP_INDEX_ADVISOR_ENABLED)) {
+            this.indexAdvisor = new IndexAdvisor(
+                configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_INDEX_ADVISOR_MAX_PATTERNS)
+                    ? configuration.getInt(EbeanHttpQueryImpl.EBEAN_HTTP_INDEX_ADVISOR_MAX_PATTERNS)
+                    : 1024
+            );
+        } else {
+            this.indexAdvisor = null;
+        }
+        this.recordedRequests = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    }
+
+    /**
+     * Load and replay the persisted shape profile, then schedule its periodic
+     * saving. The replay runs in background and never delays the application
+     * start.
+     *
+     * @param configuration The current application configuration
+     * @param environment   The current environment
+     * @param scheduler     The scheduler to use for the periodic saving
+     * @return The task saving the profile, to run once more on shutdown
+     * @since 26.10.18
+     */
+    private Runnable setUpShapeProfile(final Config configuration,
+                                       final Environment environment,
+                                       final ScheduledExecutorService scheduler) {
+        final Path profileFile = Paths.get(configuration.getString(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_FILE));
+        final int warmUpShapes = configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_WARM_UP_SHAPES)
+            ? configuration.getInt(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_WARM_UP_SHAPES)
+            : 64;
+        final Duration saveInterval = configuration.hasPath(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_SAVE_INTERVAL)
+            ? configuration.getDuration(EbeanHttpQueryImpl.EBEAN_HTTP_PROFILE_SAVE_INTERVAL)
+            : Duration.ofMinutes(5);
+        if (Files.isRegularFile(profileFile)) {
+            this.queryExecutor.execute(() -> {
+                try {
+                    this.shapeProfile.load(profileFile);
+                    this.shapeProfile.replay(this.playEbeanHttpQuery, environment.classLoader(), warmUpShapes);
+                } catch (final IOException ex) {
+                    EbeanHttpQueryImpl.LOGGER.warn("Can't load the shape profile from {}", profileFile, ex);
+                }
+            });
+        }
+        final Runnable saveProfile = () -> {
+            try {
+                this.shapeProfile.save(profileFile);
+            } catch (final IOException ex) {
+                EbeanHttpQueryImpl.LOGGER.warn("Can't save the shape profile to {}", profileFile, ex);
+            }
+        };
+        if (!saveInterval.isZero()) {
+            scheduler.scheduleAtFixedRate(saveProfile, saveInterval.toMillis(), saveInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return saveProfile;
+    }
+
+    /**
+     * Create the full-text search strategy from its name.
+     *
+     * @param name                    The strategy name: "auto", "postgres", "h2" or "like"
+     * @param textSearchConfiguration The PostgreSQL text search configuration
+     * @return The full-text search strategy
+     * @throws IllegalArgumentException If the strategy name is unknown
+     * @since 26.10.18
+     */
+    private FullTextSearchStrategy createFullTextSearchStrategy(final String name, final String textSearchConfiguration) {
+        switch (name.toLowerCase(Locale.ENGLISH)) {
+            case "auto":
+                return new PlatformFullTextSearchStrategy(textSearchConfiguration);
+            case "postgres":
+                return new PostgresFullTextSearchStrategy(textSearchConfiguration);
+            case "h2":
+                return new H2FullTextSearchStrategy();
+            case "like":
+                return new LikeFullTextSearchStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown full-text search strategy: " + name);
+        }
+    }
+
+    /**
+     * Create a bulkhead from its configuration block.
+     *
+     * @param bulkheadConfiguration The configuration block of the bulkhead
+     * @return The bulkhead
+     * @throws IllegalArgumentException If an operator is unknown
+     * @since 26.10.18
+     */
+    private Bulkhead createBulkhead(final Config bulkheadConfiguration) {
+        final Set<FilterOperator> operators = EnumSet.noneOf(FilterOperator.class);
+        if (bulkheadConfiguration.hasPath("operators")) {
+            for (final String keyword : bulkheadConfiguration.getStringList("operators")) {
+                final FilterOperator operator = FilterOperator.fromKeyword(keyword.toLowerCase(Locale.ENGLISH));
+                if (operator == null) {
+                    throw new IllegalArgumentException("Unknown operator: " + keyword);
+                }
+                operators.add(operator);
+            }
         }
+        return new Bulkhead(
+            bulkheadConfiguration.getString("name"),
+            bulkheadConfiguration.getInt("maxConcurrent"),
+            operators,
+            bulkheadConfiguration.hasPath("minJoins") ? bulkheadConfiguration.getInt("minJoins") : 0
+        );
+    }
+
+    /**
+     * Create the settings of a model from its configuration block.
+     *
+     * @param modelConfiguration The model configuration block
+     * @return The model settings
+     * @since 26.10.18
+     */
+    private ModelConfig createModelConfig(final Config modelConfiguration) {
+        final ModelConfig.Builder builder = ModelConfig.builder();
+        if (modelConfiguration.hasPath("searchable")) {
+            builder.setSearchableProperties(modelConfiguration.getStringList("searchable"));
+        }
+        if (modelConfiguration.hasPath("database")) {
+            builder.setDatabaseName(modelConfiguration.getString("database"));
+        }
+        if (modelConfiguration.hasPath("shards")) {
+            builder.setShardNames(modelConfiguration.getStringList("shards"));
+        }
+        if (modelConfiguration.hasPath("queryCache")) {
+            builder.setQueryCacheEnabled(modelConfiguration.getBoolean("queryCache"));
+        }
+        if (modelConfiguration.hasPath("beanCache")) {
+            builder.setBeanCacheEnabled(modelConfiguration.getBoolean("beanCache"));
+        }
+        if (modelConfiguration.hasPath("timeout")) {
+            builder.setTimeout(modelConfiguration.getDuration("timeout"));
+        }
+        if (modelConfiguration.hasPath("updatable")) {
+            builder.setUpdatableProperties(modelConfiguration.getStringList("updatable"));
+        }
+        if (modelConfiguration.hasPath("deletable")) {
+            builder.setDeletable(modelConfiguration.getBoolean("deletable"));
+        }
+        if (modelConfiguration.hasPath("maxBulkRows")) {
+            builder.setMaxBulkRows(modelConfiguration.getInt("maxBulkRows"));
+        }
+        if (modelConfiguration.hasPath("readOnly")) {
+            builder.setReadOnly(modelConfiguration.getBoolean("readOnly"));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Record the query in the shape profile and, if enabled, in the index
+     * advisor, unless the request has already been recorded.
+     *
+     * @param c          The model class
+     * @param request    The HTTP request
+     * @param filterTree The filter tree built from the request
+     * @param <T>        Something that extends Model
+     * @since 26.10.18
+     */
+    private <T extends Model> void record(final Class<T> c, final Http.Request request, final FilterTree filterTree) {
+        if (this.recordedRequests.add(request)) {
+            this.shapeProfile.record(c, filterTree);
+            if (this.indexAdvisor != null) {
+                this.indexAdvisor.record(c, filterTree);
+            }
+        }
+    }
+
+    /**
+     * Build the filter tree of the request, once, then record it.
+     *
+     * @param c       The model class
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The filter tree built from the request
+     * @since 26.10.18
+     */
+    private <T extends Model> FilterTree observe(final Class<T> c, final Http.Request request) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        this.record(c, request, filterTree);
+        return filterTree;
     }
 
     @Override
     public <T extends Model> Query<T> buildQuery(final Class<T> c, final Http.Request request) {
-        return this.playEbeanHttpQuery.buildQuery(c, request);
+        return this.buildQuery(c, request, this.playEbeanHttpQuery.resolveDatabase(c, request).createQuery(c));
     }
 
     @Override
     public <T extends Model> Query<T> buildQuery(final Class<T> c,
                                                  final Http.Request request,
                                                  final Query<T> query) {
-        return this.playEbeanHttpQuery.buildQuery(c, request, query);
+        return this.playEbeanHttpQuery.buildQuery(c, request.queryString(), this.observe(c, request), query);
     }
 
     @Override
     public <T extends Model> Query<T> buildQuery(final Class<T> c,
                                                  final Http.Request request,
                                                  final ExpressionList<T> expr) {
-        return this.playEbeanHttpQuery.buildQuery(c, request, expr.query());
+        return this.buildQuery(c, request, expr.query());
+    }
+
+    @Override
+    public <T extends Model> Query<T> buildReadOnlyQuery(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.playEbeanHttpQuery.buildReadOnlyQuery(c, request.queryString(), this.observe(c, request), query);
+    }
+
+    @Override
+    public <T extends Model> List<T> findList(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.findList(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> List<T> findList(final Class<T> c,
+                                              final Http.Request request,
+                                              final Query<T> query,
+                                              final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findList(c, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.findListWithIncludes(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c,
+                                                                      final Http.Request request,
+                                                                      final Query<T> query,
+                                                                      final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findListWithIncludes(c, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                                    final Class<D> dtoClass,
+                                                    final Http.Request request,
+                                                    final Query<T> query) {
+        return this.findDtoList(c, dtoClass, request, query, null);
+    }
+
+    @Override
+    public <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                                    final Class<D> dtoClass,
+                                                    final Http.Request request,
+                                                    final Query<T> query,
+                                                    final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findDtoList(c, dtoClass, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> Result streamJson(final Class<T> c, final Http.Request request, final Query<T> query) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+
+        // The permit is taken before the response is returned and released by the writing
+        // task, it is reclaimed if the response is not materialized in time
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        final AtomicBoolean claimed = new AtomicBoolean(false);
+        final ScheduledFuture<?> reclaim;
+        try {
+            reclaim = this.deadlineScheduler.schedule(() -> {
+                if (claimed.compareAndSet(false, true)) {
+                    admissionPermit.close();
+                }
+            }, (this.deadline.isZero() ? EbeanHttpQueryImpl.STREAM_MATERIALIZATION_TIMEOUT : this.deadline).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException ex) {
+            admissionPermit.close();
+            throw ex;
+        }
+        final Source<ByteString, NotUsed> source = StreamConverters.asOutputStream().watchTermination((outputStream, termination) -> {
+            reclaim.cancel(false);
+            if (!claimed.compareAndSet(false, true)) {
+                EbeanHttpQueryImpl.LOGGER.warn("Can't stream the {} rows, the response was materialized too late", c.getSimpleName());
+                try {
+                    outputStream.close();
+                } catch (final IOException ignore) {
+                    // Already closed
+                }
+                return NotUsed.getInstance();
+            }
+            try {
+                this.queryExecutor.execute(() -> {
+                    try (final OutputStream jsonStream = outputStream) {
+                        this.cancellableQueryExecutor.execute(query, this.deadline, termination, executedQuery -> {
+                            try {
+                                return this.playEbeanHttpQuery.writeJson(c, request.queryString(), filterTree, executedQuery, jsonStream);
+                            } catch (final IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        });
+                    } catch (final IOException | UncheckedIOException | PersistenceException ex) {
+                        EbeanHttpQueryImpl.LOGGER.warn("Can't stream the {} rows, the response is truncated", c.getSimpleName(), ex);
+                    } finally {
+                        admissionPermit.close();
+                    }
+                });
+            } catch (final RejectedExecutionException ex) {
+                admissionPermit.close();
+                throw ex;
+            }
+            return NotUsed.getInstance();
+        });
+        return Results.ok().chunked(source).as(Http.MimeTypes.JSON);
+    }
+
+    @Override
+    public <T extends Model> int bulkUpdate(final Class<T> c,
+                                            final Http.Request request,
+                                            final Map<String, String> values,
+                                            final Query<T> query) {
+        return this.bulkUpdate(c, request, values, query, null);
+    }
+
+    @Override
+    public <T extends Model> int bulkUpdate(final Class<T> c,
+                                            final Http.Request request,
+                                            final Map<String, String> values,
+                                            final Query<T> query,
+                                            final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.bulkUpdate(c, request.queryString(), filterTree, values, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> int bulkDelete(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.bulkDelete(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> int bulkDelete(final Class<T> c,
+                                            final Http.Request request,
+                                            final Query<T> query,
+                                            final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.bulkDelete(c, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> Result findListConditional(final Class<T> c,
+                                                        final Http.Request request,
+                                                        final Query<T> query,
+                                                        final Function<List<T>, Result> renderer) {
+        return this.findListConditional(c, request, query, renderer, null);
+    }
+
+    @Override
+    public <T extends Model> Result findListConditional(final Class<T> c,
+                                                        final Http.Request request,
+                                                        final Query<T> query,
+                                                        final Function<List<T>, Result> renderer,
+                                                        final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final Pair<ResultVersion, List<T>> versionedRows;
+
+        // The probe and the query are admitted once, the rows are rendered after the permit is released
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            versionedRows = this.cancellableQueryExecutor.execute(query, this.deadline, abortSignal, executedQuery -> {
+                final ResultVersion resultVersion = this.playEbeanHttpQuery.probeVersion(c, request.queryString(), filterTree, executedQuery);
+                return Pair.create(resultVersion, resultVersion.isNotModified(
+                    request.header(Http.HeaderNames.IF_NONE_MATCH).orElse(null),
+                    request.header(Http.HeaderNames.IF_MODIFIED_SINCE).orElse(null)
+                ) ? null : this.playEbeanHttpQuery.findList(c, request.queryString(), filterTree, executedQuery));
+            });
+        } finally {
+            admissionPermit.close();
+        }
+        final ResultVersion resultVersion = versionedRows.first();
+        final Result result = versionedRows.second() == null ? Results.status(Http.Status.NOT_MODIFIED) : renderer.apply(versionedRows.second());
+        final String lastModified = resultVersion.getLastModifiedHeader();
+        return lastModified == null
+            ? result.withHeader(Http.HeaderNames.ETAG, resultVersion.getETag())
+            : result.withHeaders(Http.HeaderNames.ETAG, resultVersion.getETag(), Http.HeaderNames.LAST_MODIFIED, lastModified);
+    }
+
+    @Override
+    public <T extends Model> ChangeSet<T> findChanges(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.findChanges(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> ChangeSet<T> findChanges(final Class<T> c,
+                                                      final Http.Request request,
+                                                      final Query<T> query,
+                                                      final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findChanges(c, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> List<T> findListSharded(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.findListSharded(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> List<T> findListSharded(final Class<T> c,
+                                                     final Http.Request request,
+                                                     final Query<T> query,
+                                                     final CompletionStage<?> abortSignal) {
+        final PlayEbeanHttpQueryConfig configuration = this.playEbeanHttpQuery.getConfiguration();
+        final List<String> shardNames = configuration.getModelConfig(c).getShardNames();
+        if (shardNames.isEmpty()) {
+            return this.findList(c, request, query, abortSignal);
+        }
+        final List<Database> shards = new ArrayList<>(shardNames.size());
+        shardNames.forEach(name -> shards.add(configuration.getDatabaseRouter().getDatabase(name)));
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findListSharded(
+                    c,
+                    request.queryString(),
+                    filterTree,
+                    executedQuery,
+                    new ShardedQueryExecutor(shards, this.queryExecutor)
+                )
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c, final Http.Request request, final Query<T> query) {
+        return this.findListWithFacets(c, request, query, null);
+    }
+
+    @Override
+    public <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c,
+                                                               final Http.Request request,
+                                                               final Query<T> query,
+                                                               final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                query,
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.findListWithFacets(c, request.queryString(), filterTree, executedQuery, this.facetQueryExecutor)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c, final Http.Request request) {
+        return this.aggregate(c, request, null);
+    }
+
+    @Override
+    public <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c,
+                                                                 final Http.Request request,
+                                                                 final CompletionStage<?> abortSignal) {
+        final FilterTree filterTree = this.playEbeanHttpQuery.buildFilter(c, request.queryString());
+        final AdmissionPermit admissionPermit = this.admit(c, request, filterTree);
+        try {
+            return this.cancellableQueryExecutor.execute(
+                this.playEbeanHttpQuery.resolveDatabase(c, request).createQuery(c),
+                this.deadline,
+                abortSignal,
+                executedQuery -> this.playEbeanHttpQuery.aggregate(c, request.queryString(), filterTree, executedQuery)
+            );
+        } finally {
+            admissionPermit.close();
+        }
+    }
+
+    @Override
+    public <T extends Model> AdmissionPermit admit(final Class<T> c, final Http.Request request) {
+        return this.admit(c, request, this.playEbeanHttpQuery.buildFilter(c, request.queryString()));
+    }
+
+    /**
+     * Record the query, then admit it in the bulkhead of its shape.
+     *
+     * @param c          The model class
+     * @param request    The HTTP request
+     * @param filterTree The filter tree built from the request
+     * @param <T>        Something that extends Model
+     * @return The permit, to release once the query is done
+     * @throws QueryRejectedException If the bulkhead of the shape is full
+     * @since 26.10.18
+     */
+    private <T extends Model> AdmissionPermit admit(final Class<T> c, final Http.Request request, final FilterTree filterTree) {
+        this.record(c, request, filterTree);
+        return this.admissionController.admit(c, filterTree);
+    }
+
+    @Override
+    public AdmissionController getAdmissionController() {
+        return this.admissionController;
+    }
+
+    @Override
+    public ShapeProfile getShapeProfile() {
+        return this.shapeProfile;
+    }
+
+    @Override
+    public Optional<IndexAdvisor> getIndexAdvisor() {
+        return Optional.ofNullable(this.indexAdvisor);
+    }
+
+    @Override
+    public List<IndexRecommendation> recommendIndexes() {
+        return this.indexAdvisor == null ? new ArrayList<>() : this.indexAdvisor.recommend(this.playEbeanHttpQuery);
+    }
+
+    @Override
+    public <T extends Model> Optional<QueryExplanation> explainQuery(final Class<T> c, final Http.Request request) {
+        if (this.explainToken == null) {
+            return Optional.empty();
+        }
+        final Optional<String> token = request.header(EbeanHttpQueryImpl.EXPLAIN_HEADER);
+        if (!token.isPresent()
+            || !MessageDigest.isEqual(this.explainToken, token.get().getBytes(StandardCharsets.UTF_8))) {
+            return Optional.empty();
+        }
+        return Optional.of(this.playEbeanHttpQuery.explainQuery(
+            c,
+            request.queryString(),
+            this.playEbeanHttpQuery.resolveDatabase(c, request).createQuery(c)
+        ));
+    }
+
+    @Override
+    public <T extends Model> Predicate<T> buildPredicate(final Class<T> c, final Http.Request request) {
+        return this.playEbeanHttpQuery.buildPredicate(c, request.queryString());
+    }
+
+    @Override
+    public <T extends Model> Comparator<T> buildComparator(final Class<T> c, final Http.Request request) {
+        return this.playEbeanHttpQuery.buildComparator(c, request.queryString());
+    }
+
+    @Override
+    public <T extends Model> List<FilterValidationError> validate(final Class<T> c, final Http.Request request) {
+        return this.playEbeanHttpQuery.validate(c, request.queryString());
     }
 
     @Override
@@ -23,18 +23,37 @@
  */
 package com.zero_x_baadf00d.play.module.ebean;
 
+import com.zero_x_baadf00d.ebean.ChangeSet;
+import com.zero_x_baadf00d.ebean.CompoundDocument;
+import com.zero_x_baadf00d.ebean.FacetedList;
 import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.QueryExplanation;
+import com.zero_x_baadf00d.ebean.admission.AdmissionController;
+import com.zero_x_baadf00d.ebean.admission.AdmissionPermit;
+import com.zero_x_baadf00d.ebean.index.IndexAdvisor;
+import com.zero_x_baadf00d.ebean.index.IndexRecommendation;
+import com.zero_x_baadf00d.ebean.profile.ShapeProfile;
+import com.zero_x_baadf00d.ebean.filter.FilterValidationError;
 import io.ebean.ExpressionList;
 import io.ebean.Model;
 import io.ebean.Query;
 import play.mvc.Http;
+import play.mvc.Result;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Give access to a pre-configured instance of
  * {@code PlayEbeanHttpQuery}.
  *
  * @author Thibault Meyer
- * @version 18.01.15
+ * @version 26.10.18
  * @see com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery
  * @since 16.04.28
  */
@@ -84,6 +103,544 @@ public interface EbeanHttpQueryModule {
      */
     <T extends Model> Query<T> buildQuery(final Class<T> c, final Http.Request request, final ExpressionList<T> expr);
 
+    /**
+     * Explain the query built for the given model class and arguments. The explain
+     * mode must be enabled in the configuration and the request must carry the
+     * configured token in the {@code X-Ebean-HttpQuery-Explain} header.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The query explanation, or empty if explain mode is not allowed for this request
+     * @see QueryExplanation
+     * @since 26.10.18
+     */
+    <T extends Model> Optional<QueryExplanation> explainQuery(final Class<T> c, final Http.Request request);
+
+    /**
+     * Build a read-only query for the given model class and arguments: the
+     * returned beans can't be modified, lazy loading is disabled (unloaded
+     * properties read as {@code null}, unloaded to-many associations as empty)
+     * and the persistence context is scoped to the query.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The read-only query
+     * @see PlayEbeanHttpQuery#buildReadOnlyQuery(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> Query<T> buildReadOnlyQuery(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * once admitted by the bulkhead of its shape.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The matching rows
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#findList(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> List<T> findList(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * once admitted by the bulkhead of its shape. The query is cancelled when
+     * the configured deadline passes or when the abort signal completes
+     * (ie: the client closed the connection).
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The matching rows
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> List<T> findList(final Class<T> c,
+                                       final Http.Request request,
+                                       final Query<T> query,
+                                       final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * once admitted by the bulkhead of its shape, along with the associations
+     * listed by the {@code include} argument. Each association is loaded by a
+     * single batched query on the distinct primary keys referenced by the rows.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The matching rows and the side-loaded associations
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#findListWithIncludes(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Same as {@link #findListWithIncludes(Class, Http.Request, Query)}. The
+     * queries are cancelled when the configured deadline passes or when the
+     * abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The matching rows and the side-loaded associations
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> CompoundDocument<T> findListWithIncludes(final Class<T> c,
+                                                               final Http.Request request,
+                                                               final Query<T> query,
+                                                               final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * as a DTO query once admitted by the bulkhead of its shape. Rows are mapped
+     * straight into instances of the DTO class, without entity beans.
+     *
+     * @param c        The model class that this method will create request for
+     * @param dtoClass The DTO class
+     * @param request  The HTTP request
+     * @param query    The current query object
+     * @param <T>      Something that extends Model
+     * @param <D>      Type of the DTO
+     * @return The matching rows
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#findDtoList(Class, Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                             final Class<D> dtoClass,
+                                             final Http.Request request,
+                                             final Query<T> query);
+
+    /**
+     * Same as {@link #findDtoList(Class, Class, Http.Request, Query)}. The
+     * query is cancelled when the configured deadline passes or when the
+     * abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param dtoClass    The DTO class
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @param <D>         Type of the DTO
+     * @return The matching rows
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model, D> List<D> findDtoList(final Class<T> c,
+                                             final Class<D> dtoClass,
+                                             final Http.Request request,
+                                             final Query<T> query,
+                                             final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then stream the
+     * matching rows as a chunked JSON array, straight from the JDBC result set.
+     * The filter is validated and the query admitted by the bulkhead of its
+     * shape before the response is returned; the permit is released once the
+     * rows are written, or reclaimed if the response is not materialized
+     * before the deadline (one minute without deadline). The query is
+     * cancelled when the deadline passes or when the client goes away. If the
+     * query fails while streaming, the failure is logged and the response is
+     * truncated.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The chunked result
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#writeJson(Class, java.util.Map, Query, java.io.OutputStream)
+     * @since 26.10.18
+     */
+    <T extends Model> Result streamJson(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Build a query for the given model class and arguments, then update all
+     * the matching rows with a single statement, once admitted by the bulkhead
+     * of its shape. Only the properties listed by the {@code updatable} model
+     * setting can be set.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param values  The raw value to set, indexed by property name
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The number of updated rows
+     * @throws com.zero_x_baadf00d.ebean.BulkLimitExceededException      If the operation matches more rows than {@code maxBulkRows}
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#bulkUpdate(Class, java.util.Map, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> int bulkUpdate(final Class<T> c,
+                                     final Http.Request request,
+                                     final Map<String, String> values,
+                                     final Query<T> query);
+
+    /**
+     * Same as {@link #bulkUpdate(Class, Http.Request, Map, Query)}. The
+     * statements are cancelled when the configured deadline passes or when
+     * the abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param values      The raw value to set, indexed by property name
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The number of updated rows
+     * @throws com.zero_x_baadf00d.ebean.BulkLimitExceededException      If the operation matches more rows than {@code maxBulkRows}
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> int bulkUpdate(final Class<T> c,
+                                     final Http.Request request,
+                                     final Map<String, String> values,
+                                     final Query<T> query,
+                                     final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then delete all
+     * the matching rows with a single statement, once admitted by the bulkhead
+     * of its shape. The {@code deletable} model setting must be enabled.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The number of deleted rows
+     * @throws com.zero_x_baadf00d.ebean.BulkLimitExceededException      If the operation matches more rows than {@code maxBulkRows}
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#bulkDelete(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> int bulkDelete(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Same as {@link #bulkDelete(Class, Http.Request, Query)}. The statements
+     * are cancelled when the configured deadline passes or when the abort
+     * signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The number of deleted rows
+     * @throws com.zero_x_baadf00d.ebean.BulkLimitExceededException      If the operation matches more rows than {@code maxBulkRows}
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> int bulkDelete(final Class<T> c,
+                                     final Http.Request request,
+                                     final Query<T> query,
+                                     final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then answer a
+     * conditional request. A probe query computes the version of the matching
+     * rows first: if the client copy is still valid ({@code If-None-Match},
+     * {@code If-Modified-Since}), {@code 304 Not Modified} is returned without
+     * loading the rows. Otherwise, the rows are loaded and rendered. The
+     * {@code ETag} and {@code Last-Modified} headers are set in both cases.
+     *
+     * @param c        The model class that this method will create request for
+     * @param request  The HTTP request
+     * @param query    The current query object
+     * @param renderer Render the rows when they have been modified
+     * @param <T>      Something that extends Model
+     * @return The result
+     * @see PlayEbeanHttpQuery#probeVersion(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> Result findListConditional(final Class<T> c,
+                                                 final Http.Request request,
+                                                 final Query<T> query,
+                                                 final Function<List<T>, Result> renderer);
+
+    /**
+     * Same as {@link #findListConditional(Class, Http.Request, Query, Function)}.
+     * The probe and the query are cancelled when the configured deadline
+     * passes or when the abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param renderer    Render the rows when they have been modified
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The result
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> Result findListConditional(final Class<T> c,
+                                                 final Http.Request request,
+                                                 final Query<T> query,
+                                                 final Function<List<T>, Result> renderer,
+                                                 final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then find the
+     * rows changed since the sync token given by the {@code since} argument,
+     * once admitted by the bulkhead of its shape. Soft deleted rows are
+     * returned as tombstones.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The changed rows, the tombstones and the next token
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @see PlayEbeanHttpQuery#findChanges(Class, java.util.Map, Query)
+     * @since 26.10.18
+     */
+    <T extends Model> ChangeSet<T> findChanges(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Same as {@link #findChanges(Class, Http.Request, Query)}. The query is
+     * cancelled when the configured deadline passes or when the abort signal
+     * completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The changed rows, the tombstones and the next token
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> ChangeSet<T> findChanges(final Class<T> c,
+                                               final Http.Request request,
+                                               final Query<T> query,
+                                               final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * concurrently on each shard configured for the model. The first row and
+     * the maximum rows of the given query are applied on the merged rows. If
+     * the model is not sharded, the query is executed as is.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The matching rows of all shards
+     * @see com.zero_x_baadf00d.ebean.ShardedQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> List<T> findListSharded(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Same as {@link #findListSharded(Class, Http.Request, Query)}. The query
+     * of each shard is cancelled when the configured deadline passes or when
+     * the abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The matching rows of all shards
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> List<T> findListSharded(final Class<T> c,
+                                              final Http.Request request,
+                                              final Query<T> query,
+                                              final CompletionStage<?> abortSignal);
+
+    /**
+     * Build a query for the given model class and arguments, then execute it
+     * along with the facets listed by the {@code facets} argument. Facet queries
+     * run concurrently with the main query; the number of distinct values per
+     * facet and the cache time to live are read from the configuration.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param query   The current query object
+     * @param <T>     Something that extends Model
+     * @return The matching rows and the facets
+     * @see com.zero_x_baadf00d.ebean.FacetQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c, final Http.Request request, final Query<T> query);
+
+    /**
+     * Same as {@link #findListWithFacets(Class, Http.Request, Query)}. The main
+     * query and the facet queries are cancelled when the configured deadline
+     * passes or when the abort signal completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param query       The current query object
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The matching rows and the facets
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> FacetedList<T> findListWithFacets(final Class<T> c,
+                                                        final Http.Request request,
+                                                        final Query<T> query,
+                                                        final CompletionStage<?> abortSignal);
+
+    /**
+     * Aggregate the rows matching the filters of the given request with a
+     * single grouped SQL query (ie: {@code groupby=artist.name&agg=count,sum:length}).
+     * The query is executed on the database serving the read queries of the model.
+     *
+     * @param c       The model class that this method will create request for
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The aggregate rows, ordered by groups
+     * @see com.zero_x_baadf00d.ebean.aggregate.AggregateFunction
+     * @since 26.10.18
+     */
+    <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c, final Http.Request request);
+
+    /**
+     * Same as {@link #aggregate(Class, Http.Request)}. The grouped query is
+     * cancelled when the configured deadline passes or when the abort signal
+     * completes.
+     *
+     * @param c           The model class that this method will create request for
+     * @param request     The HTTP request
+     * @param abortSignal Stage completed when the request is aborted, can be {@code null}
+     * @param <T>         Something that extends Model
+     * @return The aggregate rows, ordered by groups
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @throws com.zero_x_baadf00d.ebean.QueryCancelledException          If the query has been cancelled
+     * @see com.zero_x_baadf00d.ebean.CancellableQueryExecutor
+     * @since 26.10.18
+     */
+    <T extends Model> List<Map<String, Object>> aggregate(final Class<T> c,
+                                                          final Http.Request request,
+                                                          final CompletionStage<?> abortSignal);
+
+    /**
+     * Compile the filters of the given request into an in-memory predicate, to
+     * filter collections already loaded with the same semantics as the query.
+     *
+     * @param c       The model class that this method will create predicate for
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The predicate
+     * @see PlayEbeanHttpQuery#buildPredicate(Class, java.util.Map)
+     * @since 26.10.18
+     */
+    <T extends Model> Predicate<T> buildPredicate(final Class<T> c, final Http.Request request);
+
+    /**
+     * Compile the "order by" instructions of the given request into an
+     * in-memory comparator.
+     *
+     * @param c       The model class that this method will create comparator for
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The comparator
+     * @see PlayEbeanHttpQuery#buildComparator(Class, java.util.Map)
+     * @since 26.10.18
+     */
+    <T extends Model> Comparator<T> buildComparator(final Class<T> c, final Http.Request request);
+
+    /**
+     * Validate the filters of the given request without building any query.
+     *
+     * @param c       The model class that this method will validate filters for
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The validation errors, empty if all filters are valid
+     * @see PlayEbeanHttpQuery#validate(Class, java.util.Map)
+     * @since 26.10.18
+     */
+    <T extends Model> List<FilterValidationError> validate(final Class<T> c, final Http.Request request);
+
+    /**
+     * Admit the query built from the given request. The permit must be
+     * released once the query is done. Queries executed by this module
+     * are already admitted.
+     *
+     * @param c       The model class
+     * @param request The HTTP request
+     * @param <T>     Something that extends Model
+     * @return The permit
+     * @throws com.zero_x_baadf00d.ebean.admission.QueryRejectedException If the bulkhead of the shape is full
+     * @since 26.10.18
+     */
+    <T extends Model> AdmissionPermit admit(final Class<T> c, final Http.Request request);
+
+    /**
+     * Get the admission controller, to read the bulkhead metrics.
+     *
+     * @return The admission controller
+     * @since 26.10.18
+     */
+    AdmissionController getAdmissionController();
+
+    /**
+     * Get the profile of the query shapes seen by this module. If a profile
+     * file is configured, the profile is saved periodically and on shutdown,
+     * then replayed on the next boot to warm up the caches.
+     *
+     * @return The shape profile
+     * @since 26.10.18
+     */
+    ShapeProfile getShapeProfile();
+
+    /**
+     * Get the index advisor, fed with the filter trees of the queries built
+     * or executed by this module. The advisor is enabled by the setting
+     * {@code ebeanHttpQuery.indexAdvisor.enabled}.
+     *
+     * @return The index advisor, otherwise, an empty optional if disabled
+     * @since 26.10.18
+     */
+    Optional<IndexAdvisor> getIndexAdvisor();
+
+    /**
+     * Build the index recommendations from the observed traffic, ranked by
+     * traffic. Each recommendation carries the DDL creating the index and
+     * tells if an existing index already serves it.
+     *
+     * @return The recommendations, empty if the index advisor is disabled
+     * @see IndexRecommendation
+     * @since 26.10.18
+     */
+    List<IndexRecommendation> recommendIndexes();
+
     /**
      * Return a new instance of {@code PlayEbeanHttpQuery}.
      *
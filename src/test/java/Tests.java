@@ -22,14 +22,58 @@
  * SOFTWARE.
  */
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.ConfigFactory;
+import com.zero_x_baadf00d.ebean.BulkLimitExceededException;
+import com.zero_x_baadf00d.ebean.CancellableQueryExecutor;
+import com.zero_x_baadf00d.ebean.ChangeSet;
+import com.zero_x_baadf00d.ebean.CompoundDocument;
+import com.zero_x_baadf00d.ebean.DatabaseRouter;
+import com.zero_x_baadf00d.ebean.FacetQueryExecutor;
+import com.zero_x_baadf00d.ebean.FacetedList;
+import com.zero_x_baadf00d.ebean.ModelConfig;
 import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.PlayEbeanHttpQueryConfig;
+import com.zero_x_baadf00d.ebean.QueryCancelledException;
+import com.zero_x_baadf00d.ebean.QueryExplanation;
+import com.zero_x_baadf00d.ebean.ResultVersion;
+import com.zero_x_baadf00d.ebean.ShardedQueryExecutor;
+import com.zero_x_baadf00d.ebean.admission.AdmissionController;
+import com.zero_x_baadf00d.ebean.admission.AdmissionPermit;
+import com.zero_x_baadf00d.ebean.admission.Bulkhead;
+import com.zero_x_baadf00d.ebean.admission.QueryRejectedException;
+import com.zero_x_baadf00d.ebean.converter.EbeanTypeConverter;
+import com.zero_x_baadf00d.ebean.descriptor.EntityPathDescriptor;
+import com.zero_x_baadf00d.ebean.filter.FilterOperator;
+import com.zero_x_baadf00d.ebean.filter.FilterTree;
+import com.zero_x_baadf00d.ebean.filter.FilterValidationError;
+import com.zero_x_baadf00d.ebean.filter.FilterValidationException;
+import com.zero_x_baadf00d.ebean.filter.MalformedQueryKeyException;
+import com.zero_x_baadf00d.ebean.filter.QueryKeyTokenizer;
+import com.zero_x_baadf00d.ebean.filter.ValidationMode;
+import com.zero_x_baadf00d.ebean.index.IndexAdvisor;
+import com.zero_x_baadf00d.ebean.index.IndexRecommendation;
+import com.zero_x_baadf00d.ebean.processor.EntityPathDescriptorProcessor;
+import com.zero_x_baadf00d.ebean.profile.QueryShape;
+import com.zero_x_baadf00d.ebean.profile.ShapeProfile;
+import com.zero_x_baadf00d.ebean.search.H2FullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.search.LikeFullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.search.PostgresFullTextSearchStrategy;
+import com.zero_x_baadf00d.ebean.utils.TimestampUtils;
+import com.zero_x_baadf00d.play.module.ebean.EbeanHttpQueryImpl;
+import io.ebean.CacheMode;
 import io.ebean.EbeanServer;
 import io.ebean.EbeanServerFactory;
+import io.ebean.PersistenceContextScope;
 import io.ebean.Query;
+import io.ebean.cache.ServerCache;
 import io.ebean.config.ServerConfig;
 import io.ebean.enhance.Transformer;
 import io.ebean.enhance.ant.OfflineFileTransform;
+import io.ebeaninternal.api.SpiQuery;
 import models.Album;
+import models.AlbumSummary;
 import models.Artist;
 import models.Cover;
 import org.joda.time.DateTime;
@@ -39,14 +83,36 @@ import org.junit.BeforeClass;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
+import play.Environment;
+import play.inject.ApplicationLifecycle;
+import play.mvc.Http;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
 
 /**
  * Tests.
  *
  * @author Thibault Meyer
- * @version 18.07.24
+ * @version 26.10.18
  * @since 16.04.22
  */
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -138,6 +204,29 @@ public class Tests {
         }
     }
 
+    /**
+     * Create an empty in-memory database, not registered as default.
+     *
+     * @param name The database name
+     * @return The database
+     * @since 26.10.18
+     */
+    private static EbeanServer createDatabase(final String name) {
+        final Properties properties = new Properties();
+        properties.setProperty("ebean." + name + ".ddl.generate", "true");
+        properties.setProperty("ebean." + name + ".ddl.run", "true");
+        properties.setProperty("datasource." + name + ".username", "sa");
+        properties.setProperty("datasource." + name + ".password", "");
+        properties.setProperty("datasource." + name + ".databaseUrl", "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_UPPER=FALSE");
+        properties.setProperty("datasource." + name + ".databaseDriver", "org.h2.Driver");
+        final ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setName(name);
+        serverConfig.loadFromProperties(properties);
+        serverConfig.setDefaultServer(false);
+        serverConfig.setRegister(false);
+        return EbeanServerFactory.create(serverConfig);
+    }
+
     /**
      * @since 16.04.22
      */
@@ -489,4 +578,1354 @@ public class Tests {
         Assert.assertFalse(artists.isEmpty());
         Assert.assertEquals(1, artists.size());
     }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test025() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("artist.name__ilike", new String[]{"STRATovarius"});
+        final Query<Album> query = Tests.ebeanServer.createQuery(Album.class);
+        final QueryExplanation explanation = Tests.playEbeanHttpQuery.explainQuery(Album.class, args, query);
+
+        Assert.assertEquals(1, explanation.getFilterTree().getPredicates().size());
+        Assert.assertEquals(
+            "artist.name ilike [STRATovarius] (String)",
+            explanation.getFilterTree().getPredicates().get(0).toString()
+        );
+        Assert.assertTrue(explanation.getSql().contains("from album"));
+        Assert.assertEquals(1, explanation.getBindValues().size());
+        Assert.assertFalse(explanation.getPlan().isEmpty());
+        Assert.assertEquals(6, query.findList().size());
+
+        final Map<String, String[]> contradictionArgs = new HashMap<>();
+        contradictionArgs.put("year__gt", new String[]{"2000"});
+        contradictionArgs.put("year__lt", new String[]{"1990"});
+        final QueryExplanation contradiction = Tests.playEbeanHttpQuery.explainQuery(Album.class, contradictionArgs, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(contradiction.getFilterTree().isContradiction());
+        Assert.assertEquals("", contradiction.getSql());
+        Assert.assertEquals(1, contradiction.getPlan().size());
+
+        final Map<String, String[]> sinceArgs = new HashMap<>();
+        sinceArgs.put(PlayEbeanHttpQuery.SINCE_ARGUMENT, new String[]{"0"});
+        final QueryExplanation since = Tests.playEbeanHttpQuery.explainQuery(Album.class, sinceArgs, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(since.getSql().contains("updated_at"));
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test026() {
+        final Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("year__gte", new String[]{"1998"});
+        args.put("year__lte", new String[]{"2001"});
+        args.put("year__gt", new String[]{"1990"});
+        final FilterTree filterTree = Tests.playEbeanHttpQuery.buildFilter(Album.class, args);
+
+        Assert.assertEquals(1, filterTree.getPredicates().size());
+        Assert.assertEquals(FilterOperator.BETWEEN, filterTree.getPredicates().get(0).getOperator());
+        Assert.assertEquals(3, Tests.playEbeanHttpQuery.buildQuery(Album.class, args).findList().size());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test027() {
+        final Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("year__gt", new String[]{"2000"});
+        args.put("year__lt", new String[]{"1990"});
+        final Query<Album> query = Tests.ebeanServer.createQuery(Album.class);
+
+        Assert.assertTrue(Tests.playEbeanHttpQuery.buildFilter(Album.class, args).isContradiction());
+        Assert.assertTrue(Tests.playEbeanHttpQuery.findList(Album.class, args, query).isEmpty());
+        Assert.assertNull(query.getGeneratedSql());
+        Assert.assertTrue(Tests.playEbeanHttpQuery.buildQuery(Album.class, args).findList().isEmpty());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test028() {
+        final Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("author__eq", new String[]{"2"});
+        args.put("artist.id__eq", new String[]{"2"});
+        args.put("artist.id__in", new String[]{"1,2"});
+        args.put("id__isnotnull", new String[]{""});
+        args.put("id__not__in", new String[]{""});
+        final FilterTree filterTree = Tests.playEbeanHttpQuery.buildFilter(Album.class, args);
+
+        Assert.assertEquals(1, filterTree.getPredicates().size());
+        Assert.assertEquals(FilterOperator.EQ, filterTree.getPredicates().get(0).getOperator());
+        Assert.assertEquals(3, Tests.playEbeanHttpQuery.buildQuery(Album.class, args).findList().size());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test029() {
+        final QueryKeyTokenizer tokenizer = new QueryKeyTokenizer().tokenize("album.artist.name__not__ilike");
+
+        Assert.assertEquals(3, tokenizer.getSegmentCount());
+        Assert.assertEquals(6, tokenizer.getSegmentStart(1));
+        Assert.assertEquals(12, tokenizer.getSegmentEnd(1));
+        Assert.assertEquals(17, tokenizer.getPathEnd());
+        Assert.assertTrue(tokenizer.isNegated());
+        Assert.assertEquals(FilterOperator.ILIKE, tokenizer.getOperator());
+        Assert.assertEquals(24, tokenizer.getOperatorStart());
+
+        final String[][] malformedKeys = {
+            {"album..name", "6"},
+            {"album.name__", "12"},
+            {"album.name__eq__not", "16"},
+            {"album.name__not__eq__x", "19"},
+            {"album.name__bogus", "12"},
+            {"album__eq.name", "9"},
+        };
+        for (final String[] malformedKey : malformedKeys) {
+            try {
+                tokenizer.tokenize(malformedKey[0]);
+                Assert.fail(malformedKey[0]);
+            } catch (final MalformedQueryKeyException ex) {
+                Assert.assertEquals(malformedKey[0], Integer.parseInt(malformedKey[1]), ex.getPosition());
+            }
+        }
+
+        tokenizer.tokenize("name__foo__eq");
+        Assert.assertFalse(tokenizer.isNegated());
+        Assert.assertEquals(6, tokenizer.getUnknownFlagStart());
+        Assert.assertEquals(FilterOperator.EQ, tokenizer.getOperator());
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("name__foo__eq", new String[]{"Visions"});
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.buildQuery(Album.class, args).findList().size());
+        final List<FilterValidationError> errors = Tests.playEbeanHttpQuery.validate(Album.class, args);
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals(6, errors.get(0).getPosition());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test030() {
+        final List<Album> albums = Tests.ebeanServer.find(Album.class).fetch("artist").findList();
+        final List<Map<String, String[]>> argsList = new ArrayList<>();
+
+        Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("artist.name__ilike", new String[]{"STRATovarius"});
+        args.put("name__orderby", new String[]{"asc"});
+        argsList.add(args);
+
+        args = new LinkedHashMap<>();
+        args.put("year__gte", new String[]{"1998"});
+        args.put("year__lte", new String[]{"2001"});
+        args.put("year__orderby", new String[]{"desc"});
+        args.put("name__orderby", new String[]{"asc"});
+        argsList.add(args);
+
+        args = new LinkedHashMap<>();
+        args.put("name__icontains", new String[]{"IN"});
+        args.put("name__not__startswith", new String[]{"S"});
+        args.put("id__orderby", new String[]{"asc"});
+        argsList.add(args);
+
+        args = new LinkedHashMap<>();
+        args.put("artist.name__in", new String[]{"Dreamtale,Sonata Arctica"});
+        args.put("year__not__between", new String[]{"2002,2003"});
+        argsList.add(args);
+
+        for (final Map<String, String[]> queryArgs : argsList) {
+            final List<Long> expected = new ArrayList<>();
+            Tests.playEbeanHttpQuery.buildQuery(Album.class, queryArgs).findList().forEach(album -> expected.add(album.getId()));
+            final List<Long> actual = new ArrayList<>();
+            albums.stream()
+                .filter(Tests.playEbeanHttpQuery.buildPredicate(Album.class, queryArgs))
+                .sorted(Tests.playEbeanHttpQuery.buildComparator(Album.class, queryArgs))
+                .forEach(album -> actual.add(album.getId()));
+            Assert.assertFalse(expected.isEmpty());
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test031() {
+        final PlayEbeanHttpQuery derived = (PlayEbeanHttpQuery) Tests.playEbeanHttpQuery.clone();
+        final PlayEbeanHttpQueryConfig configuration = Tests.playEbeanHttpQuery.getConfiguration();
+        Assert.assertSame(configuration, derived.getConfiguration());
+        Assert.assertSame(configuration, configuration.toBuilder().build());
+
+        derived.addAlias("Album>title", "name");
+        derived.addIgnoredPatterns("year.*");
+        Assert.assertNotSame(configuration, derived.getConfiguration());
+        Assert.assertSame(configuration, Tests.playEbeanHttpQuery.getConfiguration());
+
+        final Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("title__eq", new String[]{"Destiny"});
+        args.put("year__eq", new String[]{"1997"});
+        Assert.assertEquals(1, derived.buildFilter(Album.class, args).getPredicates().size());
+        Assert.assertEquals("name", derived.buildFilter(Album.class, args).getPredicates().get(0).getPath());
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.buildFilter(Album.class, args).getPredicates().size());
+        Assert.assertEquals("year", Tests.playEbeanHttpQuery.buildFilter(Album.class, args).getPredicates().get(0).getPath());
+
+        final PlayEbeanHttpQuery withConverter = Tests.playEbeanHttpQuery.withConfiguration(configuration
+            .toBuilder()
+            .addConverter(new EbeanTypeConverter<Integer>() {
+                @Override
+                public Integer convert(final String obj) {
+                    return Integer.parseInt(obj) + 1;
+                }
+
+                @Override
+                public Class<Integer> getManagedObjectClass() {
+                    return Integer.class;
+                }
+            })
+            .build());
+        Assert.assertEquals(1998, withConverter.buildFilter(Album.class, args).getPredicates().get(0).getValue());
+        Assert.assertEquals(1997, Tests.playEbeanHttpQuery.buildFilter(Album.class, args).getPredicates().get(0).getValue());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test032() {
+        final PlayEbeanHttpQueryConfig configuration = Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setSearchableProperties("name", "artist.name").build())
+            .setFullTextSearchStrategy(new LikeFullTextSearchStrategy())
+            .build();
+        final PlayEbeanHttpQuery likeQuery = Tests.playEbeanHttpQuery.withConfiguration(configuration);
+        final Map<String, String[]> args = new LinkedHashMap<>();
+
+        args.put("year__search", new String[]{"2001"});
+        Assert.assertTrue(likeQuery.buildFilter(Album.class, args).getPredicates().isEmpty());
+        Assert.assertTrue(Tests.playEbeanHttpQuery.buildFilter(Album.class, args).getPredicates().isEmpty());
+
+        args.clear();
+        args.put("name__isearch", new String[]{"HEART ocean"});
+        Assert.assertEquals(1, likeQuery.buildQuery(Album.class, args).findCount());
+        args.clear();
+        args.put("name__search", new String[]{"heart"});
+        Assert.assertEquals(0, likeQuery.buildQuery(Album.class, args).findCount());
+        args.clear();
+        args.put("artist.name__not__isearch", new String[]{"STRATO"});
+        Assert.assertEquals(3, likeQuery.buildQuery(Album.class, args).findCount());
+
+        final PlayEbeanHttpQuery h2Query = likeQuery.withConfiguration(configuration
+            .toBuilder()
+            .setFullTextSearchStrategy(new H2FullTextSearchStrategy())
+            .build());
+        args.clear();
+        args.put("name__search", new String[]{"heart"});
+        final String h2Sql = h2Query.explainQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).getSql();
+        Assert.assertTrue(h2Sql, h2Sql.contains("in (select cast(array_get(ft.\"KEYS\", 1) as bigint) from FT_SEARCH_DATA(?, 0, 0) ft"));
+        Assert.assertTrue(h2Sql, h2Sql.contains("upper(ft.\"SCHEMA\") = schema() and upper(ft.\"TABLE\") = 'ALBUM'"));
+        Assert.assertTrue(h2Sql, h2Sql.contains("upper(array_get(ft.\"COLUMNS\", 1)) = 'ID'"));
+        Assert.assertTrue(h2Sql, h2Sql.contains(" like "));
+        Assert.assertFalse(h2Sql, h2Sql.contains("lower("));
+        args.clear();
+        args.put("name__isearch", new String[]{"heart"});
+        final String h2InsensitiveSql = h2Query.explainQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).getSql();
+        Assert.assertTrue(h2InsensitiveSql, h2InsensitiveSql.contains("lower("));
+        args.clear();
+        args.put("name__search", new String[]{"heart"});
+
+        final PlayEbeanHttpQuery postgresQuery = likeQuery.withConfiguration(configuration
+            .toBuilder()
+            .setFullTextSearchStrategy(new PostgresFullTextSearchStrategy())
+            .build());
+        final QueryExplanation explanation = postgresQuery.explainQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(explanation.getSql(), explanation.getSql().contains("@@ plainto_tsquery('simple', ?)"));
+        Assert.assertEquals(Collections.singletonList("heart"), explanation.getBindValues());
+        args.clear();
+        args.put("name__isearch", new String[]{"heart"});
+        Assert.assertEquals(
+            explanation.getSql(),
+            postgresQuery.explainQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).getSql()
+        );
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test033() {
+        final EbeanServer replica = Tests.createDatabase("replica");
+
+        final DatabaseRouter router = new DatabaseRouter().register(replica);
+        final PlayEbeanHttpQuery routedQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setDatabaseRouter(router)
+            .setModelConfig("Album", ModelConfig.builder().setDatabaseName("replica").build())
+            .build());
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2001"});
+
+        Assert.assertSame(replica, routedQuery.resolveDatabase(Album.class));
+        Assert.assertSame(Tests.ebeanServer, routedQuery.resolveDatabase(Artist.class));
+        Assert.assertEquals(0, routedQuery.buildQuery(Album.class, args).findCount());
+
+        final Http.Request request = new Http.RequestBuilder()
+            .uri("/albums?year__gte=2001")
+            .attr(PlayEbeanHttpQuery.DATABASE_NAME, "default")
+            .build();
+        Assert.assertEquals(3, routedQuery.buildQuery(Album.class, request).findCount());
+
+        router.markUnhealthy("replica");
+        Assert.assertSame(Tests.ebeanServer, routedQuery.resolveDatabase(Album.class));
+        Assert.assertEquals(3, routedQuery.buildQuery(Album.class, args).findCount());
+
+        router.checkHealth(1);
+        Assert.assertTrue(router.isHealthy("replica"));
+        Assert.assertSame(replica, routedQuery.resolveDatabase(Album.class));
+        replica.shutdown();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test034() {
+        final EbeanServer shard = Tests.createDatabase("shard");
+        final Artist artist = new Artist();
+        artist.setName("Kamelot");
+        artist.setCreatedAt(DateTime.now());
+        shard.save(artist);
+        for (final int year : new int[]{2000, 2005}) {
+            final Album album = new Album();
+            album.setArtist(artist);
+            album.setName("Kamelot " + year);
+            album.setYear(year);
+            album.setLength(50);
+            album.setAvailable(true);
+            shard.save(album);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final ShardedQueryExecutor executor = new ShardedQueryExecutor(Arrays.asList(Tests.ebeanServer, shard), executorService);
+        final Map<String, String[]> args = new LinkedHashMap<>();
+        args.put("year__orderby", new String[]{"desc"});
+        args.put("name__orderby", new String[]{"asc"});
+
+        List<Album> albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertEquals(8, albums.size());
+        Assert.assertEquals(Integer.valueOf(2005), albums.get(0).getYear());
+        Assert.assertEquals("Infinite", albums.get(3).getName());
+        Assert.assertEquals("Silence", albums.get(4).getName());
+        Assert.assertEquals(Integer.valueOf(2000), albums.get(5).getYear());
+
+        final Query<Album> query = Tests.ebeanServer.createQuery(Album.class).setFirstRow(1).setMaxRows(3);
+        albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, query, executor);
+        Assert.assertEquals(3, albums.size());
+        Assert.assertEquals("Ocean's Heart", albums.get(0).getName());
+        Assert.assertEquals("Beyond Reality", albums.get(1).getName());
+        Assert.assertEquals("Infinite", albums.get(2).getName());
+
+        args.put("artist.name__eq", new String[]{"Kamelot"});
+        albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertEquals(2, albums.size());
+
+        final Album undated = new Album();
+        undated.setArtist(artist);
+        undated.setName("Kamelot Live");
+        undated.setLength(70);
+        undated.setAvailable(true);
+        shard.save(undated);
+        args.remove("artist.name__eq");
+        albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertEquals(9, albums.size());
+        Assert.assertNull(albums.get(0).getYear());
+        Assert.assertEquals(Integer.valueOf(2005), albums.get(1).getYear());
+        args.put("year__orderby", new String[]{"asc"});
+        albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertNull(albums.get(8).getYear());
+
+        // Orderings set by the caller are merged as the shards run them
+        albums = Tests.playEbeanHttpQuery.findListSharded(Album.class, args, Tests.ebeanServer.createQuery(Album.class).orderBy("length desc"), executor);
+        Assert.assertEquals("Kamelot Live", albums.get(0).getName());
+        for (int idx = 1; idx < albums.size(); ++idx) {
+            Assert.assertTrue(albums.get(idx - 1).getLength() >= albums.get(idx).getLength());
+        }
+
+        executorService.shutdown();
+        shard.shutdown();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test035() {
+        final PlayEbeanHttpQuery cachedQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Cover", ModelConfig.builder().setQueryCacheEnabled(true).setBeanCacheEnabled(true).build())
+            .setModelConfig("Album", ModelConfig.builder().setQueryCacheEnabled(true).setBeanCacheEnabled(true).build())
+            .build());
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("id__in", new String[]{"1,2"});
+
+        Query<Cover> query = cachedQuery.buildQuery(Cover.class, args, Tests.ebeanServer.createQuery(Cover.class));
+        Assert.assertEquals(CacheMode.ON, ((SpiQuery<Cover>) query).getUseQueryCache());
+        Assert.assertEquals(CacheMode.ON, ((SpiQuery<Cover>) query).getUseBeanCache());
+        Assert.assertEquals(2, query.findList().size());
+
+        final ServerCache beanCache = Tests.ebeanServer.cacheManager().beanCache(Cover.class);
+        final long hitCount = beanCache.getStatistics(false).getHitCount();
+        query = cachedQuery.buildQuery(Cover.class, args, Tests.ebeanServer.createQuery(Cover.class));
+        Assert.assertEquals(2, query.findList().size());
+        Assert.assertTrue(beanCache.getStatistics(false).getHitCount() > hitCount);
+
+        args.clear();
+        args.put("id__eq", new String[]{"1"});
+        query = cachedQuery.buildQuery(Cover.class, args, Tests.ebeanServer.createQuery(Cover.class));
+        Assert.assertEquals(1L, ((SpiQuery<Cover>) query).getId());
+        Assert.assertEquals(1, query.findList().size());
+
+        // Album is not annotated with @Cache: the caches are left untouched
+        final Query<Album> albumQuery = cachedQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertNotEquals(CacheMode.ON, ((SpiQuery<Album>) albumQuery).getUseQueryCache());
+        Assert.assertNotEquals(CacheMode.ON, ((SpiQuery<Album>) albumQuery).getUseBeanCache());
+        Assert.assertEquals(1, albumQuery.findList().size());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test036() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("groupby", new String[]{"artist.name"});
+        args.put("agg", new String[]{"count,sum:length,avg:year,foo:year,sum:unknown"});
+
+        List<Map<String, Object>> rows = Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(3, rows.size());
+        Assert.assertEquals(Arrays.asList("artist.name", "count", "sum:length", "avg:year"), new ArrayList<>(rows.get(0).keySet()));
+        Assert.assertEquals("Dreamtale", rows.get(0).get("artist.name"));
+        Assert.assertEquals(2, ((Number) rows.get(0).get("count")).intValue());
+        Assert.assertEquals("Sonata Arctica", rows.get(1).get("artist.name"));
+        Assert.assertEquals(1, ((Number) rows.get(1).get("count")).intValue());
+        Assert.assertEquals("Stratovarius", rows.get(2).get("artist.name"));
+        Assert.assertEquals(3, ((Number) rows.get(2).get("count")).intValue());
+
+        args.put("year__gte", new String[]{"2001"});
+        rows = Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(3, rows.size());
+        Assert.assertEquals(1, ((Number) rows.get(2).get("count")).intValue());
+
+        args.remove("groupby");
+        args.put("agg", new String[]{"max:year"});
+        rows = Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(2003, ((Number) rows.get(0).get("max:year")).intValue());
+
+        args.put("agg", new String[]{"sum:unknown"});
+        rows = Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(4, ((Number) rows.get(0).get("count")).intValue());
+
+        args.put("year__gt", new String[]{"2010"});
+        args.put("year__lt", new String[]{"2000"});
+        Assert.assertTrue(Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).isEmpty());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test037() {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final FacetQueryExecutor executor = new FacetQueryExecutor(executorService, 2, Duration.ofMinutes(1));
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("facets", new String[]{"year,artist.name,unknown"});
+
+        FacetedList<Album> result = Tests.playEbeanHttpQuery.findListWithFacets(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertEquals(6, result.getRows().size());
+        Assert.assertEquals(Arrays.asList("year", "artist.name"), new ArrayList<>(result.getFacets().keySet()));
+        Assert.assertEquals(Arrays.asList(2001, 1997), new ArrayList<>(result.getFacet("year").keySet()));
+        Assert.assertEquals(Long.valueOf(2), result.getFacet("year").get(2001));
+        Assert.assertEquals(Arrays.asList("Stratovarius", "Dreamtale"), new ArrayList<>(result.getFacet("artist.name").keySet()));
+        Assert.assertEquals(Long.valueOf(3), result.getFacet("artist.name").get("Stratovarius"));
+
+        final Map<Object, Long> cachedFacet = result.getFacet("artist.name");
+        result = Tests.playEbeanHttpQuery.findListWithFacets(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertSame(cachedFacet, result.getFacet("artist.name"));
+
+        args.put("year__gte", new String[]{"2002"});
+        result = Tests.playEbeanHttpQuery.findListWithFacets(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertEquals(2, result.getRows().size());
+        Assert.assertEquals(1, result.getFacet("artist.name").size());
+        Assert.assertEquals(Long.valueOf(2), result.getFacet("artist.name").get("Dreamtale"));
+
+        args.put("year__lt", new String[]{"1990"});
+        result = Tests.playEbeanHttpQuery.findListWithFacets(Album.class, args, Tests.ebeanServer.createQuery(Album.class), executor);
+        Assert.assertTrue(result.getRows().isEmpty());
+        Assert.assertTrue(result.getFacet("year").isEmpty());
+
+        final FacetQueryExecutor boundedExecutor = new FacetQueryExecutor(Runnable::run, 2, Duration.ofMinutes(1));
+        for (int idx = 0; idx < 2000; ++idx) {
+            boundedExecutor.count("facet-" + idx, HashMap::new).join();
+        }
+        Assert.assertEquals(1024, boundedExecutor.getCacheSize());
+
+        executorService.shutdown();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test038() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("albums.year__gte", new String[]{"2001"});
+        args.put("name__orderby", new String[]{"asc"});
+
+        final QueryExplanation explanation = Tests.playEbeanHttpQuery.explainQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class));
+        Assert.assertTrue(explanation.getSql().toLowerCase(Locale.ENGLISH).contains("exists (select"));
+        Assert.assertFalse(explanation.getSql().toLowerCase(Locale.ENGLISH).contains("distinct"));
+        List<Artist> artists = Tests.playEbeanHttpQuery.buildQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class)).findList();
+        Assert.assertEquals(3, artists.size());
+        Assert.assertEquals("Dreamtale", artists.get(0).getName());
+
+        // Predicates on the same collection must match the same element
+        args.clear();
+        args.put("albums.year__eq", new String[]{"2001"});
+        args.put("albums.name__eq", new String[]{"Silence"});
+        artists = Tests.playEbeanHttpQuery.buildQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class)).findList();
+        Assert.assertEquals(1, artists.size());
+        Assert.assertEquals("Sonata Arctica", artists.get(0).getName());
+
+        args.put("albums.name__eq", new String[]{"Visions"});
+        artists = Tests.playEbeanHttpQuery.buildQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class)).findList();
+        Assert.assertTrue(artists.isEmpty());
+
+        args.clear();
+        args.put("albums.name__not__eq", new String[]{"Silence"});
+        artists = Tests.playEbeanHttpQuery.buildQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class)).findList();
+        Assert.assertEquals(2, artists.size());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test039() throws IOException {
+        final Path generatedDirectory = Files.createTempDirectory("path-descriptors");
+        final List<String> compilerArgs = new ArrayList<>(Arrays.asList(
+            "-proc:only",
+            "-processor", EntityPathDescriptorProcessor.class.getName(),
+            "-classpath", System.getProperty("java.class.path"),
+            "-s", generatedDirectory.toString()
+        ));
+        for (final String model : new String[]{"Album", "Artist", "Cover"}) {
+            compilerArgs.add(Paths.get("src", "test", "java", "models", model + ".java").toString());
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertEquals(0, compiler.run(null, null, null, compilerArgs.toArray(new String[0])));
+
+        final String generatedSource = new String(
+            Files.readAllBytes(generatedDirectory.resolve(Paths.get("models", "Artist" + EntityPathDescriptor.GENERATED_CLASS_SUFFIX + ".java"))),
+            StandardCharsets.UTF_8
+        );
+        Assert.assertTrue(generatedSource.contains("models.Artist.class"));
+        Assert.assertTrue(generatedSource.contains("\"id\", \"name\", \"createdAt\", \"albums\""));
+        Assert.assertTrue(generatedSource.contains("models.Album.class"));
+        Assert.assertTrue(generatedSource.contains("false, false, false, true"));
+
+        final EntityPathDescriptor descriptor = EntityPathDescriptor.reflect(Artist.class, Tests.class.getClassLoader());
+        Assert.assertEquals(4, descriptor.getPropertyCount());
+        Assert.assertEquals(-1, descriptor.indexOf("find", 0, 4));
+        Assert.assertEquals(-1, descriptor.indexOf("_ebean_intercept", 0, 16));
+        Assert.assertEquals("id", descriptor.getPropertyName(descriptor.getIdPropertyIndex()));
+        final int albumsIdx = descriptor.indexOf("albums.name", 0, 6);
+        Assert.assertTrue(descriptor.isCollection(albumsIdx));
+        Assert.assertEquals(Album.class, descriptor.getPropertyType(albumsIdx));
+        Assert.assertNull(EntityPathDescriptor.findGenerated(Artist.class, Tests.class.getClassLoader()));
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("albums.name__eq", new String[]{"Silence"});
+        final List<Artist> artists = Tests.playEbeanHttpQuery.buildQuery(Artist.class, args, Tests.ebeanServer.createQuery(Artist.class)).findList();
+        Assert.assertEquals(1, artists.size());
+        Assert.assertEquals("Sonata Arctica", artists.get(0).getName());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test040() {
+        final Map<String, String[]> args = new TreeMap<>();
+        args.put("year__eq", new String[]{"garbage"});
+        args.put("label__eq", new String[]{"Nuclear Blast"});
+        args.put("name__bogus", new String[]{"Silence"});
+        args.put("length__in", new String[]{"60,soon"});
+        args.put(PlayEbeanHttpQuery.GROUP_BY_ARGUMENT, new String[]{"year"});
+
+        // Lenient mode stays the default
+        Assert.assertEquals(ValidationMode.LENIENT, Tests.playEbeanHttpQuery.getConfiguration().getValidationMode());
+        Tests.playEbeanHttpQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+
+        final List<FilterValidationError> errors = Tests.playEbeanHttpQuery.validate(Album.class, args);
+        Assert.assertEquals(4, errors.size());
+        Assert.assertEquals("label__eq", errors.get(0).getKey());
+        Assert.assertEquals("unknown property", errors.get(0).getReason());
+        Assert.assertEquals(0, errors.get(0).getPosition());
+        Assert.assertEquals("length__in", errors.get(1).getKey());
+        Assert.assertEquals(3, errors.get(1).getPosition());
+        Assert.assertEquals("name__bogus", errors.get(2).getKey());
+        Assert.assertEquals("unknown operator", errors.get(2).getReason());
+        Assert.assertEquals(6, errors.get(2).getPosition());
+        Assert.assertEquals("year__eq", errors.get(3).getKey());
+        Assert.assertEquals("invalid Integer value", errors.get(3).getReason());
+
+        final PlayEbeanHttpQuery strictQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setValidationMode(ValidationMode.STRICT)
+            .build());
+        try {
+            strictQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("Invalid arguments must be rejected");
+        } catch (final FilterValidationException ex) {
+            Assert.assertEquals(4, ex.getErrors().size());
+        }
+
+        args.clear();
+        args.put("year__gte", new String[]{"2001"});
+        args.put("artist.name__eq", new String[]{"Dreamtale"});
+        args.put("name__orderby", new String[]{"asc"});
+        final List<Album> albums = strictQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).findList();
+        Assert.assertEquals(2, albums.size());
+        Assert.assertEquals("Beyond Reality", albums.get(0).getName());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test041() {
+        final AdmissionController admissionController = new AdmissionController(Collections.singletonList(
+            new Bulkhead("expensive", 1, EnumSet.of(FilterOperator.ICONTAINS), 2)
+        ));
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2001"});
+        args.put("artist.name__eq", new String[]{"Dreamtale"});
+        args.put("name__orderby", new String[]{"desc"});
+        FilterTree filterTree = Tests.playEbeanHttpQuery.buildFilter(Album.class, args);
+        Assert.assertEquals("artist.name:eq,year:gte;name:desc", filterTree.getShape());
+        Assert.assertNull(admissionController.classify(filterTree));
+
+        args.put("name__icontains", new String[]{"real"});
+        filterTree = Tests.playEbeanHttpQuery.buildFilter(Album.class, args);
+        final Bulkhead bulkhead = admissionController.classify(filterTree);
+        Assert.assertNotNull(bulkhead);
+        try (final AdmissionPermit ignore = admissionController.admit(Album.class, filterTree)) {
+            Assert.assertEquals(1, bulkhead.getActiveCount());
+            try {
+                admissionController.admit(Album.class, filterTree);
+                Assert.fail("The bulkhead is full");
+            } catch (final QueryRejectedException ex) {
+                Assert.assertEquals("expensive", ex.getBulkheadName());
+                Assert.assertEquals("Album|artist.name:eq,name:icontains,year:gte;name:desc", ex.getShapeKey());
+            }
+        }
+        Assert.assertEquals(0, bulkhead.getActiveCount());
+        Assert.assertEquals(1, bulkhead.getAdmittedCount());
+        Assert.assertEquals(1, bulkhead.getRejectedCount());
+        Assert.assertEquals(Long.valueOf(1), admissionController.getRejectedShapes().get("Album|artist.name:eq,name:icontains,year:gte;name:desc"));
+
+        // Multi-hop joins are classified too
+        args.clear();
+        args.put("gnarf__eq", new String[]{"Dreamtale"});
+        filterTree = Tests.playEbeanHttpQuery.buildFilter(Cover.class, args);
+        Assert.assertSame(bulkhead, admissionController.classify(filterTree));
+        admissionController.admit(Cover.class, filterTree).close();
+        Assert.assertEquals(2, bulkhead.getAdmittedCount());
+
+        // The foreign key of a to-one association needs no join
+        final Bulkhead joinBulkhead = new Bulkhead("joins", 1, EnumSet.noneOf(FilterOperator.class), 1);
+        args.clear();
+        args.put("artist__eq", new String[]{"1"});
+        filterTree = Tests.playEbeanHttpQuery.buildFilter(Album.class, args);
+        Assert.assertEquals("artist.id", filterTree.getPredicates().get(0).getPath());
+        Assert.assertEquals(0, filterTree.getPredicates().get(0).getJoinCount());
+        Assert.assertFalse(joinBulkhead.matches(filterTree));
+        args.clear();
+        args.put("artist.name__eq", new String[]{"Dreamtale"});
+        Assert.assertTrue(joinBulkhead.matches(Tests.playEbeanHttpQuery.buildFilter(Album.class, args)));
+        args.clear();
+        args.put("albums.id__eq", new String[]{"1"});
+        Assert.assertTrue(joinBulkhead.matches(Tests.playEbeanHttpQuery.buildFilter(Artist.class, args)));
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test042() {
+        final PlayEbeanHttpQuery timedQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setTimeout(Duration.ofSeconds(10)).build())
+            .setOperatorTimeout(FilterOperator.ICONTAINS, Duration.ofMillis(1500))
+            .build());
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2001"});
+        SpiQuery<Album> query = (SpiQuery<Album>) timedQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(10, query.getTimeout());
+        Assert.assertEquals(0, ((SpiQuery<Album>) Tests.playEbeanHttpQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class))).getTimeout());
+
+        args.put("name__icontains", new String[]{"o"});
+        query = (SpiQuery<Album>) timedQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(2, query.getTimeout());
+        query = (SpiQuery<Album>) timedQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class).setTimeout(1));
+        Assert.assertEquals(1, query.getTimeout());
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final CancellableQueryExecutor executor = new CancellableQueryExecutor(scheduler);
+        final CompletableFuture<Void> abortSignal = new CompletableFuture<>();
+        final List<Album> albums = executor.execute(
+            Tests.ebeanServer.createQuery(Album.class),
+            Duration.ofSeconds(10),
+            abortSignal,
+            executedQuery -> timedQuery.findList(Album.class, args, executedQuery)
+        );
+        Assert.assertEquals(2, albums.size());
+        abortSignal.complete(null);
+
+        try {
+            executor.execute(
+                Tests.ebeanServer.createQuery(Album.class),
+                Duration.ZERO,
+                CompletableFuture.completedFuture(null),
+                executedQuery -> timedQuery.findList(Album.class, args, executedQuery)
+            );
+            Assert.fail("The query must be cancelled");
+        } catch (final QueryCancelledException ex) {
+            Assert.assertEquals("request aborted", ex.getReason());
+        }
+
+        final List<Function<Query<Album>, Object>> preparedExecutions = Arrays.asList(
+            executedQuery -> timedQuery.aggregate(Album.class, args, executedQuery),
+            executedQuery -> timedQuery.probeVersion(Album.class, args, executedQuery),
+            executedQuery -> {
+                try {
+                    return timedQuery.writeJson(Album.class, args, executedQuery, new ByteArrayOutputStream());
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        );
+        for (final Function<Query<Album>, Object> preparedExecution : preparedExecutions) {
+            try {
+                executor.execute(Tests.ebeanServer.createQuery(Album.class), Duration.ZERO, CompletableFuture.completedFuture(null), preparedExecution);
+                Assert.fail("The statement must not run once the query is cancelled");
+            } catch (final QueryCancelledException ex) {
+                Assert.assertEquals("request aborted", ex.getReason());
+            }
+        }
+        scheduler.shutdown();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test043() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2001"});
+        args.put("name__orderby", new String[]{"asc"});
+        final ResultVersion resultVersion = Tests.playEbeanHttpQuery.probeVersion(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(4, resultVersion.getCount());
+        Assert.assertNotNull(resultVersion.getLastModified());
+        Assert.assertNull(resultVersion.getVersion());
+        Assert.assertTrue(resultVersion.getETag().startsWith("W/\"4-"));
+
+        Assert.assertTrue(resultVersion.isNotModified(resultVersion.getETag(), null));
+        Assert.assertTrue(resultVersion.isNotModified("\"other\", " + resultVersion.getETag().substring(2), null));
+        Assert.assertFalse(resultVersion.isNotModified("W/\"other\"", resultVersion.getLastModifiedHeader()));
+        Assert.assertTrue(resultVersion.isNotModified(null, resultVersion.getLastModifiedHeader()));
+        Assert.assertFalse(resultVersion.isNotModified(null, "Thu, 01 Jan 1970 00:00:00 GMT"));
+        Assert.assertFalse(resultVersion.isNotModified(null, null));
+
+        args.put("year__gte", new String[]{"2002"});
+        final ResultVersion filteredVersion = Tests.playEbeanHttpQuery.probeVersion(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(2, filteredVersion.getCount());
+        Assert.assertNotEquals(resultVersion.getETag(), filteredVersion.getETag());
+
+        args.put("year__lt", new String[]{"1990"});
+        Assert.assertEquals(0, Tests.playEbeanHttpQuery.probeVersion(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).getCount());
+
+        try {
+            Tests.playEbeanHttpQuery.probeVersion(Artist.class, new HashMap<>(), Tests.ebeanServer.createQuery(Artist.class));
+            Assert.fail("Artist has no version property");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Artist"));
+        }
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test044() throws InterruptedException {
+        final Album album = new Album();
+        album.setName("Winterheart's Guild");
+        album.setYear(2003);
+        album.save();
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2003"});
+        final ChangeSet<Album> snapshot = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(2, snapshot.getRows().size());
+        Assert.assertTrue(snapshot.getDeletedIds().isEmpty());
+        Assert.assertNotNull(snapshot.getToken());
+
+        args.put("since", new String[]{snapshot.getToken()});
+        final ChangeSet<Album> unchanged = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(unchanged.getRows().isEmpty());
+        Assert.assertEquals(snapshot.getToken(), unchanged.getToken());
+
+        Thread.sleep(10);
+        album.setLength(3256);
+        album.update();
+        final ChangeSet<Album> updated = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(1, updated.getRows().size());
+        Assert.assertEquals("Winterheart's Guild", updated.getRows().get(0).getName());
+        Assert.assertNotEquals(snapshot.getToken(), updated.getToken());
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).findCount());
+
+        args.put("since", new String[]{updated.getToken()});
+        Thread.sleep(10);
+        album.delete();
+        final ChangeSet<Album> deleted = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(deleted.getRows().isEmpty());
+        Assert.assertEquals(Collections.singletonList(album.getId()), deleted.getDeletedIds());
+        Assert.assertNull(Album.find.byId(album.getId()));
+
+        args.put("since", new String[]{"yesterday"});
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.validate(Album.class, args).size());
+        album.deletePermanent();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test045() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("artist.name__eq", new String[]{"Stratovarius"});
+        args.put("year__orderby", new String[]{"desc"});
+        final List<AlbumSummary> albums = Tests.playEbeanHttpQuery.findDtoList(
+            Album.class,
+            AlbumSummary.class,
+            args,
+            Tests.ebeanServer.createQuery(Album.class)
+        );
+        Assert.assertEquals(3, albums.size());
+        Assert.assertEquals("Infinite", albums.get(0).getName());
+        Assert.assertEquals(Integer.valueOf(2001), albums.get(0).getYear());
+        Assert.assertNotNull(albums.get(0).getId());
+        Assert.assertNull(albums.get(0).getLabel());
+
+        args.put("year__lt", new String[]{"1990"});
+        args.put("year__gt", new String[]{"2000"});
+        Assert.assertTrue(Tests.playEbeanHttpQuery.findDtoList(Album.class, AlbumSummary.class, args, Tests.ebeanServer.createQuery(Album.class)).isEmpty());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test046() throws IOException {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("artist.name__eq", new String[]{"Stratovarius"});
+        args.put("year__orderby", new String[]{"asc"});
+        args.put("fields", new String[]{"name,year,artist,unknown"});
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Assert.assertEquals(3, Tests.playEbeanHttpQuery.writeJson(Album.class, args, Tests.ebeanServer.createQuery(Album.class), outputStream));
+        final JsonNode albums = new ObjectMapper().readTree(outputStream.toByteArray());
+        Assert.assertEquals(3, albums.size());
+        Assert.assertEquals("Visions", albums.get(0).get("name").asText());
+        Assert.assertEquals(1997, albums.get(0).get("year").asInt());
+        Assert.assertTrue(albums.get(0).get("id").isNumber());
+        Assert.assertFalse(albums.get(0).has("length"));
+        Assert.assertFalse(albums.get(0).has("artist"));
+
+        args.remove("fields");
+        outputStream.reset();
+        Tests.playEbeanHttpQuery.writeJson(Album.class, args, Tests.ebeanServer.createQuery(Album.class), outputStream);
+        final JsonNode fullAlbum = new ObjectMapper().readTree(outputStream.toByteArray()).get(0);
+        Assert.assertTrue(fullAlbum.get("length").isNumber() || fullAlbum.get("length").isNull());
+        Assert.assertTrue(fullAlbum.get("updatedAt").isTextual());
+        Assert.assertFalse(fullAlbum.get("deleted").asBoolean());
+
+        args.put("year__lt", new String[]{"1990"});
+        args.put("year__gt", new String[]{"2000"});
+        outputStream.reset();
+        Assert.assertEquals(0, Tests.playEbeanHttpQuery.writeJson(Album.class, args, Tests.ebeanServer.createQuery(Album.class), outputStream));
+        Assert.assertEquals("[]", outputStream.toString("UTF-8"));
+
+        final Map<String, String[]> artistArgs = new HashMap<>();
+        artistArgs.put("name__eq", new String[]{"Stratovarius"});
+        outputStream.reset();
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.writeJson(Artist.class, artistArgs, Tests.ebeanServer.createQuery(Artist.class), outputStream));
+        final Artist artist = Artist.find.query().where().eq("name", "Stratovarius").findOne();
+        Assert.assertEquals(
+            TimestampUtils.toInstant(artist.getCreatedAt()).toString(),
+            new ObjectMapper().readTree(outputStream.toByteArray()).get(0).get("createdAt").asText()
+        );
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test047() {
+        final PlayEbeanHttpQuery bulkQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setUpdatableProperties("available").setMaxBulkRows(2).build())
+            .build());
+        final List<Album> stratovariusAlbums = Album.find.query().where().eq("artist.name", "Stratovarius").findList();
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("artist.name__eq", new String[]{"Stratovarius"});
+        final Map<String, String> values = Collections.singletonMap("available", "false");
+        try {
+            bulkQuery.bulkUpdate(Album.class, args, values, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("The update affects 3 rows");
+        } catch (final BulkLimitExceededException ex) {
+            Assert.assertEquals(2, ex.getMaxRows());
+            Assert.assertEquals(3, ex.getRowCount());
+        }
+        for (final Album album : stratovariusAlbums) {
+            Assert.assertEquals(album.getAvailable(), Album.find.byId(album.getId()).getAvailable());
+        }
+
+        args.put("year__gte", new String[]{"1998"});
+        Assert.assertEquals(2, bulkQuery.bulkUpdate(Album.class, args, values, Tests.ebeanServer.createQuery(Album.class)));
+        Assert.assertEquals(2, Album.find.query().where().eq("artist.name", "Stratovarius").eq("available", false).ge("year", 1998).findCount());
+        try {
+            bulkQuery.bulkUpdate(Album.class, args, Collections.singletonMap("name", "Elements"), Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("Album.name is not updatable");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals("Album.name is not updatable", ex.getMessage());
+        }
+        try {
+            bulkQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("Album is not deletable");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals("Album is not deletable", ex.getMessage());
+        }
+        for (final Album album : stratovariusAlbums) {
+            final Album updatedAlbum = Album.find.byId(album.getId());
+            updatedAlbum.setAvailable(album.getAvailable());
+            updatedAlbum.save();
+        }
+
+        final Album album = new Album();
+        album.setName("Ecliptica");
+        album.setYear(1999);
+        album.save();
+        final PlayEbeanHttpQuery deleteQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setDeletable(true).build())
+            .build());
+        args.clear();
+        args.put("name__eq", new String[]{"Ecliptica"});
+        Assert.assertEquals(1, deleteQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class)));
+        Assert.assertNull(Album.find.byId(album.getId()));
+        album.deletePermanent();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test048() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__gte", new String[]{"2001"});
+        args.put("include", new String[]{"author,cover", "name,artist"});
+        final CompoundDocument<Album> document = Tests.playEbeanHttpQuery.findListWithIncludes(
+            Album.class,
+            args,
+            Tests.ebeanServer.createQuery(Album.class)
+        );
+        Assert.assertEquals(4, document.getRows().size());
+        Assert.assertEquals(Arrays.asList("artist", "cover"), new ArrayList<>(document.getIncluded().keySet()));
+        Assert.assertEquals(3, document.getIncluded("artist").size());
+        Assert.assertTrue(document.getIncluded("artist").get(0) instanceof Artist);
+        Assert.assertTrue(document.getIncluded("name").isEmpty());
+
+        args.put("artist.name__eq", new String[]{"Dreamtale"});
+        final CompoundDocument<Album> dreamtale = Tests.playEbeanHttpQuery.findListWithIncludes(
+            Album.class,
+            args,
+            Tests.ebeanServer.createQuery(Album.class)
+        );
+        Assert.assertEquals(2, dreamtale.getRows().size());
+        Assert.assertEquals(1, dreamtale.getIncluded("artist").size());
+        Assert.assertEquals("Dreamtale", ((Artist) dreamtale.getIncluded("artist").get(0)).getName());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test049() {
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("artist.name__eq", new String[]{"Dreamtale"});
+        final SpiQuery<Album> defaultQuery = (SpiQuery<Album>) Tests.playEbeanHttpQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertFalse(defaultQuery.isDisableLazyLoading());
+        Assert.assertNotEquals(Boolean.TRUE, defaultQuery.isReadOnly());
+
+        final SpiQuery<Album> readOnlyQuery = (SpiQuery<Album>) Tests.playEbeanHttpQuery.buildReadOnlyQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(readOnlyQuery.isDisableLazyLoading());
+        Assert.assertEquals(Boolean.TRUE, readOnlyQuery.isReadOnly());
+        Assert.assertEquals(PersistenceContextScope.QUERY, readOnlyQuery.getPersistenceContextScope());
+
+        final PlayEbeanHttpQuery readOnlyModel = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setReadOnly(true).build())
+            .build());
+        final List<Album> albums = readOnlyModel.findList(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(2, albums.size());
+        try {
+            albums.get(0).setName("Phoenix");
+            Assert.fail("The album is read-only");
+        } catch (final IllegalStateException ex) {
+            Assert.assertEquals("This bean is readOnly", ex.getMessage());
+        }
+        Assert.assertNotNull(albums.get(0).getArtist().getId());
+        Assert.assertNull(albums.get(0).getArtist().getName());
+        Assert.assertEquals("Dreamtale", Tests.playEbeanHttpQuery.findList(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).get(0).getArtist().getName());
+
+        final Map<String, String[]> artistArgs = new HashMap<>();
+        artistArgs.put("name__eq", new String[]{"Dreamtale"});
+        final Artist artist = Tests.playEbeanHttpQuery.buildReadOnlyQuery(Artist.class, artistArgs, Tests.ebeanServer.createQuery(Artist.class)).findOne();
+        Assert.assertTrue(artist.getAlbums().isEmpty());
+        Assert.assertEquals(
+            "Dreamtale",
+            Tests.playEbeanHttpQuery.buildReadOnlyQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class).fetch("artist")).findList().get(0).getArtist().getName()
+        );
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test050() throws IOException {
+        final Map<String, String[]> nameArgs = new HashMap<>();
+        nameArgs.put("name__icontains", new String[]{"silence"});
+        nameArgs.put("year__orderby", new String[]{"desc"});
+        nameArgs.put(PlayEbeanHttpQuery.FIELDS_ARGUMENT, new String[]{"name"});
+        final Map<String, String[]> yearArgs = new HashMap<>();
+        yearArgs.put("id__between", new String[]{"1,3"});
+        final Map<String, String[]> unknownArgs = new HashMap<>();
+        unknownArgs.put("name__eq", new String[]{"Visions"});
+
+        final Map<String, String[]> junkArgs = new HashMap<>(nameArgs);
+        junkArgs.put("nmae__eq", new String[]{"Visions"});
+
+        final ShapeProfile shapeProfile = new ShapeProfile(2);
+        shapeProfile.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, nameArgs));
+        shapeProfile.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, junkArgs));
+        shapeProfile.record(Artist.class, Tests.playEbeanHttpQuery.buildFilter(Artist.class, yearArgs));
+        shapeProfile.record(Cover.class, Tests.playEbeanHttpQuery.buildFilter(Cover.class, unknownArgs));
+        Assert.assertEquals(2, shapeProfile.size());
+
+        final Path profileFile = Files.createTempFile("ebean-httpquery", ".profile");
+        try {
+            shapeProfile.save(profileFile);
+            Files.write(profileFile, "7\tmodels.Unknown\tname__eq\nmalformed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            final ShapeProfile loadedProfile = new ShapeProfile(16);
+            loadedProfile.load(profileFile);
+            final List<QueryShape> hotShapes = loadedProfile.getHotShapes(16);
+            Assert.assertEquals(3, hotShapes.size());
+            Assert.assertEquals("models.Unknown", hotShapes.get(0).getModelClassName());
+            Assert.assertEquals("models.Album", hotShapes.get(1).getModelClassName());
+            Assert.assertEquals(Arrays.asList("name__icontains", "year__orderby"), hotShapes.get(1).getKeys());
+            Assert.assertEquals(2, hotShapes.get(1).getCount());
+            Assert.assertEquals(1, hotShapes.get(2).getCount());
+            Assert.assertEquals(2, loadedProfile.replay(Tests.playEbeanHttpQuery, Tests.class.getClassLoader(), 16));
+        } finally {
+            Files.deleteIfExists(profileFile);
+        }
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test051() {
+        final Map<String, String[]> artistArgs = new HashMap<>();
+        artistArgs.put("artist.id__eq", new String[]{"1"});
+        final Map<String, String[]> availableArgs = new HashMap<>();
+        availableArgs.put("available__eq", new String[]{"true"});
+        availableArgs.put("name__startswith", new String[]{"Vi"});
+        final Map<String, String[]> artistNameArgs = new HashMap<>();
+        artistNameArgs.put("artist.name__eq", new String[]{"Dreamtale"});
+        final Map<String, String[]> containsArgs = new HashMap<>();
+        containsArgs.put("name__icontains", new String[]{"silence"});
+        final Map<String, String[]> contradictionArgs = new HashMap<>();
+        contradictionArgs.put("year__gt", new String[]{"2000"});
+        contradictionArgs.put("year__lt", new String[]{"1990"});
+
+        final IndexAdvisor indexAdvisor = new IndexAdvisor(16);
+        for (int idx = 0; idx < 3; ++idx) {
+            indexAdvisor.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, artistArgs));
+        }
+        for (int idx = 0; idx < 2; ++idx) {
+            indexAdvisor.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, availableArgs));
+        }
+        indexAdvisor.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, artistNameArgs));
+        indexAdvisor.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, containsArgs));
+        indexAdvisor.record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, contradictionArgs));
+        Assert.assertEquals(4, indexAdvisor.getAccessPatterns().size());
+        Assert.assertEquals(3, indexAdvisor.getAccessPatterns().get(0).getCount());
+
+        final List<IndexRecommendation> recommendations = indexAdvisor.recommend(Tests.playEbeanHttpQuery);
+        Assert.assertEquals(3, recommendations.size());
+        Assert.assertEquals("album", recommendations.get(0).getTable());
+        Assert.assertEquals(Collections.singletonList("artist_id"), recommendations.get(0).getColumns());
+        Assert.assertEquals(3, recommendations.get(0).getTraffic());
+        Assert.assertTrue(recommendations.get(0).isIndexed());
+        Assert.assertEquals(Arrays.asList("available", "name"), recommendations.get(1).getColumns());
+        Assert.assertEquals(2, recommendations.get(1).getTraffic());
+        Assert.assertFalse(recommendations.get(1).isIndexed());
+        Assert.assertEquals("create index ix_album_available_name on album (available,name);", recommendations.get(1).getDdl());
+        Assert.assertEquals("artist", recommendations.get(2).getTable());
+        Assert.assertEquals(Collections.singletonList("name"), recommendations.get(2).getColumns());
+        Assert.assertFalse(recommendations.get(2).isIndexed());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test052() {
+        final PlayEbeanHttpQueryConfig first = PlayEbeanHttpQueryConfig.empty();
+        final PlayEbeanHttpQueryConfig second = PlayEbeanHttpQueryConfig.builder().setValidationMode(ValidationMode.STRICT).build();
+        Assert.assertNotSame(first.getDatabaseRouter(), second.getDatabaseRouter());
+        first.getDatabaseRouter().markUnhealthy("replica");
+        Assert.assertFalse(first.getDatabaseRouter().isHealthy("replica"));
+        Assert.assertTrue(second.getDatabaseRouter().isHealthy("replica"));
+
+        final PlayEbeanHttpQueryConfig derived = first.toBuilder().setValidationMode(ValidationMode.STRICT).build();
+        Assert.assertSame(first.getDatabaseRouter(), derived.getDatabaseRouter());
+        Assert.assertSame(first, first.toBuilder().build());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test053() throws Exception {
+        final Path profileFile = Files.createTempDirectory("ebean-httpquery").resolve("shapes.profile");
+        final List<Callable<? extends CompletionStage<?>>> stopHooks = new ArrayList<>();
+        final ApplicationLifecycle lifecycle = new ApplicationLifecycle() {
+
+            @Override
+            public void addStopHook(final Callable<? extends CompletionStage<?>> hook) {
+                stopHooks.add(hook);
+            }
+
+            @Override
+            public play.api.inject.ApplicationLifecycle asScala() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        final EbeanHttpQueryImpl module = new EbeanHttpQueryImpl(
+            ConfigFactory.parseMap(Collections.singletonMap("ebeanHttpQuery.profile.file", profileFile.toString())),
+            Environment.simple().asScala(),
+            lifecycle
+        );
+        module.getShapeProfile().record(Album.class, Tests.playEbeanHttpQuery.buildFilter(Album.class, Collections.singletonMap("name__eq", new String[]{"Silence"})));
+        Assert.assertEquals(1, stopHooks.size());
+
+        // The profile is saved before the stop hook completes
+        stopHooks.get(0).call();
+        Assert.assertTrue(Files.readAllLines(profileFile, StandardCharsets.UTF_8).get(0).endsWith("models.Album\tname__eq"));
+
+        final EbeanHttpQueryImpl unmanagedModule = new EbeanHttpQueryImpl(ConfigFactory.empty(), Environment.simple().asScala());
+        Assert.assertNotNull(unmanagedModule.getShapeProfile());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test054() {
+        final Album first = new Album();
+        first.setName("Beyond the Seventh Wave");
+        first.setYear(2098);
+        first.save();
+        final Album second = new Album();
+        second.setName("Silent Veil");
+        second.setYear(2098);
+        second.save();
+        Tests.ebeanServer.createSqlUpdate("UPDATE album SET updated_at = :updatedAt WHERE year = 2098")
+            .setParameter("updatedAt", Instant.parse("2018-10-18T00:00:00.123456Z"))
+            .execute();
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__eq", new String[]{"2098"});
+        final ChangeSet<Album> firstPage = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class).setMaxRows(1));
+        Assert.assertEquals(1, firstPage.getRows().size());
+        Assert.assertEquals(first.getId(), firstPage.getRows().get(0).getId());
+        Assert.assertEquals("2018-10-18T00:00:00.123456Z_" + first.getId(), firstPage.getToken());
+
+        args.put("since", new String[]{firstPage.getToken()});
+        final ChangeSet<Album> secondPage = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class).setMaxRows(1));
+        Assert.assertEquals(1, secondPage.getRows().size());
+        Assert.assertEquals(second.getId(), secondPage.getRows().get(0).getId());
+
+        args.put("since", new String[]{secondPage.getToken()});
+        final ChangeSet<Album> lastPage = Tests.playEbeanHttpQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class).setMaxRows(1));
+        Assert.assertTrue(lastPage.getRows().isEmpty());
+        Assert.assertEquals(secondPage.getToken(), lastPage.getToken());
+        Assert.assertEquals(Instant.parse("2018-10-18T00:00:00.123456Z"), TimestampUtils.parseSyncToken(lastPage.getToken()));
+        first.deletePermanent();
+        second.deletePermanent();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test055() {
+        final PlayEbeanHttpQuery bulkQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setValidationMode(ValidationMode.LENIENT)
+            .setModelConfig("Album", ModelConfig.builder().setUpdatableProperties("available").setDeletable(true).build())
+            .build());
+        Assert.assertEquals(ModelConfig.DEFAULT_MAX_BULK_ROWS, ModelConfig.empty().getMaxBulkRows());
+        final int albumCount = Album.find.query().findCount();
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("nmae__eq", new String[]{"x"});
+        try {
+            bulkQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("nmae is not a property of Album");
+        } catch (final FilterValidationException ex) {
+            Assert.assertEquals(1, ex.getErrors().size());
+        }
+        try {
+            bulkQuery.bulkUpdate(Album.class, args, Collections.singletonMap("available", "false"), Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("nmae is not a property of Album");
+        } catch (final FilterValidationException ex) {
+            Assert.assertEquals(1, ex.getErrors().size());
+        }
+
+        args.clear();
+        args.put("name__orderby", new String[]{"asc"});
+        try {
+            bulkQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("A bulk operation requires a filter");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals("No filter on the bulk operation on Album", ex.getMessage());
+        }
+        try {
+            bulkQuery.bulkUpdate(Album.class, new HashMap<>(), Collections.singletonMap("available", "false"), Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("A bulk operation requires a filter");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals("No filter on the bulk operation on Album", ex.getMessage());
+        }
+        Assert.assertEquals(albumCount, Album.find.query().findCount());
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test056() {
+        final Album older = new Album();
+        older.setName("Ocean Soul");
+        older.setYear(2097);
+        older.save();
+        final Album newer = new Album();
+        newer.setName("Seventh Sign");
+        newer.setYear(2097);
+        newer.save();
+        Tests.ebeanServer.createSqlUpdate("UPDATE album SET updated_at = :updatedAt WHERE id = :id")
+            .setParameter("updatedAt", Instant.parse("2018-10-18T00:00:00Z"))
+            .setParameter("id", older.getId())
+            .execute();
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__eq", new String[]{"2097"});
+        args.put("agg", new String[]{"count"});
+        args.put("since", new String[]{"2018-10-19T00:00:00Z"});
+        final List<Map<String, Object>> rows = Tests.playEbeanHttpQuery.aggregate(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(1, ((Number) rows.get(0).get("count")).intValue());
+        Assert.assertEquals(1, Tests.playEbeanHttpQuery.buildQuery(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).findCount());
+
+        args.put("since", null);
+        Assert.assertTrue(Tests.playEbeanHttpQuery.validate(Album.class, args).isEmpty());
+        older.deletePermanent();
+        newer.deletePermanent();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test057() {
+        final PlayEbeanHttpQuery bulkQuery = Tests.playEbeanHttpQuery.withConfiguration(Tests.playEbeanHttpQuery.getConfiguration()
+            .toBuilder()
+            .setModelConfig("Album", ModelConfig.builder().setUpdatableProperties("available").setDeletable(true).build())
+            .build());
+        final Album album = new Album();
+        album.setName("Episode");
+        album.setYear(2096);
+        album.save();
+        Tests.ebeanServer.createSqlUpdate("UPDATE album SET updated_at = :updatedAt WHERE id = :id")
+            .setParameter("updatedAt", Instant.parse("2018-10-18T00:00:00Z"))
+            .setParameter("id", album.getId())
+            .execute();
+
+        final Map<String, String[]> args = new HashMap<>();
+        args.put("year__eq", new String[]{"2096"});
+        Assert.assertEquals(1, bulkQuery.bulkUpdate(Album.class, args, Collections.singletonMap("available", "false"), Tests.ebeanServer.createQuery(Album.class)));
+        args.put("since", new String[]{"2018-10-19T00:00:00Z"});
+        ChangeSet<Album> changes = bulkQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertEquals(1, changes.getRows().size());
+        try {
+            bulkQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+            Assert.fail("The since argument is rejected by the bulk operations");
+        } catch (final IllegalArgumentException ex) {
+            Assert.assertEquals("The since argument is not supported by the bulk operation on Album", ex.getMessage());
+        }
+
+        args.put("since", new String[]{changes.getToken()});
+        Assert.assertTrue(bulkQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class)).getRows().isEmpty());
+        args.remove("since");
+        Assert.assertEquals(1, bulkQuery.bulkDelete(Album.class, args, Tests.ebeanServer.createQuery(Album.class)));
+        args.put("since", new String[]{"2018-10-19T00:00:00Z"});
+        changes = bulkQuery.findChanges(Album.class, args, Tests.ebeanServer.createQuery(Album.class));
+        Assert.assertTrue(changes.getRows().isEmpty());
+        Assert.assertEquals(Collections.singletonList(album.getId()), changes.getDeletedIds());
+        album.deletePermanent();
+    }
+
+    /**
+     * @since 26.10.18
+     */
+    @Test
+    public void test058() {
+        final EbeanHttpQueryImpl module = new EbeanHttpQueryImpl(ConfigFactory.empty(), Environment.simple().asScala());
+        final Http.Request request = new Http.RequestBuilder()
+            .uri("/albums?year__gte=2001&nmae__eq=Silence")
+            .build();
+        try (final AdmissionPermit ignore = module.admit(Album.class, request)) {
+            Assert.assertEquals(3, module.buildQuery(Album.class, request, Tests.ebeanServer.createQuery(Album.class)).findCount());
+        }
+        final List<QueryShape> hotShapes = module.getShapeProfile().getHotShapes(16);
+        Assert.assertEquals(1, hotShapes.size());
+        Assert.assertEquals(Collections.singletonList("year__gte"), hotShapes.get(0).getKeys());
+        Assert.assertEquals(1, hotShapes.get(0).getCount());
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 - 2020 Thibault Meyer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package benchmarks;
+
+import com.zero_x_baadf00d.ebean.PlayEbeanHttpQuery;
+import com.zero_x_baadf00d.ebean.filter.QueryKeyTokenizer;
+import models.Cover;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation benchmark of the query string keys tokenization. Compares the
+ * former {@code split}-based approach with {@code QueryKeyTokenizer}. Run it
+ * with the GC profiler to get the allocated bytes per operation
+ * ({@code gc.alloc.rate.norm}).
+ *
+ * @author Thibault Meyer
+ * @version 26.10.18
+ * @since 26.10.18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryKeyTokenizerBenchmark {
+
+    /**
+     * Keys to process.
+     *
+     * @since 26.10.18
+     */
+    private static final String[] KEYS = {
+        "album.artist.name__not__ilike",
+        "album.year__in",
+        "boap.author.nothing__like",
+        "url__orderby",
+        "gnarf",
+    };
+
+    /**
+     * Aliases, same as the ones used by the tests.
+     *
+     * @since 26.10.18
+     */
+    private static final String[][] ALIASES = {
+        {".*\\.?nothing", "name"},
+        {".*\\.?author", "artist"},
+        {"Cover>boap", "album"},
+        {"Cover>gnarf", "album.artist.name"},
+    };
+
+    /**
+     * Reusable tokenizer.
+     *
+     * @since 26.10.18
+     */
+    private final QueryKeyTokenizer tokenizer = new QueryKeyTokenizer();
+
+    /**
+     * Query builder, used for the end-to-end benchmark.
+     *
+     * @since 26.10.18
+     */
+    private PlayEbeanHttpQuery playEbeanHttpQuery;
+
+    /**
+     * Arguments, used for the end-to-end benchmark.
+     *
+     * @since 26.10.18
+     */
+    private Map<String, String[]> args;
+
+    /**
+     * Run the benchmark with the GC profiler.
+     *
+     * @param args The command line arguments
+     * @throws RunnerException If the benchmark fails
+     * @since 26.10.18
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(QueryKeyTokenizerBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()
+        ).run();
+    }
+
+    /**
+     * Prepare the end-to-end benchmark.
+     *
+     * @since 26.10.18
+     */
+    @Setup
+    public void setup() {
+        this.playEbeanHttpQuery = new PlayEbeanHttpQuery();
+        for (final String[] alias : QueryKeyTokenizerBenchmark.ALIASES) {
+            this.playEbeanHttpQuery.addAlias(alias[0], alias[1]);
+        }
+        this.args = new LinkedHashMap<>();
+        for (final String key : QueryKeyTokenizerBenchmark.KEYS) {
+            this.args.put(key, new String[]{"1"});
+        }
+    }
+
+    /**
+     * The former approach: split on "__", split on ".", concatenate the
+     * alias key to try for each word and split the alias on ".".
+     *
+     * @param blackhole Consumes the segments
+     * @since 26.10.18
+     */
+    @Benchmark
+    public void split(final Blackhole blackhole) {
+        for (final String key : QueryKeyTokenizerBenchmark.KEYS) {
+            final String[] keys = key.split("__");
+            String foreignKeys = "";
+            for (final String word : keys[0].split("\\.")) {
+                final String aliasKeyToTry = "Cover>" + word;
+                String alias = null;
+                for (final String[] entry : QueryKeyTokenizerBenchmark.ALIASES) {
+                    if (aliasKeyToTry.matches(entry[0])) {
+                        alias = entry[1];
+                        break;
+                    }
+                }
+                if (alias != null) {
+                    for (final String aliasWord : alias.split("\\.")) {
+                        foreignKeys += (foreignKeys.isEmpty() ? "" : ".") + aliasWord;
+                    }
+                } else {
+                    foreignKeys += (foreignKeys.isEmpty() ? "" : ".") + word;
+                }
+            }
+            blackhole.consume(foreignKeys);
+            blackhole.consume(keys.length >= 3 && keys[1].compareToIgnoreCase("not") == 0);
+            blackhole.consume(keys.length >= 3 ? keys[2] : keys.length >= 2 ? keys[1] : "eq");
+        }
+    }
+
+    /**
+     * The tokenizer: a single scan per key, segments exposed as offsets.
+     *
+     * @param blackhole Consumes the segments
+     * @since 26.10.18
+     */
+    @Benchmark
+    public void tokenizer(final Blackhole blackhole) {
+        for (final String key : QueryKeyTokenizerBenchmark.KEYS) {
+            this.tokenizer.tokenize(key);
+            for (int idx = 0; idx < this.tokenizer.getSegmentCount(); ++idx) {
+                blackhole.consume(this.tokenizer.getSegmentStart(idx));
+                blackhole.consume(this.tokenizer.getSegmentEnd(idx));
+            }
+            blackhole.consume(this.tokenizer.isNegated());
+            blackhole.consume(this.tokenizer.getOperator());
+        }
+    }
+
+    /**
+     * End-to-end parsing of the arguments into a filter tree.
+     *
+     * @param blackhole Consumes the filter tree
+     * @since 26.10.18
+     */
+    @Benchmark
+    public void parseFilter(final Blackhole blackhole) {
+        blackhole.consume(this.playEbeanHttpQuery.parseFilter(Cover.class, this.args));
+    }
+}
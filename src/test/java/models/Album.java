@@ -25,14 +25,17 @@ package models;
 
 import io.ebean.Finder;
 import io.ebean.Model;
+import io.ebean.annotation.SoftDelete;
+import io.ebean.annotation.WhenModified;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 /**
  * Album.
  *
  * @author Thibault Meyer
- * @version 16.12.20
+ * @version 26.10.18
  * @since 16.04.22
  */
 @Entity
@@ -57,6 +60,12 @@ public class Album extends Model {
 
     private Boolean available;
 
+    @WhenModified
+    private Instant updatedAt;
+
+    @SoftDelete
+    private boolean deleted;
+
     public Long getId() {
         return this.id;
     }
@@ -108,4 +117,12 @@ public class Album extends Model {
     public void setAvailable(Boolean available) {
         this.available = available;
     }
+
+    public Instant getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    public boolean isDeleted() {
+        return this.deleted;
+    }
 }
@@ -25,6 +25,7 @@ package models;
 
 import io.ebean.Finder;
 import io.ebean.Model;
+import io.ebean.annotation.Cache;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
@@ -34,10 +35,11 @@ import javax.persistence.OneToOne;
  * Cover.
  *
  * @author Thibault Meyer
- * @version 16.12.20
+ * @version 26.10.18
  * @since 16.04.22
  */
 @Entity
+@Cache(enableQueryCache = true)
 public class Cover extends Model {
 
     public static final Finder<Long, Cover> find = new Finder<>(Cover.class);